@@ -2,4 +2,5 @@ DELETE FROM caz_account.t_account_user_permission;
 DELETE FROM caz_account.t_account_user_code;
 DELETE FROM caz_account.t_account_user_permission;
 DELETE FROM caz_account.t_account_user;
-DELETE FROM caz_account.t_account;
\ No newline at end of file
+DELETE FROM caz_account.t_account;
+DELETE FROM caz_account.t_job_watermark;
\ No newline at end of file
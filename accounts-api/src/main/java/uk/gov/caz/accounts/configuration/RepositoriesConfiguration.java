@@ -2,12 +2,14 @@ package uk.gov.caz.accounts.configuration;
 
 import static uk.gov.caz.accounts.util.Strings.mask;
 
+import java.time.Duration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import uk.gov.caz.accounts.repository.CognitoIdentityProviderClient;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 
 /**
  * Spring Configuration class for {@link IdentityProvider}.
@@ -34,6 +36,23 @@ public class RepositoriesConfiguration {
     return new IdentityProvider(normalisedUserPool, appClientId, appClientSecret, cognitoClient);
   }
 
+  /**
+   * Creates and initializes {@link IdentityProviderUsersResolver}.
+   *
+   * @return A configured IdentityProviderUsersResolver.
+   */
+  @Bean(destroyMethod = "shutdown")
+  public IdentityProviderUsersResolver identityProviderUsersResolver(
+      IdentityProvider identityProvider,
+      @Value("${aws.cognito.users-lookup.concurrency:4}") int concurrency,
+      @Value("${aws.cognito.users-lookup.cache-ttl-seconds:60}") long cacheTtlSeconds,
+      @Value("${aws.cognito.users-lookup.cache-maximum-size:10000}") long cacheMaximumSize) {
+    log.info("Creating IdentityProviderUsersResolver with concurrency: {}, cache-ttl-seconds: {}, "
+        + "cache-maximum-size: {}", concurrency, cacheTtlSeconds, cacheMaximumSize);
+    return new IdentityProviderUsersResolver(identityProvider, concurrency,
+        Duration.ofSeconds(cacheTtlSeconds), cacheMaximumSize);
+  }
+
   /**
    * Normalises user pool, stripping prefix if needed.
    * @param userPoolId to be normalised.
@@ -0,0 +1,24 @@
+package uk.gov.caz.accounts.model;
+
+import java.time.LocalDateTime;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Value object that contains an active account and the latest sign-in of any of its users.
+ */
+@Value(staticConstructor = "of")
+public class InactiveAccount {
+
+  /**
+   * Account which has not been used for a while (only its ID and name are set).
+   */
+  @NonNull
+  Account account;
+
+  /**
+   * The latest sign-in of any user of the {@link InactiveAccount#account}.
+   */
+  @NonNull
+  LocalDateTime latestUserSignIn;
+}
@@ -18,8 +18,6 @@ public interface AccountRepository extends CrudRepository<Account, UUID> {
 
   List<Account> findAllByNameIgnoreCase(String accountName);
 
-  List<Account> findAllByInactivationTimestampIsNull();
-
   @Modifying
   @Query("update Account act set act.name = :accountName where act.id = :accountId")
   void updateName(@Param("accountId") UUID accountId, @Param("accountName") String accountName);
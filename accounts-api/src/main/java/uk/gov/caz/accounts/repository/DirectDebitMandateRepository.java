@@ -1,16 +1,21 @@
 package uk.gov.caz.accounts.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.repository.CrudRepository;
 import uk.gov.caz.accounts.model.DirectDebitMandate;
 
-public interface DirectDebitMandateRepository extends CrudRepository<DirectDebitMandate, String> {
+public interface DirectDebitMandateRepository extends CrudRepository<DirectDebitMandate, String>,
+    DirectDebitMandateRepositoryCustom {
 
   List<DirectDebitMandate> findAllByAccountId(UUID accountId);
 
   Optional<DirectDebitMandate> findByPaymentProviderMandateId(String paymentProviderId);
 
+  List<DirectDebitMandate> findAllByPaymentProviderMandateIdIn(
+      Collection<String> paymentProviderIds);
+
   Optional<DirectDebitMandate> findById(UUID id);
 }
@@ -0,0 +1,19 @@
+package uk.gov.caz.accounts.repository;
+
+import java.util.Map;
+import uk.gov.caz.accounts.model.DirectDebitMandateStatus;
+
+/**
+ * Custom extension for Spring-Data default {@link DirectDebitMandateRepository}.
+ */
+public interface DirectDebitMandateRepositoryCustom {
+
+  /**
+   * Sets statuses of direct debit mandates in a single JDBC batch.
+   *
+   * @param statusesByPaymentProviderMandateId new statuses keyed by IDs of the mandates
+   *     assigned by the payment provider.
+   * @throws IllegalStateException if any of the mandates does not exist.
+   */
+  void updateStatuses(Map<String, DirectDebitMandateStatus> statusesByPaymentProviderMandateId);
+}
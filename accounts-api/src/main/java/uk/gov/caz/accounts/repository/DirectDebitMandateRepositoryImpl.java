@@ -0,0 +1,42 @@
+package uk.gov.caz.accounts.repository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uk.gov.caz.accounts.model.DirectDebitMandateStatus;
+
+/**
+ * Custom extension for Spring-Data default {@link DirectDebitMandateRepository}.
+ */
+@Repository
+@AllArgsConstructor
+public class DirectDebitMandateRepositoryImpl implements DirectDebitMandateRepositoryCustom {
+
+  static final String UPDATE_STATUS_SQL = "UPDATE caz_account.t_account_direct_debit_mandate "
+      + "SET status = ? "
+      + "WHERE payment_provider_mandate_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Override
+  public void updateStatuses(
+      Map<String, DirectDebitMandateStatus> statusesByPaymentProviderMandateId) {
+    if (statusesByPaymentProviderMandateId.isEmpty()) {
+      return;
+    }
+
+    List<Object[]> batchArgs = statusesByPaymentProviderMandateId.entrySet()
+        .stream()
+        .map(entry -> new Object[]{entry.getValue().name(), entry.getKey()})
+        .collect(Collectors.toList());
+
+    int[] updatedRows = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, batchArgs);
+    if (Arrays.stream(updatedRows).anyMatch(count -> count == 0)) {
+      throw new IllegalStateException("Mandate does not exist");
+    }
+  }
+}
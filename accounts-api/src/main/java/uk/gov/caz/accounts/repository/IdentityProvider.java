@@ -100,18 +100,28 @@ public class IdentityProvider {
    * @throws IdentityProviderUnavailableException if user not found.
    */
   public String getEmailByIdentityProviderId(UUID identityProviderId) {
+    UserType user = findUserByIdentityProviderId(identityProviderId).orElseThrow(() -> {
+      log.error("Cannot find user in Identity provider for identityProviderId: '{}'",
+          identityProviderId);
+      return new IdentityProviderUnavailableException();
+    });
+    return getCognitoUserAttribute(user, EMAIL_ATTRIBUTE);
+  }
+
+  /**
+   * Finds the user in the external identity provider based on the provided external identifier.
+   *
+   * @param identityProviderId User ID in IdentityProvider.
+   * @return {@link UserType} with all attributes of the user or {@link Optional#empty()} if the
+   *     user is not found.
+   */
+  public Optional<UserType> findUserByIdentityProviderId(UUID identityProviderId) {
     ListUsersRequest listUsersRequest = buildListUsersByIdentityProviderRequest(identityProviderId);
 
     ListUsersResponse response = cognitoClient.listUsers(listUsersRequest);
     logResponse(response);
 
-    if (response.users().isEmpty()) {
-      log.error("Cannot find user in Identity provider for identityProviderId: '{}'",
-          identityProviderId);
-      throw new IdentityProviderUnavailableException();
-    }
-
-    return getCognitoUserAttribute(response.users().iterator().next(), EMAIL_ATTRIBUTE);
+    return response.users().stream().findFirst();
   }
 
   /**
@@ -127,19 +137,13 @@ public class IdentityProvider {
     Preconditions.checkNotNull(user.getIdentityProviderUserId(),
         "'identityProviderUserId' cannot be null");
 
-    ListUsersRequest listUsersRequest = buildListUsersByIdentityProviderRequest(
-        user.getIdentityProviderUserId());
-
-    ListUsersResponse response = cognitoClient.listUsers(listUsersRequest);
-    logResponse(response);
-
-    if (response.users().isEmpty()) {
-      log.error("Cannot find user in Identity provider for identityProviderUserId: '{}'",
-          user.getIdentityProviderUserId());
-      throw new IdentityProviderUnavailableException();
-    }
-
-    return UserTypeResponseToUserConverter.convert(user, response.users().iterator().next());
+    UserType userType = findUserByIdentityProviderId(user.getIdentityProviderUserId())
+        .orElseThrow(() -> {
+          log.error("Cannot find user in Identity provider for identityProviderUserId: '{}'",
+              user.getIdentityProviderUserId());
+          return new IdentityProviderUnavailableException();
+        });
+    return UserTypeResponseToUserConverter.convert(user, userType);
   }
 
   /**
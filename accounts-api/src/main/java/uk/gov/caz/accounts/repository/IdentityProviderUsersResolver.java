@@ -0,0 +1,178 @@
+package uk.gov.caz.accounts.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UserType;
+import uk.gov.caz.accounts.model.UserEntity;
+import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
+import uk.gov.caz.accounts.util.UserTypeResponseToUserConverter;
+import uk.gov.caz.util.function.MdcAwareSupplier;
+
+/**
+ * Resolves details of many users in the external identity provider at once. Cognito does not
+ * support fetching users by a list of identifiers, so users are looked up one by one, but on a
+ * bounded pool of threads, each identifier at most once per call. Found users are kept in a local
+ * cache for a short time as the same users are usually resolved by subsequent requests.
+ */
+@Slf4j
+public class IdentityProviderUsersResolver {
+
+  private final IdentityProvider identityProvider;
+  private final ExecutorService executor;
+  private final Cache<UUID, UserType> cache;
+
+  /**
+   * Creates an instance of {@link IdentityProviderUsersResolver}.
+   *
+   * @param identityProvider instance of {@link IdentityProvider}
+   * @param concurrency the maximum number of concurrent calls to the identity provider
+   * @param cacheTtl the time after which a cached user is fetched from the identity provider again
+   * @param cacheMaximumSize the maximum number of cached users
+   */
+  public IdentityProviderUsersResolver(IdentityProvider identityProvider, int concurrency,
+      Duration cacheTtl, long cacheMaximumSize) {
+    Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+    this.identityProvider = identityProvider;
+    this.executor = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder()
+        .setNameFormat("identity-provider-%d")
+        .setDaemon(true)
+        .build());
+    this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(cacheTtl.toMillis(), TimeUnit.MILLISECONDS)
+        .maximumSize(cacheMaximumSize)
+        .build();
+  }
+
+  /**
+   * Finds emails of users with the given identifiers in the identity provider.
+   *
+   * @param identityProviderIds IDs of users in the identity provider.
+   * @return A map from the ID of the user to their email, iterated in the order of {@code
+   *     identityProviderIds}. Users who are not found in the identity provider are absent.
+   */
+  public Map<UUID, String> findEmailsByIdentityProviderIds(Collection<UUID> identityProviderIds) {
+    Preconditions.checkNotNull(identityProviderIds, "'identityProviderIds' cannot be null");
+
+    Map<UUID, String> emails = new LinkedHashMap<>();
+    for (Entry<UUID, UserType> user : findUsers(identityProviderIds).entrySet()) {
+      emails.put(user.getKey(), UserTypeResponseToUserConverter.getEmail(user.getValue()));
+    }
+    return emails;
+  }
+
+  /**
+   * Gets details of the given users from the identity provider.
+   *
+   * @param users Users whose {@code identityProviderUserId} is set.
+   * @return Copies of {@code users}, in the same order, with name and email set.
+   * @throws IdentityProviderUnavailableException if any user cannot be found in the identity
+   *     provider.
+   */
+  public List<UserEntity> getUsersDetails(List<UserEntity> users) {
+    Preconditions.checkNotNull(users, "'users' cannot be null");
+    List<UUID> identityProviderIds = users.stream()
+        .map(user -> Preconditions.checkNotNull(user.getIdentityProviderUserId(),
+            "'identityProviderUserId' cannot be null"))
+        .collect(Collectors.toList());
+
+    Map<UUID, UserType> foundUsers = findUsers(identityProviderIds);
+
+    return users.stream()
+        .map(user -> {
+          UserType userType = foundUsers.get(user.getIdentityProviderUserId());
+          if (userType == null) {
+            log.error("Cannot find user in Identity provider for identityProviderUserId: '{}'",
+                user.getIdentityProviderUserId());
+            throw new IdentityProviderUnavailableException();
+          }
+          return UserTypeResponseToUserConverter.convert(user, userType);
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Removes the user from the cache, so that changes of their attributes are visible immediately.
+   *
+   * @param identityProviderId ID of the user in the identity provider.
+   */
+  public void invalidate(UUID identityProviderId) {
+    cache.invalidate(identityProviderId);
+  }
+
+  /**
+   * Stops the threads used to call the identity provider.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Finds users with the given identifiers, first in the cache and then concurrently in the
+   * identity provider.
+   */
+  private Map<UUID, UserType> findUsers(Collection<UUID> identityProviderIds) {
+    Set<UUID> uniqueIds = new LinkedHashSet<>(identityProviderIds);
+    Map<UUID, UserType> cachedUsers = cache.getAllPresent(uniqueIds);
+
+    Map<UUID, CompletableFuture<Optional<UserType>>> lookups = new HashMap<>();
+    for (UUID identityProviderId : uniqueIds) {
+      if (!cachedUsers.containsKey(identityProviderId)) {
+        lookups.put(identityProviderId, CompletableFuture.supplyAsync(MdcAwareSupplier.from(
+            () -> identityProvider.findUserByIdentityProviderId(identityProviderId)), executor));
+      }
+    }
+    log.info("Resolving {} users: {} found in the cache, {} looked up in the identity provider",
+        uniqueIds.size(), cachedUsers.size(), lookups.size());
+
+    Map<UUID, UserType> users = new LinkedHashMap<>();
+    for (UUID identityProviderId : uniqueIds) {
+      if (cachedUsers.containsKey(identityProviderId)) {
+        users.put(identityProviderId, cachedUsers.get(identityProviderId));
+        continue;
+      }
+      Optional<UserType> user = join(lookups.get(identityProviderId));
+      if (user.isPresent()) {
+        cache.put(identityProviderId, user.get());
+        users.put(identityProviderId, user.get());
+      } else {
+        log.warn("User with identityProviderUserId '{}' not found in the identity provider",
+            identityProviderId);
+      }
+    }
+    return users;
+  }
+
+  /**
+   * Waits for the result of {@code lookup} and rethrows the exception thrown by the lookup, if
+   * any.
+   */
+  private static <T> T join(CompletableFuture<T> lookup) {
+    try {
+      return lookup.join();
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+}
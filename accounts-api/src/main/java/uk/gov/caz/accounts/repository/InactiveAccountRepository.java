@@ -0,0 +1,113 @@
+package uk.gov.caz.accounts.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import uk.gov.caz.accounts.model.Account;
+import uk.gov.caz.accounts.model.InactiveAccount;
+
+/**
+ * A class which finds active accounts by the latest sign-in of their users in {@code T_ACCOUNT}
+ * and {@code T_ACCOUNT_USER} tables.
+ */
+@Repository
+@AllArgsConstructor
+public class InactiveAccountRepository {
+
+  /**
+   * Accounts are returned in the order of their IDs, this one precedes all of them.
+   */
+  private static final UUID MIN_ACCOUNT_ID = new UUID(0, 0);
+
+  private static final InactiveAccountRowMapper ROW_MAPPER = new InactiveAccountRowMapper();
+
+  private static final String LATEST_SIGN_IN = "MAX(t_account_user.last_sign_in_timestmp)";
+
+  static final String SELECT_INACTIVE_ACCOUNTS_SQL = "SELECT t_account.account_id, "
+      + "t_account.account_name, " + LATEST_SIGN_IN + " AS latest_sign_in "
+      + "FROM caz_account.t_account "
+      + "JOIN caz_account.t_account_user "
+      + "ON t_account_user.account_id = t_account.account_id "
+      + "WHERE t_account.inactivation_tstamp IS NULL AND t_account.account_id > ? "
+      + "GROUP BY t_account.account_id, t_account.account_name "
+      + "HAVING %s "
+      + "ORDER BY t_account.account_id "
+      + "LIMIT ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Finds active accounts whose latest user sign-in falls into any of the given ranges. Accounts
+   * whose users have never signed in are not returned.
+   *
+   * @param latestSignInRanges ranges with an upper bound, closed lower bounds and open upper
+   *     bounds.
+   * @param afterAccountId ID of the last account of the previous page or {@code null} to get the
+   *     first page.
+   * @param limit the maximum number of returned accounts.
+   * @return A page of matching accounts ordered by their IDs.
+   */
+  public List<InactiveAccount> findByLatestUserSignIn(
+      List<Range<LocalDateTime>> latestSignInRanges, UUID afterAccountId, int limit) {
+    Preconditions.checkArgument(!latestSignInRanges.isEmpty(),
+        "latestSignInRanges cannot be empty");
+    Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+    List<Object> args = new ArrayList<>();
+    args.add(afterAccountId == null ? MIN_ACCOUNT_ID : afterAccountId);
+    String havingCondition = latestSignInRanges.stream()
+        .map(range -> toCondition(range, args))
+        .collect(Collectors.joining(" OR "));
+    args.add(limit);
+
+    return jdbcTemplate.query(String.format(SELECT_INACTIVE_ACCOUNTS_SQL, havingCondition),
+        ROW_MAPPER, args.toArray());
+  }
+
+  /**
+   * Maps {@code range} to an SQL condition on the latest sign-in and adds its bounds to {@code
+   * args}.
+   */
+  private static String toCondition(Range<LocalDateTime> range, List<Object> args) {
+    Preconditions.checkArgument(range.hasUpperBound()
+        && range.upperBoundType() == BoundType.OPEN, "range must have an open upper bound");
+    if (!range.hasLowerBound()) {
+      args.add(Timestamp.valueOf(range.upperEndpoint()));
+      return "(" + LATEST_SIGN_IN + " < ?)";
+    }
+    Preconditions.checkArgument(range.lowerBoundType() == BoundType.CLOSED,
+        "range must have a closed lower bound");
+    args.add(Timestamp.valueOf(range.lowerEndpoint()));
+    args.add(Timestamp.valueOf(range.upperEndpoint()));
+    return "(" + LATEST_SIGN_IN + " >= ? AND " + LATEST_SIGN_IN + " < ?)";
+  }
+
+  /**
+   * A class that maps the row returned from the database to an instance of {@link
+   * InactiveAccount}.
+   */
+  static class InactiveAccountRowMapper implements RowMapper<InactiveAccount> {
+
+    @Override
+    public InactiveAccount mapRow(ResultSet resultSet, int i) throws SQLException {
+      Account account = Account.builder()
+          .id(UUID.fromString(resultSet.getString("account_id")))
+          .name(resultSet.getString("account_name"))
+          .build();
+      return InactiveAccount.of(account,
+          resultSet.getTimestamp("latest_sign_in").toLocalDateTime());
+    }
+  }
+}
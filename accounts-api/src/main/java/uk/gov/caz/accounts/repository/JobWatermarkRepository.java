@@ -0,0 +1,50 @@
+package uk.gov.caz.accounts.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * A class which handles managing data in {@code T_JOB_WATERMARK} table, i.e. the dates up to which
+ * periodic jobs have processed the data.
+ */
+@Repository
+@AllArgsConstructor
+public class JobWatermarkRepository {
+
+  static final String SELECT_PROCESSED_DATE_SQL = "SELECT processed_date "
+      + "FROM caz_account.t_job_watermark "
+      + "WHERE job_name = ?";
+
+  static final String UPSERT_PROCESSED_DATE_SQL = "INSERT INTO caz_account.t_job_watermark "
+      + "(job_name, processed_date) VALUES (?, ?) "
+      + "ON CONFLICT (job_name) DO UPDATE SET processed_date = EXCLUDED.processed_date";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Finds the date up to which the job has processed the data.
+   *
+   * @param jobName Name of the job.
+   * @return The processed date or {@link Optional#empty()} if the job has never completed.
+   */
+  public Optional<LocalDate> findProcessedDate(String jobName) {
+    List<LocalDate> processedDates = jdbcTemplate.query(SELECT_PROCESSED_DATE_SQL,
+        (resultSet, i) -> resultSet.getDate("processed_date").toLocalDate(), jobName);
+    return processedDates.stream().findFirst();
+  }
+
+  /**
+   * Records the date up to which the job has processed the data.
+   *
+   * @param jobName Name of the job.
+   * @param processedDate The processed date.
+   */
+  public void saveProcessedDate(String jobName, LocalDate processedDate) {
+    jdbcTemplate.update(UPSERT_PROCESSED_DATE_SQL, jobName, Date.valueOf(processedDate));
+  }
+}
@@ -1,6 +1,6 @@
 package uk.gov.caz.accounts.repository;
 
-import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,18 +30,18 @@ public interface UserRepository extends CrudRepository<UserEntity, UUID> {
     return findAllByAccountIdAndIdentityProviderUserIdIsNotNull(accountId);
   }
 
-  @Query(value = "SELECT MAX(last_sign_in_timestmp) "
-      + "FROM caz_account.t_account_user WHERE "
-      + "account_id = :accountId",
-      nativeQuery = true)
-  Optional<Timestamp> getLatestUserSignInForAccount(UUID accountId);
-
   List<UserEntity> findByAccountIdAndIsOwner(UUID accountId, boolean isOwner);
 
   default List<UserEntity> findOwnersForAccount(UUID accountId) {
     return findByAccountIdAndIsOwner(accountId, true);
   }
 
+  List<UserEntity> findByAccountIdInAndIsOwner(Collection<UUID> accountIds, boolean isOwner);
+
+  default List<UserEntity> findOwnersForAccounts(Collection<UUID> accountIds) {
+    return findByAccountIdInAndIsOwner(accountIds, true);
+  }
+
   @Modifying
   @Query(value = "UPDATE caz_account.t_account_user "
       + "SET LAST_SIGN_IN_TIMESTMP = CURRENT_TIMESTAMP "
@@ -2,6 +2,7 @@ package uk.gov.caz.accounts.service;
 
 import com.google.common.base.Preconditions;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
@@ -12,9 +13,8 @@ import uk.gov.caz.accounts.model.Account;
 import uk.gov.caz.accounts.model.AccountClosureReason;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountRepository;
-import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
-import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
 import uk.gov.caz.accounts.service.emailnotifications.AccountCloseEmailSender;
 import uk.gov.caz.accounts.service.emailnotifications.EmailContext;
 import uk.gov.caz.accounts.service.exception.AccountNotFoundException;
@@ -28,7 +28,7 @@ import uk.gov.caz.accounts.service.exception.AccountNotFoundException;
 public class AccountCloseService {
 
   private final AccountRepository accountRepository;
-  private final IdentityProvider identityProvider;
+  private final IdentityProviderUsersResolver identityProviderUsersResolver;
   private final AccountCloseEmailSender accountCloseEmailSender;
   private final InactivateAccountService inactivateAccountService;
   private final UserRepository userRepository;
@@ -78,28 +78,16 @@ public class AccountCloseService {
   private List<String> getAllActiveUsersEmailsByAccountId(UUID accountId) {
     List<UserEntity> allUsers = userRepository.findAllActiveUsersByAccountId(accountId);
 
+    // Users who are present in the local DB but cannot be found in the IdentityProvider (which
+    // can happen solely on the DEV environment) are skipped instead of raising an exception.
+    Map<UUID, String> emails = identityProviderUsersResolver.findEmailsByIdentityProviderIds(
+        allUsers.stream().map(UserEntity::getIdentityProviderUserId).collect(Collectors.toList()));
+
     return allUsers
         .stream()
-        .map((owner) -> getExistingUserEmail(owner))
+        .map(UserEntity::getIdentityProviderUserId)
+        .map(emails::get)
         .filter((email) -> email != null)
         .collect(Collectors.toList());
   }
-
-  /**
-   * Method used solely for the situation on the DEV environment when local DB state can differ from
-   * the IdentityProvider state. When a user is present in the local DB and it cannot be found in
-   * the IdentityProvider, instead of raising an exception we skip the non-existing email.
-   */
-  private String getExistingUserEmail(UserEntity user) {
-    String email = null;
-
-    try {
-      email = identityProvider
-          .getEmailByIdentityProviderId(user.getIdentityProviderUserId());
-    } catch (IdentityProviderUnavailableException exception) {
-      log.error("Locally stored user was not found in the IdentityProvider");
-    }
-
-    return email;
-  }
 }
@@ -14,6 +14,7 @@ import uk.gov.caz.accounts.model.User;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountRepository;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
 import uk.gov.caz.accounts.service.exception.AccountNotFoundException;
 import uk.gov.caz.accounts.service.exception.InvitingUserNotFoundException;
@@ -27,6 +28,7 @@ public class AccountStandardUserCreatorService {
   private final AccountUpdateService accountUpdateService;
   private final DuplicatedAccountUserService duplicatedAccountUserService;
   private final IdentityProvider identityProvider;
+  private final IdentityProviderUsersResolver identityProviderUsersResolver;
   private final PasswordResetService passwordResetService;
   private final UserPermissionsService userPermissionsService;
   private final UserRepository userRepository;
@@ -71,7 +73,10 @@ public class AccountStandardUserCreatorService {
     if (userIsAlreadyRegistered(email)) {
       duplicatedAccountUserService.resolveAccountUserDuplication(email);
       identityProvider.setUserName(email, name);
-      return userService.createStandardUserForExistingEmail(email, name, invitingUserId, accountId);
+      UserEntity alteredUser = userService.createStandardUserForExistingEmail(email, name,
+          invitingUserId, accountId);
+      identityProviderUsersResolver.invalidate(alteredUser.getIdentityProviderUserId());
+      return alteredUser;
     }
     UserEntity userToBeCreated = buildUser(accountId, invitingUserId, email, name);
     return userService.createStandardUser(userToBeCreated);
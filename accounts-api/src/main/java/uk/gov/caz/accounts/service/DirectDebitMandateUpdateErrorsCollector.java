@@ -1,9 +1,14 @@
 package uk.gov.caz.accounts.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import org.apache.commons.lang3.EnumUtils;
 import org.springframework.stereotype.Component;
@@ -32,31 +37,54 @@ public class DirectDebitMandateUpdateErrorsCollector {
   public List<DirectDebitMandateUpdateError> collectErrors(UUID accountId,
       List<SingleDirectDebitMandateUpdate> singleDirectDebitMandateUpdates) {
     List<DirectDebitMandateUpdateError> errors = new ArrayList<>();
+    Map<String, DirectDebitMandate> mandatesById = findMandates(singleDirectDebitMandateUpdates);
 
     for (SingleDirectDebitMandateUpdate singleUpdate : singleDirectDebitMandateUpdates) {
-      errors.addAll(detectErrorsForSingleUpdate(accountId, singleUpdate));
+      errors.addAll(detectErrorsForSingleUpdate(accountId, singleUpdate, mandatesById));
     }
 
     return errors;
   }
 
+  /**
+   * Fetches all direct debit mandates referenced by the updates with a single query.
+   *
+   * @param singleDirectDebitMandateUpdates list of updates for direct debit mandates.
+   * @return existing mandates keyed by their payment provider IDs.
+   */
+  private Map<String, DirectDebitMandate> findMandates(
+      List<SingleDirectDebitMandateUpdate> singleDirectDebitMandateUpdates) {
+    if (singleDirectDebitMandateUpdates.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Set<String> mandateIds = singleDirectDebitMandateUpdates.stream()
+        .map(SingleDirectDebitMandateUpdate::getMandateId)
+        .collect(Collectors.toSet());
+
+    return directDebitMandateRepository.findAllByPaymentProviderMandateIdIn(mandateIds)
+        .stream()
+        .collect(Collectors.toMap(DirectDebitMandate::getPaymentProviderMandateId,
+            Function.identity()));
+  }
+
   /**
    * Collects errors for a single mandate update.
    *
    * @param accountId ID of the account.
    * @param singleUpdate data of the single mandate to update.
+   * @param mandatesById existing mandates keyed by their payment provider IDs.
    * @return List of errors for a single mandate.
    */
   private List<DirectDebitMandateUpdateError> detectErrorsForSingleUpdate(UUID accountId,
-      SingleDirectDebitMandateUpdate singleUpdate) {
+      SingleDirectDebitMandateUpdate singleUpdate, Map<String, DirectDebitMandate> mandatesById) {
     List<DirectDebitMandateUpdateError> errors = new ArrayList<>();
 
     if (!EnumUtils.isValidEnum(DirectDebitMandateStatus.class, singleUpdate.getStatus())) {
       errors.add(DirectDebitMandateUpdateError.invalidMandateStatus(singleUpdate.getMandateId()));
     }
 
-    Optional<DirectDebitMandate> directDebitMandateToVerify = directDebitMandateRepository
-        .findByPaymentProviderMandateId(singleUpdate.getMandateId());
+    Optional<DirectDebitMandate> directDebitMandateToVerify = Optional
+        .ofNullable(mandatesById.get(singleUpdate.getMandateId()));
     if (!directDebitMandateToVerify.isPresent()) {
       errors.add(DirectDebitMandateUpdateError
           .missingDirectDebitMandate(singleUpdate.getMandateId()));
@@ -1,6 +1,8 @@
 package uk.gov.caz.accounts.service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -11,7 +13,6 @@ import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.accounts.dto.DirectDebitMandateUpdateError;
 import uk.gov.caz.accounts.dto.DirectDebitMandatesUpdateRequest.SingleDirectDebitMandateUpdate;
 import uk.gov.caz.accounts.model.Account;
-import uk.gov.caz.accounts.model.DirectDebitMandate;
 import uk.gov.caz.accounts.model.DirectDebitMandateStatus;
 import uk.gov.caz.accounts.repository.AccountRepository;
 import uk.gov.caz.accounts.repository.DirectDebitMandateRepository;
@@ -60,36 +61,20 @@ public class DirectDebitMandatesBulkUpdater {
   }
 
   /**
-   * Method iterates over the validated updates and updates direct debit mandates accordingly.
+   * Method updates statuses of direct debit mandates with the validated updates in a single
+   * batch. If a mandate is updated more than once, the last update wins.
    *
    * @param singleDirectDebitMandateUpdates list of updates for the direct debit mandates.
    */
   private void updateValidMandates(
       List<SingleDirectDebitMandateUpdate> singleDirectDebitMandateUpdates) {
-    List<DirectDebitMandate> updatedDirectDebitMandatesToSave = singleDirectDebitMandateUpdates
+    Map<String, DirectDebitMandateStatus> statusesByMandateId = singleDirectDebitMandateUpdates
         .stream()
-        .map(this::getAndEditDirectDebitMandate)
-        .collect(Collectors.toList());
+        .collect(Collectors.toMap(SingleDirectDebitMandateUpdate::getMandateId,
+            singleUpdate -> DirectDebitMandateStatus.valueOf(singleUpdate.getStatus()),
+            (previousStatus, nextStatus) -> nextStatus, LinkedHashMap::new));
 
-    directDebitMandateRepository.saveAll(updatedDirectDebitMandatesToSave);
-  }
-
-  /**
-   * Method fetches direct debit mandate from the database and updates the 'status' attribute
-   * without saving it back to the database.
-   *
-   * @param singleUpdate data to update the mandate.
-   * @return {@link DirectDebitMandate} with updated attribute.
-   */
-  private DirectDebitMandate getAndEditDirectDebitMandate(
-      SingleDirectDebitMandateUpdate singleUpdate) {
-    DirectDebitMandate directDebitMandateToUpdate = directDebitMandateRepository
-        .findByPaymentProviderMandateId(singleUpdate.getMandateId())
-        .orElseThrow(() -> new IllegalStateException("Mandate does not exist"));
-
-    return directDebitMandateToUpdate.toBuilder()
-        .status(DirectDebitMandateStatus.valueOf(singleUpdate.getStatus()))
-        .build();
+    directDebitMandateRepository.updateStatuses(statusesByMandateId);
   }
 
   /**
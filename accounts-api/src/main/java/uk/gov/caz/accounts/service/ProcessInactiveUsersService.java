@@ -1,23 +1,29 @@
 package uk.gov.caz.accounts.service;
 
-import java.sql.Timestamp;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import javax.transaction.Transactional;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.caz.accounts.model.Account;
 import uk.gov.caz.accounts.model.AccountClosureReason;
+import uk.gov.caz.accounts.model.InactiveAccount;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountRepository;
-import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
+import uk.gov.caz.accounts.repository.InactiveAccountRepository;
+import uk.gov.caz.accounts.repository.JobWatermarkRepository;
 import uk.gov.caz.accounts.repository.UserRepository;
-import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
 import uk.gov.caz.accounts.service.emailnotifications.EmailContext;
 import uk.gov.caz.accounts.service.emailnotifications.InactiveFor165DaysEmailSender;
 import uk.gov.caz.accounts.service.emailnotifications.InactiveFor175DaysEmailSender;
@@ -28,110 +34,184 @@ import uk.gov.caz.accounts.service.emailnotifications.InactiveFor180DaysEmailSen
  * with the inactivity and sending proper message.
  */
 @Component
-@AllArgsConstructor
 @Slf4j
 public class ProcessInactiveUsersService {
 
+  static final String JOB_NAME = "process-inactive-accounts";
+
   private static final int INACTIVE_DAY_165 = 165;
   private static final int INACTIVE_DAY_175 = 175;
   private static final int INACTIVE_DAY_180 = 180;
 
   private final AccountRepository accountRepository;
   private final UserRepository userRepository;
-  private final IdentityProvider identityProvider;
+  private final InactiveAccountRepository inactiveAccountRepository;
+  private final JobWatermarkRepository jobWatermarkRepository;
+  private final IdentityProviderUsersResolver identityProviderUsersResolver;
   private final InactivateAccountService inactivateAccountService;
   private final InactiveFor165DaysEmailSender inactiveFor165DaysEmailSender;
   private final InactiveFor175DaysEmailSender inactiveFor175DaysEmailSender;
   private final InactiveFor180DaysEmailSender inactiveFor180DaysEmailSender;
+  private final int pageSize;
+
+  /**
+   * Creates an instance of {@link ProcessInactiveUsersService}.
+   */
+  public ProcessInactiveUsersService(AccountRepository accountRepository,
+      UserRepository userRepository,
+      InactiveAccountRepository inactiveAccountRepository,
+      JobWatermarkRepository jobWatermarkRepository,
+      IdentityProviderUsersResolver identityProviderUsersResolver,
+      InactivateAccountService inactivateAccountService,
+      InactiveFor165DaysEmailSender inactiveFor165DaysEmailSender,
+      InactiveFor175DaysEmailSender inactiveFor175DaysEmailSender,
+      InactiveFor180DaysEmailSender inactiveFor180DaysEmailSender,
+      @Value("${inactive-accounts.page-size:500}") int pageSize) {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+    this.accountRepository = accountRepository;
+    this.userRepository = userRepository;
+    this.inactiveAccountRepository = inactiveAccountRepository;
+    this.jobWatermarkRepository = jobWatermarkRepository;
+    this.identityProviderUsersResolver = identityProviderUsersResolver;
+    this.inactivateAccountService = inactivateAccountService;
+    this.inactiveFor165DaysEmailSender = inactiveFor165DaysEmailSender;
+    this.inactiveFor175DaysEmailSender = inactiveFor175DaysEmailSender;
+    this.inactiveFor180DaysEmailSender = inactiveFor180DaysEmailSender;
+    this.pageSize = pageSize;
+  }
 
   /**
-   * Method fetches all accounts and checks if any of them require email notification.
+   * Method finds accounts which require email notification and sends it. Only the accounts which
+   * have become inactive for 165 or 175 days since the previous run are notified, hence a rerun on
+   * the same day does not notify them again and the days missed by failed runs are caught up.
+   * Accounts inactive for at least 180 days are inactivated regardless of the previous run.
+   *
+   * <p>Note that paging bounds the memory used, not the work done by the database: each run still
+   * computes {@code MAX(last_sign_in_timestmp)} with {@code GROUP BY ... HAVING} over the users of
+   * all active accounts. The {@code (account_id, last_sign_in_timestmp)} index turns it into an
+   * index-only aggregate, but the {@code HAVING} condition cannot be used to filter the index.</p>
    */
   @Transactional
   public void execute() {
-    List<Account> allAccounts = accountRepository.findAllByInactivationTimestampIsNull();
-    allAccounts.stream().forEach(this::checkNotificationForAccount);
+    LocalDate today = LocalDate.now();
+    // the job runs daily, hence the previous day is assumed when it has never completed
+    LocalDate processedDate = jobWatermarkRepository.findProcessedDate(JOB_NAME)
+        .map(date -> date.isAfter(today) ? today : date)
+        .orElseGet(() -> today.minusDays(1));
+    log.info("Processing inactive accounts since {}", processedDate);
+
+    List<Range<LocalDateTime>> latestSignInRanges = Arrays.asList(
+        Range.lessThan(inactiveSince(today, INACTIVE_DAY_180)),
+        Range.closedOpen(inactiveSince(processedDate, INACTIVE_DAY_175),
+            inactiveSince(today, INACTIVE_DAY_175)),
+        Range.closedOpen(inactiveSince(processedDate, INACTIVE_DAY_165),
+            inactiveSince(today, INACTIVE_DAY_165)));
+
+    int processedCount = 0;
+    UUID lastAccountId = null;
+    List<InactiveAccount> inactiveAccounts;
+    do {
+      inactiveAccounts = inactiveAccountRepository.findByLatestUserSignIn(latestSignInRanges,
+          lastAccountId, pageSize);
+      processInactiveAccounts(inactiveAccounts, today);
+      processedCount += inactiveAccounts.size();
+      if (!inactiveAccounts.isEmpty()) {
+        lastAccountId = inactiveAccounts.get(inactiveAccounts.size() - 1).getAccount().getId();
+      }
+    } while (inactiveAccounts.size() == pageSize);
+
+    jobWatermarkRepository.saveProcessedDate(JOB_NAME, today);
+    log.info("Processed {} inactive accounts", processedCount);
   }
 
   /**
-   * Method checks when was the latest sign-in of the user belonging to the provided account and
-   * sends message if it's required.
+   * Sends proper messages to owners of {@code inactiveAccounts}.
    *
-   * @param account account for which the notification requirement is being checked.
+   * @param inactiveAccounts accounts which require notification.
+   * @param today the date for which the inactivity is counted.
    */
-  private void checkNotificationForAccount(Account account) {
-    Optional<Timestamp> latestUserSignIn = userRepository
-        .getLatestUserSignInForAccount(account.getId());
+  private void processInactiveAccounts(List<InactiveAccount> inactiveAccounts, LocalDate today) {
+    if (inactiveAccounts.isEmpty()) {
+      return;
+    }
+    Map<UUID, List<String>> ownersEmails = getOwnersEmailsForAccounts(inactiveAccounts.stream()
+        .map(inactiveAccount -> inactiveAccount.getAccount().getId())
+        .collect(Collectors.toList()));
 
-    if (latestUserSignIn.isPresent()) {
-      sendNotificationIfQualify(account, latestUserSignIn.get().toLocalDateTime());
+    for (InactiveAccount inactiveAccount : inactiveAccounts) {
+      Account account = inactiveAccount.getAccount();
+      sendNotification(account,
+          daysOfInactivity(inactiveAccount.getLatestUserSignIn(), today),
+          ownersEmails.getOrDefault(account.getId(), Collections.emptyList()));
     }
   }
 
   /**
    * Method checks for how long the account was not being used and sends proper message.
    *
-   * @param account account for which the notification requirement is being checked.
-   * @param latestUserSignIn sign-in datetime
+   * @param account account for which the notification is sent.
+   * @param daysOfInactivity number of days since the latest sign-in.
+   * @param ownersEmails emails of owners of the account.
    */
-  private void sendNotificationIfQualify(Account account, LocalDateTime latestUserSignIn) {
-    if (daysOfInactivity(latestUserSignIn) == INACTIVE_DAY_165) {
-      getOwnersEmailsForAccount(account).stream()
-          .forEach((email) -> inactiveFor165DaysEmailSender.send(email, EmailContext.of(account)));
-    } else if (daysOfInactivity(latestUserSignIn) == INACTIVE_DAY_175) {
-      getOwnersEmailsForAccount(account).stream()
-          .forEach((email) -> inactiveFor175DaysEmailSender.send(email, EmailContext.of(account)));
-    } else if (daysOfInactivity(latestUserSignIn) >= INACTIVE_DAY_180) {
-      getOwnersEmailsForAccount(account).stream()
+  private void sendNotification(Account account, long daysOfInactivity,
+      List<String> ownersEmails) {
+    if (daysOfInactivity >= INACTIVE_DAY_180) {
+      ownersEmails
           .forEach((email) -> inactiveFor180DaysEmailSender.send(email, EmailContext.of(account)));
       inactivateAccountService.inactivateAccount(account.getId());
       accountRepository.updateClosureReason(
               account.getId(), AccountClosureReason.ACCOUNT_INACTIVITY);
+    } else if (daysOfInactivity >= INACTIVE_DAY_175) {
+      ownersEmails
+          .forEach((email) -> inactiveFor175DaysEmailSender.send(email, EmailContext.of(account)));
+    } else if (daysOfInactivity >= INACTIVE_DAY_165) {
+      ownersEmails
+          .forEach((email) -> inactiveFor165DaysEmailSender.send(email, EmailContext.of(account)));
     }
   }
 
   /**
-   * Method fetches owner users of the provided account.
+   * Method fetches owner users of the provided accounts.
    *
-   * @param account account which owners are going to be fetched.
-   * @return list of owner emails.
+   * @param accountIds accounts which owners are going to be fetched.
+   * @return owner emails grouped by account.
    */
-  private List<String> getOwnersEmailsForAccount(Account account) {
-    List<UserEntity> accountOwners = userRepository
-        .findOwnersForAccount(account.getId());
+  private Map<UUID, List<String>> getOwnersEmailsForAccounts(List<UUID> accountIds) {
+    List<UserEntity> accountOwners = userRepository.findOwnersForAccounts(accountIds)
+        .stream()
+        .filter(owner -> owner.getIdentityProviderUserId() != null)
+        .collect(Collectors.toList());
+
+    // Users who are present in the local DB but cannot be found in the IdentityProvider (which
+    // can happen solely on the DEV environment) are skipped instead of raising an exception.
+    Map<UUID, String> emails = identityProviderUsersResolver.findEmailsByIdentityProviderIds(
+        accountOwners.stream()
+            .map(UserEntity::getIdentityProviderUserId)
+            .collect(Collectors.toList()));
 
     return accountOwners
         .stream()
-        .map((owner) -> getExistingUserEmail(owner))
-        .filter((email) -> email != null)
-        .collect(Collectors.toList());
+        .filter(owner -> emails.get(owner.getIdentityProviderUserId()) != null)
+        .collect(Collectors.groupingBy(UserEntity::getAccountId, Collectors.mapping(
+            owner -> emails.get(owner.getIdentityProviderUserId()), Collectors.toList())));
   }
 
   /**
-   * Method used solely for the situation on the DEV environment when local DB state can differ from
-   * the IdentityProvider state. When a user is present in the local DB and it cannot be found in
-   * the IdentityProvider, instead of raising an exception we skip the non-existing email.
+   * Returns the moment such that users who signed in before it are inactive for at least {@code
+   * days} days on {@code date}.
    */
-  private String getExistingUserEmail(UserEntity user) {
-    String email = null;
-
-    try {
-      email = identityProvider
-          .getEmailByIdentityProviderId(user.getIdentityProviderUserId());
-    } catch (IdentityProviderUnavailableException exception) {
-      log.error("Locally stored user was not found in the IdentityProvider");
-    }
-
-    return email;
+  private static LocalDateTime inactiveSince(LocalDate date, int days) {
+    return date.minusDays(days - 1).atStartOfDay();
   }
 
   /**
    * Helper method which counts how many days passed since the provided date.
    *
    * @param latestUserSignIn sign-in datetime
+   * @param today the date up to which the days are counted
    * @return quantity of days
    */
-  private long daysOfInactivity(LocalDateTime latestUserSignIn) {
-    return ChronoUnit.DAYS.between(latestUserSignIn.toLocalDate(), LocalDate.now());
+  private static long daysOfInactivity(LocalDateTime latestUserSignIn, LocalDate today) {
+    return ChronoUnit.DAYS.between(latestUserSignIn.toLocalDate(), today);
   }
 }
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
 import uk.gov.caz.accounts.service.exception.AccountUserNotFoundException;
 
@@ -21,6 +22,8 @@ public class UserRenameService {
 
   private final IdentityProvider identityProvider;
 
+  private final IdentityProviderUsersResolver identityProviderUsersResolver;
+
   private final UserRepository userRepository;
 
   /**
@@ -43,5 +46,6 @@ public class UserRenameService {
     String email = identityProvider.getEmailByIdentityProviderId(
         userEntity.getIdentityProviderUserId());
     identityProvider.setUserName(email, newName);
+    identityProviderUsersResolver.invalidate(userEntity.getIdentityProviderUserId());
   }
 }
\ No newline at end of file
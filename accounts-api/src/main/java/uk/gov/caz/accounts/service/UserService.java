@@ -4,6 +4,7 @@ import com.google.common.base.Preconditions;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +21,7 @@ import uk.gov.caz.accounts.model.User;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountUserRepository;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
 import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
 import uk.gov.caz.accounts.service.exception.AccountUserNotFoundException;
@@ -32,6 +34,7 @@ import uk.gov.caz.accounts.util.Strings;
 public class UserService {
 
   private final IdentityProvider identityProvider;
+  private final IdentityProviderUsersResolver identityProviderUsersResolver;
   private final AccountUserRepository accountUserRepository;
   private final UserRepository userRepository;
   private final UserPermissionsService userPermissionsService;
@@ -283,8 +286,15 @@ public class UserService {
   public List<UserEntity> getAllUsersForAccountId(UUID accountId) {
     log.info("Getting Standard users for '{}'", accountId);
     List<UserEntity> users = userRepository.findAllByAccountId(accountId);
+    List<UserEntity> activeUsers = users.stream()
+        .filter(user -> !user.isRemoved())
+        .collect(Collectors.toList());
+    // details of removed users are not fetched from Identity Provider
+    Iterator<UserEntity> activeUsersDetails = identityProviderUsersResolver
+        .getUsersDetails(activeUsers)
+        .iterator();
     return users.stream()
-        .map(this::getUserDetails)
+        .map(user -> user.isRemoved() ? user : activeUsersDetails.next())
         .collect(Collectors.toList());
   }
 
@@ -403,18 +413,4 @@ public class UserService {
       throw new IdentityProviderUnavailableException("External Service Failure");
     }
   }
-
-  /**
-   * Method that fetches user details using Identity Provider unless the user is already removed.
-   *
-   * @param user user for which the details are supposed to be fetched
-   * @return {@link UserEntity} object.
-   * @throws IdentityProviderUnavailableException when identity provider call fails.
-   */
-  private UserEntity getUserDetails(UserEntity user) {
-    if (!user.isRemoved()) {
-      return identityProvider.getUserDetailsByIdentityProviderId(user);
-    }
-    return user;
-  }
 }
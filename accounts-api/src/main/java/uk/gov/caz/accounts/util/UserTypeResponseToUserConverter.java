@@ -48,6 +48,16 @@ public class UserTypeResponseToUserConverter {
         .build();
   }
 
+  /**
+   * Method which extracts email from {@code UserType}.
+   *
+   * @param response response from a third party service.
+   * @return email of the user or {@code null} if not found
+   */
+  public static String getEmail(UserType response) {
+    return getAttributeFromResponse(response, "email");
+  }
+
   /**
    * Method which extracts proper attribute from identity provider response.
    *
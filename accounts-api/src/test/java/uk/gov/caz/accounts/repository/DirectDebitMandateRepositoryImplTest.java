@@ -0,0 +1,80 @@
+package uk.gov.caz.accounts.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.caz.accounts.model.DirectDebitMandateStatus;
+
+@ExtendWith(MockitoExtension.class)
+class DirectDebitMandateRepositoryImplTest {
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @InjectMocks
+  private DirectDebitMandateRepositoryImpl repository;
+
+  @Test
+  public void updateForEmptyMapDoesNothing() {
+    // when
+    repository.updateStatuses(Collections.emptyMap());
+
+    // then
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldUpdateAllStatusesInSingleBatch() {
+    // given
+    given(jdbcTemplate.batchUpdate(any(String.class), anyList())).willReturn(new int[]{1, 1});
+
+    // when
+    repository.updateStatuses(statuses());
+
+    // then
+    ArgumentCaptor<List<Object[]>> batchArgs = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(eq(DirectDebitMandateRepositoryImpl.UPDATE_STATUS_SQL),
+        batchArgs.capture());
+    assertThat(batchArgs.getValue()).containsExactly(
+        new Object[]{"ACTIVE", "mandate-1"},
+        new Object[]{"CANCELLED", "mandate-2"});
+  }
+
+  @Test
+  public void shouldThrowIllegalStateExceptionWhenMandateDoesNotExist() {
+    // given
+    given(jdbcTemplate.batchUpdate(any(String.class), anyList())).willReturn(new int[]{1, 0});
+
+    // when
+    Throwable throwable = catchThrowable(() -> repository.updateStatuses(statuses()));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalStateException.class)
+        .hasMessage("Mandate does not exist");
+  }
+
+  private Map<String, DirectDebitMandateStatus> statuses() {
+    Map<String, DirectDebitMandateStatus> statuses = new LinkedHashMap<>();
+    statuses.put("mandate-1", DirectDebitMandateStatus.ACTIVE);
+    statuses.put("mandate-2", DirectDebitMandateStatus.CANCELLED);
+    return statuses;
+  }
+}
@@ -0,0 +1,135 @@
+package uk.gov.caz.accounts.repository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminCreateUserRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminCreateUserResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminDeleteUserRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminDeleteUserResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminGetUserRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminGetUserResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminInitiateAuthRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminInitiateAuthResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminListGroupsForUserRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminListGroupsForUserResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminSetUserPasswordRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminSetUserPasswordResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminUpdateUserAttributesRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminUpdateUserAttributesResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.AttributeType;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListUsersRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListUsersResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UserType;
+
+/**
+ * An in-memory implementation of {@link CognitoIdentityProviderClient} which supports looking up
+ * users by their identity provider ID only. Records how many lookups were made and how many of
+ * them were running at the same time.
+ */
+class FakeCognitoIdentityProviderClient implements CognitoIdentityProviderClient {
+
+  private static final Pattern PREFERRED_USERNAME_FILTER = Pattern
+      .compile("preferred_username = \"(.+)\"");
+
+  private final Map<UUID, UserType> users = new ConcurrentHashMap<>();
+  private final Map<UUID, AtomicInteger> lookupsCount = new ConcurrentHashMap<>();
+  private final AtomicInteger runningLookups = new AtomicInteger();
+  private final AtomicInteger maxRunningLookups = new AtomicInteger();
+  private final long lookupLatencyMillis;
+
+  FakeCognitoIdentityProviderClient(long lookupLatencyMillis) {
+    this.lookupLatencyMillis = lookupLatencyMillis;
+  }
+
+  void addUser(UUID identityProviderId, String email, String name) {
+    users.put(identityProviderId, UserType.builder()
+        .username(email)
+        .attributes(
+            AttributeType.builder().name("preferred_username")
+                .value(identityProviderId.toString()).build(),
+            AttributeType.builder().name("email").value(email).build(),
+            AttributeType.builder().name("name").value(name).build())
+        .build());
+  }
+
+  int getLookupsCount(UUID identityProviderId) {
+    return Optional.ofNullable(lookupsCount.get(identityProviderId))
+        .map(AtomicInteger::get)
+        .orElse(0);
+  }
+
+  int getTotalLookupsCount() {
+    return lookupsCount.values().stream().mapToInt(AtomicInteger::get).sum();
+  }
+
+  int getMaxRunningLookups() {
+    return maxRunningLookups.get();
+  }
+
+  @Override
+  public ListUsersResponse listUsers(ListUsersRequest listUsersRequest) {
+    Matcher matcher = PREFERRED_USERNAME_FILTER.matcher(listUsersRequest.filter());
+    if (!matcher.matches()) {
+      throw new UnsupportedOperationException("Unsupported filter: " + listUsersRequest.filter());
+    }
+    UUID identityProviderId = UUID.fromString(matcher.group(1));
+    lookupsCount.computeIfAbsent(identityProviderId, id -> new AtomicInteger()).incrementAndGet();
+
+    maxRunningLookups.accumulateAndGet(runningLookups.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(lookupLatencyMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      runningLookups.decrementAndGet();
+    }
+
+    return Optional.ofNullable(users.get(identityProviderId))
+        .map(user -> ListUsersResponse.builder().users(user).build())
+        .orElseGet(() -> ListUsersResponse.builder().build());
+  }
+
+  @Override
+  public AdminGetUserResponse adminGetUser(AdminGetUserRequest adminGetUserRequest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AdminCreateUserResponse adminCreateUser(AdminCreateUserRequest adminCreateUserRequest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AdminDeleteUserResponse adminDeleteUser(AdminDeleteUserRequest adminDeleteUserRequest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AdminUpdateUserAttributesResponse adminUpdateUserAttributes(
+      AdminUpdateUserAttributesRequest adminUpdateUserAttributesRequest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AdminInitiateAuthResponse adminInitiateAuth(
+      AdminInitiateAuthRequest adminInitiateAuthRequest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AdminSetUserPasswordResponse adminSetUserPassword(
+      AdminSetUserPasswordRequest adminSetUserPasswordRequest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AdminListGroupsForUserResponse adminListGroupsForUser(
+      AdminListGroupsForUserRequest adminListGroupsForUserRequest) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,198 @@
+package uk.gov.caz.accounts.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import uk.gov.caz.accounts.model.UserEntity;
+import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
+
+class IdentityProviderUsersResolverTest {
+
+  private static final int CONCURRENCY = 3;
+  private static final long LOOKUP_LATENCY_MILLIS = 50;
+  private static final UUID FIRST_USER_ID = UUID.randomUUID();
+  private static final UUID SECOND_USER_ID = UUID.randomUUID();
+
+  private FakeCognitoIdentityProviderClient cognitoClient;
+
+  private IdentityProviderUsersResolver resolver;
+
+  @BeforeEach
+  public void setUp() {
+    cognitoClient = new FakeCognitoIdentityProviderClient(LOOKUP_LATENCY_MILLIS);
+    cognitoClient.addUser(FIRST_USER_ID, "first@email.com", "First");
+    cognitoClient.addUser(SECOND_USER_ID, "second@email.com", "Second");
+    IdentityProvider identityProvider = new IdentityProvider("user-pool-id", "client-id",
+        "client-secret", cognitoClient);
+    resolver = new IdentityProviderUsersResolver(identityProvider, CONCURRENCY,
+        Duration.ofMinutes(1), 100);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    resolver.shutdown();
+  }
+
+  @Nested
+  class FindEmailsByIdentityProviderIds {
+
+    @Test
+    public void shouldReturnEmailsInOrderOfIds() {
+      // when
+      Map<UUID, String> emails = resolver.findEmailsByIdentityProviderIds(
+          Arrays.asList(SECOND_USER_ID, FIRST_USER_ID));
+
+      // then
+      assertThat(emails.keySet()).containsExactly(SECOND_USER_ID, FIRST_USER_ID);
+      assertThat(emails).containsEntry(FIRST_USER_ID, "first@email.com")
+          .containsEntry(SECOND_USER_ID, "second@email.com");
+    }
+
+    @Test
+    public void shouldLookUpEachUserOnlyOnce() {
+      // when
+      Map<UUID, String> emails = resolver.findEmailsByIdentityProviderIds(
+          Arrays.asList(FIRST_USER_ID, SECOND_USER_ID, FIRST_USER_ID, FIRST_USER_ID));
+
+      // then
+      assertThat(emails).hasSize(2);
+      assertThat(cognitoClient.getLookupsCount(FIRST_USER_ID)).isOne();
+      assertThat(cognitoClient.getLookupsCount(SECOND_USER_ID)).isOne();
+    }
+
+    @Test
+    public void shouldUseCachedUsersInSubsequentCalls() {
+      // given
+      resolver.findEmailsByIdentityProviderIds(Collections.singletonList(FIRST_USER_ID));
+
+      // when
+      Map<UUID, String> emails = resolver.findEmailsByIdentityProviderIds(
+          Arrays.asList(FIRST_USER_ID, SECOND_USER_ID));
+
+      // then
+      assertThat(emails).hasSize(2);
+      assertThat(cognitoClient.getLookupsCount(FIRST_USER_ID)).isOne();
+      assertThat(cognitoClient.getLookupsCount(SECOND_USER_ID)).isOne();
+    }
+
+    @Test
+    public void shouldLookUpUserAgainAfterInvalidation() {
+      // given
+      resolver.findEmailsByIdentityProviderIds(Collections.singletonList(FIRST_USER_ID));
+
+      // when
+      resolver.invalidate(FIRST_USER_ID);
+      resolver.findEmailsByIdentityProviderIds(Collections.singletonList(FIRST_USER_ID));
+
+      // then
+      assertThat(cognitoClient.getLookupsCount(FIRST_USER_ID)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldSkipAndNotCacheUsersWhoAreNotFound() {
+      // given
+      UUID missingUserId = UUID.randomUUID();
+
+      // when
+      Map<UUID, String> emails = resolver.findEmailsByIdentityProviderIds(
+          Arrays.asList(missingUserId, FIRST_USER_ID));
+      resolver.findEmailsByIdentityProviderIds(Collections.singletonList(missingUserId));
+
+      // then
+      assertThat(emails.keySet()).containsExactly(FIRST_USER_ID);
+      assertThat(cognitoClient.getLookupsCount(missingUserId)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLookUpUsersConcurrentlyWithinLimit() {
+      // given
+      List<UUID> ids = IntStream.range(0, 4 * CONCURRENCY)
+          .mapToObj(i -> UUID.randomUUID())
+          .collect(Collectors.toList());
+      ids.forEach(id -> cognitoClient.addUser(id, id + "@email.com", "Name"));
+
+      // when
+      Map<UUID, String> emails = resolver.findEmailsByIdentityProviderIds(ids);
+
+      // then
+      assertThat(emails).hasSize(ids.size());
+      assertThat(cognitoClient.getTotalLookupsCount()).isEqualTo(ids.size());
+      assertThat(cognitoClient.getMaxRunningLookups()).isBetween(2, CONCURRENCY);
+    }
+  }
+
+  @Nested
+  class GetUsersDetails {
+
+    @Test
+    public void shouldReturnUsersWithNameAndEmailInSameOrder() {
+      // given
+      UserEntity firstUser = UserEntity.builder().id(UUID.randomUUID())
+          .identityProviderUserId(FIRST_USER_ID).build();
+      UserEntity secondUser = UserEntity.builder().id(UUID.randomUUID())
+          .identityProviderUserId(SECOND_USER_ID).build();
+
+      // when
+      List<UserEntity> users = resolver.getUsersDetails(Arrays.asList(secondUser, firstUser));
+
+      // then
+      assertThat(users).extracting(UserEntity::getId)
+          .containsExactly(secondUser.getId(), firstUser.getId());
+      assertThat(users).extracting(UserEntity::getEmail)
+          .containsExactly("second@email.com", "first@email.com");
+      assertThat(users).extracting(UserEntity::getName).containsExactly("Second", "First");
+    }
+
+    @Test
+    public void shouldThrowIdentityProviderUnavailableExceptionWhenUserIsNotFound() {
+      // given
+      UserEntity missingUser = UserEntity.builder().identityProviderUserId(UUID.randomUUID())
+          .build();
+
+      // when
+      Throwable throwable = catchThrowable(
+          () -> resolver.getUsersDetails(Collections.singletonList(missingUser)));
+
+      // then
+      assertThat(throwable).isInstanceOf(IdentityProviderUnavailableException.class);
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenIdentityProviderUserIdIsNull() {
+      // given
+      UserEntity user = UserEntity.builder().build();
+
+      // when
+      Throwable throwable = catchThrowable(
+          () -> resolver.getUsersDetails(Collections.singletonList(user)));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("'identityProviderUserId' cannot be null");
+    }
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenConcurrencyIsNotPositive() {
+    // when
+    Throwable throwable = catchThrowable(() -> new IdentityProviderUsersResolver(
+        new IdentityProvider("user-pool-id", "client-id", "client-secret", cognitoClient), 0,
+        Duration.ofMinutes(1), 100));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("concurrency must be positive");
+  }
+}
@@ -0,0 +1,181 @@
+package uk.gov.caz.accounts.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.google.common.collect.Range;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.caz.accounts.model.InactiveAccount;
+
+/**
+ * Seeds an embedded PostgreSQL with a large number of accounts and verifies the query which finds
+ * accounts by the latest sign-in of their users.
+ */
+class InactiveAccountRepositoryTest {
+
+  private static final int ACCOUNTS_COUNT = 20_000;
+  private static final int USERS_PER_ACCOUNT = 3;
+
+  private static final LocalDate TODAY = LocalDate.now();
+
+  /**
+   * Ranges similar to the ones used by the inactive accounts job which was last run 3 days ago.
+   */
+  private static final List<Range<LocalDateTime>> LATEST_SIGN_IN_RANGES = Arrays.asList(
+      Range.lessThan(startOfDay(179)),
+      Range.closedOpen(startOfDay(174 + 3), startOfDay(174)),
+      Range.closedOpen(startOfDay(164 + 3), startOfDay(164)));
+
+  // every 97th account is already inactivated
+  private static final String INSERT_ACCOUNTS_SQL = "INSERT INTO caz_account.t_account "
+      + "(account_id, account_name, inactivation_tstamp) "
+      + "SELECT md5('account-' || i)::uuid, 'account-' || i, "
+      + "CASE WHEN i % 97 = 0 THEN CURRENT_TIMESTAMP END "
+      + "FROM generate_series(1, ?) AS i";
+
+  // users of every 101st account have never signed in, the others sign in every day or so
+  private static final String INSERT_USERS_SQL = "INSERT INTO caz_account.t_account_user "
+      + "(account_user_id, account_id, user_id, is_owner, last_sign_in_timestmp) "
+      + "SELECT md5('account-user-' || i || '-' || j)::uuid, md5('account-' || i)::uuid, "
+      + "md5('user-' || i || '-' || j)::uuid, j = 0, "
+      + "CASE WHEN i % 101 <> 0 THEN CAST(CURRENT_DATE AS timestamp) "
+      + "- ((i + 7 * j) % 200) * INTERVAL '1 day' + j * INTERVAL '1 hour' END "
+      + "FROM generate_series(1, ?) AS i, generate_series(0, ?) AS j";
+
+  private static final String SELECT_LATEST_SIGN_INS_OF_ACTIVE_ACCOUNTS_SQL = "SELECT "
+      + "t_account.account_id, t_account.account_name, "
+      + "MAX(last_sign_in_timestmp) AS latest_sign_in "
+      + "FROM caz_account.t_account JOIN caz_account.t_account_user "
+      + "ON t_account.account_id = t_account_user.account_id "
+      + "WHERE t_account.inactivation_tstamp IS NULL "
+      + "GROUP BY t_account.account_id, t_account.account_name "
+      + "HAVING MAX(last_sign_in_timestmp) IS NOT NULL";
+
+  private static MigratedEmbeddedPostgres postgres;
+
+  private static JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  static void seedDatabase() throws Exception {
+    postgres = MigratedEmbeddedPostgres.start();
+    jdbcTemplate = postgres.jdbcTemplate();
+    jdbcTemplate.update(INSERT_ACCOUNTS_SQL, ACCOUNTS_COUNT);
+    jdbcTemplate.update(INSERT_USERS_SQL, ACCOUNTS_COUNT, USERS_PER_ACCOUNT - 1);
+    jdbcTemplate.execute("ANALYZE");
+  }
+
+  @AfterAll
+  static void stopDatabase() throws IOException {
+    postgres.close();
+  }
+
+  @Test
+  public void shouldFindActiveAccountsWhoseLatestSignInFallsIntoAnyRange() {
+    // given
+    InactiveAccountRepository repository = new InactiveAccountRepository(jdbcTemplate);
+
+    // when
+    List<InactiveAccount> inactiveAccounts = repository
+        .findByLatestUserSignIn(LATEST_SIGN_IN_RANGES, null, ACCOUNTS_COUNT);
+
+    // then
+    assertThat(inactiveAccounts).isNotEmpty()
+        .allSatisfy(inactiveAccount -> assertThat(LATEST_SIGN_IN_RANGES)
+            .anySatisfy(range -> assertThat(range.contains(inactiveAccount.getLatestUserSignIn()))
+                .isTrue()));
+    assertThat(idsOf(inactiveAccounts))
+        .containsExactlyInAnyOrderElementsOf(expectedInactiveAccountIds());
+    assertThat(inactiveAccounts).allSatisfy(
+        inactiveAccount -> assertThat(inactiveAccount.getAccount().getName()).isNotEmpty());
+  }
+
+  @Test
+  public void shouldReturnAllAccountsPageByPageInOrderOfIds() {
+    // given
+    InactiveAccountRepository repository = new InactiveAccountRepository(jdbcTemplate);
+    int pageSize = 500;
+    List<InactiveAccount> allAccounts = new ArrayList<>();
+    List<InactiveAccount> page;
+    UUID lastAccountId = null;
+
+    // when
+    do {
+      page = repository.findByLatestUserSignIn(LATEST_SIGN_IN_RANGES, lastAccountId, pageSize);
+      allAccounts.addAll(page);
+      if (!page.isEmpty()) {
+        lastAccountId = page.get(page.size() - 1).getAccount().getId();
+      }
+    } while (page.size() == pageSize);
+
+    // then
+    assertThat(allAccounts.size()).isGreaterThan(pageSize);
+    assertThat(idsOf(allAccounts))
+        .containsExactlyElementsOf(idsOf(repository.findByLatestUserSignIn(
+            LATEST_SIGN_IN_RANGES, null, ACCOUNTS_COUNT)))
+        .doesNotHaveDuplicates();
+  }
+
+  @Test
+  public void shouldNotFindAnyAccountWhenRangesAreEmpty() {
+    // given
+    InactiveAccountRepository repository = new InactiveAccountRepository(jdbcTemplate);
+
+    // when
+    List<InactiveAccount> inactiveAccounts = repository.findByLatestUserSignIn(
+        Collections.singletonList(Range.closedOpen(startOfDay(164), startOfDay(164))), null,
+        ACCOUNTS_COUNT);
+
+    // then
+    assertThat(inactiveAccounts).isEmpty();
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenRangeHasNoUpperBound() {
+    // given
+    InactiveAccountRepository repository = new InactiveAccountRepository(jdbcTemplate);
+
+    // when
+    Throwable throwable = catchThrowable(() -> repository.findByLatestUserSignIn(
+        Collections.singletonList(Range.atLeast(startOfDay(164))), null, 10));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("range must have an open upper bound");
+  }
+
+  private static List<UUID> idsOf(List<InactiveAccount> inactiveAccounts) {
+    return inactiveAccounts.stream()
+        .map(inactiveAccount -> inactiveAccount.getAccount().getId())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Filters the latest sign-ins of all active accounts in memory.
+   */
+  private static Set<UUID> expectedInactiveAccountIds() {
+    return jdbcTemplate.query(SELECT_LATEST_SIGN_INS_OF_ACTIVE_ACCOUNTS_SQL,
+        new InactiveAccountRepository.InactiveAccountRowMapper())
+        .stream()
+        .filter(inactiveAccount -> LATEST_SIGN_IN_RANGES.stream()
+            .anyMatch(range -> range.contains(inactiveAccount.getLatestUserSignIn())))
+        .map(inactiveAccount -> inactiveAccount.getAccount().getId())
+        .collect(Collectors.toSet());
+  }
+
+  private static LocalDateTime startOfDay(int daysAgo) {
+    return TODAY.minusDays(daysAgo).atStartOfDay();
+  }
+}
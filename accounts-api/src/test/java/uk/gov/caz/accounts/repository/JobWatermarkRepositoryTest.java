@@ -0,0 +1,70 @@
+package uk.gov.caz.accounts.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JobWatermarkRepositoryTest {
+
+  private static final String JOB_NAME = "any-job";
+
+  private static MigratedEmbeddedPostgres postgres;
+
+  private JobWatermarkRepository repository;
+
+  @BeforeAll
+  static void startDatabase() throws Exception {
+    postgres = MigratedEmbeddedPostgres.start();
+  }
+
+  @AfterAll
+  static void stopDatabase() throws IOException {
+    postgres.close();
+  }
+
+  @BeforeEach
+  public void setUp() {
+    postgres.jdbcTemplate().update("DELETE FROM caz_account.t_job_watermark");
+    repository = new JobWatermarkRepository(postgres.jdbcTemplate());
+  }
+
+  @Test
+  public void shouldReturnEmptyOptionalWhenJobHasNeverCompleted() {
+    // when
+    Optional<LocalDate> processedDate = repository.findProcessedDate(JOB_NAME);
+
+    // then
+    assertThat(processedDate).isEmpty();
+  }
+
+  @Test
+  public void shouldReturnSavedProcessedDate() {
+    // given
+    repository.saveProcessedDate(JOB_NAME, LocalDate.of(2020, 11, 3));
+
+    // when
+    Optional<LocalDate> processedDate = repository.findProcessedDate(JOB_NAME);
+
+    // then
+    assertThat(processedDate).contains(LocalDate.of(2020, 11, 3));
+    assertThat(repository.findProcessedDate("other-job")).isEmpty();
+  }
+
+  @Test
+  public void shouldOverwritePreviouslySavedProcessedDate() {
+    // given
+    repository.saveProcessedDate(JOB_NAME, LocalDate.of(2020, 11, 3));
+
+    // when
+    repository.saveProcessedDate(JOB_NAME, LocalDate.of(2020, 11, 4));
+
+    // then
+    assertThat(repository.findProcessedDate(JOB_NAME)).contains(LocalDate.of(2020, 11, 4));
+  }
+}
@@ -0,0 +1,55 @@
+package uk.gov.caz.accounts.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.sql.Connection;
+import javax.sql.DataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * An embedded PostgreSQL with the database migrations applied.
+ */
+class MigratedEmbeddedPostgres implements AutoCloseable {
+
+  // referenced by the migrations granting privileges to roles
+  private static final String DATABASE = "accounts_caz";
+
+  private final EmbeddedPostgres postgres;
+
+  @Getter
+  private final DataSource dataSource;
+
+  private MigratedEmbeddedPostgres(EmbeddedPostgres postgres, DataSource dataSource) {
+    this.postgres = postgres;
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Starts the database and runs the migrations against it.
+   */
+  static MigratedEmbeddedPostgres start() throws Exception {
+    EmbeddedPostgres postgres = EmbeddedPostgres.start();
+    new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE DATABASE " + DATABASE);
+    DataSource dataSource = postgres.getDatabase("postgres", DATABASE);
+    try (Connection connection = dataSource.getConnection()) {
+      Liquibase liquibase = new Liquibase("db/changelog/db.changelog-master.yaml",
+          new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+      liquibase.update(new Contexts());
+    }
+    return new MigratedEmbeddedPostgres(postgres, dataSource);
+  }
+
+  JdbcTemplate jdbcTemplate() {
+    return new JdbcTemplate(dataSource);
+  }
+
+  @Override
+  public void close() throws IOException {
+    postgres.close();
+  }
+}
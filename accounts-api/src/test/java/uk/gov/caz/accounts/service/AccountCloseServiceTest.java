@@ -4,14 +4,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -21,9 +24,8 @@ import uk.gov.caz.accounts.model.Account;
 import uk.gov.caz.accounts.model.AccountClosureReason;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountRepository;
-import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
-import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
 import uk.gov.caz.accounts.service.emailnotifications.AccountCloseEmailSender;
 import uk.gov.caz.accounts.service.exception.AccountNotFoundException;
 
@@ -38,7 +40,7 @@ public class AccountCloseServiceTest {
   private AccountRepository accountRepository;
 
   @Mock
-  private IdentityProvider identityProvider;
+  private IdentityProviderUsersResolver identityProviderUsersResolver;
 
   @Mock
   private InactivateAccountService inactivateAccountService;
@@ -56,8 +58,10 @@ public class AccountCloseServiceTest {
   public void shouldCloseAccountWhenParametersAreValid() {
     // given
     accountIsPresent();
-    mockExistingUsersForAccount();
-    when(identityProvider.getEmailByIdentityProviderId(any())).thenReturn(ANY_EMAIL);
+    List<UserEntity> users = mockExistingUsersForAccount();
+    when(identityProviderUsersResolver.findEmailsByIdentityProviderIds(any())).thenReturn(
+        users.stream().collect(Collectors.toMap(UserEntity::getIdentityProviderUserId,
+            user -> ANY_EMAIL)));
 
     // when
     accountCloseService.closeAccount(ACCOUNT_ID, CLOSURE_REASON.toString());
@@ -98,8 +102,8 @@ public class AccountCloseServiceTest {
     // given
     accountIsPresent();
     mockExistingUsersForAccount();
-    doThrow(new IdentityProviderUnavailableException())
-        .when(identityProvider).getEmailByIdentityProviderId(any());
+    when(identityProviderUsersResolver.findEmailsByIdentityProviderIds(any()))
+        .thenReturn(Collections.emptyMap());
 
     // when
     Throwable throwable = catchThrowable(
@@ -107,6 +111,7 @@ public class AccountCloseServiceTest {
 
     // then
     assertThat(throwable).isNull();
+    verify(accountCloseEmailSender, never()).send(anyString(), any());
   }
 
   private void accountIsPresent() {
@@ -117,20 +122,23 @@ public class AccountCloseServiceTest {
     when(accountRepository.findById(ACCOUNT_ID)).thenReturn(Optional.empty());
   }
 
-  private void mockExistingUsersForAccount() {
+  private List<UserEntity> mockExistingUsersForAccount() {
     UserEntity owner1 = UserEntity.builder()
         .accountId(UUID.randomUUID())
         .id(UUID.randomUUID())
+        .identityProviderUserId(UUID.randomUUID())
         .isOwner(true)
         .build();
 
     UserEntity owner2 = UserEntity.builder()
         .accountId(UUID.randomUUID())
         .id(UUID.randomUUID())
+        .identityProviderUserId(UUID.randomUUID())
         .isOwner(true)
         .build();
 
-    when(userRepository.findAllActiveUsersByAccountId(any())).thenReturn(
-        Arrays.asList(owner1, owner2));
+    List<UserEntity> users = Arrays.asList(owner1, owner2);
+    when(userRepository.findAllActiveUsersByAccountId(any())).thenReturn(users);
+    return users;
   }
 }
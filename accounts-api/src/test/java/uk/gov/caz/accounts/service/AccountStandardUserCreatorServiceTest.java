@@ -24,6 +24,7 @@ import uk.gov.caz.accounts.model.Permission;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountRepository;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
 import uk.gov.caz.accounts.service.exception.AccountNotFoundException;
 import uk.gov.caz.accounts.service.exception.InvitingUserNotFoundException;
@@ -57,6 +58,9 @@ class AccountStandardUserCreatorServiceTest {
   @Mock
   private IdentityProvider identityProvider;
 
+  @Mock
+  private IdentityProviderUsersResolver identityProviderUsersResolver;
+
   @Mock
   private PasswordResetService passwordResetService;
 
@@ -176,6 +180,18 @@ class AccountStandardUserCreatorServiceTest {
       verify(userService).createStandardUserForExistingEmail(any(), any(), any(), any());
       verify(identityProvider).setUserName(EMAIL, ACCOUNT_USER_NAME);
     }
+
+    @Test
+    public void shouldInvalidateCachedIdentityProviderUserAfterRenaming() {
+      // given
+      UserEntity user = mockSuccessfulAccountUserAlteration();
+
+      // when
+      callCreationService();
+
+      // then
+      verify(identityProviderUsersResolver).invalidate(user.getIdentityProviderUserId());
+    }
   }
 
   private void mockAccountFound() {
@@ -191,19 +207,21 @@ class AccountStandardUserCreatorServiceTest {
     mockSuccessfulTokenGeneration();
   }
 
-  private void mockSuccessfulAccountUserAlteration() {
+  private UserEntity mockSuccessfulAccountUserAlteration() {
     mockAccountFound();
     mockAdminUserFound();
-    mockSuccessfulUserAlteration();
+    UserEntity user = mockSuccessfulUserAlteration();
     mockSuccessfulTokenGeneration();
+    return user;
   }
 
-  private void mockSuccessfulUserAlteration() {
+  private UserEntity mockSuccessfulUserAlteration() {
     UserEntity user = sampleCreatedUser();
     when(userService.getUserEntityByEmail(any())).thenReturn(Optional.of(user));
     doNothing().when(duplicatedAccountUserService).resolveAccountUserDuplication(any());
     when(userService.createStandardUserForExistingEmail(any(), any(), any(), any()))
         .thenReturn(user);
+    return user;
   }
 
   private void mockSuccessfulTokenGeneration() {
@@ -2,11 +2,14 @@ package uk.gov.caz.accounts.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -33,6 +36,7 @@ class DirectDebitMandateUpdateErrorsCollectorTest {
   private static final UUID ANY_ACCOUNT_USER_ID = UUID
       .fromString("f64a06aa-347b-4852-966a-1441b04679f0");
   private static final String ANY_MANDATE_ID = "jhjcvaiqlediuhh23d89hd3";
+  private static final String OTHER_MANDATE_ID = "bqxkoeiqlediuhh23d89hd5";
   private static final String ANY_STATUS = DirectDebitMandateStatus.ACTIVE.toString();
 
   @Test
@@ -114,6 +118,38 @@ class DirectDebitMandateUpdateErrorsCollectorTest {
 
   }
 
+  @Test
+  public void shouldFetchAllMandatesWithSingleQuery() {
+    // given
+    mockValidAccountAndMandateAssociation();
+    List<SingleDirectDebitMandateUpdate> updatesList = Arrays.asList(
+        SingleDirectDebitMandateUpdate.builder().mandateId(ANY_MANDATE_ID).status(ANY_STATUS)
+            .build(),
+        SingleDirectDebitMandateUpdate.builder().mandateId(OTHER_MANDATE_ID).status(ANY_STATUS)
+            .build());
+
+    // when
+    List<DirectDebitMandateUpdateError> errors = directDebitMandateUpdateErrorsCollector
+        .collectErrors(ANY_ACCOUNT_ID, updatesList);
+
+    // then
+    verify(directDebitMandateRepository).findAllByPaymentProviderMandateIdIn(
+        new HashSet<>(Arrays.asList(ANY_MANDATE_ID, OTHER_MANDATE_ID)));
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getMessage()).isEqualTo("Direct debit mandate does not exist");
+  }
+
+  @Test
+  public void shouldNotQueryDatabaseWhenThereAreNoUpdates() {
+    // when
+    List<DirectDebitMandateUpdateError> errors = directDebitMandateUpdateErrorsCollector
+        .collectErrors(ANY_ACCOUNT_ID, Collections.emptyList());
+
+    // then
+    assertThat(errors).isEmpty();
+    verifyNoInteractions(directDebitMandateRepository);
+  }
+
   private List<SingleDirectDebitMandateUpdate> buildUpdatesListWith(String mandateId,
       String status) {
     return Arrays.asList(SingleDirectDebitMandateUpdate.builder()
@@ -123,13 +159,13 @@ class DirectDebitMandateUpdateErrorsCollectorTest {
   }
 
   private void mockValidAccountAndMandateAssociation() {
-    when(directDebitMandateRepository.findByPaymentProviderMandateId(any()))
-        .thenReturn(Optional.of(createdDirectDebitMandateMockFor(ANY_ACCOUNT_ID)));
+    when(directDebitMandateRepository.findAllByPaymentProviderMandateIdIn(any()))
+        .thenReturn(Collections.singletonList(createdDirectDebitMandateMockFor(ANY_ACCOUNT_ID)));
   }
 
   private void mockInvalidAccountAndMandateAssociation() {
-    when(directDebitMandateRepository.findByPaymentProviderMandateId(any()))
-        .thenReturn(Optional.of(createdDirectDebitMandateMockFor(UUID.randomUUID())));
+    when(directDebitMandateRepository.findAllByPaymentProviderMandateIdIn(any()))
+        .thenReturn(Collections.singletonList(createdDirectDebitMandateMockFor(UUID.randomUUID())));
   }
 
   private DirectDebitMandate createdDirectDebitMandateMockFor(UUID accountId) {
@@ -4,11 +4,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
@@ -19,7 +22,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.accounts.dto.DirectDebitMandateUpdateError;
 import uk.gov.caz.accounts.dto.DirectDebitMandatesUpdateRequest.SingleDirectDebitMandateUpdate;
 import uk.gov.caz.accounts.model.Account;
-import uk.gov.caz.accounts.model.DirectDebitMandate;
 import uk.gov.caz.accounts.model.DirectDebitMandateStatus;
 import uk.gov.caz.accounts.repository.AccountRepository;
 import uk.gov.caz.accounts.repository.DirectDebitMandateRepository;
@@ -43,9 +45,8 @@ class DirectDebitMandatesBulkUpdaterTest {
 
   private static final UUID ANY_ACCOUNT_ID = UUID
       .fromString("c3dc7458-1089-4984-95a8-1c40e54c572b");
-  private static final UUID ANY_ACCOUNT_USER_ID = UUID
-      .fromString("f64a06aa-347b-4852-966a-1441b04679f0");
   private static final String ANY_MANDATE_ID = "dsvbasdhodsaifha98";
+  private static final String OTHER_MANDATE_ID = "kqpcnwhodsaifha12";
 
   @Test
   public void shouldThrowAccountNotFoundExceptionWhenAccountIsMissing() {
@@ -83,47 +84,56 @@ class DirectDebitMandatesBulkUpdaterTest {
     mockFoundAccount();
     List<SingleDirectDebitMandateUpdate> updatesList = updatesListMock();
     mockSuccessfulValidation();
-    mockAssociatedDirectDebitMandateWithAccount();
 
     // when
     directDebitMandatesBulkUpdater.updateStatuses(ANY_ACCOUNT_ID, updatesList);
 
     // then
-    verify(directDebitMandateRepository).saveAll(any());
+    verify(directDebitMandateRepository).updateStatuses(
+        Collections.singletonMap(ANY_MANDATE_ID, DirectDebitMandateStatus.ACTIVE));
   }
 
   @Test
-  public void shouldThrowIllegalStateExceptionIfMandateIsNotFound() {
+  public void shouldUpdateMandateWithLastStatusWhenItIsUpdatedMoreThanOnce() {
     // given
     mockFoundAccount();
     mockSuccessfulValidation();
-    mockAbsenceOfAssociatedDirectDebitMandateWithAccount();
-    List<SingleDirectDebitMandateUpdate> updatesList = updatesListMock();
+    List<SingleDirectDebitMandateUpdate> updatesList = Arrays.asList(
+        singleUpdate(ANY_MANDATE_ID, DirectDebitMandateStatus.SUBMITTED),
+        singleUpdate(OTHER_MANDATE_ID, DirectDebitMandateStatus.FAILED),
+        singleUpdate(ANY_MANDATE_ID, DirectDebitMandateStatus.ACTIVE));
 
     // when
-    Throwable throwable = catchThrowable(() ->
-        directDebitMandatesBulkUpdater.updateStatuses(ANY_ACCOUNT_ID, updatesList));
+    directDebitMandatesBulkUpdater.updateStatuses(ANY_ACCOUNT_ID, updatesList);
 
-    // when
-    assertThat(throwable).isInstanceOf(IllegalStateException.class)
-        .hasMessage("Mandate does not exist");
+    // then
+    Map<String, DirectDebitMandateStatus> expectedStatuses = new HashMap<>();
+    expectedStatuses.put(ANY_MANDATE_ID, DirectDebitMandateStatus.ACTIVE);
+    expectedStatuses.put(OTHER_MANDATE_ID, DirectDebitMandateStatus.FAILED);
+    verify(directDebitMandateRepository).updateStatuses(expectedStatuses);
   }
 
-  private void mockAbsenceOfAssociatedDirectDebitMandateWithAccount() {
-    when(directDebitMandateRepository.findByPaymentProviderMandateId(any()))
-        .thenReturn(Optional.empty());
+  @Test
+  public void shouldNotUpdateRecordsWhenValidationFails() {
+    // given
+    mockFoundAccount();
+    mockFailedValidation();
+    List<SingleDirectDebitMandateUpdate> updatesList = updatesListMock();
+
+    // when
+    catchThrowable(() ->
+        directDebitMandatesBulkUpdater.updateStatuses(ANY_ACCOUNT_ID, updatesList));
+
+    // then
+    verifyNoInteractions(directDebitMandateRepository);
   }
 
-  private void mockAssociatedDirectDebitMandateWithAccount() {
-    DirectDebitMandate mandate = DirectDebitMandate.builder()
-        .status(DirectDebitMandateStatus.SUBMITTED)
-        .cleanAirZoneId(UUID.randomUUID())
-        .accountUserId(ANY_ACCOUNT_USER_ID)
-        .paymentProviderMandateId(ANY_MANDATE_ID)
+  private SingleDirectDebitMandateUpdate singleUpdate(String mandateId,
+      DirectDebitMandateStatus status) {
+    return SingleDirectDebitMandateUpdate.builder()
+        .mandateId(mandateId)
+        .status(status.toString())
         .build();
-
-    when(directDebitMandateRepository.findByPaymentProviderMandateId(any()))
-        .thenReturn(Optional.of(mandate));
   }
 
   private List<SingleDirectDebitMandateUpdate> updatesListMock() {
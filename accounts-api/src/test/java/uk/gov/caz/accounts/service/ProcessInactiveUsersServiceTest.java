@@ -3,31 +3,41 @@ package uk.gov.caz.accounts.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.sql.Timestamp;
+import com.google.common.collect.Range;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.accounts.model.Account;
 import uk.gov.caz.accounts.model.AccountClosureReason;
+import uk.gov.caz.accounts.model.InactiveAccount;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountRepository;
-import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
+import uk.gov.caz.accounts.repository.InactiveAccountRepository;
+import uk.gov.caz.accounts.repository.JobWatermarkRepository;
 import uk.gov.caz.accounts.repository.UserRepository;
-import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
 import uk.gov.caz.accounts.service.emailnotifications.InactiveFor165DaysEmailSender;
 import uk.gov.caz.accounts.service.emailnotifications.InactiveFor175DaysEmailSender;
 import uk.gov.caz.accounts.service.emailnotifications.InactiveFor180DaysEmailSender;
@@ -39,6 +49,7 @@ class ProcessInactiveUsersServiceTest {
   private static final UUID ACCOUNT_ID = UUID.randomUUID();
   private static final String ANY_COMPANY_NAME = "Funky Pigeon";
   private static final String ANY_EMAIL = "sample@email.com";
+  private static final int PAGE_SIZE = 2;
 
   @Mock
   private AccountRepository accountRepository;
@@ -47,7 +58,13 @@ class ProcessInactiveUsersServiceTest {
   private UserRepository userRepository;
 
   @Mock
-  private IdentityProvider identityProvider;
+  private InactiveAccountRepository inactiveAccountRepository;
+
+  @Mock
+  private JobWatermarkRepository jobWatermarkRepository;
+
+  @Mock
+  private IdentityProviderUsersResolver identityProviderUsersResolver;
 
   @Mock
   private InactivateAccountService inactivateAccountService;
@@ -61,14 +78,24 @@ class ProcessInactiveUsersServiceTest {
   @Mock
   private InactiveFor180DaysEmailSender inactiveFor180DaysEmailSender;
 
-  @InjectMocks
+  @Captor
+  private ArgumentCaptor<List<Range<LocalDateTime>>> rangesCaptor;
+
   private ProcessInactiveUsersService processInactiveUsersService;
 
+  @BeforeEach
+  public void setUp() {
+    processInactiveUsersService = new ProcessInactiveUsersService(accountRepository,
+        userRepository, inactiveAccountRepository, jobWatermarkRepository,
+        identityProviderUsersResolver, inactivateAccountService, inactiveFor165DaysEmailSender,
+        inactiveFor175DaysEmailSender, inactiveFor180DaysEmailSender, PAGE_SIZE);
+  }
+
   @Nested
-  class WhenAllAccountsAreInactivated {
+  class WhenNoAccountRequireNotification {
 
     @Test
-    public void shouldNotProcessAnyAccount() {
+    public void shouldNotCallAnyNotificationSender() {
       // given
       mockInactiveAccounts();
 
@@ -76,72 +103,100 @@ class ProcessInactiveUsersServiceTest {
       processInactiveUsersService.execute();
 
       // then
-      verify(userRepository, never()).getLatestUserSignInForAccount(any());
+      verify(userRepository, never()).findOwnersForAccounts(any());
+      verify(inactiveFor165DaysEmailSender, never()).send(anyString(), any());
+      verify(inactiveFor175DaysEmailSender, never()).send(anyString(), any());
+      verify(inactiveFor180DaysEmailSender, never()).send(anyString(), any());
     }
 
-    private void mockInactiveAccounts() {
-      when(accountRepository.findAllByInactivationTimestampIsNull())
-          .thenReturn(Collections.emptyList());
+    @Test
+    public void shouldRecordTodayAsProcessedDate() {
+      // given
+      mockInactiveAccounts();
+
+      // when
+      processInactiveUsersService.execute();
+
+      // then
+      verify(jobWatermarkRepository)
+          .saveProcessedDate(ProcessInactiveUsersService.JOB_NAME, LocalDate.now());
     }
   }
 
   @Nested
-  class WhenNoAccountRequireNotification {
+  class WhenJobHasNeverCompleted {
 
     @Test
-    public void shouldNotCallAnyNotificationSender() {
+    public void shouldFindAccountsWhichBecameInactiveToday() {
       // given
-      mockActiveAccountWhichDoesNotRequireNotification();
+      mockInactiveAccounts();
 
       // when
       processInactiveUsersService.execute();
 
       // then
-      verify(inactiveFor165DaysEmailSender, never()).send(anyString(), any());
-      verify(inactiveFor175DaysEmailSender, never()).send(anyString(), any());
-      verify(inactiveFor180DaysEmailSender, never()).send(anyString(), any());
+      assertThat(capturedRanges()).containsExactly(
+          Range.lessThan(inactiveSince(LocalDate.now(), 180)),
+          Range.closedOpen(inactiveSince(LocalDate.now().minusDays(1), 175),
+              inactiveSince(LocalDate.now(), 175)),
+          Range.closedOpen(inactiveSince(LocalDate.now().minusDays(1), 165),
+              inactiveSince(LocalDate.now(), 165)));
     }
+  }
+
+  @Nested
+  class WhenJobHasAlreadyCompletedToday {
 
-    private void mockActiveAccountWhichDoesNotRequireNotification() {
-      Account account = Account.builder()
-          .id(UUID.randomUUID())
-          .name(ANY_COMPANY_NAME)
-          .build();
+    @Test
+    public void shouldOnlyFindAccountsToInactivate() {
+      // given
+      mockInactiveAccounts();
+      mockProcessedDate(LocalDate.now());
 
-      when(accountRepository.findAllByInactivationTimestampIsNull())
-          .thenReturn(Arrays.asList(account));
-      when(userRepository.getLatestUserSignInForAccount(any()))
-          .thenReturn(Optional.of(Timestamp.valueOf(LocalDateTime.now())));
+      // when
+      processInactiveUsersService.execute();
+
+      // then
+      List<Range<LocalDateTime>> ranges = capturedRanges();
+      assertThat(ranges.get(0)).isEqualTo(Range.lessThan(inactiveSince(LocalDate.now(), 180)));
+      assertThat(ranges.subList(1, ranges.size())).allMatch(Range::isEmpty);
     }
   }
 
   @Nested
-  class WhenAccountHasUsersWhoNeverSignedIn {
+  class WhenJobHasNotCompletedForFewDays {
 
     @Test
-    public void shouldNotCallAnyNotificationSender() {
+    public void shouldFindAccountsWhichBecameInactiveSinceTheLastCompletedRun() {
       // given
-      mockAccountWithUsersWhoNeverSignedIn();
+      mockInactiveAccounts();
+      mockProcessedDate(LocalDate.now().minusDays(3));
 
       // when
       processInactiveUsersService.execute();
 
       // then
-      verify(inactiveFor165DaysEmailSender, never()).send(anyString(), any());
-      verify(inactiveFor175DaysEmailSender, never()).send(anyString(), any());
-      verify(inactiveFor180DaysEmailSender, never()).send(anyString(), any());
+      assertThat(capturedRanges()).containsExactly(
+          Range.lessThan(inactiveSince(LocalDate.now(), 180)),
+          Range.closedOpen(inactiveSince(LocalDate.now().minusDays(3), 175),
+              inactiveSince(LocalDate.now(), 175)),
+          Range.closedOpen(inactiveSince(LocalDate.now().minusDays(3), 165),
+              inactiveSince(LocalDate.now(), 165)));
     }
 
-    private void mockAccountWithUsersWhoNeverSignedIn() {
-      Account account = Account.builder()
-          .id(UUID.randomUUID())
-          .name(ANY_COMPANY_NAME)
-          .build();
+    @Test
+    public void shouldCallInactiveFor165DaysEmailSenderForMissedDay() {
+      // given
+      mockProcessedDate(LocalDate.now().minusDays(3));
+      mockAccountInactiveForDaysCount(167);
+
+      // when
+      processInactiveUsersService.execute();
 
-      when(accountRepository.findAllByInactivationTimestampIsNull())
-          .thenReturn(Arrays.asList(account));
-      when(userRepository.getLatestUserSignInForAccount(any()))
-          .thenReturn(Optional.empty());
+      // then
+      verify(inactiveFor165DaysEmailSender).send(anyString(), any());
+      verify(inactiveFor175DaysEmailSender, never()).send(anyString(), any());
+      verify(inactiveFor180DaysEmailSender, never()).send(anyString(), any());
     }
   }
 
@@ -247,6 +302,48 @@ class ProcessInactiveUsersServiceTest {
     }
   }
 
+  @Nested
+  class WhenThereAreMoreInactiveAccountsThanPageSize {
+
+    @Test
+    public void shouldProcessAccountsPageByPage() {
+      // given
+      InactiveAccount first = inactiveAccount(UUID.randomUUID(), 165);
+      InactiveAccount second = inactiveAccount(UUID.randomUUID(), 175);
+      InactiveAccount third = inactiveAccount(UUID.randomUUID(), 165);
+      when(inactiveAccountRepository.findByLatestUserSignIn(any(), isNull(), eq(PAGE_SIZE)))
+          .thenReturn(Arrays.asList(first, second));
+      when(inactiveAccountRepository.findByLatestUserSignIn(any(),
+          eq(second.getAccount().getId()), eq(PAGE_SIZE)))
+          .thenReturn(Collections.singletonList(third));
+      when(userRepository.findOwnersForAccounts(any())).thenAnswer(invocation -> {
+        List<UUID> accountIds = invocation.getArgument(0);
+        return accountIds.stream()
+            .map(ProcessInactiveUsersServiceTest::owner)
+            .collect(Collectors.toList());
+      });
+      when(identityProviderUsersResolver.findEmailsByIdentityProviderIds(any()))
+          .thenAnswer(invocation -> {
+            List<UUID> identityProviderIds = invocation.getArgument(0);
+            return identityProviderIds.stream()
+                .collect(Collectors.toMap(id -> id, id -> ANY_EMAIL));
+          });
+
+      // when
+      processInactiveUsersService.execute();
+
+      // then
+      verify(userRepository).findOwnersForAccounts(
+          Arrays.asList(first.getAccount().getId(), second.getAccount().getId()));
+      verify(userRepository).findOwnersForAccounts(
+          Collections.singletonList(third.getAccount().getId()));
+      verify(inactiveFor165DaysEmailSender, times(2)).send(anyString(), any());
+      verify(inactiveFor175DaysEmailSender).send(anyString(), any());
+      verify(jobWatermarkRepository)
+          .saveProcessedDate(ProcessInactiveUsersService.JOB_NAME, LocalDate.now());
+    }
+  }
+
   @Nested
   class WhenLocalAccountWasNotFoundInIdentityProvider {
 
@@ -260,41 +357,63 @@ class ProcessInactiveUsersServiceTest {
 
       // then
       assertThat(throwable).isNull();
+      verify(inactivateAccountService).inactivateAccount(ACCOUNT_ID);
+      verify(inactiveFor180DaysEmailSender, never()).send(anyString(), any());
     }
 
     private void mockAccountWithInconsistentState() {
-      Account account = Account.builder().id(ACCOUNT_ID).name(ANY_COMPANY_NAME).build();
-      UserEntity owner = UserEntity.builder()
-          .identityProviderUserId(UUID.randomUUID())
-          .email(ANY_EMAIL)
-          .build();
-
-      when(accountRepository.findAllByInactivationTimestampIsNull())
-          .thenReturn(Arrays.asList(account));
-      when(userRepository.getLatestUserSignInForAccount(any()))
-          .thenReturn(Optional.of(Timestamp.valueOf(LocalDateTime.now().minusDays(180))));
-      when(userRepository.findOwnersForAccount(any()))
-          .thenReturn(Arrays.asList(owner));
-      doThrow(new IdentityProviderUnavailableException()).when(identityProvider)
-          .getEmailByIdentityProviderId(any());
+      when(inactiveAccountRepository.findByLatestUserSignIn(any(), any(), anyInt()))
+          .thenReturn(Collections.singletonList(inactiveAccount(ACCOUNT_ID, 180)));
+      when(userRepository.findOwnersForAccounts(any()))
+          .thenReturn(Collections.singletonList(owner(ACCOUNT_ID)));
+      when(identityProviderUsersResolver.findEmailsByIdentityProviderIds(any()))
+          .thenReturn(Collections.emptyMap());
     }
   }
 
+  private void mockInactiveAccounts() {
+    when(inactiveAccountRepository.findByLatestUserSignIn(any(), any(), anyInt()))
+        .thenReturn(Collections.emptyList());
+  }
+
+  private void mockProcessedDate(LocalDate processedDate) {
+    when(jobWatermarkRepository.findProcessedDate(ProcessInactiveUsersService.JOB_NAME))
+        .thenReturn(Optional.of(processedDate));
+  }
 
   private void mockAccountInactiveForDaysCount(int daysCount) {
-    Account account = Account.builder().id(ACCOUNT_ID).name(ANY_COMPANY_NAME).build();
-    UserEntity owner = UserEntity.builder()
+    UserEntity owner = owner(ACCOUNT_ID);
+
+    when(inactiveAccountRepository.findByLatestUserSignIn(any(), any(), anyInt()))
+        .thenReturn(Collections.singletonList(inactiveAccount(ACCOUNT_ID, daysCount)));
+    when(userRepository.findOwnersForAccounts(Collections.singletonList(ACCOUNT_ID)))
+        .thenReturn(Collections.singletonList(owner));
+    when(identityProviderUsersResolver
+        .findEmailsByIdentityProviderIds(Arrays.asList(owner.getIdentityProviderUserId())))
+        .thenReturn(Collections.singletonMap(owner.getIdentityProviderUserId(), ANY_EMAIL));
+  }
+
+  private List<Range<LocalDateTime>> capturedRanges() {
+    verify(inactiveAccountRepository)
+        .findByLatestUserSignIn(rangesCaptor.capture(), isNull(), eq(PAGE_SIZE));
+    return rangesCaptor.getValue();
+  }
+
+  private static InactiveAccount inactiveAccount(UUID accountId, int daysCount) {
+    Account account = Account.builder().id(accountId).name(ANY_COMPANY_NAME).build();
+    return InactiveAccount.of(account, LocalDateTime.now().minusDays(daysCount));
+  }
+
+  private static UserEntity owner(UUID accountId) {
+    return UserEntity.builder()
+        .accountId(accountId)
         .identityProviderUserId(UUID.randomUUID())
+        .isOwner(true)
         .email(ANY_EMAIL)
         .build();
+  }
 
-    when(accountRepository.findAllByInactivationTimestampIsNull())
-        .thenReturn(Arrays.asList(account));
-    when(userRepository.getLatestUserSignInForAccount(any()))
-        .thenReturn(Optional.of(Timestamp.valueOf(LocalDateTime.now().minusDays(daysCount))));
-    when(userRepository.findOwnersForAccount(any()))
-        .thenReturn(Arrays.asList(owner));
-    when(identityProvider.getEmailByIdentityProviderId(any()))
-        .thenReturn(ANY_EMAIL);
+  private static LocalDateTime inactiveSince(LocalDate date, int days) {
+    return date.minusDays(days - 1).atStartOfDay();
   }
 }
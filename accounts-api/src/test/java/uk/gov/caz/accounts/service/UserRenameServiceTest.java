@@ -17,6 +17,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
 import uk.gov.caz.accounts.service.exception.AccountUserNotFoundException;
 
@@ -32,6 +33,9 @@ class UserRenameServiceTest {
   @Mock
   private IdentityProvider identityProvider;
 
+  @Mock
+  private IdentityProviderUsersResolver identityProviderUsersResolver;
+
   @InjectMocks
   private UserRenameService userRenameService;
 
@@ -40,11 +44,12 @@ class UserRenameServiceTest {
   @Test
   public void shouldCallIdentityProviderIfUserIsFound() {
     // given
+    UUID identityProviderUserId = UUID.randomUUID();
     given(userRepository.findByIdAndAccountId(ANY_ACCOUNT_USER_ID, ANY_ACCOUNT_ID))
         .willReturn(Optional.of(UserEntity.builder()
             .isOwner(false)
             .name("old name")
-            .identityProviderUserId(UUID.randomUUID())
+            .identityProviderUserId(identityProviderUserId)
             .build()));
 
     // when
@@ -52,6 +57,7 @@ class UserRenameServiceTest {
 
     // then
     verify(identityProvider).setUserName(any(), any());
+    verify(identityProviderUsersResolver).invalidate(identityProviderUserId);
 
   }
 
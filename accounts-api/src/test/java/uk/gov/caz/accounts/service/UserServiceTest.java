@@ -33,6 +33,7 @@ import uk.gov.caz.accounts.model.User;
 import uk.gov.caz.accounts.model.UserEntity;
 import uk.gov.caz.accounts.repository.AccountUserRepository;
 import uk.gov.caz.accounts.repository.IdentityProvider;
+import uk.gov.caz.accounts.repository.IdentityProviderUsersResolver;
 import uk.gov.caz.accounts.repository.UserRepository;
 import uk.gov.caz.accounts.repository.exception.IdentityProviderUnavailableException;
 import uk.gov.caz.accounts.service.exception.AccountUserNotFoundException;
@@ -52,6 +53,9 @@ class UserServiceTest {
   @Mock
   private IdentityProvider identityProvider;
 
+  @Mock
+  private IdentityProviderUsersResolver identityProviderUsersResolver;
+
   @Mock
   private AccountUserRepository accountUserRepository;
 
@@ -461,15 +465,16 @@ class UserServiceTest {
       List<UserEntity> accountUsers = Arrays.asList(user);
       UserEntity userFromIdentityProvider = buildUserWithIdentityProviderUser(user);
 
-      when(identityProvider.getUserDetailsByIdentityProviderId(user))
-          .thenReturn(userFromIdentityProvider);
+      when(identityProviderUsersResolver.getUsersDetails(accountUsers))
+          .thenReturn(Arrays.asList(userFromIdentityProvider));
       when(userRepository.findAllByAccountId(any())).thenReturn(accountUsers);
 
       List<UserEntity> users = userService.getAllUsersForAccountId(ANY_ACCOUNT_ID);
 
-      assertThat(users).isNotEmpty();
-      verify(identityProvider).getUserDetailsByIdentityProviderId(user);
+      assertThat(users).containsExactly(userFromIdentityProvider);
+      verify(identityProviderUsersResolver).getUsersDetails(accountUsers);
       verify(userRepository).findAllByAccountId(ANY_ACCOUNT_ID);
+      verify(identityProvider, never()).getUserDetailsByIdentityProviderId(any(UserEntity.class));
     }
 
     @Test
@@ -480,8 +485,26 @@ class UserServiceTest {
 
       List<UserEntity> result = userService.getAllUsersForAccountId(ANY_ACCOUNT_ID);
 
-      verify(identityProvider, never()).getUserDetailsByIdentityProviderId(any(UserEntity.class));
-      assertThat(result).isNotEmpty();
+      verify(identityProviderUsersResolver).getUsersDetails(Collections.emptyList());
+      assertThat(result).containsExactly(user);
+    }
+
+    @Test
+    public void shouldFetchDetailsOfAllActiveUsersAtOnceAndPreserveOrder() {
+      UserEntity firstUser = buildUserEntity();
+      UserEntity removedUser = getRemovedUser();
+      UserEntity secondUser = buildUserEntity();
+      UserEntity firstUserDetails = buildUserWithIdentityProviderUser(firstUser);
+      UserEntity secondUserDetails = buildUserWithIdentityProviderUser(secondUser);
+
+      when(userRepository.findAllByAccountId(ANY_ACCOUNT_ID))
+          .thenReturn(Arrays.asList(firstUser, removedUser, secondUser));
+      when(identityProviderUsersResolver.getUsersDetails(Arrays.asList(firstUser, secondUser)))
+          .thenReturn(Arrays.asList(firstUserDetails, secondUserDetails));
+
+      List<UserEntity> result = userService.getAllUsersForAccountId(ANY_ACCOUNT_ID);
+
+      assertThat(result).containsExactly(firstUserDetails, removedUser, secondUserDetails);
     }
 
     private UserEntity getRemovedUser() {
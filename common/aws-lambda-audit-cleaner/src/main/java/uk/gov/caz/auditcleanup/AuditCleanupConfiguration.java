@@ -11,9 +11,16 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 public class AuditCleanupConfiguration {
 
   @Bean
-  public AuditPostgresRepository auditPostgresRepository(
-      NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
-    return new AuditPostgresRepository(namedParameterJdbcTemplate);
+  public AuditPurgeEngine auditPurgeEngine(
+      NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+      AuditCleanupProperties auditCleanupProperties) {
+    return new AuditPurgeEngine(namedParameterJdbcTemplate.getJdbcTemplate(),
+        auditCleanupProperties.getChunkRows(), auditCleanupProperties.getInitialChunkWindow());
+  }
+
+  @Bean
+  public AuditPostgresRepository auditPostgresRepository(AuditPurgeEngine auditPurgeEngine) {
+    return new AuditPostgresRepository(auditPurgeEngine);
   }
 
   @Bean
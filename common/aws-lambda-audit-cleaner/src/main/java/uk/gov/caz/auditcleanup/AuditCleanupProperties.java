@@ -1,5 +1,6 @@
 package uk.gov.caz.auditcleanup;
 
+import java.time.Duration;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -9,4 +10,6 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "uk.gov.caz.auditcleanup")
 public class AuditCleanupProperties {
   private int days = 2555;
-}
\ No newline at end of file
+  private long chunkRows = 10000;
+  private Duration initialChunkWindow = Duration.ofHours(1);
+}
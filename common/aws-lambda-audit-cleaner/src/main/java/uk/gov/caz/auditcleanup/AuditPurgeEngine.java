@@ -0,0 +1,166 @@
+package uk.gov.caz.auditcleanup;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Removes audit events older than a given date from a {@code logged_actions} table without
+ * holding locks on (or generating WAL for) the whole range in a single transaction.
+ *
+ * <p>Partitions of a table partitioned by range of {@code action_tstamp} which lie entirely
+ * before the cutoff are dropped. The remaining rows are deleted with statements of the form
+ * {@code action_tstamp < ?}, which can use the index on {@code action_tstamp}, each covering a
+ * time window after the oldest remaining event. Every statement is committed separately (the
+ * engine must not be called within a transaction) and the window is adjusted so that a statement
+ * deletes about {@code chunkRows} rows.</p>
+ */
+@Slf4j
+public class AuditPurgeEngine {
+
+  private static final Pattern TABLE_NAME = Pattern.compile("\\w+(\\.\\w+)?");
+
+  private static final Duration MIN_WINDOW = Duration.ofSeconds(1);
+
+  private static final Duration MAX_WINDOW = Duration.ofDays(3650);
+
+  private static final String PARTITION_KEY = "RANGE (action_tstamp)";
+
+  @VisibleForTesting
+  static final String SELECT_CUTOFF_SQL = "SELECT CAST(? AS date)::timestamptz";
+
+  @VisibleForTesting
+  static final String SELECT_RELKIND_SQL = "SELECT relkind::text FROM pg_class "
+      + "WHERE oid = CAST(? AS regclass)";
+
+  @VisibleForTesting
+  static final String SELECT_PARTITION_KEY_SQL = "SELECT pg_get_partkeydef(CAST(? AS regclass))";
+
+  @VisibleForTesting
+  static final String SELECT_EXPIRED_PARTITIONS_SQL = "SELECT format('%I.%I', n.nspname, "
+      + "c.relname) FROM pg_inherits i "
+      + "JOIN pg_class c ON c.oid = i.inhrelid "
+      + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+      + "WHERE i.inhparent = CAST(? AS regclass) "
+      + "AND CAST(substring(pg_get_expr(c.relpartbound, c.oid) from 'TO \\(''([^'']+)''\\)') "
+      + "AS timestamptz) <= ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final long chunkRows;
+  private final Duration initialWindow;
+
+  /**
+   * Creates the engine.
+   *
+   * @param jdbcTemplate Template of the audited database.
+   * @param chunkRows Number of rows which a single DELETE statement should remove.
+   * @param initialWindow Time window covered by the first DELETE statement.
+   */
+  public AuditPurgeEngine(JdbcTemplate jdbcTemplate, long chunkRows, Duration initialWindow) {
+    checkArgument(chunkRows > 0, "Chunk rows must be greater than 0");
+    checkArgument(initialWindow.compareTo(MIN_WINDOW) >= 0,
+        "Initial window must be at least one second");
+    this.jdbcTemplate = jdbcTemplate;
+    this.chunkRows = chunkRows;
+    this.initialWindow = initialWindow;
+  }
+
+  /**
+   * Removes audit events which happened before the start of {@code date} (in the time zone of
+   * the database session) from {@code table}.
+   *
+   * @param table Schema qualified name of the audit table.
+   * @param date First day whose events are retained.
+   * @return Statistics of the purge.
+   */
+  public AuditPurgeResult purgeBefore(String table, LocalDate date) {
+    checkArgument(TABLE_NAME.matcher(table).matches(), "Invalid table name: %s", table);
+    long startedAt = System.nanoTime();
+    OffsetDateTime cutoff = jdbcTemplate.queryForObject(SELECT_CUTOFF_SQL, OffsetDateTime.class,
+        Date.valueOf(date));
+
+    int droppedPartitions = dropExpiredPartitions(table, cutoff);
+
+    String selectOldestSql = "SELECT min(action_tstamp) FROM " + table
+        + " WHERE action_tstamp < ?";
+    String deleteSql = "DELETE FROM " + table + " WHERE action_tstamp < ?";
+    Duration window = initialWindow;
+    long deletedRows = 0;
+    int chunks = 0;
+    OffsetDateTime oldest = jdbcTemplate.queryForObject(selectOldestSql, OffsetDateTime.class,
+        cutoff);
+    while (oldest != null) {
+      OffsetDateTime upperBound = min(oldest.plus(window), cutoff);
+      int deleted = jdbcTemplate.update(deleteSql, upperBound);
+      deletedRows += deleted;
+      chunks++;
+      window = adjustWindow(window, deleted);
+      oldest = jdbcTemplate.queryForObject(selectOldestSql, OffsetDateTime.class, cutoff);
+    }
+
+    AuditPurgeResult result = AuditPurgeResult.builder()
+        .table(table)
+        .deletedRows(deletedRows)
+        .chunks(chunks)
+        .droppedPartitions(droppedPartitions)
+        .elapsed(Duration.ofNanos(System.nanoTime() - startedAt))
+        .build();
+    log.info("Purged audit events before {} from {}: {} rows deleted in {} chunks ({} rows/s), "
+            + "{} partitions dropped", cutoff, table, result.getDeletedRows(), result.getChunks(),
+        result.getRowsPerSecond(), result.getDroppedPartitions());
+    return result;
+  }
+
+  /**
+   * Drops partitions of {@code table} whose upper bound is not later than the cutoff, provided
+   * that the table is partitioned by range of {@code action_tstamp}.
+   */
+  private int dropExpiredPartitions(String table, OffsetDateTime cutoff) {
+    String relkind = jdbcTemplate.queryForObject(SELECT_RELKIND_SQL, String.class, table);
+    if (!"p".equals(relkind)) {
+      return 0;
+    }
+    String partitionKey = jdbcTemplate.queryForObject(SELECT_PARTITION_KEY_SQL, String.class,
+        table);
+    if (!PARTITION_KEY.equals(partitionKey)) {
+      log.warn("{} is not partitioned by {}, not dropping any partitions", table, PARTITION_KEY);
+      return 0;
+    }
+    List<String> partitions = jdbcTemplate.queryForList(SELECT_EXPIRED_PARTITIONS_SQL,
+        String.class, table, cutoff);
+    for (String partition : partitions) {
+      log.info("Dropping expired audit partition {}", partition);
+      jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+    return partitions.size();
+  }
+
+  /**
+   * Halves the window after a chunk twice as large as the target and doubles it after a chunk
+   * half as large as the target, within bounds.
+   */
+  @VisibleForTesting
+  Duration adjustWindow(Duration window, int deletedRows) {
+    if (deletedRows > 2 * chunkRows) {
+      Duration halved = window.dividedBy(2);
+      return halved.compareTo(MIN_WINDOW) < 0 ? MIN_WINDOW : halved;
+    }
+    if (deletedRows < chunkRows / 2) {
+      Duration doubled = window.multipliedBy(2);
+      return doubled.compareTo(MAX_WINDOW) > 0 ? MAX_WINDOW : doubled;
+    }
+    return window;
+  }
+
+  private static OffsetDateTime min(OffsetDateTime first, OffsetDateTime second) {
+    return first.isBefore(second) ? first : second;
+  }
+}
@@ -0,0 +1,46 @@
+package uk.gov.caz.auditcleanup;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Outcome of purging old audit events from a single table.
+ */
+@Value
+@Builder
+public class AuditPurgeResult {
+
+  /**
+   * Name of the purged table.
+   */
+  String table;
+
+  /**
+   * Number of rows removed with DELETE statements (excluding rows of dropped partitions).
+   */
+  long deletedRows;
+
+  /**
+   * Number of DELETE statements (each committed separately).
+   */
+  int chunks;
+
+  /**
+   * Number of partitions dropped as a whole.
+   */
+  int droppedPartitions;
+
+  /**
+   * Duration of the purge.
+   */
+  Duration elapsed;
+
+  /**
+   * Returns the number of deleted rows per second.
+   */
+  public long getRowsPerSecond() {
+    long elapsedMillis = Math.max(1, elapsed.toMillis());
+    return deletedRows * 1000 / elapsedMillis;
+  }
+}
@@ -2,7 +2,7 @@ package uk.gov.caz.auditcleanup;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.assertj.core.api.Java6Assertions.assertThatThrownBy;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,8 +44,8 @@ class AuditCleanupDataServiceTest {
   @Test
   public void shouldCallRepositoryWithDateInThePast() {
     //given
-    doNothing().when(auditPostgresRepository)
-        .removeAuditEventsBeforeDate(localDateArgumentCaptor.capture());
+    when(auditPostgresRepository.removeAuditEventsBeforeDate(localDateArgumentCaptor.capture()))
+        .thenReturn(null);
 
     //when
     auditCleanupDataService.cleanupOldAuditData();
@@ -2,6 +2,7 @@ package uk.gov.caz.auditcleanup;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.Duration;
 import org.junit.jupiter.api.Test;
 
 class AuditCleanupPropertiesTest {
@@ -30,4 +31,26 @@ class AuditCleanupPropertiesTest {
     //then
     assertThat(auditCleanupProperties.getDays()).isEqualTo(target);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void shouldCheckDefaultChunking() {
+    //when
+    AuditCleanupProperties auditCleanupProperties = new AuditCleanupProperties();
+
+    //then
+    assertThat(auditCleanupProperties.getChunkRows()).isEqualTo(10000);
+    assertThat(auditCleanupProperties.getInitialChunkWindow()).isEqualTo(Duration.ofHours(1));
+  }
+
+  @Test
+  public void shouldSuccessfullySetChunking() {
+    //when
+    AuditCleanupProperties auditCleanupProperties = new AuditCleanupProperties();
+    auditCleanupProperties.setChunkRows(500);
+    auditCleanupProperties.setInitialChunkWindow(Duration.ofMinutes(5));
+
+    //then
+    assertThat(auditCleanupProperties.getChunkRows()).isEqualTo(500);
+    assertThat(auditCleanupProperties.getInitialChunkWindow()).isEqualTo(Duration.ofMinutes(5));
+  }
+}
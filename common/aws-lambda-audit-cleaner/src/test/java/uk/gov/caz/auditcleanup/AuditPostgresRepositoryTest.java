@@ -1,46 +1,41 @@
 package uk.gov.caz.auditcleanup;
 
-import static org.mockito.Mockito.verify;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
-import static uk.gov.caz.auditcleanup.AuditPostgresRepository.DELETE_SQL;
+import static uk.gov.caz.auditcleanup.AuditPostgresRepository.AUDIT_TABLE;
 
-import java.sql.Types;
+import java.time.Duration;
 import java.time.LocalDate;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class AuditPostgresRepositoryTest {
 
   @Mock
-  private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+  private AuditPurgeEngine auditPurgeEngine;
 
   @InjectMocks
   private AuditPostgresRepository auditPostgresRepository;
 
   @Test
-  public void shouldCallUpdateMethodWithProperValues() {
+  public void shouldPurgeAuditTableWithEngine() {
     //given
     LocalDate date = LocalDate.now();
-
-    MapSqlParameterSource mapSqlParameterSource = new MapSqlParameterSource();
-    mapSqlParameterSource.addValue("input_date", date, Types.DATE);
-
-    when(namedParameterJdbcTemplate
-        .update(ArgumentMatchers.eq(DELETE_SQL), ArgumentMatchers.any(MapSqlParameterSource.class)))
-        .thenReturn(1);
+    AuditPurgeResult expected = AuditPurgeResult.builder()
+        .table(AUDIT_TABLE)
+        .deletedRows(1)
+        .elapsed(Duration.ZERO)
+        .build();
+    when(auditPurgeEngine.purgeBefore(AUDIT_TABLE, date)).thenReturn(expected);
 
     //when
-    auditPostgresRepository.removeAuditEventsBeforeDate(date);
+    AuditPurgeResult result = auditPostgresRepository.removeAuditEventsBeforeDate(date);
 
     //then
-    verify(namedParameterJdbcTemplate)
-        .update(ArgumentMatchers.eq(DELETE_SQL), ArgumentMatchers.refEq(mapSqlParameterSource));
+    assertThat(result).isEqualTo(expected);
   }
-}
\ No newline at end of file
+}
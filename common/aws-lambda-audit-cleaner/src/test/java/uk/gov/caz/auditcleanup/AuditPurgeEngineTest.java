@@ -0,0 +1,189 @@
+package uk.gov.caz.auditcleanup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.caz.auditcleanup.AuditPurgeEngine.SELECT_CUTOFF_SQL;
+import static uk.gov.caz.auditcleanup.AuditPurgeEngine.SELECT_EXPIRED_PARTITIONS_SQL;
+import static uk.gov.caz.auditcleanup.AuditPurgeEngine.SELECT_PARTITION_KEY_SQL;
+import static uk.gov.caz.auditcleanup.AuditPurgeEngine.SELECT_RELKIND_SQL;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class AuditPurgeEngineTest {
+
+  private static final String TABLE = "audit.logged_actions";
+  private static final String SELECT_OLDEST_SQL =
+      "SELECT min(action_tstamp) FROM audit.logged_actions WHERE action_tstamp < ?";
+  private static final String DELETE_SQL =
+      "DELETE FROM audit.logged_actions WHERE action_tstamp < ?";
+  private static final LocalDate DATE = LocalDate.of(2020, 6, 1);
+  private static final OffsetDateTime CUTOFF = OffsetDateTime.of(2020, 6, 1, 0, 0, 0, 0,
+      ZoneOffset.UTC);
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  private AuditPurgeEngine auditPurgeEngine;
+
+  @BeforeEach
+  public void setup() {
+    auditPurgeEngine = new AuditPurgeEngine(jdbcTemplate, 100, Duration.ofHours(1));
+  }
+
+  @Test
+  public void shouldNotAllowNonPositiveChunkRows() {
+    assertThatThrownBy(() -> new AuditPurgeEngine(jdbcTemplate, 0, Duration.ofHours(1)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Chunk rows must be greater than 0");
+  }
+
+  @Test
+  public void shouldNotAllowInitialWindowShorterThanOneSecond() {
+    assertThatThrownBy(() -> new AuditPurgeEngine(jdbcTemplate, 100, Duration.ofMillis(999)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Initial window must be at least one second");
+  }
+
+  @Test
+  public void shouldRejectInvalidTableName() {
+    assertThatThrownBy(() -> auditPurgeEngine.purgeBefore("audit.logged_actions; --", DATE))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid table name: audit.logged_actions; --");
+  }
+
+  @Test
+  public void shouldDeleteRowsInWindowsAfterOldestEvent() {
+    //given
+    mockCutoff();
+    mockRelkind("r");
+    OffsetDateTime oldest = CUTOFF.minusDays(10);
+    OffsetDateTime secondOldest = oldest.plusHours(1);
+    when(jdbcTemplate.queryForObject(SELECT_OLDEST_SQL, OffsetDateTime.class, CUTOFF))
+        .thenReturn(oldest, secondOldest, CUTOFF.minusHours(1), null);
+    when(jdbcTemplate.update(eq(DELETE_SQL), any(OffsetDateTime.class)))
+        .thenReturn(100, 10, 5);
+
+    //when
+    AuditPurgeResult result = auditPurgeEngine.purgeBefore(TABLE, DATE);
+
+    //then
+    InOrder inOrder = Mockito.inOrder(jdbcTemplate);
+    inOrder.verify(jdbcTemplate).update(DELETE_SQL, oldest.plusHours(1));
+    inOrder.verify(jdbcTemplate).update(DELETE_SQL, secondOldest.plusHours(1));
+    inOrder.verify(jdbcTemplate).update(DELETE_SQL, CUTOFF);
+    assertThat(result.getTable()).isEqualTo(TABLE);
+    assertThat(result.getDeletedRows()).isEqualTo(115);
+    assertThat(result.getChunks()).isEqualTo(3);
+    assertThat(result.getDroppedPartitions()).isZero();
+  }
+
+  @Test
+  public void shouldNotDeleteAnythingWhenThereAreNoOldEvents() {
+    //given
+    mockCutoff();
+    mockRelkind("r");
+    when(jdbcTemplate.queryForObject(SELECT_OLDEST_SQL, OffsetDateTime.class, CUTOFF))
+        .thenReturn(null);
+
+    //when
+    AuditPurgeResult result = auditPurgeEngine.purgeBefore(TABLE, DATE);
+
+    //then
+    assertThat(result.getDeletedRows()).isZero();
+    assertThat(result.getChunks()).isZero();
+    verify(jdbcTemplate, never()).update(eq(DELETE_SQL), any(OffsetDateTime.class));
+  }
+
+  @Test
+  public void shouldDropExpiredPartitionsBeforeDeletingRemainingRows() {
+    //given
+    mockCutoff();
+    mockRelkind("p");
+    when(jdbcTemplate.queryForObject(SELECT_PARTITION_KEY_SQL, String.class, TABLE))
+        .thenReturn("RANGE (action_tstamp)");
+    when(jdbcTemplate.queryForList(SELECT_EXPIRED_PARTITIONS_SQL, String.class, TABLE, CUTOFF))
+        .thenReturn(Arrays.asList("audit.logged_actions_2020_04", "audit.logged_actions_2020_05"));
+    when(jdbcTemplate.queryForObject(SELECT_OLDEST_SQL, OffsetDateTime.class, CUTOFF))
+        .thenReturn(null);
+
+    //when
+    AuditPurgeResult result = auditPurgeEngine.purgeBefore(TABLE, DATE);
+
+    //then
+    verify(jdbcTemplate).execute("DROP TABLE audit.logged_actions_2020_04");
+    verify(jdbcTemplate).execute("DROP TABLE audit.logged_actions_2020_05");
+    assertThat(result.getDroppedPartitions()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotDropPartitionsOfTablePartitionedByOtherKey() {
+    //given
+    mockCutoff();
+    mockRelkind("p");
+    when(jdbcTemplate.queryForObject(SELECT_PARTITION_KEY_SQL, String.class, TABLE))
+        .thenReturn("LIST (action)");
+    when(jdbcTemplate.queryForObject(SELECT_OLDEST_SQL, OffsetDateTime.class, CUTOFF))
+        .thenReturn(null);
+
+    //when
+    AuditPurgeResult result = auditPurgeEngine.purgeBefore(TABLE, DATE);
+
+    //then
+    assertThat(result.getDroppedPartitions()).isZero();
+    verify(jdbcTemplate, never()).execute(anyString());
+  }
+
+  @Test
+  public void shouldHalveWindowAfterTooLargeChunkDownToOneSecond() {
+    assertThat(auditPurgeEngine.adjustWindow(Duration.ofHours(1), 201))
+        .isEqualTo(Duration.ofMinutes(30));
+    assertThat(auditPurgeEngine.adjustWindow(Duration.ofSeconds(1), 201))
+        .isEqualTo(Duration.ofSeconds(1));
+  }
+
+  @Test
+  public void shouldDoubleWindowAfterTooSmallChunkUpToTenYears() {
+    assertThat(auditPurgeEngine.adjustWindow(Duration.ofHours(1), 49))
+        .isEqualTo(Duration.ofHours(2));
+    assertThat(auditPurgeEngine.adjustWindow(Duration.ofDays(3000), 0))
+        .isEqualTo(Duration.ofDays(3650));
+  }
+
+  @Test
+  public void shouldKeepWindowAfterChunkCloseToTarget() {
+    assertThat(auditPurgeEngine.adjustWindow(Duration.ofHours(1), 50))
+        .isEqualTo(Duration.ofHours(1));
+    assertThat(auditPurgeEngine.adjustWindow(Duration.ofHours(1), 200))
+        .isEqualTo(Duration.ofHours(1));
+  }
+
+  private void mockCutoff() {
+    when(jdbcTemplate.queryForObject(SELECT_CUTOFF_SQL, OffsetDateTime.class,
+        Date.valueOf(DATE))).thenReturn(CUTOFF);
+  }
+
+  private void mockRelkind(String relkind) {
+    when(jdbcTemplate.queryForObject(SELECT_RELKIND_SQL, String.class, TABLE))
+        .thenReturn(relkind);
+  }
+}
@@ -0,0 +1,39 @@
+package uk.gov.caz.auditcleanup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class AuditPurgeResultTest {
+
+  @Test
+  public void shouldComputeRowsPerSecond() {
+    //given
+    AuditPurgeResult result = AuditPurgeResult.builder()
+        .deletedRows(5000)
+        .elapsed(Duration.ofMillis(2500))
+        .build();
+
+    //when
+    long rowsPerSecond = result.getRowsPerSecond();
+
+    //then
+    assertThat(rowsPerSecond).isEqualTo(2000);
+  }
+
+  @Test
+  public void shouldNotDivideByZeroForInstantPurge() {
+    //given
+    AuditPurgeResult result = AuditPurgeResult.builder()
+        .deletedRows(5)
+        .elapsed(Duration.ZERO)
+        .build();
+
+    //when
+    long rowsPerSecond = result.getRowsPerSecond();
+
+    //then
+    assertThat(rowsPerSecond).isEqualTo(5000);
+  }
+}
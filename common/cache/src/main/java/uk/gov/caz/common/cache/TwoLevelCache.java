@@ -0,0 +1,98 @@
+package uk.gov.caz.common.cache;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import org.springframework.cache.Cache;
+
+/**
+ * {@link Cache} which serves values from an in-process near cache and falls back to the remote
+ * (e.g. redis) cache on a miss, populating the near cache with the remote value. Writes and
+ * evictions are applied to both tiers, evictions are additionally published so that near caches of
+ * other instances are invalidated too.
+ */
+class TwoLevelCache implements Cache {
+
+  private final Cache nearCache;
+  private final Cache remoteCache;
+  private final Consumer<String> invalidationPublisher;
+
+  TwoLevelCache(Cache nearCache, Cache remoteCache, Consumer<String> invalidationPublisher) {
+    this.nearCache = nearCache;
+    this.remoteCache = remoteCache;
+    this.invalidationPublisher = invalidationPublisher;
+  }
+
+  @Override
+  public String getName() {
+    return remoteCache.getName();
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return nearCache.getNativeCache();
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    ValueWrapper nearValue = nearCache.get(key);
+    if (nearValue != null) {
+      return nearValue;
+    }
+    ValueWrapper remoteValue = remoteCache.get(key);
+    if (remoteValue != null) {
+      nearCache.put(key, remoteValue.get());
+    }
+    return remoteValue;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Class<T> type) {
+    ValueWrapper valueWrapper = get(key);
+    Object value = valueWrapper == null ? null : valueWrapper.get();
+    if (value != null && type != null && !type.isInstance(value)) {
+      throw new IllegalStateException(
+          "Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    return nearCache.get(key, () -> remoteCache.get(key, valueLoader));
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    remoteCache.put(key, value);
+    nearCache.put(key, value);
+  }
+
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    ValueWrapper existingValue = remoteCache.putIfAbsent(key, value);
+    nearCache.put(key, existingValue == null ? value : existingValue.get());
+    return existingValue;
+  }
+
+  @Override
+  public void evict(Object key) {
+    remoteCache.evict(key);
+    nearCache.evict(key);
+    invalidationPublisher.accept(getName());
+  }
+
+  @Override
+  public void clear() {
+    remoteCache.clear();
+    nearCache.clear();
+    invalidationPublisher.accept(getName());
+  }
+
+  /**
+   * Clears the near cache of this instance only.
+   */
+  void clearNearCache() {
+    nearCache.clear();
+  }
+}
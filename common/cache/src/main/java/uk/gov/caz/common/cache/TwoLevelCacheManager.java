@@ -0,0 +1,106 @@
+package uk.gov.caz.common.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * {@link CacheManager} which puts a bounded, TTL-based Caffeine near cache in front of the caches
+ * of the remote (e.g. redis) cache manager with the given names. Other caches are served by the
+ * remote cache manager directly.
+ *
+ * <p>Size, hits, misses, evictions and the hit ratio of every near cache are recorded as
+ * {@code cache.*} meters tagged with {@code tier=near}.</p>
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager {
+
+  static final String HIT_RATIO = "cache.hit.ratio";
+
+  private final CacheManager remoteCacheManager;
+  private final Set<String> nearCacheNames;
+  private final long maximumSize;
+  private final Duration timeToLive;
+  private final MeterRegistry meterRegistry;
+  private final Consumer<String> invalidationPublisher;
+  private final Map<String, TwoLevelCache> twoLevelCaches = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the cache manager.
+   *
+   * @param remoteCacheManager Cache manager of the remote caches.
+   * @param nearCacheNames Names of the caches which get the near cache.
+   * @param maximumSize Maximum number of entries held by every near cache.
+   * @param timeToLive Time after which entries of near caches expire.
+   * @param meterRegistry Registry of the near cache metrics.
+   * @param invalidationPublisher Notifies other instances that a near cache with the given name
+   *     is to be invalidated.
+   */
+  public TwoLevelCacheManager(CacheManager remoteCacheManager, Collection<String> nearCacheNames,
+      long maximumSize, Duration timeToLive, MeterRegistry meterRegistry,
+      Consumer<String> invalidationPublisher) {
+    this.remoteCacheManager = remoteCacheManager;
+    this.nearCacheNames = new LinkedHashSet<>(nearCacheNames);
+    this.maximumSize = maximumSize;
+    this.timeToLive = timeToLive;
+    this.meterRegistry = meterRegistry;
+    this.invalidationPublisher = invalidationPublisher;
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    if (!nearCacheNames.contains(name)) {
+      return remoteCacheManager.getCache(name);
+    }
+    return twoLevelCaches.computeIfAbsent(name, this::createTwoLevelCache);
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    Set<String> cacheNames = new LinkedHashSet<>(remoteCacheManager.getCacheNames());
+    cacheNames.addAll(twoLevelCaches.keySet());
+    return cacheNames;
+  }
+
+  /**
+   * Clears the near cache with the given name of this instance, e.g. after the cache has been
+   * evicted by another instance.
+   */
+  public void invalidateNearCache(String name) {
+    TwoLevelCache twoLevelCache = twoLevelCaches.get(name);
+    if (twoLevelCache != null) {
+      log.info("Invalidating near cache '{}'", name);
+      twoLevelCache.clearNearCache();
+    }
+  }
+
+  private TwoLevelCache createTwoLevelCache(String name) {
+    com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeNearCache = Caffeine
+        .newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+    Tags tags = Tags.of("tier", "near");
+    CaffeineCacheMetrics.monitor(meterRegistry, nativeNearCache, name, tags);
+    Gauge.builder(HIT_RATIO, nativeNearCache, cache -> cache.stats().hitRate())
+        .description("Ratio of near cache requests which were hits")
+        .tags(tags.and("cache", name))
+        .register(meterRegistry);
+    return new TwoLevelCache(new CaffeineCache(name, nativeNearCache),
+        remoteCacheManager.getCache(name), invalidationPublisher);
+  }
+}
@@ -0,0 +1,246 @@
+package uk.gov.caz.common.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class TwoLevelCacheManagerTest {
+
+  private static final String NEAR_CACHE_NAME = "tariffs";
+
+  private ConcurrentMapCacheManager remoteCacheManager;
+  private SimpleMeterRegistry meterRegistry;
+  private List<String> publishedInvalidations;
+  private TwoLevelCacheManager cacheManager;
+
+  @BeforeEach
+  void setUp() {
+    remoteCacheManager = new ConcurrentMapCacheManager();
+    meterRegistry = new SimpleMeterRegistry();
+    publishedInvalidations = new ArrayList<>();
+    cacheManager = new TwoLevelCacheManager(remoteCacheManager,
+        Arrays.asList(NEAR_CACHE_NAME, "cleanAirZones"), 10, Duration.ofMinutes(10),
+        meterRegistry, publishedInvalidations::add);
+  }
+
+  @Test
+  void shouldServeOtherCachesFromRemoteCacheManager() {
+    // when
+    Cache cache = cacheManager.getCache("vehicles");
+
+    // then
+    assertThat(cache).isSameAs(remoteCacheManager.getCache("vehicles"));
+    assertThat(cacheManager.getCacheNames()).containsOnly("vehicles");
+  }
+
+  @Test
+  void shouldCreateOneTwoLevelCachePerName() {
+    // when
+    Cache cache = cacheManager.getCache(NEAR_CACHE_NAME);
+
+    // then
+    assertThat(cache).isInstanceOf(TwoLevelCache.class)
+        .isSameAs(cacheManager.getCache(NEAR_CACHE_NAME));
+    assertThat(cache.getName()).isEqualTo(NEAR_CACHE_NAME);
+    assertThat(cacheManager.getCacheNames()).containsOnly(NEAR_CACHE_NAME);
+  }
+
+  @Nested
+  class Reads {
+
+    private Cache cache;
+    private Cache remoteCache;
+
+    @BeforeEach
+    void setUp() {
+      cache = cacheManager.getCache(NEAR_CACHE_NAME);
+      remoteCache = remoteCacheManager.getCache(NEAR_CACHE_NAME);
+    }
+
+    @Test
+    void shouldServeValueFromNearCacheOnceReadFromRemoteCache() {
+      // given
+      remoteCache.put("caz", "tariff");
+
+      // when
+      Object firstRead = cache.get("caz").get();
+      remoteCache.put("caz", "changed tariff");
+      Object secondRead = cache.get("caz", String.class);
+
+      // then
+      assertThat(firstRead).isEqualTo("tariff");
+      assertThat(secondRead).isEqualTo("tariff");
+    }
+
+    @Test
+    void shouldCacheNullValues() {
+      // given
+      remoteCache.put("caz", null);
+
+      // when
+      Cache.ValueWrapper firstRead = cache.get("caz");
+      remoteCache.evict("caz");
+      Cache.ValueWrapper secondRead = cache.get("caz");
+
+      // then
+      assertThat(firstRead).isNotNull();
+      assertThat(firstRead.get()).isNull();
+      assertThat(secondRead).isNotNull();
+    }
+
+    @Test
+    void shouldExposeNativeNearCache() {
+      assertThat(cache.getNativeCache())
+          .isInstanceOf(com.github.benmanes.caffeine.cache.Cache.class);
+    }
+
+    @Test
+    void shouldThrowIllegalStateExceptionWhenValueIsNotOfRequiredType() {
+      // given
+      remoteCache.put("caz", "tariff");
+
+      // when
+      Throwable throwable = catchThrowable(() -> cache.get("caz", Integer.class));
+
+      // then
+      assertThat(throwable).isInstanceOf(IllegalStateException.class)
+          .hasMessageStartingWith("Cached value is not of required type");
+      assertThat(cache.get("caz", (Class<Object>) null)).isEqualTo("tariff");
+    }
+
+    @Test
+    void shouldReturnNullWhenNeitherTierHasValue() {
+      assertThat(cache.get("caz")).isNull();
+      assertThat(cache.get("caz", String.class)).isNull();
+    }
+
+    @Test
+    void shouldLoadMissingValueOnceAndStoreItInBothTiers() {
+      // given
+      AtomicInteger loads = new AtomicInteger();
+
+      // when
+      String first = cache.get("caz", () -> "tariff" + loads.incrementAndGet());
+      String second = cache.get("caz", () -> "tariff" + loads.incrementAndGet());
+
+      // then
+      assertThat(first).isEqualTo("tariff1");
+      assertThat(second).isEqualTo("tariff1");
+      assertThat(remoteCache.get("caz").get()).isEqualTo("tariff1");
+    }
+
+    @Test
+    void shouldInvalidateOnlyNearCache() {
+      // given
+      remoteCache.put("caz", "tariff");
+      cache.get("caz");
+      remoteCache.put("caz", "changed tariff");
+
+      // when
+      cacheManager.invalidateNearCache(NEAR_CACHE_NAME);
+      cacheManager.invalidateNearCache("unknown");
+
+      // then
+      assertThat(cache.get("caz").get()).isEqualTo("changed tariff");
+      assertThat(publishedInvalidations).isEmpty();
+    }
+
+    @Test
+    void shouldRecordSizeAndHitRatioOfNearCache() {
+      // given
+      remoteCache.put("caz", "tariff");
+
+      // when
+      cache.get("caz");
+      cache.get("caz");
+      cache.get("caz");
+      cache.get("caz");
+
+      // then
+      assertThat(meterRegistry.get("cache.size").tags("cache", NEAR_CACHE_NAME, "tier", "near")
+          .gauge().value()).isEqualTo(1);
+      assertThat(meterRegistry.get(TwoLevelCacheManager.HIT_RATIO)
+          .tags("cache", NEAR_CACHE_NAME, "tier", "near").gauge().value()).isEqualTo(0.75);
+    }
+  }
+
+  @Nested
+  class Writes {
+
+    private Cache cache;
+    private Cache remoteCache;
+
+    @BeforeEach
+    void setUp() {
+      cache = cacheManager.getCache(NEAR_CACHE_NAME);
+      remoteCache = remoteCacheManager.getCache(NEAR_CACHE_NAME);
+    }
+
+    @Test
+    void shouldPutValueToBothTiers() {
+      // when
+      cache.put("caz", "tariff");
+
+      // then
+      assertThat(remoteCache.get("caz").get()).isEqualTo("tariff");
+      remoteCache.evict("caz");
+      assertThat(cache.get("caz").get()).isEqualTo("tariff");
+    }
+
+    @Test
+    void shouldKeepExistingRemoteValueWhenPuttingIfAbsent() {
+      // given
+      remoteCache.put("caz", "tariff");
+
+      // when
+      Cache.ValueWrapper existing = cache.putIfAbsent("caz", "other tariff");
+      Cache.ValueWrapper absent = cache.putIfAbsent("other caz", "other tariff");
+
+      // then
+      assertThat(existing.get()).isEqualTo("tariff");
+      assertThat(absent).isNull();
+      remoteCache.clear();
+      assertThat(cache.get("caz").get()).isEqualTo("tariff");
+      assertThat(cache.get("other caz").get()).isEqualTo("other tariff");
+    }
+
+    @Test
+    void shouldEvictValueFromBothTiersAndPublishInvalidation() {
+      // given
+      cache.put("caz", "tariff");
+
+      // when
+      cache.evict("caz");
+
+      // then
+      assertThat(cache.get("caz")).isNull();
+      assertThat(remoteCache.get("caz")).isNull();
+      assertThat(publishedInvalidations).containsExactly(NEAR_CACHE_NAME);
+    }
+
+    @Test
+    void shouldClearBothTiersAndPublishInvalidation() {
+      // given
+      cache.put("caz", "tariff");
+
+      // when
+      cache.clear();
+
+      // then
+      assertThat(cache.get("caz")).isNull();
+      assertThat(remoteCache.get("caz")).isNull();
+      assertThat(publishedInvalidations).containsExactly(NEAR_CACHE_NAME);
+    }
+  }
+}
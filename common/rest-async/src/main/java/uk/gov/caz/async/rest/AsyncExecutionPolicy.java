@@ -0,0 +1,64 @@
+package uk.gov.caz.async.rest;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Settings of {@link AsyncOpExecutor} which decide how {@link AsyncOp} operations sent to a single
+ * upstream are executed.
+ */
+@Value
+@Builder
+public class AsyncExecutionPolicy {
+
+  /**
+   * Maximum number of operations (including hedged duplicates) running against the upstream at
+   * the same time, shared by all callers of the executor.
+   */
+  @Builder.Default
+  int maxInFlight = 10;
+
+  /**
+   * Whether a duplicate request should be sent when the original one takes longer than the
+   * {@code hedgingPercentile} of recently observed latencies.
+   */
+  @Builder.Default
+  boolean hedgingEnabled = false;
+
+  /**
+   * Percentile (in range (0, 1]) of recent latencies after which a hedged request is sent.
+   */
+  @Builder.Default
+  double hedgingPercentile = 0.95;
+
+  /**
+   * Lower bound of the delay after which a hedged request is sent.
+   */
+  @Builder.Default
+  long minHedgingDelayMillis = 10;
+
+  /**
+   * Number of recorded latencies needed before hedging kicks in.
+   */
+  @Builder.Default
+  int hedgingMinSamples = 20;
+
+  /**
+   * Number of most recent latencies used to compute the hedging delay.
+   */
+  @Builder.Default
+  int latencySamplesSize = 100;
+
+  /**
+   * Number of consecutive failures (transport errors or 5xx responses) after which the circuit
+   * breaker opens and operations fail fast.
+   */
+  @Builder.Default
+  int circuitBreakerFailureThreshold = 5;
+
+  /**
+   * Time for which the circuit breaker stays open before a single trial request is let through.
+   */
+  @Builder.Default
+  long circuitBreakerOpenDurationMillis = 30_000;
+}
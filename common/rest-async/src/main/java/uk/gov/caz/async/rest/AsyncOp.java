@@ -27,6 +27,20 @@ public class AsyncOp<V> {
    */
   private Call<V> retrofitCall;
 
+  /**
+   * Duplicate of {@code retrofitCall} started when the original one is slow. Whichever of them
+   * succeeds first provides the result, a failure is reported only when both of them fail.
+   * Initially null.
+   */
+  private Call<V> hedgeCall;
+
+  /**
+   * Number of started REST calls (the original and the hedged one) which have not reported their
+   * outcome yet.
+   */
+  @Getter(AccessLevel.NONE)
+  private int pendingCalls;
+
   /**
    * Internal helper that provides functionality to wait for completion.
    */
@@ -176,6 +190,9 @@ public class AsyncOp<V> {
     if (completableFuture != null) {
       completableFuture.cancel(true);
       retrofitCall.cancel();
+      if (hedgeCall != null) {
+        hedgeCall.cancel();
+      }
       retrofitCall = retrofitCall.clone();
     }
     reset();
@@ -183,12 +200,70 @@ public class AsyncOp<V> {
   }
 
   /**
-   * Method used to mark this {@link AsyncOp} as finished successfully.
+   * Starts a duplicate (hedged) REST call of already running operation. The first of the two calls
+   * to succeed provides the result and the response of the other one is ignored. The operation
+   * fails only when both calls fail. Does nothing if this operation has already completed or has
+   * been created as completed.
+   */
+  synchronized void startHedgeAsync() {
+    if (hasBeenCompletedManually() || completableFuture.isDone()) {
+      return;
+    }
+    pendingCalls++;
+    hedgeCall = retrofitCall.clone();
+    hedgeCall.enqueue(new RequestCallback<>(this));
+  }
+
+  /**
+   * Cancels both the original and the hedged REST call if the latter has been started.
+   */
+  synchronized void cancelHedge() {
+    if (hedgeCall != null) {
+      retrofitCall.cancel();
+      hedgeCall.cancel();
+    }
+  }
+
+  /**
+   * Cancels the running REST call, the hedged one if it has been started, and any threads waiting
+   * for completion. Does nothing if this operation has been created as completed or has not been
+   * started.
+   */
+  synchronized void cancel() {
+    if (hasBeenCompletedManually() || completableFuture == null) {
+      return;
+    }
+    // the future is cancelled first, so that failures reported by the cancelled calls are ignored
+    completableFuture.cancel(true);
+    retrofitCall.cancel();
+    if (hedgeCall != null) {
+      hedgeCall.cancel();
+    }
+  }
+
+  /**
+   * Marks this {@link AsyncOp} as failed without making the REST call, e.g. when the upstream is
+   * known to be unhealthy.
+   *
+   * @param httpStatus {@link HttpStatus} to report.
+   * @param errorMessage Failure details.
+   */
+  void markFailedFast(HttpStatus httpStatus, String errorMessage) {
+    reset();
+    markCompletedAsFailed(httpStatus, errorMessage);
+  }
+
+  /**
+   * Method used to mark this {@link AsyncOp} as finished successfully. Ignored if it has already
+   * finished (e.g. the other of hedged calls completed first).
    *
    * @param httpStatus {@link HttpStatus} holding HTTP status code of REST call.
    * @param result Object holding successful response of REST call.
    */
-  void markCompletedAsSuccessful(HttpStatus httpStatus, V result) {
+  synchronized void markCompletedAsSuccessful(HttpStatus httpStatus, V result) {
+    if (completableFuture.isDone()) {
+      return;
+    }
     try {
       this.httpStatus = Optional.of(httpStatus);
       this.result = Optional.of(result);
@@ -199,12 +274,21 @@ public class AsyncOp<V> {
   }
 
   /**
-   * Method used to mark this {@link AsyncOp} as finished, but with failure.
+   * Method used to mark this {@link AsyncOp} as finished, but with failure. Ignored if it has
+   * already finished (e.g. the other of hedged calls succeeded first) or if the other of hedged
+   * calls is still running and may succeed.
    *
    * @param httpStatus {@link HttpStatus} holding HTTP status code of REST call.
    * @param errorMessage Failure details.
    */
-  void markCompletedAsFailed(HttpStatus httpStatus, String errorMessage) {
+  synchronized void markCompletedAsFailed(HttpStatus httpStatus, String errorMessage) {
+    if (completableFuture.isDone()) {
+      return;
+    }
+    if (pendingCalls > 1) {
+      pendingCalls--;
+      return;
+    }
     try {
       this.httpStatus = Optional.of(httpStatus);
       result = Optional.empty();
@@ -221,6 +305,8 @@ public class AsyncOp<V> {
     result = Optional.empty();
     httpStatus = Optional.empty();
     error = Optional.empty();
+    hedgeCall = null;
+    pendingCalls = 1;
     completableFuture = new CompletableFuture<>();
   }
 
@@ -236,7 +322,7 @@ public class AsyncOp<V> {
    * Returns whether this AsyncOp has been created by completed manually. If so, such AsyncOp
    * behaves differently and must skip some internal operations.
    */
-  private boolean hasBeenCompletedManually() {
+  boolean hasBeenCompletedManually() {
     return retrofitCall == null;
   }
 }
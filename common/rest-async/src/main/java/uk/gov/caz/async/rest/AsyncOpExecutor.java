@@ -0,0 +1,327 @@
+package uk.gov.caz.async.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Executes {@link AsyncOp} operations sent to a single upstream according to {@link
+ * AsyncExecutionPolicy}:
+ * <ul>
+ *   <li>at most {@code maxInFlight} operations run at the same time across all callers,</li>
+ *   <li>optionally, a duplicate (hedged) request is sent when an operation is slower than the
+ *   configured percentile of recent latencies; the faster successful response wins and the
+ *   operation fails only when both requests fail,</li>
+ *   <li>when the upstream keeps failing, the circuit breaker opens and operations fail fast with
+ *   {@link HttpStatus#SERVICE_UNAVAILABLE} without calling it.</li>
+ * </ul>
+ * One instance should be created (and shared) per upstream.
+ */
+@Slf4j
+public class AsyncOpExecutor {
+
+  private final String upstream;
+  private final AsyncExecutionPolicy policy;
+  private final Semaphore permits;
+  private final CircuitBreaker circuitBreaker;
+  private final LatencyTracker latencyTracker;
+  private final ScheduledExecutorService hedgingScheduler;
+  private final LongSupplier nanoClock;
+  private final AsyncRestMetrics metrics;
+
+  /**
+   * Creates an executor for the given upstream which records metrics in the global {@link
+   * MeterRegistry}.
+   *
+   * @param upstream Name of the upstream, usable in logs.
+   * @param policy {@link AsyncExecutionPolicy} to apply.
+   */
+  public AsyncOpExecutor(String upstream, AsyncExecutionPolicy policy) {
+    this(upstream, policy, Metrics.globalRegistry);
+  }
+
+  /**
+   * Creates an executor for the given upstream which records metrics of REST calls, including
+   * hedged ones, in {@code meterRegistry} the same way {@link AsyncRestService} does.
+   *
+   * @param upstream Name of the upstream, usable in logs.
+   * @param policy {@link AsyncExecutionPolicy} to apply.
+   * @param meterRegistry {@link MeterRegistry} to record metrics in.
+   */
+  public AsyncOpExecutor(String upstream, AsyncExecutionPolicy policy,
+      MeterRegistry meterRegistry) {
+    this(upstream, policy, meterRegistry, System::nanoTime,
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "async-op-hedging-" + upstream);
+          thread.setDaemon(true);
+          return thread;
+        }));
+  }
+
+  AsyncOpExecutor(String upstream, AsyncExecutionPolicy policy, MeterRegistry meterRegistry,
+      LongSupplier nanoClock, ScheduledExecutorService hedgingScheduler) {
+    if (policy.getMaxInFlight() < 1) {
+      throw new IllegalArgumentException("'maxInFlight' must be a positive number");
+    }
+    if (policy.getHedgingPercentile() <= 0 || policy.getHedgingPercentile() > 1) {
+      throw new IllegalArgumentException("'hedgingPercentile' must be in range (0, 1]");
+    }
+    this.upstream = upstream;
+    this.policy = policy;
+    this.permits = new Semaphore(policy.getMaxInFlight());
+    this.circuitBreaker = new CircuitBreaker(upstream,
+        policy.getCircuitBreakerFailureThreshold(),
+        policy.getCircuitBreakerOpenDurationMillis(), nanoClock);
+    this.latencyTracker = new LatencyTracker(policy.getLatencySamplesSize());
+    this.hedgingScheduler = hedgingScheduler;
+    this.nanoClock = nanoClock;
+    this.metrics = new AsyncRestMetrics(meterRegistry);
+  }
+
+  /**
+   * Starts all {@link AsyncOp} operations, never exceeding the in-flight limit, and waits for
+   * desired time until ALL of them complete. Operations rejected by the open circuit breaker are
+   * completed immediately as failed with {@link HttpStatus#SERVICE_UNAVAILABLE}. Operations
+   * created as completed are skipped.
+   *
+   * @param asyncOps List of {@link AsyncOp} objects representing asynchronous REST calls.
+   * @param forHowLong Amount of maximum time to wait until all calls complete, including time
+   *     spent waiting for a free in-flight slot.
+   * @param timeUnit {@link TimeUnit} giving meaning to {@code forHowLong} parameter.
+   * @throws AsyncCallException if calls did not finish in desired time or in case of
+   *     interruption. Operations which have not completed by then are cancelled or, if they have
+   *     not been started, marked as failed.
+   */
+  public void startAndAwaitAll(List<? extends AsyncOp<?>> asyncOps, long forHowLong,
+      TimeUnit timeUnit) {
+    startAndAwaitAll(Collections.singletonMap(this, asyncOps), forHowLong, timeUnit);
+  }
+
+  /**
+   * Starts {@link AsyncOp} operations sent to several upstreams, each with its own executor, and
+   * waits for desired time until ALL of them complete. Behaves as {@link
+   * #startAndAwaitAll(List, long, TimeUnit)} called for all upstreams at once, so that calls to
+   * one upstream do not wait for calls to the other ones.
+   *
+   * @param asyncOpsByExecutor Lists of {@link AsyncOp} objects keyed by executor of the upstream
+   *     they are sent to.
+   * @param forHowLong Amount of maximum time to wait until all calls complete, including time
+   *     spent waiting for free in-flight slots.
+   * @param timeUnit {@link TimeUnit} giving meaning to {@code forHowLong} parameter.
+   * @throws AsyncCallException if calls did not finish in desired time or in case of
+   *     interruption. Operations which have not completed by then are cancelled or, if they have
+   *     not been started, marked as failed.
+   */
+  public static void startAndAwaitAll(
+      Map<AsyncOpExecutor, ? extends List<? extends AsyncOp<?>>> asyncOpsByExecutor,
+      long forHowLong, TimeUnit timeUnit) {
+    long deadline = System.nanoTime() + timeUnit.toNanos(forHowLong);
+    List<AsyncOp<?>> asyncOps = new ArrayList<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    try {
+      asyncOpsByExecutor.forEach((executor, executorAsyncOps) -> {
+        for (AsyncOp<?> asyncOp : executorAsyncOps) {
+          asyncOps.add(asyncOp);
+          if (!asyncOp.hasBeenCompletedManually()) {
+            futures.add(executor.start(asyncOp, deadline));
+          }
+        }
+      });
+      await(futures, asyncOps, deadline);
+    } catch (AsyncCallException e) {
+      // only timeouts are reported without a cause, interruptions wrap InterruptedException
+      abandonIncomplete(asyncOpsByExecutor, e.getCause() == null);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns current state of the circuit breaker of the upstream.
+   */
+  public String getCircuitBreakerState() {
+    return circuitBreaker.getState().name();
+  }
+
+  /**
+   * Stops the scheduler of hedged requests.
+   */
+  public void shutdown() {
+    hedgingScheduler.shutdownNow();
+  }
+
+  /**
+   * Starts a single {@link AsyncOp} once an in-flight slot is available and the circuit breaker
+   * permits it, and tracks its metrics. Operations failed fast are not tracked. Returns a future
+   * which completes once the outcome of the operation has been recorded and its slot released, so
+   * that callers waiting for it see the up-to-date state.
+   */
+  private CompletableFuture<Void> start(AsyncOp<?> asyncOp, long deadline) {
+    acquirePermit(deadline);
+    if (!circuitBreaker.tryAcquirePermission()) {
+      permits.release();
+      log.warn("Circuit breaker for '{}' is open, failing async operation {}", upstream,
+          asyncOp.getIdentifier());
+      asyncOp.markFailedFast(HttpStatus.SERVICE_UNAVAILABLE,
+          "Circuit breaker for '" + upstream + "' is open");
+      return asyncOp.getCompletableFuture();
+    }
+    if (asyncOp.getCompletableFuture() != null) {
+      metrics.recordRetry(asyncOp);
+    }
+    long startedAt = nanoClock.getAsLong();
+    asyncOp.startAsync();
+    metrics.track(asyncOp);
+    CompletableFuture<Void> future = asyncOp.getCompletableFuture();
+    AtomicBoolean hedged = new AtomicBoolean();
+    ScheduledFuture<?> hedgingTask = scheduleHedging(asyncOp, future, hedged);
+    return future.whenComplete((ignored, throwable) -> {
+      // the outcome is recorded before the slot is released, so that the next waiting operation
+      // sees the up-to-date state of the circuit breaker
+      recordOutcome(asyncOp, throwable, nanoClock.getAsLong() - startedAt);
+      if (hedgingTask != null) {
+        hedgingTask.cancel(false);
+      }
+      if (hedged.compareAndSet(true, false)) {
+        asyncOp.cancelHedge();
+        permits.release();
+      }
+      permits.release();
+    });
+  }
+
+  /**
+   * Schedules a hedged request after the configured percentile of recent latencies. Returns null
+   * if hedging is disabled or there are not enough latencies recorded yet.
+   */
+  private ScheduledFuture<?> scheduleHedging(AsyncOp<?> asyncOp, CompletableFuture<Void> future,
+      AtomicBoolean hedged) {
+    if (!policy.isHedgingEnabled()) {
+      return null;
+    }
+    OptionalLong percentileLatency = latencyTracker.percentile(policy.getHedgingPercentile(),
+        policy.getHedgingMinSamples());
+    if (!percentileLatency.isPresent()) {
+      return null;
+    }
+    long delayNanos = Math.max(percentileLatency.getAsLong(),
+        TimeUnit.MILLISECONDS.toNanos(policy.getMinHedgingDelayMillis()));
+    return hedgingScheduler.schedule(() -> hedge(asyncOp, future, hedged), delayNanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Sends a hedged request if the original one is still running and there is a free in-flight
+   * slot for it. Hedging never waits for a slot, so it cannot delay regular requests.
+   */
+  private void hedge(AsyncOp<?> asyncOp, CompletableFuture<Void> future, AtomicBoolean hedged) {
+    if (!permits.tryAcquire()) {
+      return;
+    }
+    hedged.set(true);
+    if (future.isDone()) {
+      // the original request completed before the slot was taken, whoever resets the flag first
+      // (this task or the completion callback) releases the slot
+      if (hedged.compareAndSet(true, false)) {
+        permits.release();
+      }
+      return;
+    }
+    log.info("Async operation {} is slow, sending a hedged request to '{}'",
+        asyncOp.getIdentifier(), upstream);
+    asyncOp.startHedgeAsync();
+    // the hedged request is in flight until the operation completes, as is the original one
+    metrics.track(asyncOp);
+  }
+
+  /**
+   * Waits until {@code deadline} for all {@code futures} to complete.
+   */
+  private static void await(List<CompletableFuture<Void>> futures, List<AsyncOp<?>> asyncOps,
+      long deadline) {
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException | ExecutionException e) {
+      Thread.currentThread().interrupt();
+      log.error("Thread interrupted", e);
+      throw new AsyncCallException(e);
+    } catch (TimeoutException timeoutException) {
+      log.warn("Timeout exception for ids {}",
+          asyncOps.stream().map(AsyncOp::getIdentifier).collect(Collectors.toList()));
+      throw new AsyncCallException("Timeout");
+    }
+  }
+
+  /**
+   * Completes operations nobody is going to wait for any more: the ones that have not been started
+   * (e.g. because there was no free slot in time) are marked as failed, the running ones are
+   * cancelled, so that their slots are released without waiting for the HTTP client to time out.
+   */
+  private static void abandonIncomplete(
+      Map<AsyncOpExecutor, ? extends List<? extends AsyncOp<?>>> asyncOpsByExecutor,
+      boolean timedOut) {
+    asyncOpsByExecutor.forEach((executor, asyncOps) -> {
+      for (AsyncOp<?> asyncOp : asyncOps) {
+        if (asyncOp.hasBeenCompletedManually()) {
+          continue;
+        }
+        if (asyncOp.getCompletableFuture() == null) {
+          asyncOp.markFailedFast(HttpStatus.SERVICE_UNAVAILABLE,
+              "No free slot to call '" + executor.upstream + "' in time");
+        } else if (!asyncOp.getCompletableFuture().isDone()) {
+          if (timedOut) {
+            executor.metrics.recordTimeout(asyncOp);
+          }
+          asyncOp.cancel();
+        }
+      }
+    });
+  }
+
+  /**
+   * Feeds the circuit breaker and the latency tracker with the outcome of a completed operation.
+   */
+  private void recordOutcome(AsyncOp<?> asyncOp, Throwable throwable, long latencyNanos) {
+    if (throwable != null || asyncOp.getHttpStatus().is5xxServerError()) {
+      circuitBreaker.onFailure();
+      return;
+    }
+    circuitBreaker.onSuccess();
+    latencyTracker.record(latencyNanos);
+  }
+
+  /**
+   * Waits until an in-flight slot is available.
+   */
+  private void acquirePermit(long deadline) {
+    boolean acquired;
+    try {
+      acquired = permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Thread interrupted", e);
+      throw new AsyncCallException(e);
+    }
+    if (!acquired) {
+      log.warn("Timeout exception when waiting for a free slot to call '{}'", upstream);
+      throw new AsyncCallException("Timeout");
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package uk.gov.caz.async.rest;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,12 +13,13 @@ import org.springframework.context.annotation.Configuration;
 public class AsyncRestConfiguration {
 
   /**
-   * Method to create AsyncRestService bean.
+   * Method to create AsyncRestService bean. Metrics are recorded in the application's {@link
+   * MeterRegistry} if there is one, in the global registry otherwise.
    *
    * @return {@link AsyncRestService} instance.
    */
   @Bean
-  public AsyncRestService asyncRestService() {
-    return new AsyncRestService();
+  public AsyncRestService asyncRestService(ObjectProvider<MeterRegistry> meterRegistry) {
+    return new AsyncRestService(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
   }
 }
@@ -0,0 +1,112 @@
+package uk.gov.caz.async.rest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Request;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Records metrics of asynchronous REST calls in a {@link MeterRegistry}. Every meter is tagged
+ * with the upstream, i.e. the host the call is sent to:
+ * <ul>
+ *   <li>{@value #CALLS} - timer of completed calls with p50/p95/p99 and a percentile histogram,
+ *   additionally tagged with the outcome and HTTP status,</li>
+ *   <li>{@value #IN_FLIGHT} - gauge of calls that have been started and not completed yet,</li>
+ *   <li>{@value #TIMEOUTS} - counter of calls which did not complete in time,</li>
+ *   <li>{@value #RETRIES} - counter of retried calls.</li>
+ * </ul>
+ */
+class AsyncRestMetrics {
+
+  static final String CALLS = "async.rest.calls";
+  static final String IN_FLIGHT = "async.rest.in.flight";
+  static final String TIMEOUTS = "async.rest.timeouts";
+  static final String RETRIES = "async.rest.retries";
+
+  static final String UNKNOWN_UPSTREAM = "unknown";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, AtomicInteger> inFlightByUpstream = new ConcurrentHashMap<>();
+
+  AsyncRestMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Tracks just started {@link AsyncOp} until it completes: counts it as in-flight and records
+   * its duration once it completes.
+   */
+  void track(AsyncOp<?> asyncOp) {
+    String upstream = upstreamOf(asyncOp);
+    AtomicInteger inFlight = inFlightOf(upstream);
+    inFlight.incrementAndGet();
+    long startedAt = meterRegistry.config().clock().monotonicTime();
+    asyncOp.getCompletableFuture().whenComplete((ignored, throwable) -> {
+      inFlight.decrementAndGet();
+      long duration = meterRegistry.config().clock().monotonicTime() - startedAt;
+      timer(upstream, throwable == null ? asyncOp.getHttpStatus() : null)
+          .record(duration, TimeUnit.NANOSECONDS);
+    });
+  }
+
+  /**
+   * Records that {@link AsyncOp} did not complete in time.
+   */
+  void recordTimeout(AsyncOp<?> asyncOp) {
+    counter(TIMEOUTS, upstreamOf(asyncOp)).increment();
+  }
+
+  /**
+   * Records that {@link AsyncOp} is a retry of a previous call.
+   */
+  void recordRetry(AsyncOp<?> asyncOp) {
+    counter(RETRIES, upstreamOf(asyncOp)).increment();
+  }
+
+  private Timer timer(String upstream, HttpStatus httpStatus) {
+    return Timer.builder(CALLS)
+        .description("Duration of asynchronous REST calls")
+        .tags(Tags.of("upstream", upstream, "outcome", outcomeOf(httpStatus),
+            "status", httpStatus == null ? "NONE" : String.valueOf(httpStatus.value())))
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private Counter counter(String name, String upstream) {
+    return meterRegistry.counter(name, "upstream", upstream);
+  }
+
+  private AtomicInteger inFlightOf(String upstream) {
+    return inFlightByUpstream.computeIfAbsent(upstream, key -> meterRegistry
+        .gauge(IN_FLIGHT, Tags.of("upstream", key), new AtomicInteger()));
+  }
+
+  private static String outcomeOf(HttpStatus httpStatus) {
+    if (httpStatus == null) {
+      return "CANCELLED";
+    }
+    if (httpStatus.is5xxServerError()) {
+      return "SERVER_ERROR";
+    }
+    return httpStatus.is4xxClientError() ? "CLIENT_ERROR" : "SUCCESS";
+  }
+
+  /**
+   * Returns host the call of {@link AsyncOp} is sent to or {@value #UNKNOWN_UPSTREAM} if it cannot
+   * be determined (e.g. the operation has been created as completed).
+   */
+  static String upstreamOf(AsyncOp<?> asyncOp) {
+    if (asyncOp.getRetrofitCall() == null) {
+      return UNKNOWN_UPSTREAM;
+    }
+    Request request = asyncOp.getRetrofitCall().request();
+    return request == null ? UNKNOWN_UPSTREAM : request.url().host();
+  }
+}
@@ -2,12 +2,21 @@ package uk.gov.caz.async.rest;
 
 import static java.util.Collections.singletonList;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +27,24 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AsyncRestService {
 
+  private final AsyncRestMetrics metrics;
+
+  /**
+   * Creates the service which records metrics in the global {@link MeterRegistry}.
+   */
+  public AsyncRestService() {
+    this(Metrics.globalRegistry);
+  }
+
+  /**
+   * Creates the service which records metrics of REST calls in {@code meterRegistry}.
+   *
+   * @param meterRegistry {@link MeterRegistry} to record metrics in.
+   */
+  public AsyncRestService(MeterRegistry meterRegistry) {
+    this.metrics = new AsyncRestMetrics(meterRegistry);
+  }
+
   /**
    * Starts single {@link AsyncOp}. Basically will do async REST call using selected REST API
    * method.
@@ -47,7 +74,18 @@ public class AsyncRestService {
    */
   public void startAll(List<? extends AsyncOp> asyncOps) {
     log.info("Starting {} async requests", asyncOps.size());
-    asyncOps.forEach(AsyncOp::startAsync);
+    asyncOps.forEach(this::startAndTrack);
+  }
+
+  /**
+   * Records that {@link AsyncOp} is a retry of a previously made call, e.g. when the caller
+   * repeats a call that failed with a new {@link AsyncOp}. Restarting the same {@link AsyncOp} is
+   * recorded as a retry automatically.
+   *
+   * @param asyncOp {@link AsyncOp} object representing the retried REST call.
+   */
+  public void recordRetry(AsyncOp<?> asyncOp) {
+    metrics.recordRetry(asyncOp);
   }
 
   /**
@@ -87,6 +125,9 @@ public class AsyncRestService {
     } catch (TimeoutException timeoutException) {
       log.warn("Timeout exception for ids {}",
           asyncOps.stream().map(AsyncOp::getIdentifier).collect(Collectors.toList()));
+      asyncOps.stream()
+          .filter(asyncOp -> !asyncOp.getCompletableFuture().isDone())
+          .forEach(metrics::recordTimeout);
       throw new AsyncCallException("Timeout");
     }
   }
@@ -108,6 +149,95 @@ public class AsyncRestService {
     awaitAll(asyncOps, forHowLong, timeUnit);
   }
 
+  /**
+   * Starts {@link AsyncOp} operations taken from {@code asyncOps} queue keeping at most {@code
+   * maxInFlight} of them running at the same time. As soon as any running operation completes it
+   * is passed to {@code completionHandler} and the next operation from the queue is started, so a
+   * single slow call does not hold back the remaining ones. The handler is invoked on the calling
+   * thread and is allowed to add new operations (e.g. retries) to {@code asyncOps}. Returns when
+   * the queue is empty and all started operations have been handled. Operations still running
+   * when the method fails are cancelled.
+   *
+   * @param asyncOps Queue of {@link AsyncOp} objects representing asynchronous REST calls.
+   * @param maxInFlight Maximum number of operations running at the same time.
+   * @param forHowLong Amount of maximum time to wait until all calls, including the ones added by
+   *     {@code completionHandler}, complete.
+   * @param timeUnit {@link TimeUnit} giving meaning to {@code forHowLong} parameter.
+   * @param completionHandler Callback invoked for every completed {@link AsyncOp}.
+   * @throws AsyncCallException if calls did not finish in desired time or in case of interruption
+   *     or cancellation.
+   */
+  public <V> void startAndAwaitAll(Queue<AsyncOp<V>> asyncOps, int maxInFlight,
+      long forHowLong, TimeUnit timeUnit, Consumer<AsyncOp<V>> completionHandler) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("'maxInFlight' must be a positive number");
+    }
+    log.info("Starting {} async requests with at most {} in flight", asyncOps.size(),
+        maxInFlight);
+    long deadline = System.nanoTime() + timeUnit.toNanos(forHowLong);
+    BlockingQueue<AsyncOp<V>> completedAsyncOps = new LinkedBlockingQueue<>();
+    Set<AsyncOp<V>> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+    try {
+      while (!asyncOps.isEmpty() || !inFlight.isEmpty()) {
+        while (inFlight.size() < maxInFlight && !asyncOps.isEmpty()) {
+          AsyncOp<V> asyncOp = asyncOps.poll();
+          startAndTrack(asyncOp);
+          asyncOp.getCompletableFuture()
+              .whenComplete((ignored, throwable) -> completedAsyncOps.add(asyncOp));
+          inFlight.add(asyncOp);
+        }
+        AsyncOp<V> completedAsyncOp = pollCompleted(completedAsyncOps, inFlight, deadline);
+        completionHandler.accept(completedAsyncOp);
+      }
+    } finally {
+      // nobody is going to handle the results of operations still running, e.g. after a timeout
+      inFlight.forEach(AsyncOp::cancel);
+    }
+  }
+
+  /**
+   * Waits until {@code deadline} for the next completed {@link AsyncOp} and removes it from {@code
+   * inFlight}.
+   */
+  private <V> AsyncOp<V> pollCompleted(BlockingQueue<AsyncOp<V>> completedAsyncOps,
+      Set<AsyncOp<V>> inFlight, long deadline) {
+    AsyncOp<V> completedAsyncOp;
+    try {
+      completedAsyncOp = completedAsyncOps.poll(deadline - System.nanoTime(),
+          TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Thread interrupted", e);
+      throw new AsyncCallException(e);
+    }
+    if (completedAsyncOp == null) {
+      log.warn("Timeout exception when waiting for any async request to complete");
+      inFlight.forEach(metrics::recordTimeout);
+      throw new AsyncCallException("Timeout");
+    }
+    inFlight.remove(completedAsyncOp);
+    if (completedAsyncOp.getCompletableFuture().isCompletedExceptionally()) {
+      throw new AsyncCallException("AsyncOp " + completedAsyncOp.getIdentifier()
+          + " has been cancelled");
+    }
+    return completedAsyncOp;
+  }
+
+  /**
+   * Starts {@link AsyncOp} and tracks its metrics. Operations created as completed are neither
+   * started nor tracked.
+   */
+  private void startAndTrack(AsyncOp<?> asyncOp) {
+    if (asyncOp.hasBeenCompletedManually()) {
+      return;
+    }
+    if (asyncOp.getCompletableFuture() != null) {
+      metrics.recordRetry(asyncOp);
+    }
+    asyncOp.startAsync();
+    metrics.track(asyncOp);
+  }
+
   /**
    * Given List of {@link AsyncOp} will validate if every op has been started and extracts {@link
    * CompletableFuture} into an Array. Such array can be used as wait-for-multiple operation.
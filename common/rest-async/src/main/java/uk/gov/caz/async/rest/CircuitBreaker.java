@@ -0,0 +1,95 @@
+package uk.gov.caz.async.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consecutive-failures circuit breaker of a single upstream. Opens after {@code failureThreshold}
+ * failures in a row, rejects calls while open and, once {@code openDuration} elapses, lets a single
+ * trial call through whose outcome either closes or re-opens the circuit.
+ */
+@Slf4j
+class CircuitBreaker {
+
+  /**
+   * State of the circuit.
+   */
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String upstream;
+  private final int failureThreshold;
+  private final long openDurationNanos;
+  private final LongSupplier nanoClock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean trialCallInFlight;
+
+  CircuitBreaker(String upstream, int failureThreshold, long openDurationMillis,
+      LongSupplier nanoClock) {
+    this.upstream = upstream;
+    this.failureThreshold = failureThreshold;
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Returns whether a call to the upstream may be made now. A permitted call must be followed by
+   * either {@link #onSuccess()} or {@link #onFailure()}.
+   */
+  synchronized boolean tryAcquirePermission() {
+    if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+      log.info("Circuit breaker for '{}' is half-open, letting a trial call through", upstream);
+      state = State.HALF_OPEN;
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialCallInFlight) {
+        return false;
+      }
+      trialCallInFlight = true;
+      return true;
+    }
+    return state == State.CLOSED;
+  }
+
+  /**
+   * Records a successful call.
+   */
+  synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      log.info("Circuit breaker for '{}' is closed", upstream);
+      state = State.CLOSED;
+      trialCallInFlight = false;
+    }
+    consecutiveFailures = 0;
+  }
+
+  /**
+   * Records a failed call.
+   */
+  synchronized void onFailure() {
+    consecutiveFailures++;
+    // failures of calls started before the circuit opened must not postpone the trial call
+    if (state == State.OPEN) {
+      return;
+    }
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      log.warn("Circuit breaker for '{}' is open after {} consecutive failures", upstream,
+          consecutiveFailures);
+      state = State.OPEN;
+      openedAt = nanoClock.getAsLong();
+      trialCallInFlight = false;
+    }
+  }
+
+  /**
+   * Returns current state of the circuit.
+   */
+  synchronized State getState() {
+    return state;
+  }
+}
@@ -0,0 +1,44 @@
+package uk.gov.caz.async.rest;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Keeps a fixed number of the most recent latencies of an upstream and computes percentiles of
+ * them.
+ */
+class LatencyTracker {
+
+  private final long[] samples;
+  private int count;
+  private int next;
+
+  LatencyTracker(int size) {
+    this.samples = new long[size];
+  }
+
+  /**
+   * Records a latency, replacing the oldest one if the tracker is full.
+   */
+  synchronized void record(long latencyNanos) {
+    samples[next] = latencyNanos;
+    next = (next + 1) % samples.length;
+    count = Math.min(count + 1, samples.length);
+  }
+
+  /**
+   * Returns the given percentile (in range (0, 1]) of recorded latencies or an empty value if
+   * fewer than {@code minSamples} latencies have been recorded.
+   */
+  OptionalLong percentile(double percentile, int minSamples) {
+    long[] sorted;
+    synchronized (this) {
+      if (count == 0 || count < minSamples) {
+        return OptionalLong.empty();
+      }
+      sorted = Arrays.copyOf(samples, count);
+    }
+    Arrays.sort(sorted);
+    return OptionalLong.of(sorted[(int) Math.ceil(percentile * sorted.length) - 1]);
+  }
+}
@@ -0,0 +1,519 @@
+package uk.gov.caz.async.rest;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncOpExecutorTest {
+
+  private static final String HOST = "upstream.example.com";
+
+  private static final AsyncExecutionPolicy DEFAULT_POLICY = AsyncExecutionPolicy.builder()
+      .maxInFlight(1)
+      .circuitBreakerFailureThreshold(2)
+      .build();
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private AsyncOpExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    executor = new AsyncOpExecutor("upstream", DEFAULT_POLICY, meterRegistry, System::nanoTime,
+        scheduler);
+  }
+
+  @AfterEach
+  void clearInterruptedFlag() {
+    Thread.interrupted();
+  }
+
+  @Test
+  void shouldRejectInvalidPolicy() {
+    assertThat(catchThrowable(() -> new AsyncOpExecutor("upstream",
+        AsyncExecutionPolicy.builder().maxInFlight(0).build())))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("'maxInFlight' must be a positive number");
+    assertThat(catchThrowable(() -> new AsyncOpExecutor("upstream",
+        AsyncExecutionPolicy.builder().hedgingPercentile(0).build())))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(catchThrowable(() -> new AsyncOpExecutor("upstream",
+        AsyncExecutionPolicy.builder().hedgingPercentile(1.01).build())))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldRunOperationsWithDefaultScheduler() {
+    // given
+    AsyncOpExecutor executor = new AsyncOpExecutor("upstream",
+        AsyncExecutionPolicy.builder().build());
+    AsyncOp<String> asyncOp = AsyncOp.from("op", respondingCall(200));
+
+    // when
+    executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    // then
+    assertThat(asyncOp.getResult()).isEqualTo("OK");
+    assertThat(executor.getCircuitBreakerState()).isEqualTo("CLOSED");
+  }
+
+  @Test
+  void shouldSkipOperationsCreatedAsCompleted() {
+    // given
+    AsyncOp<String> asyncOp = AsyncOp.asCompletedAndSuccessful("op", HttpStatus.OK, "OK");
+
+    // when
+    executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+
+    // then
+    assertThat(asyncOp.getResult()).isEqualTo("OK");
+  }
+
+  @Test
+  void shouldFailFastWhenUpstreamKeepsFailing() {
+    // given
+    Call<String> notCalled = mock(Call.class);
+    AsyncOp<String> first = AsyncOp.from("first", respondingCall(500));
+    AsyncOp<String> second = AsyncOp.from("second", respondingCall(503));
+    AsyncOp<String> third = AsyncOp.from("third", notCalled);
+
+    // when
+    executor.startAndAwaitAll(Arrays.asList(first, second, third), 1, TimeUnit.SECONDS);
+
+    // then
+    assertThat(first.getHttpStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    assertThat(second.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(third.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(third.getError()).isEqualTo("Circuit breaker for 'upstream' is open");
+    assertThat(executor.getCircuitBreakerState()).isEqualTo("OPEN");
+    verify(notCalled, never()).enqueue(any());
+  }
+
+  @Test
+  void shouldNotCountClientErrorsAsFailures() {
+    // given
+    AsyncOp<String> first = AsyncOp.from("first", respondingCall(404));
+    AsyncOp<String> second = AsyncOp.from("second", respondingCall(400));
+    AsyncOp<String> third = AsyncOp.from("third", respondingCall(404));
+
+    // when
+    executor.startAndAwaitAll(Arrays.asList(first, second, third), 1, TimeUnit.SECONDS);
+
+    // then
+    assertThat(third.getHttpStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(executor.getCircuitBreakerState()).isEqualTo("CLOSED");
+  }
+
+  @Test
+  void shouldThrowWhenOperationsDoNotCompleteInTime() {
+    // given
+    AsyncOp<String> asyncOp = AsyncOp.from("op", mock(Call.class));
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor
+        .startAndAwaitAll(singletonList(asyncOp), 50, TimeUnit.MILLISECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class).hasMessage("Timeout");
+  }
+
+  @Test
+  void shouldCancelRunningOperationsWhenTheyDoNotCompleteInTime() {
+    // given
+    Call<String> call = mock(Call.class);
+    AsyncOp<String> asyncOp = AsyncOp.from("op", call);
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor
+        .startAndAwaitAll(singletonList(asyncOp), 50, TimeUnit.MILLISECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class).hasMessage("Timeout");
+    assertThat(asyncOp.getCompletableFuture()).isCancelled();
+    verify(call).cancel();
+  }
+
+  @Test
+  void shouldThrowWhenThereIsNoFreeSlotInTime() {
+    // given
+    Call<String> runningCall = mock(Call.class);
+    Call<String> notCalled = mock(Call.class);
+    AsyncOp<String> first = AsyncOp.from("first", runningCall);
+    AsyncOp<String> second = AsyncOp.from("second", notCalled);
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor
+        .startAndAwaitAll(Arrays.asList(first, second), 50, TimeUnit.MILLISECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class).hasMessage("Timeout");
+    verify(notCalled, never()).enqueue(any());
+    assertThat(second.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(second.getError()).isEqualTo("No free slot to call 'upstream' in time");
+    assertThat(first.getCompletableFuture()).isCancelled();
+    verify(runningCall).cancel();
+  }
+
+  @Test
+  void shouldReleaseSlotsOfAbandonedOperations() {
+    // given
+    catchThrowable(() -> executor.startAndAwaitAll(
+        Arrays.asList(AsyncOp.from("first", mock(Call.class)),
+            AsyncOp.from("second", mock(Call.class))), 50, TimeUnit.MILLISECONDS));
+    AsyncOp<String> asyncOp = AsyncOp.from("op", respondingCall(200));
+
+    // when
+    executor.startAndAwaitAll(singletonList(asyncOp), 50, TimeUnit.MILLISECONDS);
+
+    // then
+    assertThat(asyncOp.getResult()).isEqualTo("OK");
+  }
+
+  @Test
+  void shouldStartOperationsOfAllUpstreamsBeforeWaiting() {
+    // given
+    AsyncOpExecutor otherExecutor = new AsyncOpExecutor("other", DEFAULT_POLICY, meterRegistry,
+        System::nanoTime, scheduler);
+    AsyncOp<String> asyncOp = AsyncOp.from("op", respondingCall(200));
+    AsyncOp<String> otherAsyncOp = AsyncOp.from("other-op", respondingCall(404));
+    Map<AsyncOpExecutor, List<AsyncOp<String>>> asyncOpsByExecutor = new LinkedHashMap<>();
+    asyncOpsByExecutor.put(executor, singletonList(asyncOp));
+    asyncOpsByExecutor.put(otherExecutor, singletonList(otherAsyncOp));
+
+    // when
+    AsyncOpExecutor.startAndAwaitAll(asyncOpsByExecutor, 1, TimeUnit.SECONDS);
+
+    // then
+    assertThat(asyncOp.getResult()).isEqualTo("OK");
+    assertThat(otherAsyncOp.getHttpStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
+  @Test
+  void shouldFailOperationsOfAllUpstreamsWhenAnyOfThemIsNotStartedInTime() {
+    // given
+    AsyncOpExecutor otherExecutor = new AsyncOpExecutor("other", DEFAULT_POLICY, meterRegistry,
+        System::nanoTime, scheduler);
+    AsyncOp<String> completed = AsyncOp.from("completed", respondingCall(200));
+    Call<String> runningCall = mock(Call.class);
+    AsyncOp<String> asyncOp = AsyncOp.from("op", runningCall);
+    AsyncOp<String> notStarted = AsyncOp.from("not-started", mock(Call.class));
+    AsyncOp<String> completedManually = AsyncOp.asCompletedAndSuccessful("completed-manually",
+        HttpStatus.OK, "OK");
+    AsyncOp<String> otherAsyncOp = AsyncOp.from("other-op", mock(Call.class));
+    Map<AsyncOpExecutor, List<AsyncOp<String>>> asyncOpsByExecutor = new LinkedHashMap<>();
+    asyncOpsByExecutor.put(executor, Arrays.asList(completed, asyncOp, notStarted));
+    asyncOpsByExecutor.put(otherExecutor, Arrays.asList(completedManually, otherAsyncOp));
+
+    // when
+    Throwable throwable = catchThrowable(() -> AsyncOpExecutor
+        .startAndAwaitAll(asyncOpsByExecutor, 50, TimeUnit.MILLISECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class).hasMessage("Timeout");
+    assertThat(completed.getResult()).isEqualTo("OK");
+    assertThat(completedManually.getResult()).isEqualTo("OK");
+    assertThat(asyncOp.getCompletableFuture()).isCancelled();
+    assertThat(notStarted.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(otherAsyncOp.hasBeenStarted()).isFalse();
+    assertThat(otherAsyncOp.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(otherAsyncOp.getError()).isEqualTo("No free slot to call 'other' in time");
+  }
+
+  @Test
+  void shouldThrowWhenInterruptedWhileWaitingForFreeSlot() {
+    // given
+    AsyncOp<String> asyncOp = AsyncOp.from("op", mock(Call.class));
+    Thread.currentThread().interrupt();
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor
+        .startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class)
+        .hasCauseInstanceOf(InterruptedException.class);
+  }
+
+  @Test
+  void shouldThrowWhenInterruptedWhileWaitingForCompletion() {
+    // given
+    Call<String> call = mock(Call.class);
+    willAnswer(invocation -> {
+      Thread.currentThread().interrupt();
+      return null;
+    }).given(call).enqueue(any());
+    AsyncOp<String> asyncOp = AsyncOp.from("op", call);
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor
+        .startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class)
+        .hasCauseInstanceOf(InterruptedException.class);
+  }
+
+  @Test
+  void shouldThrowAndRecordFailureWhenOperationIsCancelled() {
+    // given
+    Call<String> call = mock(Call.class);
+    AtomicReference<AsyncOp<String>> asyncOp = new AtomicReference<>();
+    willAnswer(invocation -> asyncOp.get().getCompletableFuture().cancel(true))
+        .given(call).enqueue(any());
+    asyncOp.set(AsyncOp.from("op", call));
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor
+        .startAndAwaitAll(singletonList(asyncOp.get()), 1, TimeUnit.SECONDS));
+    Thread.interrupted();
+    executor.startAndAwaitAll(singletonList(AsyncOp.from("other", respondingCall(500))), 1,
+        TimeUnit.SECONDS);
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class);
+    assertThat(executor.getCircuitBreakerState()).isEqualTo("OPEN");
+  }
+
+  @Nested
+  class Metrics {
+
+    @Test
+    void shouldTrackStartedOperations() {
+      // given
+      AsyncOp<String> asyncOp = AsyncOp.from("op", withHost(respondingCall(200)));
+
+      // when
+      executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+
+      // then
+      assertThat(calls("SUCCESS", "200").count()).isEqualTo(1);
+      assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void shouldNotTrackOperationsFailedFast() {
+      // given
+      AsyncOp<String> first = AsyncOp.from("first", withHost(respondingCall(500)));
+      AsyncOp<String> second = AsyncOp.from("second", withHost(respondingCall(500)));
+      AsyncOp<String> third = AsyncOp.from("third", mock(Call.class));
+
+      // when
+      executor.startAndAwaitAll(Arrays.asList(first, second, third), 1, TimeUnit.SECONDS);
+
+      // then
+      assertThat(third.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+      assertThat(meterRegistry.find(AsyncRestMetrics.CALLS).timers()).hasSize(1);
+      assertThat(calls("SERVER_ERROR", "500").count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRecordTimeoutAndCancellationOfOperationsWhichDidNotCompleteInTime() {
+      // given
+      AsyncOp<String> asyncOp = AsyncOp.from("op", withHost(mock(Call.class)));
+
+      // when
+      catchThrowable(() -> executor
+          .startAndAwaitAll(singletonList(asyncOp), 50, TimeUnit.MILLISECONDS));
+
+      // then
+      assertThat(meterRegistry.counter(AsyncRestMetrics.TIMEOUTS, "upstream", HOST).count())
+          .isEqualTo(1);
+      assertThat(calls("CANCELLED", "NONE").count()).isEqualTo(1);
+      assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void shouldNotRecordTimeoutWhenInterrupted() {
+      // given
+      Call<String> call = withHost(mock(Call.class));
+      willAnswer(invocation -> {
+        Thread.currentThread().interrupt();
+        return null;
+      }).given(call).enqueue(any());
+
+      // when
+      catchThrowable(() -> executor
+          .startAndAwaitAll(singletonList(AsyncOp.from("op", call)), 1, TimeUnit.SECONDS));
+
+      // then
+      assertThat(meterRegistry.counter(AsyncRestMetrics.TIMEOUTS, "upstream", HOST).count())
+          .isZero();
+      assertThat(calls("CANCELLED", "NONE").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordRestartedOperationAsRetry() {
+      // given
+      Call<String> call = withHost(respondingCall(500));
+      given(call.clone()).willReturn(call);
+      AsyncOp<String> asyncOp = AsyncOp.from("op", call);
+      executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+
+      // when
+      executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+
+      // then
+      assertThat(meterRegistry.counter(AsyncRestMetrics.RETRIES, "upstream", HOST).count())
+          .isEqualTo(1);
+      assertThat(calls("SERVER_ERROR", "500").count()).isEqualTo(2);
+    }
+  }
+
+  @Nested
+  class Hedging {
+
+    @Mock
+    private ScheduledFuture<?> hedgingTask;
+
+    @BeforeEach
+    void setUp() {
+      executor = warmedUpHedgingExecutor(2);
+    }
+
+    @Test
+    void shouldSendHedgedRequestWhenOriginalOneIsSlow() {
+      // given
+      runHedgingImmediately();
+      Call<String> slowCall = withHost(mock(Call.class));
+      Call<String> hedgeCall = respondingCall(200);
+      given(slowCall.clone()).willReturn(hedgeCall);
+      AsyncOp<String> asyncOp = AsyncOp.from("op", slowCall);
+
+      // when
+      executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+
+      // then
+      assertThat(asyncOp.getResult()).isEqualTo("OK");
+      // both the original and the hedged request are tracked
+      assertThat(calls("SUCCESS", "200").count()).isEqualTo(2);
+      assertThat(inFlight()).isZero();
+      verify(scheduler).schedule(any(Runnable.class),
+          eq(TimeUnit.MILLISECONDS.toNanos(10)), eq(TimeUnit.NANOSECONDS));
+      verify(slowCall).cancel();
+      verify(hedgeCall).cancel();
+      verify(hedgingTask).cancel(false);
+    }
+
+    @Test
+    void shouldNotSendHedgedRequestWhenOriginalOneHasCompleted() {
+      // given
+      runHedgingImmediately();
+      Call<String> call = respondingCall(200);
+      AsyncOp<String> asyncOp = AsyncOp.from("op", call);
+
+      // when
+      executor.startAndAwaitAll(singletonList(asyncOp), 1, TimeUnit.SECONDS);
+
+      // then
+      assertThat(asyncOp.getResult()).isEqualTo("OK");
+      verify(call, never()).clone();
+    }
+
+    @Test
+    void shouldNotSendHedgedRequestWhenThereIsNoFreeSlot() {
+      // given
+      executor = warmedUpHedgingExecutor(1);
+      runHedgingImmediately();
+      Call<String> first = mock(Call.class);
+      Call<String> second = mock(Call.class);
+
+      // when
+      Throwable throwable = catchThrowable(() -> executor.startAndAwaitAll(
+          Arrays.asList(AsyncOp.from("first", first), AsyncOp.from("second", second)), 50,
+          TimeUnit.MILLISECONDS));
+
+      // then
+      assertThat(throwable).isInstanceOf(AsyncCallException.class).hasMessage("Timeout");
+      verify(first, never()).clone();
+      verify(second, never()).clone();
+    }
+
+    private AsyncOpExecutor warmedUpHedgingExecutor(int maxInFlight) {
+      AsyncExecutionPolicy policy = AsyncExecutionPolicy.builder()
+          .maxInFlight(maxInFlight)
+          .hedgingEnabled(true)
+          .hedgingMinSamples(1)
+          .build();
+      // latencies are measured as zero, so that hedging is delayed by the minimum delay
+      AsyncOpExecutor executor = new AsyncOpExecutor("upstream", policy, meterRegistry,
+          () -> 0L, scheduler);
+      // records the first latency, hedging is not scheduled as there were no samples before
+      executor.startAndAwaitAll(singletonList(AsyncOp.from("warm-up", respondingCall(200))), 1,
+          TimeUnit.SECONDS);
+      return executor;
+    }
+
+    private void runHedgingImmediately() {
+      willAnswer(invocation -> {
+        invocation.<Runnable>getArgument(0).run();
+        return hedgingTask;
+      }).given(scheduler).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+  }
+
+  private Timer calls(String outcome, String status) {
+    return meterRegistry.get(AsyncRestMetrics.CALLS)
+        .tags("upstream", HOST, "outcome", outcome, "status", status)
+        .timer();
+  }
+
+  private double inFlight() {
+    return meterRegistry.get(AsyncRestMetrics.IN_FLIGHT).tags("upstream", HOST).gauge().value();
+  }
+
+  private static Call<String> withHost(Call<String> call) {
+    given(call.request()).willReturn(new Request.Builder().url("https://" + HOST + "/").build());
+    return call;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Call<String> respondingCall(int code) {
+    Call<String> call = mock(Call.class);
+    willAnswer(invocation -> {
+      Callback<String> callback = invocation.getArgument(0);
+      callback.onResponse(call, code < 300
+          ? Response.success(code, "OK")
+          : Response.error(code, ResponseBody.create(null, "Error")));
+      return null;
+    }).given(call).enqueue(any());
+    return call;
+  }
+}
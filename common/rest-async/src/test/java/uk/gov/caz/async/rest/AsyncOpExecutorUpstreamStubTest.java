@@ -0,0 +1,215 @@
+package uk.gov.caz.async.rest;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+
+/**
+ * Runs {@link AsyncOpExecutor} against a local HTTP stub which simulates slow and failing
+ * upstreams.
+ */
+class AsyncOpExecutorUpstreamStubTest {
+
+  private static final String SLOW_VRN = "SLOW";
+  private static final String FAILING_VRN = "FAILING";
+  private static final String SLOW_AND_FLAKY_VRN = "FLAKY";
+
+  private interface VehicleApi {
+
+    @GET("vehicles/{vrn}")
+    Call<JsonNode> vehicle(@Path("vrn") String vrn);
+  }
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxObservedInFlight = new AtomicInteger();
+  private final Map<String, AtomicInteger> requestsPerVrn = new ConcurrentHashMap<>();
+  private final CountDownLatch slowUpstreamLatch = new CountDownLatch(1);
+  private volatile boolean failingUpstreamRecovered;
+
+  private MockWebServer mockWebServer;
+  private VehicleApi vehicleApi;
+  private AsyncOpExecutor executor;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    mockWebServer = new MockWebServer();
+    mockWebServer.setDispatcher(new UpstreamDispatcher());
+    mockWebServer.start();
+
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequestsPerHost(64);
+    vehicleApi = new Retrofit.Builder()
+        .baseUrl(mockWebServer.url("/"))
+        .client(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+        .addConverterFactory(JacksonConverterFactory.create())
+        .build()
+        .create(VehicleApi.class);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    slowUpstreamLatch.countDown();
+    executor.shutdown();
+    mockWebServer.shutdown();
+  }
+
+  @Test
+  void shouldKeepAtMostMaxInFlightCallsRunning() {
+    // given
+    executor = new AsyncOpExecutor("vehicles", AsyncExecutionPolicy.builder()
+        .maxInFlight(3)
+        .build());
+    List<AsyncOp<JsonNode>> asyncOps = vehicleOps("VRN", 30);
+
+    // when
+    executor.startAndAwaitAll(asyncOps, 5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(asyncOps).allMatch(asyncOp -> asyncOp.getHttpStatus() == HttpStatus.OK);
+    assertThat(maxObservedInFlight.get()).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  void shouldAnswerFromHedgedRequestWhenUpstreamIsSlow() {
+    // given
+    executor = new AsyncOpExecutor("vehicles", AsyncExecutionPolicy.builder()
+        .hedgingEnabled(true)
+        .build());
+    executor.startAndAwaitAll(vehicleOps("WARMUP", 20), 5, TimeUnit.SECONDS);
+    AsyncOp<JsonNode> slowOp = AsyncOp.from(SLOW_VRN, vehicleApi.vehicle(SLOW_VRN));
+
+    // when
+    // without the hedged request this would time out as the first request never completes
+    executor.startAndAwaitAll(singletonList(slowOp), 5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(slowOp.getHttpStatus()).isEqualTo(HttpStatus.OK);
+    assertThat(requestsPerVrn.get(SLOW_VRN)).hasValue(2);
+  }
+
+  @Test
+  void shouldAnswerFromSlowRequestWhenHedgedRequestFails() {
+    // given
+    executor = new AsyncOpExecutor("vehicles", AsyncExecutionPolicy.builder()
+        .hedgingEnabled(true)
+        .build());
+    executor.startAndAwaitAll(vehicleOps("WARMUP", 20), 5, TimeUnit.SECONDS);
+    AsyncOp<JsonNode> flakyOp = AsyncOp.from(SLOW_AND_FLAKY_VRN,
+        vehicleApi.vehicle(SLOW_AND_FLAKY_VRN));
+
+    // when
+    executor.startAndAwaitAll(singletonList(flakyOp), 5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(flakyOp.getHttpStatus()).isEqualTo(HttpStatus.OK);
+    assertThat(requestsPerVrn.get(SLOW_AND_FLAKY_VRN)).hasValue(2);
+  }
+
+  @Test
+  void shouldFailFastWhenUpstreamIsUnhealthyAndRecoverAfterOpenDuration() {
+    // given
+    AtomicLong now = new AtomicLong();
+    executor = new AsyncOpExecutor("vehicles", AsyncExecutionPolicy.builder()
+        .maxInFlight(1)
+        .circuitBreakerFailureThreshold(3)
+        .circuitBreakerOpenDurationMillis(1000)
+        .build(), new SimpleMeterRegistry(), now::get,
+        Executors.newSingleThreadScheduledExecutor());
+    List<AsyncOp<JsonNode>> asyncOps = vehicleOps(FAILING_VRN, 5);
+
+    // when
+    executor.startAndAwaitAll(asyncOps, 5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(asyncOps).allMatch(AsyncOp::hasError);
+    assertThat(requestsPerVrn.get(FAILING_VRN)).hasValue(3);
+    assertThat(executor.getCircuitBreakerState()).isEqualTo("OPEN");
+
+    // when
+    failingUpstreamRecovered = true;
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    List<AsyncOp<JsonNode>> retriedOps = vehicleOps(FAILING_VRN, 1);
+    executor.startAndAwaitAll(retriedOps, 5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(retriedOps.get(0).getHttpStatus()).isEqualTo(HttpStatus.OK);
+    assertThat(executor.getCircuitBreakerState()).isEqualTo("CLOSED");
+  }
+
+  private List<AsyncOp<JsonNode>> vehicleOps(String vrn, int count) {
+    List<AsyncOp<JsonNode>> asyncOps = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      asyncOps.add(AsyncOp.from(vrn + i, vehicleApi.vehicle(vrn)));
+    }
+    return asyncOps;
+  }
+
+  /**
+   * Responds after random delay (1-20ms) and tracks number of concurrently handled requests. The
+   * first request for {@link #SLOW_VRN} hangs until the test finishes and requests for {@link
+   * #FAILING_VRN} fail until the upstream is marked as recovered. The first request for {@link
+   * #SLOW_AND_FLAKY_VRN} succeeds after 500ms and the subsequent ones fail immediately.
+   */
+  private class UpstreamDispatcher extends okhttp3.mockwebserver.Dispatcher {
+
+    private final Random random = new Random(42);
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+      String vrn = request.getPath().substring("/vehicles/".length());
+      int requestNumber = requestsPerVrn.computeIfAbsent(vrn, key -> new AtomicInteger())
+          .incrementAndGet();
+      int current = inFlight.incrementAndGet();
+      maxObservedInFlight.accumulateAndGet(current, Math::max);
+      try {
+        if (SLOW_VRN.equals(vrn) && requestNumber == 1) {
+          slowUpstreamLatch.await(10, TimeUnit.SECONDS);
+        }
+        if (SLOW_AND_FLAKY_VRN.equals(vrn)) {
+          if (requestNumber > 1) {
+            return new MockResponse().setResponseCode(500).setBody("{}");
+          }
+          Thread.sleep(500);
+        }
+        if (FAILING_VRN.equals(vrn) && !failingUpstreamRecovered) {
+          return new MockResponse().setResponseCode(500).setBody("{}");
+        }
+        Thread.sleep(1 + nextDelay());
+        return new MockResponse().setResponseCode(200).setBody("{\"vrn\":\"" + vrn + "\"}");
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    }
+
+    private synchronized int nextDelay() {
+      return random.nextInt(20);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -150,6 +151,233 @@ class AsyncOpTest {
     assertThat(retrofitCall).isSameAs(call);
   }
 
+  @Test
+  void shouldIgnoreCompletionOfAlreadyCompletedOperation() {
+    // given
+    asyncOp.startAsync();
+    asyncOp.markCompletedAsSuccessful(HttpStatus.OK, "Success");
+
+    // when
+    asyncOp.markCompletedAsFailed(HttpStatus.INTERNAL_SERVER_ERROR, "Error");
+    asyncOp.markCompletedAsSuccessful(HttpStatus.CREATED, "Other");
+
+    // then
+    assertThat(asyncOp.hasError()).isFalse();
+    assertThat(asyncOp.getHttpStatus()).isEqualTo(HttpStatus.OK);
+    assertThat(asyncOp.getResult()).isEqualTo("Success");
+  }
+
+  @Test
+  void markFailedFast() {
+    // when
+    asyncOp.markFailedFast(HttpStatus.SERVICE_UNAVAILABLE, "Unavailable");
+
+    // then
+    assertThat(asyncOp.hasError()).isTrue();
+    assertThat(asyncOp.getError()).isEqualTo("Unavailable");
+    assertThat(asyncOp.getHttpStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(asyncOp.getCompletableFuture().isDone()).isTrue();
+    verify(call, never()).enqueue(any());
+  }
+
+  @Nested
+  class Cancellation {
+
+    @Mock
+    private Call<String> hedgeCall;
+
+    @Test
+    void shouldCancelRunningCallAndCompletableFuture() {
+      // given
+      asyncOp.startAsync();
+
+      // when
+      asyncOp.cancel();
+
+      // then
+      verify(call).cancel();
+      assertThat(asyncOp.getCompletableFuture()).isCancelled();
+    }
+
+    @Test
+    void shouldCancelHedgedCall() {
+      // given
+      given(call.clone()).willReturn(hedgeCall);
+      asyncOp.startAsync();
+      asyncOp.startHedgeAsync();
+
+      // when
+      asyncOp.cancel();
+
+      // then
+      verify(call).cancel();
+      verify(hedgeCall).cancel();
+    }
+
+    @Test
+    void shouldIgnoreFailureReportedByCancelledCall() {
+      // given
+      asyncOp.startAsync();
+      asyncOp.cancel();
+
+      // when
+      asyncOp.markCompletedAsFailed(HttpStatus.INTERNAL_SERVER_ERROR, "Canceled");
+
+      // then
+      assertThat(asyncOp.getCompletableFuture()).isCancelled();
+      assertThat(asyncOp.hasError()).isFalse();
+    }
+
+    @Test
+    void shouldDoNothingWhenNotStarted() {
+      // when
+      asyncOp.cancel();
+
+      // then
+      verify(call, never()).cancel();
+    }
+
+    @Test
+    void shouldDoNothingWhenCreatedAsCompleted() {
+      // given
+      AsyncOp<String> asyncOp = AsyncOp.asCompletedAndSuccessful("AsyncOp", HttpStatus.OK, "OK");
+
+      // when
+      asyncOp.cancel();
+
+      // then
+      assertThat(asyncOp.getCompletableFuture()).isCompletedWithValue(null);
+    }
+  }
+
+  @Nested
+  class Hedging {
+
+    @Mock
+    private Call<String> hedgeCall;
+
+    @Test
+    void shouldStartDuplicateCallOfRunningOperation() {
+      // given
+      given(call.clone()).willReturn(hedgeCall);
+      asyncOp.startAsync();
+
+      // when
+      asyncOp.startHedgeAsync();
+
+      // then
+      assertThat(asyncOp.getHedgeCall()).isSameAs(hedgeCall);
+      verify(hedgeCall).enqueue(any(RequestCallback.class));
+    }
+
+    @Test
+    void shouldNotStartDuplicateCallOfCompletedOperation() {
+      // given
+      asyncOp.startAsync();
+      asyncOp.markCompletedAsSuccessful(HttpStatus.OK, "Success");
+
+      // when
+      asyncOp.startHedgeAsync();
+
+      // then
+      assertThat(asyncOp.getHedgeCall()).isNull();
+      verify(call, never()).clone();
+    }
+
+    @Test
+    void shouldNotStartDuplicateCallOfOperationCreatedAsCompleted() {
+      // given
+      AsyncOp<String> asyncOp = AsyncOp.asCompletedAndSuccessful("AsyncOp", HttpStatus.OK, "OK");
+
+      // when
+      asyncOp.startHedgeAsync();
+
+      // then
+      assertThat(asyncOp.getHedgeCall()).isNull();
+    }
+
+    @Test
+    void shouldNotFailWhenOnlyOneOfHedgedCallsFailed() {
+      // given
+      given(call.clone()).willReturn(hedgeCall);
+      asyncOp.startAsync();
+      asyncOp.startHedgeAsync();
+
+      // when
+      asyncOp.markCompletedAsFailed(HttpStatus.INTERNAL_SERVER_ERROR, "Failure");
+
+      // then
+      assertThat(asyncOp.getCompletableFuture()).isNotDone();
+
+      // when
+      asyncOp.markCompletedAsSuccessful(HttpStatus.OK, "Success");
+
+      // then
+      assertThat(asyncOp.getCompletableFuture()).isDone();
+      assertThat(asyncOp.getResult()).isEqualTo("Success");
+      assertThat(asyncOp.hasError()).isFalse();
+    }
+
+    @Test
+    void shouldFailWhenBothHedgedCallsFailed() {
+      // given
+      given(call.clone()).willReturn(hedgeCall);
+      asyncOp.startAsync();
+      asyncOp.startHedgeAsync();
+
+      // when
+      asyncOp.markCompletedAsFailed(HttpStatus.INTERNAL_SERVER_ERROR, "First failure");
+      asyncOp.markCompletedAsFailed(HttpStatus.BAD_GATEWAY, "Second failure");
+
+      // then
+      assertThat(asyncOp.getCompletableFuture()).isDone();
+      assertThat(asyncOp.getHttpStatus()).isEqualTo(HttpStatus.BAD_GATEWAY);
+      assertThat(asyncOp.getError()).isEqualTo("Second failure");
+    }
+
+    @Test
+    void shouldCancelBothCallsWhenHedged() {
+      // given
+      given(call.clone()).willReturn(hedgeCall);
+      asyncOp.startAsync();
+      asyncOp.startHedgeAsync();
+
+      // when
+      asyncOp.cancelHedge();
+
+      // then
+      verify(call).cancel();
+      verify(hedgeCall).cancel();
+    }
+
+    @Test
+    void shouldNotCancelAnythingWhenNotHedged() {
+      // given
+      asyncOp.startAsync();
+
+      // when
+      asyncOp.cancelHedge();
+
+      // then
+      verify(call, never()).cancel();
+    }
+
+    @Test
+    void shouldCancelDuplicateCallWhenRestarted() {
+      // given
+      given(call.clone()).willReturn(hedgeCall, call);
+      asyncOp.startAsync();
+      asyncOp.startHedgeAsync();
+
+      // when
+      asyncOp.startAsync();
+
+      // then
+      verify(hedgeCall).cancel();
+      assertThat(asyncOp.getHedgeCall()).isNull();
+    }
+  }
+
   @Nested
   class CreatedAsCompleted {
 
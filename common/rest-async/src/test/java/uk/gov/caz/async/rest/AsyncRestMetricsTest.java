@@ -0,0 +1,211 @@
+package uk.gov.caz.async.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import retrofit2.Call;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncRestMetricsTest {
+
+  private static final String UPSTREAM = "dvla.example.com";
+
+  @Mock
+  private Call<String> call;
+
+  @Mock
+  private Call<String> otherCall;
+
+  private SimpleMeterRegistry meterRegistry;
+  private AsyncRestMetrics metrics;
+  private AsyncOp<String> asyncOp;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    metrics = new AsyncRestMetrics(meterRegistry);
+    lenient().when(call.request())
+        .thenReturn(new Request.Builder().url("https://" + UPSTREAM + "/vehicles").build());
+    lenient().when(otherCall.request())
+        .thenReturn(new Request.Builder().url("https://" + UPSTREAM + "/vehicles").build());
+    asyncOp = AsyncOp.from("op", call);
+  }
+
+  @Test
+  void shouldRecordDurationAndInFlightCallsOfSuccessfulCall() {
+    // given
+    asyncOp.startAsync();
+
+    // when
+    metrics.track(asyncOp);
+
+    // then
+    assertThat(inFlight()).isEqualTo(1);
+
+    // when
+    asyncOp.markCompletedAsSuccessful(HttpStatus.OK, "OK");
+
+    // then
+    assertThat(inFlight()).isZero();
+    Timer timer = timer("SUCCESS", "200");
+    assertThat(timer.count()).isEqualTo(1);
+    assertThat(timer.takeSnapshot().percentileValues()).hasSize(3);
+  }
+
+  @Test
+  void shouldTagFailedCallsWithOutcome() {
+    // given
+    AsyncOp<String> other = AsyncOp.from("other", otherCall);
+    asyncOp.startAsync();
+    other.startAsync();
+    metrics.track(asyncOp);
+    metrics.track(other);
+
+    // when
+    asyncOp.markCompletedAsFailed(HttpStatus.SERVICE_UNAVAILABLE, "Unavailable");
+    other.markCompletedAsFailed(HttpStatus.NOT_FOUND, "Not found");
+
+    // then
+    assertThat(timer("SERVER_ERROR", "503").count()).isEqualTo(1);
+    assertThat(timer("CLIENT_ERROR", "404").count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldTagCancelledCalls() {
+    // given
+    asyncOp.startAsync();
+    metrics.track(asyncOp);
+
+    // when
+    asyncOp.getCompletableFuture().cancel(true);
+
+    // then
+    assertThat(timer("CANCELLED", "NONE").count()).isEqualTo(1);
+    assertThat(inFlight()).isZero();
+  }
+
+  @Test
+  void shouldCountTimeoutsAndRetries() {
+    // when
+    metrics.recordTimeout(asyncOp);
+    metrics.recordRetry(asyncOp);
+    metrics.recordRetry(asyncOp);
+
+    // then
+    assertThat(meterRegistry.get(AsyncRestMetrics.TIMEOUTS).tag("upstream", UPSTREAM).counter()
+        .count()).isEqualTo(1);
+    assertThat(meterRegistry.get(AsyncRestMetrics.RETRIES).tag("upstream", UPSTREAM).counter()
+        .count()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldUseUnknownUpstreamWhenItCannotBeDetermined() {
+    // given
+    given(call.request()).willReturn(null);
+
+    // then
+    assertThat(AsyncRestMetrics.upstreamOf(asyncOp)).isEqualTo(AsyncRestMetrics.UNKNOWN_UPSTREAM);
+    assertThat(AsyncRestMetrics.upstreamOf(AsyncOp.asCompletedAndSuccessful("op", HttpStatus.OK,
+        "OK"))).isEqualTo(AsyncRestMetrics.UNKNOWN_UPSTREAM);
+  }
+
+  @Nested
+  class RecordedByAsyncRestService {
+
+    private AsyncRestService asyncRestService;
+
+    @BeforeEach
+    void setUp() {
+      asyncRestService = new AsyncRestService(meterRegistry);
+    }
+
+    @Test
+    void shouldTrackStartedCallsAndSkipOnesCreatedAsCompleted() {
+      // when
+      asyncRestService.startAll(asyncOp, AsyncOp.asCompletedAndSuccessful("done", HttpStatus.OK,
+          "OK"));
+      asyncOp.markCompletedAsSuccessful(HttpStatus.OK, "OK");
+
+      // then
+      assertThat(timer("SUCCESS", "200").count()).isEqualTo(1);
+      assertThat(meterRegistry.find(AsyncRestMetrics.IN_FLIGHT)
+          .tag("upstream", AsyncRestMetrics.UNKNOWN_UPSTREAM).gauge()).isNull();
+    }
+
+    @Test
+    void shouldRecordRetryWhenCallIsRestarted() {
+      // given
+      given(call.clone()).willReturn(call);
+
+      // when
+      asyncRestService.start(asyncOp);
+      asyncRestService.start(asyncOp);
+      asyncRestService.recordRetry(asyncOp);
+
+      // then
+      assertThat(meterRegistry.get(AsyncRestMetrics.RETRIES).counter().count()).isEqualTo(2);
+      assertThat(timer("CANCELLED", "NONE").count()).isEqualTo(1);
+      assertThat(inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordTimeoutsOfCallsWhichDidNotComplete() {
+      // given
+      AsyncOp<String> other = AsyncOp.from("other", otherCall);
+      asyncRestService.startAll(Arrays.asList(asyncOp, other));
+      given(call.isExecuted()).willReturn(true);
+      given(otherCall.isExecuted()).willReturn(true);
+      other.markCompletedAsSuccessful(HttpStatus.OK, "OK");
+
+      // when
+      Throwable throwable = catchThrowable(() -> asyncRestService
+          .awaitAll(Arrays.asList(asyncOp, other), 10, TimeUnit.MILLISECONDS));
+
+      // then
+      assertThat(throwable).isInstanceOf(AsyncCallException.class);
+      assertThat(meterRegistry.get(AsyncRestMetrics.TIMEOUTS).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordTimeoutsOfCallsInFlightInSlidingWindow() {
+      // given
+      Queue<AsyncOp<String>> asyncOps = new ArrayDeque<>(Collections.singletonList(asyncOp));
+
+      // when
+      Throwable throwable = catchThrowable(() -> asyncRestService.startAndAwaitAll(asyncOps, 1,
+          10, TimeUnit.MILLISECONDS, completed -> { }));
+
+      // then
+      assertThat(throwable).isInstanceOf(AsyncCallException.class);
+      assertThat(meterRegistry.get(AsyncRestMetrics.TIMEOUTS).counter().count()).isEqualTo(1);
+    }
+  }
+
+  private Timer timer(String outcome, String status) {
+    return meterRegistry.get(AsyncRestMetrics.CALLS)
+        .tags("upstream", UPSTREAM, "outcome", outcome, "status", status)
+        .timer();
+  }
+
+  private double inFlight() {
+    return meterRegistry.get(AsyncRestMetrics.IN_FLIGHT).tag("upstream", UPSTREAM).gauge()
+        .value();
+  }
+}
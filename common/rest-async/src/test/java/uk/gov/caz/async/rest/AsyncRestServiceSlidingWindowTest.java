@@ -0,0 +1,133 @@
+package uk.gov.caz.async.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Stopwatch;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+
+/**
+ * Runs the sliding window of {@link AsyncRestService} against a local HTTP stub which responds
+ * with random latency and logs throughput and tail latency of the whole run.
+ */
+@Slf4j
+class AsyncRestServiceSlidingWindowTest {
+
+  private static final int MAX_IN_FLIGHT = 4;
+  private static final int NUMBER_OF_CALLS = 40;
+
+  private interface VehicleApi {
+
+    @GET("vehicles/{vrn}")
+    Call<JsonNode> vehicle(@Path("vrn") String vrn);
+  }
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxObservedInFlight = new AtomicInteger();
+
+  private MockWebServer mockWebServer;
+  private VehicleApi vehicleApi;
+  private AsyncRestService asyncRestService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    mockWebServer = new MockWebServer();
+    mockWebServer.setDispatcher(new RandomLatencyDispatcher());
+    mockWebServer.start();
+
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequestsPerHost(NUMBER_OF_CALLS);
+    vehicleApi = new Retrofit.Builder()
+        .baseUrl(mockWebServer.url("/"))
+        .client(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+        .addConverterFactory(JacksonConverterFactory.create())
+        .build()
+        .create(VehicleApi.class);
+    asyncRestService = new AsyncRestService();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    mockWebServer.shutdown();
+  }
+
+  @Test
+  void shouldKeepAtMostMaxInFlightCallsRunningAndCompleteAllOfThem() {
+    // given
+    Queue<AsyncOp<JsonNode>> asyncOps = new ArrayDeque<>();
+    Map<String, Long> startTimes = new ConcurrentHashMap<>();
+    for (int i = 0; i < NUMBER_OF_CALLS; i++) {
+      String vrn = "VRN" + i;
+      asyncOps.add(AsyncOp.from(vrn, vehicleApi.vehicle(vrn)));
+    }
+    List<Long> latencies = new ArrayList<>();
+    List<AsyncOp<JsonNode>> completed = new ArrayList<>();
+    Stopwatch timer = Stopwatch.createStarted();
+    asyncOps.forEach(asyncOp -> startTimes.put(asyncOp.getIdentifier(), System.nanoTime()));
+
+    // when
+    asyncRestService.startAndAwaitAll(asyncOps, MAX_IN_FLIGHT, 5, TimeUnit.SECONDS, asyncOp -> {
+      latencies.add(System.nanoTime() - startTimes.get(asyncOp.getIdentifier()));
+      completed.add(asyncOp);
+    });
+
+    // then
+    long elapsedMillis = timer.stop().elapsed(TimeUnit.MILLISECONDS);
+    Collections.sort(latencies);
+    log.info("Completed {} calls in {}ms ({} calls/s), p99 time to completion: {}ms",
+        NUMBER_OF_CALLS, elapsedMillis, NUMBER_OF_CALLS * 1000 / Math.max(elapsedMillis, 1),
+        TimeUnit.NANOSECONDS.toMillis(latencies.get(latencies.size() * 99 / 100)));
+    assertThat(completed).hasSize(NUMBER_OF_CALLS);
+    assertThat(completed).allMatch(asyncOp -> asyncOp.getHttpStatus() == HttpStatus.OK);
+    assertThat(maxObservedInFlight.get()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+  }
+
+  /**
+   * Responds after random delay (10-100ms) and tracks number of concurrently handled requests.
+   */
+  private class RandomLatencyDispatcher extends okhttp3.mockwebserver.Dispatcher {
+
+    private final Random random = new Random(42);
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+      int current = inFlight.incrementAndGet();
+      maxObservedInFlight.accumulateAndGet(current, Math::max);
+      try {
+        Thread.sleep(10 + nextDelay());
+        return new MockResponse().setResponseCode(200).setBody("{\"vrn\":\"any\"}");
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    }
+
+    private synchronized int nextDelay() {
+      return random.nextInt(90);
+    }
+  }
+}
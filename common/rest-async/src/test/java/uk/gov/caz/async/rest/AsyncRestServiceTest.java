@@ -5,9 +5,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -16,6 +21,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 
 @ExtendWith(MockitoExtension.class)
 class AsyncRestServiceTest {
@@ -144,6 +150,151 @@ class AsyncRestServiceTest {
         "java.util.concurrent.ExecutionException: java.util.concurrent.CancellationException");
   }
 
+  @Test
+  void slidingWindowHandlesAllAsyncOpsIncludingOnesAddedByHandler() {
+    // given
+    Queue<AsyncOp<String>> asyncOps = new ArrayDeque<>();
+    asyncOps.add(AsyncOp.asCompletedAndSuccessful("op1", HttpStatus.OK, "1"));
+    asyncOps.add(AsyncOp.asCompletedAndFailed("op2", HttpStatus.UNAUTHORIZED, "401"));
+    asyncOps.add(AsyncOp.asCompletedAndSuccessful("op3", HttpStatus.OK, "3"));
+    List<String> handled = new ArrayList<>();
+
+    // when
+    asyncRestService.startAndAwaitAll(asyncOps, 2, 5, TimeUnit.SECONDS, asyncOp -> {
+      handled.add(asyncOp.getIdentifier());
+      if (asyncOp.hasError()) {
+        asyncOps.add(AsyncOp.asCompletedAndSuccessful("op2-retry", HttpStatus.OK, "2"));
+      }
+    });
+
+    // then
+    assertThat(handled).containsExactlyInAnyOrder("op1", "op2", "op3", "op2-retry");
+  }
+
+  @Test
+  void slidingWindowStartsNextAsyncOpOnlyWhenAnyRunningOneCompletes() {
+    // given
+    Queue<AsyncOp<Object>> asyncOps = queueOf(asyncOp1, asyncOp2);
+    completeOp1In(1, TimeUnit.SECONDS);
+    List<AsyncOp<Object>> handled = new ArrayList<>();
+
+    // when
+    asyncRestService.startAndAwaitAll(asyncOps, 1, 5, TimeUnit.SECONDS, asyncOp -> {
+      handled.add(asyncOp);
+      if (asyncOp == asyncOp1) {
+        verify(asyncOp2, times(0)).startAsync();
+        completableFuture2.complete(null);
+      }
+    });
+
+    // then
+    assertThat(handled).containsExactly(asyncOp1, asyncOp2);
+  }
+
+  @Test
+  void slidingWindowThrowsAsyncCallExceptionWhenNoAsyncOpCompletesInTime() {
+    // given
+    Queue<AsyncOp<Object>> asyncOps = queueOf(asyncOp1);
+    completeOp1In(2, TimeUnit.SECONDS);
+
+    // when
+    Throwable throwable = catchThrowable(() -> asyncRestService
+        .startAndAwaitAll(asyncOps, 1, 1, TimeUnit.SECONDS, asyncOp -> { }));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class);
+    assertThat(throwable).hasMessage("Timeout");
+  }
+
+  @Test
+  void slidingWindowWaitsDesiredTimeForAllAsyncOpsTogether() {
+    // given each of the two AsyncOps completes in 600 milliseconds after being started
+    Queue<AsyncOp<Object>> asyncOps = queueOf(asyncOp1, asyncOp2);
+    completeOp1In(600, TimeUnit.MILLISECONDS);
+
+    // when waiting for 1 second in total
+    Throwable throwable = catchThrowable(() -> asyncRestService
+        .startAndAwaitAll(asyncOps, 1, 1, TimeUnit.SECONDS, asyncOp -> {
+          if (asyncOp == asyncOp1) {
+            completeOp2In(600, TimeUnit.MILLISECONDS);
+          }
+        }));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class);
+    assertThat(throwable).hasMessage("Timeout");
+    verify(asyncOp1, never()).cancel();
+    verify(asyncOp2).cancel();
+  }
+
+  @Test
+  void slidingWindowCancelsRunningAsyncOpsWhenCompletionHandlerFails() {
+    // given
+    Queue<AsyncOp<Object>> asyncOps = queueOf(asyncOp1, asyncOp2);
+    completeOp1In(0, TimeUnit.SECONDS);
+
+    // when
+    Throwable throwable = catchThrowable(() -> asyncRestService
+        .startAndAwaitAll(asyncOps, 2, 5, TimeUnit.SECONDS, asyncOp -> {
+          throw new IllegalStateException("Failure");
+        }));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalStateException.class);
+    verify(asyncOp1, never()).cancel();
+    verify(asyncOp2).cancel();
+  }
+
+  @Test
+  void slidingWindowThrowsAsyncCallExceptionWhenAsyncOpIsCancelled() {
+    // given
+    Queue<AsyncOp<Object>> asyncOps = queueOf(asyncOp1);
+    cancelOp1In(1, TimeUnit.SECONDS);
+
+    // when
+    Throwable throwable = catchThrowable(() -> asyncRestService
+        .startAndAwaitAll(asyncOps, 1, 5, TimeUnit.SECONDS, asyncOp -> { }));
+
+    // then
+    assertThat(throwable).isInstanceOf(AsyncCallException.class);
+    assertThat(throwable).hasMessage("AsyncOp null has been cancelled");
+  }
+
+  @Test
+  void interruptionWhenWaitingInSlidingWindowThrowsAsyncCallException() {
+    // given
+    Queue<AsyncOp<Object>> asyncOps = queueOf(asyncOp1);
+    Thread.currentThread().interrupt();
+
+    // when
+    Throwable throwable = catchThrowable(() -> asyncRestService
+        .startAndAwaitAll(asyncOps, 1, 5, TimeUnit.SECONDS, asyncOp -> { }));
+
+    // then
+    assertThat(Thread.interrupted()).isTrue();
+    assertThat(throwable).isInstanceOf(AsyncCallException.class);
+    assertThat(throwable).hasCauseInstanceOf(InterruptedException.class);
+  }
+
+  @Test
+  void slidingWindowRequiresPositiveMaxInFlight() {
+    // when
+    Throwable throwable = catchThrowable(() -> asyncRestService
+        .startAndAwaitAll(new ArrayDeque<>(), 0, 5, TimeUnit.SECONDS, asyncOp -> { }));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Queue<AsyncOp<Object>> queueOf(AsyncOp... asyncOps) {
+    Queue<AsyncOp<Object>> queue = new ArrayDeque<>();
+    for (AsyncOp asyncOp : asyncOps) {
+      queue.add(asyncOp);
+    }
+    return queue;
+  }
+
   private void markOp1AsStarted() {
     given(asyncOp1.hasBeenStarted()).willReturn(true);
   }
@@ -161,6 +312,11 @@ class AsyncRestServiceTest {
     executor.schedule(() -> completableFuture1.complete(null), howLong, timeUnit);
   }
 
+  private void completeOp2In(int howLong, TimeUnit timeUnit) {
+    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    executor.schedule(() -> completableFuture2.complete(null), howLong, timeUnit);
+  }
+
   private void cancelOp1In(int howLong, TimeUnit timeUnit) {
     final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
     executor.schedule(() -> completableFuture1.cancel(true), howLong, timeUnit);
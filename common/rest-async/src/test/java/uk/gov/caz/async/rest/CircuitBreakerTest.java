@@ -0,0 +1,125 @@
+package uk.gov.caz.async.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import uk.gov.caz.async.rest.CircuitBreaker.State;
+
+class CircuitBreakerTest {
+
+  private static final long OPEN_DURATION_MILLIS = 1000;
+
+  private final AtomicLong now = new AtomicLong();
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker("upstream", 3,
+      OPEN_DURATION_MILLIS, now::get);
+
+  @Test
+  void shouldStayClosedWhenFailuresAreNotConsecutive() {
+    // when
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+  }
+
+  @Test
+  void shouldOpenAfterThresholdOfConsecutiveFailures() {
+    // when
+    failThreeTimes();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+  }
+
+  @Test
+  void shouldNotPostponeTrialCallWhenFailuresAreRecordedWhileOpen() {
+    // given
+    failThreeTimes();
+    elapse(OPEN_DURATION_MILLIS / 2);
+
+    // when
+    circuitBreaker.onFailure();
+    elapse(OPEN_DURATION_MILLIS / 2);
+
+    // then
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+  }
+
+  @Test
+  void shouldLetSingleTrialCallThroughAfterOpenDuration() {
+    // given
+    failThreeTimes();
+    elapse(OPEN_DURATION_MILLIS);
+
+    // then
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+  }
+
+  @Test
+  void shouldCloseWhenTrialCallSucceeds() {
+    // given
+    failThreeTimes();
+    elapse(OPEN_DURATION_MILLIS);
+    circuitBreaker.tryAcquirePermission();
+
+    // when
+    circuitBreaker.onSuccess();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+  }
+
+  @Test
+  void shouldReopenWhenTrialCallFails() {
+    // given
+    failThreeTimes();
+    elapse(OPEN_DURATION_MILLIS);
+    circuitBreaker.tryAcquirePermission();
+
+    // when
+    circuitBreaker.onFailure();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    elapse(OPEN_DURATION_MILLIS - 1);
+    assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    elapse(1);
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+  }
+
+  @Test
+  void shouldStayOpenWhenFailuresOfCallsStartedBeforeOpeningArrive() {
+    // given
+    failThreeTimes();
+
+    // when
+    elapse(OPEN_DURATION_MILLIS / 2);
+    circuitBreaker.onFailure();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  private void failThreeTimes() {
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+  }
+
+  private void elapse(long millis) {
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+}
@@ -0,0 +1,52 @@
+package uk.gov.caz.async.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyTrackerTest {
+
+  private final LatencyTracker latencyTracker = new LatencyTracker(10);
+
+  @Test
+  void shouldReturnEmptyPercentileWhenNothingHasBeenRecorded() {
+    assertThat(latencyTracker.percentile(0.5, 0)).isEmpty();
+  }
+
+  @Test
+  void shouldReturnEmptyPercentileWhenThereAreNotEnoughSamples() {
+    // given
+    recordRange(1, 4);
+
+    // then
+    assertThat(latencyTracker.percentile(0.5, 5)).isEmpty();
+  }
+
+  @Test
+  void shouldComputePercentilesOfRecordedLatencies() {
+    // given
+    recordRange(1, 10);
+
+    // then
+    assertThat(latencyTracker.percentile(0.5, 5)).hasValue(5);
+    assertThat(latencyTracker.percentile(0.95, 5)).hasValue(10);
+    assertThat(latencyTracker.percentile(0.01, 5)).hasValue(1);
+    assertThat(latencyTracker.percentile(1, 5)).hasValue(10);
+  }
+
+  @Test
+  void shouldKeepOnlyMostRecentLatencies() {
+    // given
+    recordRange(1, 15);
+
+    // then
+    assertThat(latencyTracker.percentile(0.01, 1)).hasValue(6);
+    assertThat(latencyTracker.percentile(1, 1)).hasValue(15);
+  }
+
+  private void recordRange(int fromInclusive, int toInclusive) {
+    for (int i = fromInclusive; i <= toInclusive; i++) {
+      latencyTracker.record(i);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package uk.gov.caz.common.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Thread-safe SHA-256 hashing of strings, e.g. of VRNs which must not be stored in plain text.
+ *
+ * <p>Looking up a {@link MessageDigest} provider is relatively costly and a digest is not
+ * thread-safe, so each thread reuses its own instance. Digests are converted to lowercase
+ * hexadecimal with a lookup table.</p>
+ */
+public class Sha256Hasher {
+
+  private static final String ALGORITHM = "SHA-256";
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private static final ThreadLocal<MessageDigest> DIGEST =
+      ThreadLocal.withInitial(() -> newDigest(ALGORITHM));
+
+  private Sha256Hasher() {
+    // utility class
+  }
+
+  /**
+   * Hashes the UTF-8 representation of the passed {@code input} with SHA-256.
+   *
+   * @param input String which is to be hashed.
+   * @return The hash as a lowercase hexadecimal string of 64 characters.
+   * @throws NullPointerException if {@code input} is null.
+   */
+  public static String sha256Hash(String input) {
+    Preconditions.checkNotNull(input, "'input' cannot be null");
+
+    // digest() resets the instance, so it can be reused by the next call on this thread
+    return toHex(DIGEST.get().digest(input.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Converts the passed bytes to a lowercase hexadecimal string.
+   */
+  @VisibleForTesting
+  static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+      hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Creates a digest of the given algorithm.
+   *
+   * @throws IllegalStateException if the algorithm is not available (every Java platform is
+   *     required to support SHA-256).
+   */
+  @VisibleForTesting
+  static MessageDigest newDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(algorithm + " is not supported", e);
+    }
+  }
+}
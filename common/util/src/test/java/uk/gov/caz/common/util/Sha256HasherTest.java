@@ -0,0 +1,102 @@
+package uk.gov.caz.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class Sha256HasherTest {
+
+  @Nested
+  class Sha256Hash {
+
+    @ParameterizedTest
+    @CsvSource({
+        "'', e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+        "abc, ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+        "CU57ABC, 4874a66f4f7d4561c830eb02528ef4632dd0e69ca90ee38fb59f39bca5c051b3"
+    })
+    public void shouldReturnLowercaseHexOfSha256(String input, String expected) {
+      // when
+      String hash = Sha256Hasher.sha256Hash(input);
+
+      // then
+      assertThat(hash).hasSize(64).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldHashUtf8Representation() {
+      // when
+      String hash = Sha256Hasher.sha256Hash("£");
+
+      // then
+      assertThat(hash)
+          .isEqualTo("b4fe151e413445357b1c0935e7cf04a429492ebd23dc62bfadb2f898c431c1fd");
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionForNullInput() {
+      // when
+      Throwable throwable = catchThrowable(() -> Sha256Hasher.sha256Hash(null));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("'input' cannot be null");
+    }
+
+    @Test
+    public void shouldReturnSameHashesWhenCalledConcurrently() throws Exception {
+      // given
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      List<Callable<String>> tasks = IntStream.range(0, 1000)
+          .mapToObj(i -> (Callable<String>) () -> Sha256Hasher.sha256Hash("VRN" + i % 10))
+          .collect(Collectors.toList());
+
+      // when
+      List<Future<String>> hashes = executor.invokeAll(tasks);
+      executor.shutdown();
+
+      // then
+      for (int i = 0; i < hashes.size(); i++) {
+        assertThat(hashes.get(i).get()).isEqualTo(Sha256Hasher.sha256Hash("VRN" + i % 10));
+      }
+    }
+  }
+
+  @Nested
+  class ToHex {
+
+    @Test
+    public void shouldPadEveryByteToTwoDigits() {
+      // when
+      String hex = Sha256Hasher.toHex(new byte[]{0x00, 0x0f, 0x10, (byte) 0xab, (byte) 0xff});
+
+      // then
+      assertThat(hex).isEqualTo("000f10abff");
+    }
+  }
+
+  @Nested
+  class NewDigest {
+
+    @Test
+    public void shouldThrowIllegalStateExceptionForUnknownAlgorithm() {
+      // when
+      Throwable throwable = catchThrowable(() -> Sha256Hasher.newDigest("SHA-0"));
+
+      // then
+      assertThat(throwable).isInstanceOf(IllegalStateException.class)
+          .hasMessage("SHA-0 is not supported");
+    }
+  }
+}
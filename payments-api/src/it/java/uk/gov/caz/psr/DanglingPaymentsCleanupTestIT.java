@@ -34,8 +34,6 @@ import org.springframework.test.jdbc.JdbcTestUtils;
 import uk.gov.caz.psr.annotation.IntegrationTest;
 import uk.gov.caz.psr.model.ExternalPaymentStatus;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
-import uk.gov.caz.psr.model.Payment;
-import uk.gov.caz.psr.repository.PaymentRepository;
 import uk.gov.caz.psr.service.CleanupDanglingPaymentsService;
 import uk.gov.caz.psr.util.SecretsManagerInitialisation;
 
@@ -53,8 +51,6 @@ public class DanglingPaymentsCleanupTestIT extends ExternalCallsIT {
   @Autowired
   private JdbcTemplate jdbcTemplate;
   @Autowired
-  private PaymentRepository paymentRepository;
-  @Autowired
   private AmazonSQS sqsClient;
   @Value("${services.sqs.new-queue-name}")
   private String emailSqsQueueName;
@@ -134,8 +130,8 @@ public class DanglingPaymentsCleanupTestIT extends ExternalCallsIT {
   }
 
   private void andDanglingPaymentsCountIsZero() {
-    List<Payment> danglingPayments = paymentRepository.findDanglingPayments();
-    assertThat(danglingPayments).isEmpty();
+    int paymentsCount = danglingPaymentsCount();
+    assertThat(paymentsCount).isZero();
   }
 
   private void andNonDanglingPaymentsCountIs(int nonDanglingPaymentsCount) {
@@ -150,6 +146,13 @@ public class DanglingPaymentsCleanupTestIT extends ExternalCallsIT {
             + "OR payment_provider_status IN ('SUCCESS', 'FAILED', 'CANCELLED', 'ERROR')");
   }
 
+  private int danglingPaymentsCount() {
+    return JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "caz_payment.t_payment",
+        "payment_provider_id IS NOT NULL "
+            + "AND payment_submitted_timestamp + INTERVAL '90 minutes' < NOW() "
+            + "AND payment_provider_status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED', 'ERROR')");
+  }
+
   private List<Message> receiveSqsMessages() {
     GetQueueUrlResult queueUrlResult = sqsClient.getQueueUrl(emailSqsQueueName);
     ReceiveMessageResult receiveMessageResult =
@@ -3,6 +3,7 @@ package uk.gov.caz.psr.service.generatecsv;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
@@ -32,7 +33,8 @@ class CsvContentGeneratorTestIT extends ExternalCallsIT {
     mockAccountServiceGetAllUsersCall(accountId.toString(), 200);
 
     // when
-    List<String[]> csvRowResults = csvGeneratorService.generateCsvRows(accountId, accountUserId);
+    List<String[]> csvRowResults = new ArrayList<>();
+    csvGeneratorService.generateCsvRows(accountId, accountUserId, csvRowResults::add);
 
     // then
     assertThat(csvRowResults).hasSize(8);
@@ -72,7 +74,8 @@ class CsvContentGeneratorTestIT extends ExternalCallsIT {
     mockAccountServiceGetAllUsersCall(accountId.toString(), 200);
 
     // when
-    List<String[]> csvRowResults = csvGeneratorService.generateCsvRows(accountId, accountUserId);
+    List<String[]> csvRowResults = new ArrayList<>();
+    csvGeneratorService.generateCsvRows(accountId, accountUserId, csvRowResults::add);
 
     // then
     assertThat(csvRowResults).hasSize(2);
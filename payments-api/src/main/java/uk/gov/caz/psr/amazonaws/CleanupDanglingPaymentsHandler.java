@@ -7,6 +7,7 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.time.Duration;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 import uk.gov.caz.awslambda.AwsHelpers;
 import uk.gov.caz.psr.Application;
@@ -14,13 +15,19 @@ import uk.gov.caz.psr.service.CleanupDanglingPaymentsService;
 
 public class CleanupDanglingPaymentsHandler implements RequestStreamHandler {
 
+  /**
+   * The time left for the payments which are being processed when the time budget elapses.
+   */
+  private static final Duration IN_FLIGHT_PAYMENTS_MARGIN = Duration.ofSeconds(10);
+
   private static SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> handler;
 
   @Override
   public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context) {
     initializeHandlerIfNull();
     CleanupDanglingPaymentsService service = getBean(handler, CleanupDanglingPaymentsService.class);
-    service.updateStatusesOfDanglingPayments();
+    service.updateStatusesOfDanglingPayments(Duration.ofMillis(context.getRemainingTimeInMillis())
+        .minus(IN_FLIGHT_PAYMENTS_MARGIN));
   }
 
   private void initializeHandlerIfNull() {
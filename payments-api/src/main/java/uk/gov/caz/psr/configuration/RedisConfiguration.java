@@ -1,6 +1,10 @@
 package uk.gov.caz.psr.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -13,9 +17,13 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import uk.gov.caz.common.cache.TwoLevelCacheManager;
 
 @Slf4j
 @Configuration
@@ -24,6 +32,17 @@ import org.springframework.data.redis.core.RedisTemplate;
     matchIfMissing = false)
 public class RedisConfiguration {
 
+  /**
+   * Caches which are read on almost every request and hold only a handful of
+   * rarely changing entries, hence are additionally held in memory of every
+   * instance.
+   */
+  private static final List<String> NEAR_CACHE_NAMES =
+      Arrays.asList("cleanAirZones", "tariffs");
+
+  private static final String NEAR_CACHE_INVALIDATION_CHANNEL =
+      "nearCacheInvalidation";
+
   @Value("${redis.endpoint}")
   private String redisClusterEndpoint;
 
@@ -33,6 +52,12 @@ public class RedisConfiguration {
   @Value("${redis.ttlInHours}")
   private Integer redisTtl;
 
+  @Value("${redis.nearCache.ttlInMinutes}")
+  private Integer nearCacheTtl;
+
+  @Value("${redis.nearCache.maximumSize}")
+  private Integer nearCacheMaximumSize;
+
   /**
    * Customised redis template bean constructor.
    *
@@ -48,20 +73,68 @@ public class RedisConfiguration {
   }
 
   /**
-   * Custom bean for applying a TTL to redis values.
+   * Custom bean for applying a TTL to redis values. Clean air zones and tariffs
+   * are additionally cached in memory in front of redis.
    *
    * @param redisConnectionFactory a configured redis connection factory.
+   * @param meterRegistry a registry of near cache metrics.
    * @return A customised cache manager instance with a ttl applied
    */
   @Primary
   @Bean
-  public CacheManager cacheManager(
-      RedisConnectionFactory redisConnectionFactory) {
+  public TwoLevelCacheManager cacheManager(
+      RedisConnectionFactory redisConnectionFactory,
+      MeterRegistry meterRegistry) {
     Duration expiration = Duration.ofHours(redisTtl);
-    return RedisCacheManager.builder(redisConnectionFactory)
+    CacheManager redisCacheManager = RedisCacheManager
+        .builder(redisConnectionFactory)
         .cacheDefaults(
             RedisCacheConfiguration.defaultCacheConfig().entryTtl(expiration))
         .build();
+    return new TwoLevelCacheManager(redisCacheManager, NEAR_CACHE_NAMES,
+        nearCacheMaximumSize, Duration.ofMinutes(nearCacheTtl), meterRegistry,
+        cacheName -> publishNearCacheInvalidation(redisConnectionFactory,
+            cacheName));
+  }
+
+  /**
+   * Listens to evictions of near caches made by other instances. The
+   * subscription holds a redis connection for the life of the instance, when
+   * disabled with {@code redis.nearCache.invalidationListenerEnabled} near
+   * caches see changes made by other instances only after
+   * {@code redis.nearCache.ttlInMinutes}.
+   *
+   * @param redisConnectionFactory a configured redis connection factory.
+   * @param cacheManager the cache manager holding near caches.
+   * @return A container of the listener.
+   */
+  @Bean
+  @ConditionalOnProperty(
+      value = "redis.nearCache.invalidationListenerEnabled",
+      havingValue = "true", matchIfMissing = true)
+  public RedisMessageListenerContainer nearCacheInvalidationListenerContainer(
+      RedisConnectionFactory redisConnectionFactory,
+      TwoLevelCacheManager cacheManager) {
+    RedisMessageListenerContainer container =
+        new RedisMessageListenerContainer();
+    container.setConnectionFactory(redisConnectionFactory);
+    container.addMessageListener(
+        (message, pattern) -> cacheManager.invalidateNearCache(
+            new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(NEAR_CACHE_INVALIDATION_CHANNEL));
+    return container;
+  }
+
+  private static void publishNearCacheInvalidation(
+      RedisConnectionFactory redisConnectionFactory, String cacheName) {
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      connection.publish(
+          NEAR_CACHE_INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+          cacheName.getBytes(StandardCharsets.UTF_8));
+    } finally {
+      connection.close();
+    }
   }
 
   /**
@@ -3,59 +3,80 @@ package uk.gov.caz.psr.model.generatecsv;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Id;
-import javax.persistence.IdClass;
-import javax.persistence.Table;
-import lombok.Data;
+import lombok.Builder;
+import lombok.ToString;
+import lombok.Value;
 
 /**
- * An entity that represents an EntrantPayment for CSV Export of payments.
+ * A value object that represents an EntrantPayment for CSV Export of payments.
  */
-@Entity
-@Table(schema = "caz_payment", name = "t_clean_air_zone_entrant_payment")
-@Data
-@IdClass(CsvEntrantPaymentId.class)
+@Value
+@Builder
 public class CsvEntrantPayment {
-  @Id
-  @Column(name = "clean_air_zone_entrant_payment_id")
+
+  /**
+   * Id of the entrant payment.
+   */
   UUID entrantPaymentId;
 
-  @Id
-  @Column(name = "clean_air_zone_entrant_payment_match_id")
+  /**
+   * Id of the match between the entrant payment and the payment.
+   */
   UUID entrantPaymentMatchId;
 
-  @Column(name = "payment_id")
+  /**
+   * Id of the payment.
+   */
   UUID paymentId;
 
-  @Column(name = "payment_submitted_timestamp")
+  /**
+   * Timestamp of submitting the payment.
+   */
   LocalDateTime dateOfPayment;
 
-  @Column(name = "user_id")
+  /**
+   * Id of the account user who made the payment.
+   */
   UUID userId;
 
-  @Column(name = "clean_air_zone_id")
+  /**
+   * Id of the Clean Air Zone.
+   */
   UUID cleanAirZoneId;
 
-  @Column
+  /**
+   * Vehicle registration number.
+   */
+  @ToString.Exclude
   String vrn;
 
-  @Column(name = "travel_date")
+  /**
+   * Date of the entry.
+   */
   LocalDate travelDate;
 
-  @Column(name = "charge")
+  /**
+   * Charge amount.
+   */
   Integer charge;
 
-  @Column(name = "central_reference_number")
+  /**
+   * Payment reference number.
+   */
   String paymentReference;
 
-  @Column(name = "payment_provider_id")
+  /**
+   * Payment provider ID (GOV.UK.PAY).
+   */
   String paymentProviderId;
 
-  @Column(name = "total_paid")
+  /**
+   * Total amount paid.
+   */
   Integer totalPaid;
 
-  @Column(name = "entries_count")
+  /**
+   * Quantity of the payed entries to CAZ.
+   */
   Integer entriesCount;
 }
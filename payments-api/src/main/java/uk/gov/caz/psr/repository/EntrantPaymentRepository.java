@@ -6,11 +6,14 @@ import com.google.common.base.Strings;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -91,6 +94,13 @@ public class EntrantPaymentRepository {
           + EntrantPaymentColumns.COL_VRN + " = ? AND "
           + EntrantPaymentColumns.COL_TRAVEL_DATE + " = ANY (?)";
 
+  private static final String SELECT_BY_CAZ_VRN_TRAVEL_DATE_TUPLES_SQL =
+      selectAllColumns() + " WHERE ("
+          + "ep." + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + ", "
+          + "ep." + EntrantPaymentColumns.COL_VRN + ", "
+          + "ep." + EntrantPaymentColumns.COL_TRAVEL_DATE + ") IN ("
+          + "SELECT * FROM unnest(?, ?, ?))";
+
   private static final String SELECT_BY_VRN_CAZ_SQL =
       SELECT_COUNT + " WHERE "
           + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + " = ? AND "
@@ -106,10 +116,22 @@ public class EntrantPaymentRepository {
       + "update_timestamp = CURRENT_TIMESTAMP "
       + "WHERE " + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID + " = ?";
 
-  private static final String FIND_ALL_PAID_BY_VRN_DATE_RANGE_AND_CAZ_ID =
+  private static final String INSERT_SQL =
+      "INSERT INTO caz_payment.t_clean_air_zone_entrant_payment ("
+      + EntrantPaymentColumns.COL_VRN + ", "
+      + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + ", "
+      + EntrantPaymentColumns.COL_TRAVEL_DATE + ", "
+      + EntrantPaymentColumns.COL_TARIFF_CODE + ", "
+      + EntrantPaymentColumns.COL_CHARGE + ", "
+      + EntrantPaymentColumns.COL_PAYMENT_STATUS + ", "
+      + EntrantPaymentColumns.COL_UPDATE_ACTOR + ", "
+      + EntrantPaymentColumns.COL_VEHICLE_ENTRANT_CAPTURED + ") "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private static final String FIND_ALL_PAID_BY_VRNS_DATE_RANGE_AND_CAZ_ID =
       selectAllColumns() + " WHERE "
           + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + " = ? AND "
-          + EntrantPaymentColumns.COL_VRN + " = ? AND "
+          + EntrantPaymentColumns.COL_VRN + " = ANY (?) AND "
           + EntrantPaymentColumns.COL_TRAVEL_DATE + " BETWEEN ? AND ? AND "
           + EntrantPaymentColumns.COL_PAYMENT_STATUS + " = "
           + "\'" + InternalPaymentStatus.PAID.toString() + "\'";
@@ -139,7 +161,7 @@ public class EntrantPaymentRepository {
   }
 
   /**
-   * Inserts the passed {@code entrantPayments} into the database.
+   * Inserts the passed {@code entrantPayments} into the database in a single JDBC batch.
    *
    * @param entrantPayments A list of {@link EntrantPayment} instances.
    * @return A list of {@link EntrantPayment} with their internal identifiers set.
@@ -154,12 +176,34 @@ public class EntrantPaymentRepository {
     Preconditions.checkArgument(!entrantPayments.isEmpty(), "Entrant payments "
         + "cannot be empty");
 
-    List<EntrantPayment> result = new ArrayList<>(entrantPayments.size());
-    for (EntrantPayment entrantPayment : entrantPayments) {
-      EntrantPayment insertedEntrantPayment = insert(entrantPayment);
-      result.add(insertedEntrantPayment);
-    }
-    return result;
+    entrantPayments.forEach(entrantPayment -> Preconditions.checkArgument(
+        entrantPayment.getCleanAirZoneEntrantPaymentId() == null,
+        "Entrant payment cannot have non-null ID"));
+
+    return jdbcTemplate.execute((ConnectionCallback<List<EntrantPayment>>) connection -> {
+      try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL,
+          new String[]{EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID})) {
+        for (EntrantPayment entrantPayment : entrantPayments) {
+          setInsertParameters(preparedStatement, entrantPayment);
+          preparedStatement.addBatch();
+        }
+        preparedStatement.executeBatch();
+
+        // generated keys are returned in the order in which rows were added to the batch
+        List<EntrantPayment> result = new ArrayList<>(entrantPayments.size());
+        try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+          for (EntrantPayment entrantPayment : entrantPayments) {
+            Preconditions.checkState(generatedKeys.next(),
+                "Generated key is missing for an inserted entrant payment");
+            result.add(entrantPayment.toBuilder()
+                .cleanAirZoneEntrantPaymentId(UUID.fromString(generatedKeys.getString(
+                    EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID)))
+                .build());
+          }
+        }
+        return result;
+      }
+    });
   }
 
   /**
@@ -202,7 +246,22 @@ public class EntrantPaymentRepository {
   }
 
   /**
-   * Updates the database with the passed {@link EntrantPayment} instances.
+   * Sets parameters of {@code INSERT_SQL} for the passed {@code entrantPayment}.
+   */
+  private void setInsertParameters(PreparedStatement preparedStatement,
+      EntrantPayment entrantPayment) throws SQLException {
+    preparedStatement.setString(1, entrantPayment.getVrn());
+    preparedStatement.setObject(2, entrantPayment.getCleanAirZoneId());
+    preparedStatement.setObject(3, entrantPayment.getTravelDate());
+    preparedStatement.setString(4, entrantPayment.getTariffCode());
+    preparedStatement.setObject(5, entrantPayment.getCharge(), Types.INTEGER);
+    preparedStatement.setString(6, entrantPayment.getInternalPaymentStatus().name());
+    preparedStatement.setString(7, entrantPayment.getUpdateActor().name());
+    preparedStatement.setBoolean(8, entrantPayment.isVehicleEntrantCaptured());
+  }
+
+  /**
+   * Updates the database with the passed {@link EntrantPayment} instances in a single JDBC batch.
    *
    * @param entrantPayments A list of {@link EntrantPayment} which are to be updated in the
    *     database.
@@ -211,10 +270,12 @@ public class EntrantPaymentRepository {
   @Transactional
   public void update(List<EntrantPayment> entrantPayments) {
     Preconditions.checkNotNull(entrantPayments, "Entrant payments cannot be null");
-
-    for (EntrantPayment entrantPayment : entrantPayments) {
-      update(entrantPayment);
+    if (entrantPayments.isEmpty()) {
+      return;
     }
+
+    jdbcTemplate.batchUpdate(UPDATE_SQL, entrantPayments, entrantPayments.size(),
+        this::setUpdateParameters);
   }
 
   /**
@@ -227,16 +288,22 @@ public class EntrantPaymentRepository {
   public void update(EntrantPayment entrantPayment) {
     Preconditions.checkNotNull(entrantPayment, "Entrant payments cannot be null");
 
-    jdbcTemplate.update(UPDATE_SQL, preparedStatementSetter -> {
-      preparedStatementSetter.setString(1, entrantPayment.getInternalPaymentStatus()
-          .name());
-      preparedStatementSetter.setString(2, entrantPayment.getCaseReference());
-      preparedStatementSetter.setString(3, entrantPayment.getUpdateActor().name());
-      preparedStatementSetter.setString(4, entrantPayment.getTariffCode());
-      preparedStatementSetter.setBoolean(5, entrantPayment.isVehicleEntrantCaptured());
-      preparedStatementSetter.setInt(6, entrantPayment.getCharge());
-      preparedStatementSetter.setObject(7, entrantPayment.getCleanAirZoneEntrantPaymentId());
-    });
+    jdbcTemplate.update(UPDATE_SQL,
+        preparedStatement -> setUpdateParameters(preparedStatement, entrantPayment));
+  }
+
+  /**
+   * Sets parameters of {@code UPDATE_SQL} for the passed {@code entrantPayment}.
+   */
+  private void setUpdateParameters(PreparedStatement preparedStatement,
+      EntrantPayment entrantPayment) throws SQLException {
+    preparedStatement.setString(1, entrantPayment.getInternalPaymentStatus().name());
+    preparedStatement.setString(2, entrantPayment.getCaseReference());
+    preparedStatement.setString(3, entrantPayment.getUpdateActor().name());
+    preparedStatement.setString(4, entrantPayment.getTariffCode());
+    preparedStatement.setBoolean(5, entrantPayment.isVehicleEntrantCaptured());
+    preparedStatement.setInt(6, entrantPayment.getCharge());
+    preparedStatement.setObject(7, entrantPayment.getCleanAirZoneEntrantPaymentId());
   }
 
   /**
@@ -295,6 +362,35 @@ public class EntrantPaymentRepository {
     return Optional.of(results.iterator().next());
   }
 
+  /**
+   * Finds all {@link EntrantPayment} entities which are stored for the same Clean Air Zone, VRN
+   * and travel date as any of the passed {@code entrantPayments}, using a single query.
+   *
+   * @param entrantPayments A collection of (possibly not yet persisted) {@link EntrantPayment}
+   *     whose Clean Air Zone ID, VRN and travel date are looked up.
+   * @return A list of matching {@link EntrantPayment}s, in no particular order.
+   * @throws NullPointerException if {@code entrantPayments} is null.
+   */
+  public List<EntrantPayment> findAllByCazIdAndVrnAndTravelDate(
+      Collection<EntrantPayment> entrantPayments) {
+    Preconditions.checkNotNull(entrantPayments, "Entrant payments cannot be null");
+    if (entrantPayments.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          SELECT_BY_CAZ_VRN_TRAVEL_DATE_TUPLES_SQL);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid",
+          entrantPayments.stream().map(EntrantPayment::getCleanAirZoneId).toArray()));
+      preparedStatement.setArray(2, connection.createArrayOf("varchar",
+          entrantPayments.stream().map(EntrantPayment::getVrn).toArray()));
+      preparedStatement.setArray(3, connection.createArrayOf("date",
+          entrantPayments.stream().map(EntrantPayment::getTravelDate).toArray()));
+      return preparedStatement;
+    }, ROW_MAPPER);
+  }
+
   /**
    * Finds number of instances of a VRN in the EntrantPayment table.
    *
@@ -338,30 +434,34 @@ public class EntrantPaymentRepository {
   }
 
   /**
-   * Finds collection of paid {@link EntrantPayment} for a specific vrn, cazId and date range. If no
-   * element is found empty collection is returned.
+   * Finds all paid {@link EntrantPayment}s for any of the given VRNs in a specific CAZ and date
+   * range, using a single query.
    *
-   * @param vrn provided VRN number
+   * @param vrns provided VRN numbers
    * @param startDate provided date from which search is done
-   * @param endDate privded date to which search is done
+   * @param endDate provided date to which search is done
    * @param cleanAirZoneId provided CAZ ID
-   * @return a list of found {@EntrantPayment}.
+   * @return a list of found {@link EntrantPayment}s, in no particular order.
    */
-  public List<EntrantPayment> findAllPaidByVrnAndDateRangeAndCazId(String vrn, LocalDate startDate,
-      LocalDate endDate, UUID cleanAirZoneId) {
+  public List<EntrantPayment> findAllPaidByVrnsAndDateRangeAndCazId(Collection<String> vrns,
+      LocalDate startDate, LocalDate endDate, UUID cleanAirZoneId) {
     Preconditions.checkNotNull(cleanAirZoneId, "cleanAirZoneId cannot be null");
     Preconditions.checkNotNull(startDate, "startDate cannot be null");
     Preconditions.checkNotNull(endDate, "endDate cannot be null");
-    Preconditions.checkArgument(!Strings.isNullOrEmpty(vrn), "VRN cannot be empty");
+    Preconditions.checkNotNull(vrns, "vrns cannot be null");
+    if (vrns.isEmpty()) {
+      return new ArrayList<>();
+    }
 
-    return jdbcTemplate.query(
-        FIND_ALL_PAID_BY_VRN_DATE_RANGE_AND_CAZ_ID,
-        preparedStatementSetter -> {
-          preparedStatementSetter.setObject(1, cleanAirZoneId);
-          preparedStatementSetter.setObject(2, vrn);
-          preparedStatementSetter.setObject(3, startDate);
-          preparedStatementSetter.setObject(4, endDate);
-        }, ROW_MAPPER);
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          FIND_ALL_PAID_BY_VRNS_DATE_RANGE_AND_CAZ_ID);
+      preparedStatement.setObject(1, cleanAirZoneId);
+      preparedStatement.setArray(2, connection.createArrayOf("varchar", vrns.toArray()));
+      preparedStatement.setObject(3, startDate);
+      preparedStatement.setObject(4, endDate);
+      return preparedStatement;
+    }, ROW_MAPPER);
   }
 
   /**
@@ -1,12 +1,16 @@
 package uk.gov.caz.psr.repository;
 
 import com.google.common.base.Preconditions;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,7 +18,7 @@ import lombok.NonNull;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
@@ -62,6 +66,8 @@ public class PaymentRepository {
     private static final String PAYMENT_SUBMITTED_TIMESTAMP = "payment_submitted_timestamp";
     private static final String PAYMENT_AUTHORISED_TIMESTAMP = "payment_authorised_timestamp";
     private static final String EMAIL_CONFIRMATION_SENT = "email_confirmation_sent";
+    private static final String CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID =
+        "clean_air_zone_entrant_payment_id";
   }
 
   /**
@@ -210,13 +216,60 @@ public class PaymentRepository {
   }
 
   /**
-   * Finds all unfinished payments done in GOV UK Pay service.
+   * Finds the latest {@link Payment}s associated with the {@link EntrantPayment}s identified by
+   * the passed {@code entrantPaymentIds} using a single query.
    *
+   * @return A map from the identifier of an entrant payment to its latest {@link Payment}. Entrant
+   *     payments without any payment are not present in the map.
+   * @throws NullPointerException if {@code entrantPaymentIds} is null.
+   * @throws IllegalStateException if more than one payment is found for an entrant payment.
+   */
+  public Map<UUID, Payment> findByEntrantPayments(Collection<UUID> entrantPaymentIds) {
+    Preconditions.checkNotNull(entrantPaymentIds, "entrantPaymentIds cannot be null");
+    Map<UUID, Payment> result = new HashMap<>();
+    if (entrantPaymentIds.isEmpty()) {
+      return result;
+    }
+
+    RowCallbackHandler collectLatestPayment = resultSet -> {
+      UUID entrantPaymentId = UUID.fromString(
+          resultSet.getString(Columns.CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID));
+      Payment payment = PAYMENT_ROW_MAPPER.mapRow(resultSet, resultSet.getRow());
+      if (result.putIfAbsent(entrantPaymentId, payment) != null) {
+        throw new IllegalStateException("Found more than one payments for entrant payment id = "
+            + entrantPaymentId);
+      }
+    };
+    jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          Sql.FIND_BY_ENTRANT_PAYMENT_IDS_SQL);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid", entrantPaymentIds.toArray()));
+      return preparedStatement;
+    }, collectLatestPayment);
+    return result;
+  }
+
+  /**
+   * Finds a page of unfinished payments done in GOV UK Pay service ordered by their IDs. The next
+   * page is fetched by passing the ID of the last payment from the previous one, hence payments
+   * which are still dangling after being processed are not returned again.
+   *
+   * @param afterPaymentId ID of the last payment from the previous page, {@code null} when
+   *     fetching the first one.
+   * @param limit The maximum number of payments to return.
    * @return A list of {@link Payment} which were done in GOV UK Pay service, but were not finished.
    */
-  public List<Payment> findDanglingPayments() {
-    return jdbcTemplate.query(Sql.SELECT_DANGLING_PAYMENTS, (PreparedStatementSetter) null,
-        PAYMENT_ROW_MAPPER);
+  public List<Payment> findDanglingPayments(UUID afterPaymentId, int limit) {
+    Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+    if (afterPaymentId == null) {
+      return jdbcTemplate.query(Sql.SELECT_FIRST_PAGE_OF_DANGLING_PAYMENTS,
+          preparedStatement -> preparedStatement.setInt(1, limit), PAYMENT_ROW_MAPPER);
+    }
+    return jdbcTemplate.query(Sql.SELECT_NEXT_PAGE_OF_DANGLING_PAYMENTS, preparedStatement -> {
+      preparedStatement.setObject(1, afterPaymentId);
+      preparedStatement.setInt(2, limit);
+    }, PAYMENT_ROW_MAPPER);
   }
 
   /**
@@ -252,7 +305,8 @@ public class PaymentRepository {
    */
   private static class Sql {
 
-    static final String FIND_BY_ENTRANT_PAYMENT_ID_SQL = "SELECT "
+    private static final String SELECT_LATEST_PAYMENTS_OF_ENTRANT_PAYMENTS = "SELECT "
+        + "entrant_payment_match.clean_air_zone_entrant_payment_id, "
         + "payment.payment_id, "
         + "payment.payment_method, "
         + "payment.total_paid, "
@@ -272,9 +326,14 @@ public class PaymentRepository {
         + "entrant_payment_match.clean_air_zone_entrant_payment_id "
         + "AND entrant_payment_match.latest IS TRUE "
         + "INNER JOIN caz_payment.t_payment payment "
-        + "ON entrant_payment_match.payment_id = payment.payment_id "
+        + "ON entrant_payment_match.payment_id = payment.payment_id ";
+
+    static final String FIND_BY_ENTRANT_PAYMENT_ID_SQL = SELECT_LATEST_PAYMENTS_OF_ENTRANT_PAYMENTS
         + "WHERE entrant_payment.clean_air_zone_entrant_payment_id = ?";
 
+    static final String FIND_BY_ENTRANT_PAYMENT_IDS_SQL = SELECT_LATEST_PAYMENTS_OF_ENTRANT_PAYMENTS
+        + "WHERE entrant_payment.clean_air_zone_entrant_payment_id = ANY (?)";
+
     static final String UPDATE = "UPDATE caz_payment.t_payment "
         + "SET payment_provider_id = ?, "
         + "payment_submitted_timestamp = ?, "
@@ -305,6 +364,12 @@ public class PaymentRepository {
             // only the one whose status is not 'final'
             + "AND payment_provider_status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED', 'ERROR')";
 
+    static final String SELECT_FIRST_PAGE_OF_DANGLING_PAYMENTS = SELECT_DANGLING_PAYMENTS
+        + " ORDER BY payment_id LIMIT ?";
+
+    static final String SELECT_NEXT_PAGE_OF_DANGLING_PAYMENTS = SELECT_DANGLING_PAYMENTS
+        + " AND payment_id > ? ORDER BY payment_id LIMIT ?";
+
     static final String SELECT_BY_ID =
         "SELECT " + ALL_PAYMENT_ATTRIBUTES + "FROM caz_payment.t_payment " + "WHERE payment_id = ?";
 
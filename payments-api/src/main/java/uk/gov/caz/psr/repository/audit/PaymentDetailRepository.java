@@ -99,24 +99,26 @@ public class PaymentDetailRepository {
   }
 
   /**
-   * Gets payment audit details for paymentId, updateActor and provided payment statuses.
+   * Gets payment audit details of all payments made by the given account users for updateActor
+   * and provided payment statuses, ordered by the time of modification.
    *
-   * @param paymentIds List of PaymentIDs
+   * @param accountUserIds List of IDs of users who made the payments
    * @param updateActor Describes which actor is responsible for updating the state of Entrant
    *     Payment
    * @param paymentStatuses List of statuses to get from the DB
    * @return list of found {@link PaymentModification}
    */
-  public List<PaymentModification> findAllForPaymentsHistory(List<UUID> paymentIds,
-      EntrantPaymentUpdateActor updateActor, List<InternalPaymentStatus> paymentStatuses) {
-    Preconditions.checkNotNull(paymentIds, "paymentIds cannot be null");
+  public List<PaymentModification> findAllForAccountUsersPaymentsHistory(
+      List<UUID> accountUserIds, EntrantPaymentUpdateActor updateActor,
+      List<InternalPaymentStatus> paymentStatuses) {
+    Preconditions.checkNotNull(accountUserIds, "accountUserIds cannot be null");
     Preconditions.checkNotNull(updateActor, "updateActor cannot be null");
     Preconditions.checkNotNull(paymentStatuses, "paymentStatuses cannot be null");
 
     return jdbcTemplate.query(connection -> {
       PreparedStatement preparedStatement = connection.prepareStatement(
-          Sql.FIND_ALL_FOR_PAYMENTS_HISTORY);
-      preparedStatement.setArray(1, connection.createArrayOf("uuid", paymentIds.toArray()));
+          Sql.FIND_ALL_FOR_ACCOUNT_USERS_PAYMENTS_HISTORY);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid", accountUserIds.toArray()));
       preparedStatement.setString(2, updateActor.toString());
       preparedStatement.setArray(3, connection.createArrayOf("varchar", paymentStatuses.toArray()));
       return preparedStatement;
@@ -236,7 +238,7 @@ public class PaymentDetailRepository {
         + "AND t_detail.payment_status = any (?) "
         + "ORDER BY t_detail.entrant_payment_update_timestamp ASC;";
 
-    static final String FIND_ALL_FOR_PAYMENTS_HISTORY = "SELECT "
+    static final String FIND_ALL_FOR_ACCOUNT_USERS_PAYMENTS_HISTORY = "SELECT "
         + "t_detail.payment_id, "
         + "t_detail.charge, "
         + "t_detail.travel_date, "
@@ -247,9 +249,12 @@ public class PaymentDetailRepository {
         + "FROM caz_payment_audit.t_clean_air_zone_payment_detail t_detail "
         + "INNER JOIN caz_payment_audit.t_clean_air_zone_payment_master t_master ON "
         + "t_detail.clean_air_zone_payment_master_id = t_master.clean_air_zone_payment_master_id "
-        + "AND t_detail.payment_id = ANY (?) "
+        + "INNER JOIN caz_payment.t_payment t_payment ON "
+        + "t_payment.payment_id = t_detail.payment_id "
+        + "WHERE t_payment.user_id = ANY (?) "
         + "AND t_detail.update_actor = ? "
-        + "AND t_detail.payment_status = any (?);";
+        + "AND t_detail.payment_status = any (?) "
+        + "ORDER BY t_detail.entrant_payment_update_timestamp ASC;";
 
     private static final String SELECT_PAYMENT_STATUSES_SQL =
         "SELECT vrn, clean_air_zone_id, travel_date, payment_id, payment_status "
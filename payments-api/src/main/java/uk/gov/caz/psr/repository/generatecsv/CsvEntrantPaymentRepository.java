@@ -1,35 +1,104 @@
 package uk.gov.caz.psr.repository.generatecsv;
 
+import com.google.common.base.Preconditions;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
-import org.springframework.data.jpa.repository.Modifying;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import java.util.function.Consumer;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
 
 /**
- * A class which handles managing data in {@code EntrantPayment} table for CSV Export.
+ * A class which handles reading data from {@code EntrantPayment} table for CSV Export.
  */
 @Repository
-public interface CsvEntrantPaymentRepository extends CrudRepository<CsvEntrantPayment, Integer> {
+@AllArgsConstructor
+public class CsvEntrantPaymentRepository {
 
-  @Modifying
-  @Query(value = "SELECT t_entrant.clean_air_zone_entrant_payment_id, "
-      + "t_match.id as clean_air_zone_entrant_payment_match_id, t_payment.payment_id, "
+  /**
+   * Number of rows fetched from the database at once. PostgreSQL reads the results through a
+   * cursor in batches of this size provided that the query is executed inside a transaction.
+   */
+  static final int FETCH_SIZE = 1000;
+
+  private static final CsvEntrantPaymentRowMapper ROW_MAPPER = new CsvEntrantPaymentRowMapper();
+
+  static final String SELECT_FOR_ACCOUNT_USERS_SQL = "SELECT "
+      + "t_entrant.clean_air_zone_entrant_payment_id, "
+      + "t_match.id AS clean_air_zone_entrant_payment_match_id, t_payment.payment_id, "
       + "t_payment.user_id, t_payment.payment_submitted_timestamp, t_entrant.clean_air_zone_id, "
-      + "t_entrant.vrn, t_entrant.travel_date,t_entrant.charge, t_payment.central_reference_number,"
-      + "t_payment.payment_provider_id as payment_provider_id, t_payment.total_paid,"
+      + "t_entrant.vrn, t_entrant.travel_date, t_entrant.charge, "
+      + "t_payment.central_reference_number, t_payment.payment_provider_id, t_payment.total_paid, "
       + "(SELECT COUNT(*) FROM caz_payment.t_clean_air_zone_entrant_payment_match "
       + "WHERE t_payment.payment_id = t_clean_air_zone_entrant_payment_match.payment_id) "
       + "AS entries_count "
-      + "FROM caz_payment.t_clean_air_zone_entrant_payment as t_entrant "
-      + "JOIN caz_payment.t_clean_air_zone_entrant_payment_match as t_match ON "
+      + "FROM caz_payment.t_clean_air_zone_entrant_payment AS t_entrant "
+      + "JOIN caz_payment.t_clean_air_zone_entrant_payment_match AS t_match ON "
       + "t_match.clean_air_zone_entrant_payment_id = t_entrant.clean_air_zone_entrant_payment_id "
-      + "JOIN caz_payment.t_payment as t_payment ON t_payment.payment_id = t_match.payment_id "
-      + "WHERE t_payment.user_id in (?1) "
+      + "JOIN caz_payment.t_payment AS t_payment ON t_payment.payment_id = t_match.payment_id "
+      + "WHERE t_payment.user_id = ANY (?) "
       + "ORDER BY t_payment.payment_submitted_timestamp DESC, t_entrant.vrn ASC, "
-      + "t_entrant.travel_date ASC",
-      nativeQuery = true)
-  List<CsvEntrantPayment> findAllForAccountUsers(List<UUID> accountUserIds);
+      + "t_entrant.travel_date ASC";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Passes every entrant payment paid by the given account users to {@code consumer}, ordered by
+   * the date of payment (most recent first), VRN and travel date. Rows are streamed from the
+   * database, so the memory used does not depend on the number of payments.
+   *
+   * @param accountUserIds IDs of users who made the payments.
+   * @param consumer A callback which is invoked with each entrant payment.
+   */
+  @Transactional(readOnly = true)
+  public void forEachForAccountUsers(List<UUID> accountUserIds,
+      Consumer<CsvEntrantPayment> consumer) {
+    Preconditions.checkNotNull(accountUserIds, "accountUserIds cannot be null");
+    Preconditions.checkNotNull(consumer, "consumer cannot be null");
+
+    RowCallbackHandler passToConsumer = resultSet -> consumer
+        .accept(ROW_MAPPER.mapRow(resultSet, resultSet.getRow()));
+    jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          SELECT_FOR_ACCOUNT_USERS_SQL);
+      preparedStatement.setFetchSize(FETCH_SIZE);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid", accountUserIds.toArray()));
+      return preparedStatement;
+    }, passToConsumer);
+  }
+
+  /**
+   * A class that maps the row returned from the database to an instance of {@link
+   * CsvEntrantPayment}.
+   */
+  static class CsvEntrantPaymentRowMapper implements RowMapper<CsvEntrantPayment> {
+
+    @Override
+    public CsvEntrantPayment mapRow(ResultSet resultSet, int i) throws SQLException {
+      return CsvEntrantPayment.builder()
+          .entrantPaymentId(UUID.fromString(
+              resultSet.getString("clean_air_zone_entrant_payment_id")))
+          .entrantPaymentMatchId(UUID.fromString(
+              resultSet.getString("clean_air_zone_entrant_payment_match_id")))
+          .paymentId(UUID.fromString(resultSet.getString("payment_id")))
+          .dateOfPayment(resultSet.getTimestamp("payment_submitted_timestamp").toLocalDateTime())
+          .userId(UUID.fromString(resultSet.getString("user_id")))
+          .cleanAirZoneId(UUID.fromString(resultSet.getString("clean_air_zone_id")))
+          .vrn(resultSet.getString("vrn"))
+          .travelDate(resultSet.getDate("travel_date").toLocalDate())
+          .charge(resultSet.getInt("charge"))
+          .paymentReference(resultSet.getString("central_reference_number"))
+          .paymentProviderId(resultSet.getString("payment_provider_id"))
+          .totalPaid(resultSet.getInt("total_paid"))
+          .entriesCount(resultSet.getInt("entries_count"))
+          .build();
+    }
+  }
 }
@@ -1,39 +1,129 @@
 package uk.gov.caz.psr.service;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import lombok.AllArgsConstructor;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.repository.PaymentRepository;
+import uk.gov.caz.util.function.MdcAwareSupplier;
 
 /**
  * Service responsible for updating statuses of old, unfinished payments.
  */
 @Service
-@AllArgsConstructor
 @Slf4j
 public class CleanupDanglingPaymentsService {
 
   private final PaymentRepository paymentRepository;
   private final CleanupDanglingPaymentService cleanupDanglingPaymentService;
+  private final int pageSize;
+  private final int concurrency;
+  private final Duration timeBudget;
+
+  /**
+   * Creates an instance of {@link CleanupDanglingPaymentsService}.
+   *
+   * @param paymentRepository instance of {@link PaymentRepository}
+   * @param cleanupDanglingPaymentService instance of {@link CleanupDanglingPaymentService}
+   * @param pageSize the number of dangling payments fetched from the database at once
+   * @param concurrency the maximum number of dangling payments processed at the same time; each
+   *     of them holds a database connection, so it should not exceed the size of the pool
+   * @param timeBudgetSeconds the default time after which no more dangling payments are processed
+   */
+  public CleanupDanglingPaymentsService(PaymentRepository paymentRepository,
+      CleanupDanglingPaymentService cleanupDanglingPaymentService,
+      @Value("${services.dangling-payments.page-size:100}") int pageSize,
+      @Value("${services.dangling-payments.concurrency:2}") int concurrency,
+      @Value("${services.dangling-payments.time-budget-seconds:600}") long timeBudgetSeconds) {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+    Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+    this.paymentRepository = paymentRepository;
+    this.cleanupDanglingPaymentService = cleanupDanglingPaymentService;
+    this.pageSize = pageSize;
+    this.concurrency = concurrency;
+    this.timeBudget = Duration.ofSeconds(timeBudgetSeconds);
+  }
 
   /**
    * Finds old and unfinished payments in the database, checks their statuses in the gov uk pay
-   * service and updates them in the database accordingly.
+   * service and updates them in the database accordingly. Stops after the configured time budget.
    */
   public void updateStatusesOfDanglingPayments() {
+    updateStatusesOfDanglingPayments(timeBudget);
+  }
+
+  /**
+   * Finds old and unfinished payments in the database, checks their statuses in the gov uk pay
+   * service and updates them in the database accordingly. Payments are fetched page by page and
+   * processed in parallel. Once {@code timeBudget} elapses no more payments are started, the ones
+   * which are being processed are allowed to finish and the remaining ones are left for the next
+   * run.
+   *
+   * @param timeBudget the time after which no more dangling payments are processed.
+   */
+  public void updateStatusesOfDanglingPayments(Duration timeBudget) {
     log.info("Cleaning up dangling payments - start");
     Stopwatch stopwatch = Stopwatch.createStarted();
-    List<Payment> danglingPayments = paymentRepository.findDanglingPayments();
-    log.info("Found {} dangling payments", danglingPayments.size());
-    for (Payment danglingPayment : danglingPayments) {
-      processDanglingPayment(danglingPayment);
+    long deadline = System.nanoTime() + timeBudget.toNanos();
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency,
+        new ThreadFactoryBuilder().setNameFormat("dangling-payments-%d").build());
+    int processedCount = 0;
+    try {
+      UUID lastPaymentId = null;
+      List<Payment> danglingPayments;
+      do {
+        danglingPayments = paymentRepository.findDanglingPayments(lastPaymentId, pageSize);
+        log.info("Found {} dangling payments on the next page", danglingPayments.size());
+        processedCount += processDanglingPayments(danglingPayments, executor, deadline);
+        if (!danglingPayments.isEmpty()) {
+          lastPaymentId = danglingPayments.get(danglingPayments.size() - 1).getId();
+        }
+      } while (danglingPayments.size() == pageSize && isBeforeDeadline(deadline));
+    } finally {
+      executor.shutdown();
     }
-    log.info("Cleaning up dangling payments - finish, the execution took {}ms",
-        stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    if (!isBeforeDeadline(deadline)) {
+      log.warn("The time budget of {}ms has been exceeded, the remaining dangling payments "
+          + "will be processed by the next run", timeBudget.toMillis());
+    }
+    log.info("Cleaning up dangling payments - finish, processed {} payments, the execution took "
+        + "{}ms", processedCount, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Processes {@code danglingPayments} on {@code executor} and waits until all of them are done.
+   *
+   * @return the number of payments which were processed before {@code deadline}.
+   */
+  private int processDanglingPayments(List<Payment> danglingPayments, ExecutorService executor,
+      long deadline) {
+    List<CompletableFuture<Boolean>> results = danglingPayments.stream()
+        .map(danglingPayment -> CompletableFuture.supplyAsync(MdcAwareSupplier.from(
+            () -> processDanglingPaymentBefore(danglingPayment, deadline)), executor))
+        .collect(Collectors.toList());
+    return (int) results.stream()
+        .map(CompletableFuture::join)
+        .filter(Boolean::booleanValue)
+        .count();
+  }
+
+  private boolean processDanglingPaymentBefore(Payment danglingPayment, long deadline) {
+    if (!isBeforeDeadline(deadline)) {
+      return false;
+    }
+    processDanglingPayment(danglingPayment);
+    return true;
   }
 
   private void processDanglingPayment(Payment danglingPayment) {
@@ -44,4 +134,8 @@ public class CleanupDanglingPaymentsService {
           e);
     }
   }
+
+  private static boolean isBeforeDeadline(long deadline) {
+    return System.nanoTime() - deadline < 0;
+  }
 }
@@ -1,11 +1,19 @@
 package uk.gov.caz.psr.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
+import lombok.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.psr.dto.EntrantPaymentWithLatestPaymentDetailsDto;
@@ -16,6 +24,7 @@ import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.repository.EntrantPaymentRepository;
 import uk.gov.caz.psr.repository.PaymentRepository;
+import uk.gov.caz.psr.repository.exception.NotUniqueVehicleEntrantPaymentFoundException;
 
 @Service
 @AllArgsConstructor
@@ -31,91 +40,87 @@ public class EntrantPaymentService {
    * Method receives a collection of (cazId, cazEntryTimestamp, vrn) and accordingly creates or
    * updates data in {@code T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT}.
    *
+   * <p>The whole collection is processed with a constant number of queries: existing entrant
+   * payments are fetched in one query, new ones are inserted and not yet captured ones are updated
+   * in JDBC batches, and the latest payments of paid entrant payments are fetched in one query.
+   * </p>
+   *
    * @param vehicleEntrants list of objects.
-   * @return List of {@link EntrantPaymentWithLatestPaymentDetailsDto}.
+   * @return List of {@link EntrantPaymentWithLatestPaymentDetailsDto}, in the order of {@code
+   *     vehicleEntrants}.
    */
   @Transactional
   public List<EntrantPaymentWithLatestPaymentDetailsDto> bulkProcess(
       List<VehicleEntrantDto> vehicleEntrants) {
-    List<EntrantPaymentWithLatestPaymentDetailsDto> result = new ArrayList<>();
+    if (vehicleEntrants.isEmpty()) {
+      return Collections.emptyList();
+    }
 
-    for (VehicleEntrantDto vehicleEntrantDto : vehicleEntrants) {
-      Optional<EntrantPayment> entrantPayment = fetchEntrantPaymentFromRepository(
-          vehicleEntrantDto);
+    // several entrants of the same vehicle on the same day map onto one entrant payment
+    Map<EntrantPaymentKey, EntrantPayment> candidates = vehicleEntrants.stream()
+        .map(this::buildNewEntrantPayment)
+        .collect(Collectors.toMap(EntrantPaymentKey::from, Function.identity(),
+            (first, second) -> first, LinkedHashMap::new));
 
-      if (thereIsNoExisting(entrantPayment)) {
-        processNewEntrant(result, vehicleEntrantDto);
-      } else {
-        processExistingEntrant(result, entrantPayment.orElse(null)); // <- orElse is for Sonar
-      }
-    }
+    Map<EntrantPaymentKey, EntrantPayment> entrantPayments = fetchExistingEntrantPayments(
+        new ArrayList<>(candidates.values()));
+    markAsVehicleEntrantCapturedIfNotAlreadySo(entrantPayments.values());
+    addNewEntrantPayments(candidates, entrantPayments);
+    Map<UUID, Payment> latestPayments = findLatestPaymentsIfPresent(entrantPayments.values());
 
+    List<EntrantPaymentWithLatestPaymentDetailsDto> result = new ArrayList<>(
+        vehicleEntrants.size());
+    for (VehicleEntrantDto vehicleEntrantDto : vehicleEntrants) {
+      EntrantPayment entrantPayment = entrantPayments
+          .get(EntrantPaymentKey.from(vehicleEntrantDto, toUkTravelDate(vehicleEntrantDto)))
+          .toBuilder()
+          .cazEntryTimestamp(vehicleEntrantDto.getCazEntryTimestamp())
+          .build();
+      result.add(EntrantPaymentWithLatestPaymentDetailsDto.from(entrantPayment,
+          latestPayments.get(entrantPayment.getCleanAirZoneEntrantPaymentId())));
+    }
     return result;
   }
 
   /**
-   * Tries to fetch {@link EntrantPayment} from DB on this CAZ, day and VRN. It is possible that
-   * there is no entry yet and then it returns Optional.empty().
-   */
-  private Optional<EntrantPayment> fetchEntrantPaymentFromRepository(
-      VehicleEntrantDto vehicleEntrantDto) {
-
-    return entrantPaymentRepository.findOneByVrnAndCazEntryDate(
-        vehicleEntrantDto.getCleanZoneId(),
-        vehicleEntrantDto.getVrn(),
-        LocalDateTime.from(vehicleEntrantDto.getCazEntryTimestamp().atZone(GMT_ZONE_ID)
-            .withZoneSameInstant(UK_ZONE_ID)).toLocalDate()
-    ).map(entrantPayment -> entrantPayment.toBuilder()
-        .cazEntryTimestamp(vehicleEntrantDto.getCazEntryTimestamp())
-        .build()
-    );
-  }
-
-  /**
-   * Returns true if {@link EntrantPayment} is not present for this day and CAZ. It has not been
-   * paid in advance and this is first entrance on this day.
+   * Fetches {@link EntrantPayment}s from DB on the CAZes, days and VRNs of {@code candidates}. It
+   * is possible that there is no entry yet for some (or all) of them, in which case they are absent
+   * from the returned map.
+   *
+   * @throws NotUniqueVehicleEntrantPaymentFoundException if more than one {@link
+   *     EntrantPayment} is found on the same CAZ, day and VRN.
    */
-  private boolean thereIsNoExisting(Optional<EntrantPayment> record) {
-    return !record.isPresent();
+  private Map<EntrantPaymentKey, EntrantPayment> fetchExistingEntrantPayments(
+      List<EntrantPayment> candidates) {
+    Map<EntrantPaymentKey, EntrantPayment> result = new LinkedHashMap<>();
+    for (EntrantPayment entrantPayment : entrantPaymentRepository
+        .findAllByCazIdAndVrnAndTravelDate(candidates)) {
+      if (result.putIfAbsent(EntrantPaymentKey.from(entrantPayment), entrantPayment) != null) {
+        throw new NotUniqueVehicleEntrantPaymentFoundException(entrantPayment.getVrn(),
+            "Not able to find unique EntrantPayment");
+      }
+    }
+    return result;
   }
 
   /**
    * If {@link EntrantPayment} is not present at all it means it was not paid in advance or this is
    * first vehicle entry in this CAZ on this day. In this case we are sure that there are no
-   * payments so we can quickly add new {@link EntrantPayment} to the DB and return DTO without any
-   * payment details.
+   * payments so we can quickly add new {@link EntrantPayment}s to the DB in one batch.
    */
-  private void processNewEntrant(List<EntrantPaymentWithLatestPaymentDetailsDto> result,
-      VehicleEntrantDto vehicleEntrantDto) {
-    EntrantPayment entrantPayment = addNewEntrantPayment(vehicleEntrantDto);
-    addToResultWithoutPaymentDetails(entrantPayment, result);
-  }
-
-  /**
-   * If {@link EntrantPayment} is present it means that it was either paid in advance (or at least
-   * it was tried to be paid) or this is not-the-first vehicle entry in this CAZ on this day. In
-   * this case we need to check if vehicle entrance hasn't been already captured (if this is first
-   * entry but paid in advance case) and if no, mark it as captured. Following that we need to check
-   * if it has been "PAID" and if yes try to fetch corresponding "latest" {@link Payment} entity.
-   * Finally if everything is present and only then we can fetch PaymentMethod (if entrant is
-   * "PAID"). Else we return "null" as PaymentMethod.
-   */
-  private void processExistingEntrant(List<EntrantPaymentWithLatestPaymentDetailsDto> result,
-      EntrantPayment entrantPayment) {
-    markAsVehicleEntrantCapturedIfNotAlreadySo(entrantPayment);
-    if (isPaid(entrantPayment)) {
-      processWithPotentialPayment(result, entrantPayment);
-    } else {
-      addToResultWithoutPaymentDetails(entrantPayment, result);
+  private void addNewEntrantPayments(Map<EntrantPaymentKey, EntrantPayment> candidates,
+      Map<EntrantPaymentKey, EntrantPayment> entrantPayments) {
+    List<EntrantPayment> toBeInserted = candidates.entrySet().stream()
+        .filter(candidate -> !entrantPayments.containsKey(candidate.getKey()))
+        .map(Map.Entry::getValue)
+        .collect(Collectors.toList());
+    if (toBeInserted.isEmpty()) {
+      return;
     }
-  }
 
-  /**
-   * Forges new {@link EntrantPayment} entity for this CAZ and day and saves to the DB.
-   */
-  private EntrantPayment addNewEntrantPayment(VehicleEntrantDto vehicleEntrantDto) {
-    EntrantPayment entrantPayment = buildNewEntrantPayment(vehicleEntrantDto);
-    return entrantPaymentRepository.insert(entrantPayment);
+    for (EntrantPayment inserted : entrantPaymentRepository.insert(toBeInserted)) {
+      entrantPayments.put(EntrantPaymentKey.from(inserted), inserted);
+    }
   }
 
   /**
@@ -126,8 +131,7 @@ public class EntrantPaymentService {
     return EntrantPayment.builder()
         .vrn(vehicleEntrantDto.getVrn())
         .cleanAirZoneId(vehicleEntrantDto.getCleanZoneId())
-        .travelDate(LocalDateTime.from(vehicleEntrantDto.getCazEntryTimestamp().atZone(GMT_ZONE_ID)
-            .withZoneSameInstant(UK_ZONE_ID)).toLocalDate())
+        .travelDate(toUkTravelDate(vehicleEntrantDto))
         .cazEntryTimestamp(vehicleEntrantDto.getCazEntryTimestamp())
         .vehicleEntrantCaptured(true)
         .updateActor(EntrantPaymentUpdateActor.VCCS_API)
@@ -136,25 +140,26 @@ public class EntrantPaymentService {
   }
 
   /**
-   * Maps {@link EntrantPayment} to {@link EntrantPaymentWithLatestPaymentDetailsDto} and puts into
-   * resulting list. Skips all {@link Payment} properties because there is no Payment or {@link
-   * EntrantPayment} is not "PAID". Payment properties in DTO will be "null".
+   * Converts the GMT entry timestamp of {@code vehicleEntrantDto} to the UK travel date.
    */
-  private void addToResultWithoutPaymentDetails(
-      EntrantPayment entrantPayment, List<EntrantPaymentWithLatestPaymentDetailsDto> result) {
-    result
-        .add(EntrantPaymentWithLatestPaymentDetailsDto.fromEntrantPaymentOnly(entrantPayment));
+  private LocalDate toUkTravelDate(VehicleEntrantDto vehicleEntrantDto) {
+    return LocalDateTime.from(vehicleEntrantDto.getCazEntryTimestamp().atZone(GMT_ZONE_ID)
+        .withZoneSameInstant(UK_ZONE_ID)).toLocalDate();
   }
 
   /**
-   * If "vehicleEntrantCaptured" flag is not already true on {@link EntrantPayment} it will be
-   * updated to "true" meaning that we indeed had vehicle entrance on this day in this CAZ.
+   * If "vehicleEntrantCaptured" flag is not already true on an existing {@link EntrantPayment} it
+   * will be updated to "true" meaning that we indeed had vehicle entrance on this day in this CAZ.
+   * All such entrant payments are updated in one batch.
    */
-  private void markAsVehicleEntrantCapturedIfNotAlreadySo(EntrantPayment entrantPayment) {
-    if (!entrantPayment.isVehicleEntrantCaptured()) {
-      EntrantPayment entrantPaymentToUpdate = entrantPayment.toBuilder()
-          .vehicleEntrantCaptured(true).build();
-      entrantPaymentRepository.update(entrantPaymentToUpdate);
+  private void markAsVehicleEntrantCapturedIfNotAlreadySo(
+      Collection<EntrantPayment> entrantPayments) {
+    List<EntrantPayment> entrantPaymentsToUpdate = entrantPayments.stream()
+        .filter(entrantPayment -> !entrantPayment.isVehicleEntrantCaptured())
+        .map(entrantPayment -> entrantPayment.toBuilder().vehicleEntrantCaptured(true).build())
+        .collect(Collectors.toList());
+    if (!entrantPaymentsToUpdate.isEmpty()) {
+      entrantPaymentRepository.update(entrantPaymentsToUpdate);
     }
   }
 
@@ -167,37 +172,40 @@ public class EntrantPaymentService {
   }
 
   /**
-   * If {@link EntrantPayment} is present and is "PAID" we try to fetch corresponding matching
-   * latest {@link Payment} record. If it is present we can fetch PaymentMethod to return. If it is
-   * not present we will return "null" as PaymentMethod.
+   * Tries to find corresponding "latest" {@link Payment} records for paid {@link EntrantPayment}s
+   * in one query. It is possible that there is no Payment yet for some of them, in which case
+   * "null" is returned as PaymentMethod.
    */
-  private void processWithPotentialPayment(List<EntrantPaymentWithLatestPaymentDetailsDto> result,
-      EntrantPayment entrantPayment) {
-    Optional<Payment> payment = findLatestPaymentIfPresent(entrantPayment);
-    if (payment.isPresent()) {
-      addToResultWithPaymentDetails(entrantPayment, payment.get(), result);
-    } else {
-      addToResultWithoutPaymentDetails(entrantPayment, result);
+  private Map<UUID, Payment> findLatestPaymentsIfPresent(
+      Collection<EntrantPayment> entrantPayments) {
+    List<UUID> paidEntrantPaymentIds = entrantPayments.stream()
+        .filter(this::isPaid)
+        .map(EntrantPayment::getCleanAirZoneEntrantPaymentId)
+        .collect(Collectors.toList());
+    if (paidEntrantPaymentIds.isEmpty()) {
+      return Collections.emptyMap();
     }
+    return paymentRepository.findByEntrantPayments(paidEntrantPaymentIds);
   }
 
   /**
-   * Tries to find corresponding "latest" {@link Payment} record for {@link EntrantPayment}. It is
-   * possible that there is no Payment yet and the it returns Optional.empty().
+   * Identifies an {@link EntrantPayment} by its CAZ, VRN and travel date.
    */
-  private Optional<Payment> findLatestPaymentIfPresent(EntrantPayment entrantPayment) {
-    return paymentRepository
-        .findByEntrantPayment(entrantPayment.getCleanAirZoneEntrantPaymentId());
-  }
+  @Value
+  private static class EntrantPaymentKey {
 
-  /**
-   * Maps {@link EntrantPayment} and {@link Payment}
-   * to {@link EntrantPaymentWithLatestPaymentDetailsDto} and puts into resulting list.
-   */
-  private void addToResultWithPaymentDetails(
-      EntrantPayment entrantPayment, Payment payment,
-      List<EntrantPaymentWithLatestPaymentDetailsDto> result) {
-    result.add(
-        EntrantPaymentWithLatestPaymentDetailsDto.from(entrantPayment, payment));
+    UUID cleanAirZoneId;
+    String vrn;
+    LocalDate travelDate;
+
+    static EntrantPaymentKey from(EntrantPayment entrantPayment) {
+      return new EntrantPaymentKey(entrantPayment.getCleanAirZoneId(), entrantPayment.getVrn(),
+          entrantPayment.getTravelDate());
+    }
+
+    static EntrantPaymentKey from(VehicleEntrantDto vehicleEntrantDto, LocalDate travelDate) {
+      return new EntrantPaymentKey(vehicleEntrantDto.getCleanZoneId(), vehicleEntrantDto.getVrn(),
+          travelDate);
+    }
   }
 }
@@ -1,12 +1,12 @@
 package uk.gov.caz.psr.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.psr.model.EntrantPayment;
@@ -25,7 +25,8 @@ public class GetPaidEntrantPaymentsService {
   /**
    * Method receives a collection of VRNs, date range and CleanAirZone ID for which it is supposed
    * to fetch collection of PAID {@link EntrantPayment}, and then return information which VRNs in
-   * provided CAZ has already paid for the entrance.
+   * provided CAZ has already paid for the entrance. Payments of all VRNs are fetched with a
+   * single query.
    *
    * @param vrns provided list of VRNs.
    * @param startDate first day in date range.
@@ -35,14 +36,19 @@ public class GetPaidEntrantPaymentsService {
    */
   public Map<String, List<EntrantPayment>> getResults(Set<String> vrns, LocalDate startDate,
       LocalDate endDate, UUID cleanAirZoneId) {
+    Map<String, List<EntrantPayment>> results = new HashMap<>();
+    for (String vrn : vrns) {
+      results.put(vrn, new ArrayList<>());
+    }
+    if (results.isEmpty()) {
+      return results;
+    }
 
-    return vrns.stream()
-        .collect(
-            Collectors.toMap(
-                Function.identity(),
-                vrn -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(vrn, startDate,
-                    endDate, cleanAirZoneId)
-            )
-        );
+    List<EntrantPayment> entrantPayments = entrantPaymentRepository
+        .findAllPaidByVrnsAndDateRangeAndCazId(vrns, startDate, endDate, cleanAirZoneId);
+    for (EntrantPayment entrantPayment : entrantPayments) {
+      results.get(entrantPayment.getVrn()).add(entrantPayment);
+    }
+    return results;
   }
 }
@@ -1,13 +1,17 @@
 package uk.gov.caz.psr.service.generatecsv;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
+import lombok.Value;
 import org.springframework.stereotype.Component;
 import retrofit2.Response;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
@@ -47,29 +51,31 @@ public class CsvContentGenerator {
   private final VccsRepository vccsRepository;
 
   /**
-   * Generate {@link List} of String[] which contains csv rows.
+   * Generates csv rows, starting with the header, and passes them one by one to {@code
+   * rowConsumer}. Entrant payments are streamed from the database, hence the memory used does not
+   * depend on the number of payments made by the account.
    *
    * @param accountId ID of Account.
    * @param accountUserId ID of AccountUser.
-   * @return {@link List} of String[] which contains csv rows.
+   * @param rowConsumer A callback which is invoked with each csv row.
    */
-  public List<String[]> generateCsvRows(UUID accountId, UUID accountUserId) {
-    List<String[]> csvRows = new ArrayList<>();
-
+  public void generateCsvRows(UUID accountId, UUID accountUserId,
+      Consumer<String[]> rowConsumer) {
     List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
     List<UUID> selectedAccountUserIds = selectAccountUsers(accountUsers, accountUserId);
-    List<CsvEntrantPayment> entrantPayments = csvEntrantPaymentRepository.findAllForAccountUsers(
+    Map<UUID, AccountUserResponse> accountUsersById = accountUsers.stream()
+        .collect(Collectors.toMap(AccountUserResponse::getAccountUserId, Function.identity(),
+            (first, second) -> first));
+    Map<UUID, String> cleanAirZoneNames = getCleanAirZoneNames();
+    Map<ModificationKey, PaymentModification> paymentModifications = getPaymentModifications(
         selectedAccountUserIds);
-    List<EnrichedCsvEntrantPayment> enrichedEntrantPayments = enrichEntrantPayments(
-        entrantPayments, accountUsers);
 
     // adding header record
-    csvRows.add(new String[]{CSV_HEADER});
+    rowConsumer.accept(new String[]{CSV_HEADER});
 
-    for (EnrichedCsvEntrantPayment enrichedCsvEntrantPayment : enrichedEntrantPayments) {
-      csvRows.add(new String[]{createCsvRow(enrichedCsvEntrantPayment)});
-    }
-    return csvRows;
+    csvEntrantPaymentRepository.forEachForAccountUsers(selectedAccountUserIds,
+        entrantPayment -> rowConsumer.accept(new String[]{createCsvRow(enrichEntrantPayment(
+            entrantPayment, accountUsersById, cleanAirZoneNames, paymentModifications))}));
   }
 
   /**
@@ -106,21 +112,22 @@ public class CsvContentGenerator {
   }
 
   /**
-   * Method which enrich provided {@code CsvEntrantPayment} list with data from External APIs
-   * and collect it as {@code EnrichedCsvEntrantPayment}.
+   * Fetches modifications of payments made by the given account users and indexes them by the
+   * payment, VRN and travel date they apply to. Only the earliest modification of each entrant
+   * payment is kept.
    */
-  private List<EnrichedCsvEntrantPayment> enrichEntrantPayments(
-      List<CsvEntrantPayment> entrantPayments, List<AccountUserResponse> accountUsers) {
-
-    Response<CleanAirZonesDto> cleanAirZonesResponse = vccsRepository.findCleanAirZonesSync();
-    List<UUID> paymentIds = getPaymentIds(entrantPayments);
+  private Map<ModificationKey, PaymentModification> getPaymentModifications(
+      List<UUID> accountUserIds) {
     List<PaymentModification> paymentModifications = paymentDetailRepository
-        .findAllForPaymentsHistory(paymentIds, EntrantPaymentUpdateActor.LA,
+        .findAllForAccountUsersPaymentsHistory(accountUserIds, EntrantPaymentUpdateActor.LA,
             Arrays.asList(InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK));
-    return entrantPayments.stream()
-        .map(entrantPayment -> enrichEntrantPayment(entrantPayment, accountUsers,
-            cleanAirZonesResponse, paymentModifications))
-        .collect(Collectors.toList());
+    Map<ModificationKey, PaymentModification> modificationsByKey = new HashMap<>();
+    for (PaymentModification paymentModification : paymentModifications) {
+      modificationsByKey.putIfAbsent(ModificationKey.of(paymentModification.getPaymentId(),
+          paymentModification.getVrn(), paymentModification.getTravelDate()),
+          paymentModification);
+    }
+    return modificationsByKey;
   }
 
   /**
@@ -128,16 +135,16 @@ public class CsvContentGenerator {
    * and returns it as {@code EnrichedCsvEntrantPayment}.
    */
   private EnrichedCsvEntrantPayment enrichEntrantPayment(CsvEntrantPayment entrantPayment,
-      List<AccountUserResponse> accountUsers, Response<CleanAirZonesDto> cleanAirZones,
-      List<PaymentModification> paymentModifications) {
-    Optional<PaymentModification> paymentModification = getModification(paymentModifications,
-        entrantPayment);
+      Map<UUID, AccountUserResponse> accountUsers, Map<UUID, String> cleanAirZoneNames,
+      Map<ModificationKey, PaymentModification> paymentModifications) {
+    PaymentModification paymentModification = paymentModifications.get(ModificationKey.of(
+        entrantPayment.getPaymentId(), entrantPayment.getVrn(), entrantPayment.getTravelDate()));
 
     EnrichedCsvEntrantPaymentBuilder enrichedCsvEntrantPayment = EnrichedCsvEntrantPayment.builder()
         .paymentId(entrantPayment.getPaymentId())
         .dateOfPayment(entrantPayment.getDateOfPayment().toLocalDate())
         .paymentMadeBy(getPayerName(entrantPayment.getUserId(), accountUsers))
-        .cazName(getCleanAirZoneName(cleanAirZones, entrantPayment.getCleanAirZoneId()))
+        .cazName(cleanAirZoneNames.get(entrantPayment.getCleanAirZoneId()))
         .vrn(entrantPayment.getVrn())
         .dateOfEntry(entrantPayment.getTravelDate())
         .charge(entrantPayment.getCharge())
@@ -146,11 +153,11 @@ public class CsvContentGenerator {
         .entriesCount(entrantPayment.getEntriesCount())
         .totalPaid(entrantPayment.getTotalPaid());
 
-    if (paymentModification.isPresent()) {
+    if (paymentModification != null) {
       enrichedCsvEntrantPayment
-          .status(paymentModification.get().getEntrantPaymentStatus())
-          .dateReceivedFromLa(paymentModification.get().getModificationTimestamp().toLocalDate())
-          .caseReference(paymentModification.get().getCaseReference());
+          .status(paymentModification.getEntrantPaymentStatus())
+          .dateReceivedFromLa(paymentModification.getModificationTimestamp().toLocalDate())
+          .caseReference(paymentModification.getCaseReference());
     }
     return enrichedCsvEntrantPayment.build();
   }
@@ -201,10 +208,8 @@ public class CsvContentGenerator {
   /**
    * Method for retrieving a payer name.
    */
-  public String getPayerName(UUID userId, List<AccountUserResponse> accountUsers) {
-    AccountUserResponse accountUser = accountUsers.stream()
-        .filter(accountUserResponse -> accountUserResponse.getAccountUserId().equals(userId))
-        .iterator().next();
+  public String getPayerName(UUID userId, Map<UUID, AccountUserResponse> accountUsers) {
+    AccountUserResponse accountUser = accountUsers.get(userId);
     if (accountUser.isOwner()) {
       return ADMINISTRATOR;
     }
@@ -215,37 +220,25 @@ public class CsvContentGenerator {
   }
 
   /**
-   * Method for retrieving a CleanAirZOne name.
+   * Method for retrieving names of CleanAirZones indexed by their IDs.
    */
-  private String getCleanAirZoneName(Response<CleanAirZonesDto> cleanAirZonesResponse,
-      UUID cleanAirZone) {
-
-    return cleanAirZonesResponse.body().getCleanAirZones().stream()
-        .filter(caz -> caz.getCleanAirZoneId().equals(cleanAirZone))
-        .map(CleanAirZoneDto::getName)
-        .findFirst()
-        .orElse(null);
+  private Map<UUID, String> getCleanAirZoneNames() {
+    Response<CleanAirZonesDto> cleanAirZonesResponse = vccsRepository.findCleanAirZonesSync();
+    Map<UUID, String> cleanAirZoneNames = new HashMap<>();
+    for (CleanAirZoneDto cleanAirZone : cleanAirZonesResponse.body().getCleanAirZones()) {
+      cleanAirZoneNames.putIfAbsent(cleanAirZone.getCleanAirZoneId(), cleanAirZone.getName());
+    }
+    return cleanAirZoneNames;
   }
 
   /**
-   * Get list of PaymentIds based on entrant Payments.
+   * Identifies the entrant payment of a payment which a modification applies to.
    */
-  private List<UUID> getPaymentIds(List<CsvEntrantPayment> entrantPayments) {
-    return entrantPayments.stream()
-        .map(CsvEntrantPayment::getPaymentId)
-        .distinct()
-        .collect(Collectors.toList());
-  }
+  @Value(staticConstructor = "of")
+  private static class ModificationKey {
 
-  /**
-   * Gets modification status for selected EntrantPayment.
-   */
-  private Optional<PaymentModification> getModification(
-      List<PaymentModification> paymentModifications, CsvEntrantPayment entrantPayment) {
-    return paymentModifications.stream()
-        .filter(paymentModification -> paymentModification.getVrn().equals(entrantPayment.getVrn())
-            && paymentModification.getTravelDate().equals(entrantPayment.getTravelDate())
-            && paymentModification.getPaymentId().equals(entrantPayment.getPaymentId()))
-        .findFirst();
+    UUID paymentId;
+    String vrn;
+    LocalDate travelDate;
   }
 }
@@ -4,15 +4,13 @@ import com.opencsv.CSVWriter;
 import com.opencsv.CSVWriterBuilder;
 import com.opencsv.ICSVWriter;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
-import java.util.List;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
 /**
- * Generates writer with csv content.
+ * Writes csv content to a writer.
  */
 @Component
 @AllArgsConstructor
@@ -21,23 +19,25 @@ public class CsvWriter {
   private final CsvContentGenerator csvContentGenerator;
 
   /**
-   * Create {@link Writer} with content of csv.
+   * Writes content of csv to {@code writer} row by row. The writer is flushed, but not closed.
    *
+   * @param writer {@link Writer} to which the content is written.
    * @param accountId ID of Account.
    * @param accountUserId ID of AccountUser.
-   * @return {@link Writer}.
+   * @throws IOException if the content cannot be written.
    */
-  public Writer createWriterWithCsvContent(UUID accountId, UUID accountUserId) throws IOException {
-    try (Writer writer = new StringWriter();
-        ICSVWriter csvWriter = new CSVWriterBuilder(writer)
-            .withSeparator(CSVWriter.NO_QUOTE_CHARACTER)
-            .withQuoteChar(CSVWriter.NO_QUOTE_CHARACTER)
-            .build()) {
+  public void writeCsvContent(Writer writer, UUID accountId, UUID accountUserId)
+      throws IOException {
+    ICSVWriter csvWriter = new CSVWriterBuilder(writer)
+        .withSeparator(CSVWriter.NO_QUOTE_CHARACTER)
+        .withQuoteChar(CSVWriter.NO_QUOTE_CHARACTER)
+        .build();
 
-      List<String[]> csvRows = csvContentGenerator.generateCsvRows(accountId, accountUserId);
+    csvContentGenerator.generateCsvRows(accountId, accountUserId, csvWriter::writeNext);
 
-      csvWriter.writeAll(csvRows);
-      return writer;
+    // ICSVWriter#writeNext does not throw, but records the failure and checkError flushes
+    if (csvWriter.checkError()) {
+      throw new IOException("Unable to write csv content");
     }
   }
-}
\ No newline at end of file
+}
@@ -1,16 +1,17 @@
 package uk.gov.caz.psr.service.generatecsv;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import uk.gov.caz.psr.service.generatecsv.exception.CsvExportException;
 
@@ -22,6 +23,7 @@ import uk.gov.caz.psr.service.generatecsv.exception.CsvExportException;
 public class PaymentsHistoryCsvFileSupervisor {
 
   private static final String TEXT_CSV = "text/csv";
+  private static final int PART_SIZE = S3MultipartUploadOutputStream.MIN_PART_SIZE;
   private final S3Client s3Client;
   private final CsvFileNameGenerator csvFileNameGenerator;
   private final CsvWriter csvWriter;
@@ -43,7 +45,8 @@ public class PaymentsHistoryCsvFileSupervisor {
   }
 
   /**
-   * Upload csv file to s3.
+   * Upload csv file to s3. The content is streamed to the bucket as it is generated and the file
+   * is not created if the upload fails.
    *
    * @param accountId ID of Account/Fleet.
    * @return {@link URL}.
@@ -51,9 +54,13 @@ public class PaymentsHistoryCsvFileSupervisor {
   public URL uploadCsvFileAndGetPresignedUrl(UUID accountId, UUID accountUserId) {
     String fileName = prepareFileName(accountId);
     String error = String.format("Exception while uploading file %s/%s", bucket, fileName);
-    try {
-      s3Client
-          .putObject(prepareRequestObject(accountId), prepareRequestBody(accountId, accountUserId));
+    try (S3MultipartUploadOutputStream outputStream = new S3MultipartUploadOutputStream(s3Client,
+        bucket, fileName, TEXT_CSV, PART_SIZE);
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+      csvWriter.writeCsvContent(writer, accountId, accountUserId);
+      writer.flush();
+      outputStream.complete();
       return csvUrlGenerator.getPresignedUrl(fileName);
     } catch (S3Exception e) {
       logAwsExceptionDetails(e);
@@ -64,27 +71,6 @@ public class PaymentsHistoryCsvFileSupervisor {
     }
   }
 
-  /**
-   * Helper method to prepare put request object.
-   */
-  private PutObjectRequest prepareRequestObject(UUID accountId) {
-    return PutObjectRequest.builder()
-        .bucket(bucket)
-        .key(prepareFileName(accountId))
-        .contentType(TEXT_CSV)
-        .build();
-  }
-
-  /**
-   * Helper method to prepare request body.
-   */
-  private RequestBody prepareRequestBody(UUID accountId, UUID accountUserId) throws IOException {
-    try (Writer csvEntrantPayments = csvWriter
-        .createWriterWithCsvContent(accountId, accountUserId)) {
-      return RequestBody.fromBytes(csvEntrantPayments.toString().getBytes());
-    }
-  }
-
   /**
    * Helper method to prepare file name.
    */
@@ -0,0 +1,175 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * An {@link OutputStream} which writes an object to S3. Written bytes are buffered and uploaded
+ * as parts of a multipart upload once the buffer is full, hence the memory used does not
+ * depend on the size of the object. Objects smaller than a single part are uploaded with a single
+ * {@code PutObject}.
+ *
+ * <p>The object is created only by {@link #complete()}. Closing the stream without completing it
+ * aborts the upload, so a failure while writing never leaves a partial object in the bucket.</p>
+ */
+@Slf4j
+public class S3MultipartUploadOutputStream extends OutputStream {
+
+  /**
+   * Minimum size of a part (other than the last one) required by S3.
+   */
+  public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+  private final S3Client s3Client;
+  private final String bucket;
+  private final String key;
+  private final String contentType;
+  private final byte[] buffer;
+  private final List<CompletedPart> completedParts = new ArrayList<>();
+  private int position;
+  private String uploadId;
+  private boolean closed;
+
+  /**
+   * Creates a stream which writes the object {@code key} to {@code bucket}.
+   *
+   * @param s3Client a client of S3.
+   * @param bucket the bucket to which the object is written.
+   * @param key the key of the object.
+   * @param contentType the content type of the object.
+   * @param partSize size of an uploaded part (in bytes), S3 requires at least {@link
+   *     #MIN_PART_SIZE}.
+   */
+  public S3MultipartUploadOutputStream(S3Client s3Client, String bucket, String key,
+      String contentType, int partSize) {
+    Preconditions.checkArgument(partSize > 0, "partSize must be positive");
+    this.s3Client = s3Client;
+    this.bucket = bucket;
+    this.key = key;
+    this.contentType = contentType;
+    this.buffer = new byte[partSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (position == buffer.length) {
+      uploadBufferAsPart();
+    }
+    buffer[position++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    ensureOpen();
+    Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+    int written = 0;
+    while (written < length) {
+      // a full buffer is uploaded once more bytes arrive, so the last part is left to complete()
+      if (position == buffer.length) {
+        uploadBufferAsPart();
+      }
+      int chunk = Math.min(length - written, buffer.length - position);
+      System.arraycopy(bytes, offset + written, buffer, position, chunk);
+      position += chunk;
+      written += chunk;
+    }
+  }
+
+  /**
+   * Uploads the buffered bytes and completes the object. The stream is closed afterwards.
+   *
+   * @throws IOException if the stream has already been closed.
+   */
+  public void complete() throws IOException {
+    ensureOpen();
+    if (uploadId == null) {
+      log.info("Writing {} to S3", key);
+      s3Client.putObject(PutObjectRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .contentType(contentType)
+          .build(), bufferContent());
+    } else {
+      if (position > 0) {
+        uploadBufferAsPart();
+      }
+      log.info("Completing multipart upload of {} part(s) to {}", completedParts.size(), key);
+      s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+          .build());
+    }
+    closed = true;
+  }
+
+  /**
+   * Closes the stream. Aborts the multipart upload, if any has been started, unless the object
+   * has been completed.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (uploadId != null) {
+      log.info("Aborting multipart upload of {}", key);
+      s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .build());
+    }
+  }
+
+  private void uploadBufferAsPart() {
+    if (uploadId == null) {
+      uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .contentType(contentType)
+          .build()).uploadId();
+    }
+    int partNumber = completedParts.size() + 1;
+    log.info("Uploading part {} of {}", partNumber, key);
+    String etag = s3Client.uploadPart(UploadPartRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .uploadId(uploadId)
+        .partNumber(partNumber)
+        .build(), bufferContent()).eTag();
+    completedParts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+    position = 0;
+  }
+
+  /**
+   * Returns the buffered bytes as a request body without copying them, the buffer is reused only
+   * once the request has been sent.
+   */
+  private RequestBody bufferContent() {
+    return RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, position), position);
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
@@ -3,6 +3,7 @@ package uk.gov.caz.psr.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
@@ -60,6 +61,23 @@ class EntrantPaymentRepositoryTest {
       assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
           .hasMessage("Entrant payments cannot be empty");
     }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionWhenObjectInListHasIdAssigned() {
+      // given
+      List<EntrantPayment> input = Collections.singletonList(EntrantPayments.anyNotPaid()
+          .toBuilder()
+          .cleanAirZoneEntrantPaymentId(UUID.fromString("b37d37e0-ff12-420c-bc75-4dfe8080ac45"))
+          .build());
+
+      // when
+      Throwable throwable = catchThrowable(() -> entrantPaymentRepository.insert(input));
+
+      // then
+      assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("Entrant payment cannot have non-null ID");
+      verifyNoInteractions(jdbcTemplate);
+    }
   }
 
   @Nested
@@ -111,6 +129,41 @@ class EntrantPaymentRepositoryTest {
       assertThat(throwable).isInstanceOf(NullPointerException.class)
           .hasMessage("Entrant payments cannot be null");
     }
+
+    @Test
+    public void shouldNotCallDatabaseWhenListIsEmpty() {
+      // when
+      entrantPaymentRepository.update(Collections.emptyList());
+
+      // then
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
+  @Nested
+  class FindAllByCazIdAndVrnAndTravelDate {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenCollectionIsNull() {
+      // when
+      Throwable throwable = catchThrowable(
+          () -> entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(null));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("Entrant payments cannot be null");
+    }
+
+    @Test
+    public void shouldReturnEmptyListWithoutCallingDatabaseWhenCollectionIsEmpty() {
+      // when
+      List<EntrantPayment> result = entrantPaymentRepository
+          .findAllByCazIdAndVrnAndTravelDate(Collections.emptyList());
+
+      // then
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
   }
 
   @Nested
@@ -218,61 +271,41 @@ class EntrantPaymentRepositoryTest {
   }
 
   @Nested
-  class FindAllPaidByVrnAndDateRangeAndCazId {
+  class FindAllPaidByVrnsAndDateRangeAndCazId {
 
     @Test
-    public void shouldThrowNullPointerExceptionWhenVrnIsNull() {
-      // given
-      String vrn = null;
-      LocalDate startDate = LocalDate.now();
-      LocalDate endDate = LocalDate.now();
-      UUID cleanAirZoneId = UUID.randomUUID();
-
+    public void shouldThrowNullPointerExceptionWhenVrnsAreNull() {
       // when
       Throwable throwable = catchThrowable(
-          () -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(
-              vrn, startDate, endDate, cleanAirZoneId));
+          () -> entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(null,
+              LocalDate.now(), LocalDate.now(), UUID.randomUUID()));
 
       // then
-      assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
-          .hasMessage("VRN cannot be empty");
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("vrns cannot be null");
     }
 
     @Test
-    public void shouldThrowNullPointerExceptionWhenDateIsNull() {
-      // given
-      String vrn = "CAS123";
-      LocalDate startDate = null;
-      LocalDate endDate = LocalDate.now();
-      UUID cleanAirZoneId = UUID.randomUUID();
-
+    public void shouldThrowNullPointerExceptionWhenCazIdIsNull() {
       // when
       Throwable throwable = catchThrowable(
-          () -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(
-              vrn, startDate, endDate, cleanAirZoneId));
+          () -> entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(
+              Collections.singletonList("CAS123"), LocalDate.now(), LocalDate.now(), null));
 
       // then
       assertThat(throwable).isInstanceOf(NullPointerException.class)
-          .hasMessage("startDate cannot be null");
-
+          .hasMessage("cleanAirZoneId cannot be null");
     }
 
     @Test
-    public void shouldThrowNullPointerExceptionWhenCazIdIsNull() {
-      // given
-      String vrn = "CAS123";
-      LocalDate startDate = LocalDate.now();
-      LocalDate endDate = LocalDate.now();
-      UUID cleanAirZoneId = null;
-
+    public void shouldReturnEmptyListWithoutCallingDatabaseWhenVrnsAreEmpty() {
       // when
-      Throwable throwable = catchThrowable(
-          () -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(
-              vrn, startDate, endDate, cleanAirZoneId));
+      List<EntrantPayment> result = entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(
+          Collections.emptyList(), LocalDate.now(), LocalDate.now(), UUID.randomUUID());
 
       // then
-      assertThat(throwable).isInstanceOf(NullPointerException.class)
-          .hasMessage("cleanAirZoneId cannot be null");
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
     }
   }
 
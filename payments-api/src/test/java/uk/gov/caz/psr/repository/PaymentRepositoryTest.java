@@ -3,10 +3,12 @@ package uk.gov.caz.psr.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -138,6 +140,40 @@ class PaymentRepositoryTest {
     }
   }
 
+  @Nested
+  class FindByEntrantPayments {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenIdsAreNull() {
+      Throwable throwable = catchThrowable(() -> paymentRepository.findByEntrantPayments(null));
+
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("entrantPaymentIds cannot be null");
+    }
+
+    @Test
+    public void shouldReturnEmptyMapWithoutCallingDatabaseWhenIdsAreEmpty() {
+      Map<UUID, Payment> result = paymentRepository.findByEntrantPayments(Collections.emptyList());
+
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
+  @Nested
+  class FindDanglingPayments {
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionWhenLimitIsNotPositive() {
+      Throwable throwable = catchThrowable(
+          () -> paymentRepository.findDanglingPayments(null, 0));
+
+      assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("limit must be positive");
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
   @Nested
   class MarkSentConfirmationEmail {
 
@@ -167,27 +167,27 @@ class PaymentDetailRepositoryTest {
   }
 
   @Nested
-  class FindAllForPaymentsHistory {
+  class FindAllForAccountUsersPaymentsHistory {
 
     @Nested
-    class WhenPaymentIdsAreNotProvided {
+    class WhenAccountUserIdsAreNotProvided {
 
       @Test
       public void shouldThrowNullPointerException() {
         // given
-        List<UUID> paymentIds = null;
+        List<UUID> accountUserIds = null;
         EntrantPaymentUpdateActor updateActor = EntrantPaymentUpdateActor.LA;
         List<InternalPaymentStatus> paymentStatuses = Arrays
             .asList(InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK);
 
         // when
         Throwable throwable = catchThrowable(
-            () -> paymentDetailRepository
-                .findAllForPaymentsHistory(paymentIds, updateActor, paymentStatuses));
+            () -> paymentDetailRepository.findAllForAccountUsersPaymentsHistory(accountUserIds,
+                updateActor, paymentStatuses));
 
         // then
         assertThat(throwable).isInstanceOf(NullPointerException.class);
-        assertThat(throwable).hasMessage("paymentIds cannot be null");
+        assertThat(throwable).hasMessage("accountUserIds cannot be null");
       }
     }
 
@@ -197,15 +197,15 @@ class PaymentDetailRepositoryTest {
       @Test
       public void shouldThrowNullPointerException() {
         // given
-        List<UUID> paymentIds = Arrays.asList(UUID.randomUUID());
+        List<UUID> accountUserIds = Arrays.asList(UUID.randomUUID());
         EntrantPaymentUpdateActor updateActor = null;
         List<InternalPaymentStatus> paymentStatuses = Arrays
             .asList(InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK);
 
         // when
         Throwable throwable = catchThrowable(
-            () -> paymentDetailRepository
-                .findAllForPaymentsHistory(paymentIds, updateActor, paymentStatuses));
+            () -> paymentDetailRepository.findAllForAccountUsersPaymentsHistory(accountUserIds,
+                updateActor, paymentStatuses));
 
         // then
         assertThat(throwable).isInstanceOf(NullPointerException.class);
@@ -219,14 +219,14 @@ class PaymentDetailRepositoryTest {
       @Test
       public void shouldThrowNullPointerException() {
         // given
-        List<UUID> paymentIds = Arrays.asList(UUID.randomUUID());
+        List<UUID> accountUserIds = Arrays.asList(UUID.randomUUID());
         EntrantPaymentUpdateActor updateActor = EntrantPaymentUpdateActor.LA;
         List<InternalPaymentStatus> paymentStatuses = null;
 
         // when
         Throwable throwable = catchThrowable(
-            () -> paymentDetailRepository
-                .findAllForPaymentsHistory(paymentIds, updateActor, paymentStatuses));
+            () -> paymentDetailRepository.findAllForAccountUsersPaymentsHistory(accountUserIds,
+                updateActor, paymentStatuses));
 
         // then
         assertThat(throwable).isInstanceOf(NullPointerException.class);
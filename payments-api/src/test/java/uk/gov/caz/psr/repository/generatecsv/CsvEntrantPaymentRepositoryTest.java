@@ -0,0 +1,206 @@
+package uk.gov.caz.psr.repository.generatecsv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
+import uk.gov.caz.psr.model.InternalPaymentStatus;
+import uk.gov.caz.psr.model.PaymentModification;
+import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
+import uk.gov.caz.psr.repository.audit.PaymentDetailRepository;
+
+/**
+ * Runs the database migrations against an embedded PostgreSQL and verifies the queries which
+ * the CSV export of payments is built from.
+ */
+class CsvEntrantPaymentRepositoryTest {
+
+  // referenced by the migrations granting privileges to roles
+  private static final String DATABASE = "vehicle_compliance";
+
+  private static final UUID CAZ_ID = UUID.fromString("53e03a28-0627-11ea-9511-ffaaee87e375");
+  private static final UUID FIRST_USER_ID = UUID.randomUUID();
+  private static final UUID SECOND_USER_ID = UUID.randomUUID();
+  private static final UUID OTHER_USER_ID = UUID.randomUUID();
+  private static final UUID FIRST_USER_PAYMENT_ID = UUID.randomUUID();
+  private static final UUID SECOND_USER_PAYMENT_ID = UUID.randomUUID();
+  private static final UUID REFUNDED_ENTRANT_PAYMENT_ID = UUID.randomUUID();
+
+  private static final String INSERT_PAYMENT_SQL = "INSERT INTO caz_payment.t_payment "
+      + "(payment_id, user_id, payment_provider_id, payment_method, payment_provider_status, "
+      + "total_paid, payment_submitted_timestamp, payment_authorised_timestamp, "
+      + "central_reference_number) "
+      + "VALUES (?, ?, ?, 'CREDIT_DEBIT_CARD', 'SUCCESS', ?, CAST(? AS timestamp), "
+      + "CAST(? AS timestamp), ?)";
+
+  private static final String INSERT_ENTRANT_PAYMENT_SQL = "INSERT INTO "
+      + "caz_payment.t_clean_air_zone_entrant_payment (clean_air_zone_entrant_payment_id, vrn, "
+      + "clean_air_zone_id, travel_date, tariff_code, charge, payment_status, update_actor) "
+      + "VALUES (?, ?, ?, CAST(? AS date), 'tariff-1', ?, 'PAID', 'USER')";
+
+  private static final String INSERT_MATCH_SQL = "INSERT INTO "
+      + "caz_payment.t_clean_air_zone_entrant_payment_match (id, "
+      + "clean_air_zone_entrant_payment_id, payment_id, latest) VALUES (?, ?, ?, true)";
+
+  private static final String REFUND_SQL = "UPDATE caz_payment.t_clean_air_zone_entrant_payment "
+      + "SET payment_status = 'REFUNDED', update_actor = 'LA', case_reference = 'case-1' "
+      + "WHERE clean_air_zone_entrant_payment_id = ?";
+
+  private static EmbeddedPostgres postgres;
+
+  private static DataSource dataSource;
+
+  private static JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  static void migrateDatabase() throws Exception {
+    postgres = EmbeddedPostgres.start();
+    new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE DATABASE " + DATABASE);
+    dataSource = postgres.getDatabase("postgres", DATABASE);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    try (Connection connection = dataSource.getConnection()) {
+      Liquibase liquibase = new Liquibase("db/changelog/db.changelog-master.yaml",
+          new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+      liquibase.setChangeLogParameter("BUILD_ID", "unit-tests");
+      liquibase.update(new Contexts());
+    }
+    insertTestData();
+  }
+
+  @AfterAll
+  static void stopDatabase() throws IOException {
+    postgres.close();
+  }
+
+  @Test
+  public void shouldStreamEntrantPaymentsOfAccountUsersFromMostRecentPayment() {
+    // given
+    CsvEntrantPaymentRepository repository = new CsvEntrantPaymentRepository(jdbcTemplate);
+    List<CsvEntrantPayment> entrantPayments = new ArrayList<>();
+
+    // when
+    // rows are fetched through a cursor only within a transaction
+    new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+      repository.forEachForAccountUsers(Arrays.asList(FIRST_USER_ID, SECOND_USER_ID),
+          entrantPayments::add);
+      return null;
+    });
+
+    // then
+    assertThat(entrantPayments).extracting(CsvEntrantPayment::getVrn)
+        .containsExactly("AB12CDE", "ND84VSX", "OD84VSX");
+    CsvEntrantPayment entrantPayment = entrantPayments.get(1);
+    assertThat(entrantPayment.getEntrantPaymentId()).isEqualTo(REFUNDED_ENTRANT_PAYMENT_ID);
+    assertThat(entrantPayment.getPaymentId()).isEqualTo(FIRST_USER_PAYMENT_ID);
+    assertThat(entrantPayment.getUserId()).isEqualTo(FIRST_USER_ID);
+    assertThat(entrantPayment.getDateOfPayment())
+        .isEqualTo(LocalDateTime.of(2019, 11, 23, 20, 38, 8));
+    assertThat(entrantPayment.getCleanAirZoneId()).isEqualTo(CAZ_ID);
+    assertThat(entrantPayment.getTravelDate()).isEqualTo(LocalDate.of(2019, 11, 1));
+    assertThat(entrantPayment.getCharge()).isEqualTo(800);
+    assertThat(entrantPayment.getPaymentReference()).isEqualTo("87");
+    assertThat(entrantPayment.getPaymentProviderId()).isEqualTo("ext-payment-id-1");
+    assertThat(entrantPayment.getTotalPaid()).isEqualTo(1600);
+    assertThat(entrantPayment.getEntriesCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotPassAnyEntrantPaymentWhenNoAccountUsersAreProvided() {
+    // given
+    CsvEntrantPaymentRepository repository = new CsvEntrantPaymentRepository(jdbcTemplate);
+    List<CsvEntrantPayment> entrantPayments = new ArrayList<>();
+
+    // when
+    repository.forEachForAccountUsers(Collections.emptyList(), entrantPayments::add);
+
+    // then
+    assertThat(entrantPayments).isEmpty();
+  }
+
+  @Test
+  public void shouldThrowNullPointerExceptionWhenAccountUserIdsAreNull() {
+    // given
+    CsvEntrantPaymentRepository repository = new CsvEntrantPaymentRepository(jdbcTemplate);
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> repository.forEachForAccountUsers(null, entrantPayment -> {}));
+
+    // then
+    assertThat(throwable).isInstanceOf(NullPointerException.class)
+        .hasMessage("accountUserIds cannot be null");
+  }
+
+  @Test
+  public void shouldFindModificationsOfPaymentsMadeByAccountUsers() {
+    // given
+    PaymentDetailRepository repository = new PaymentDetailRepository(jdbcTemplate);
+    List<InternalPaymentStatus> statuses = Arrays
+        .asList(InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK);
+
+    // when
+    List<PaymentModification> modifications = repository.findAllForAccountUsersPaymentsHistory(
+        Arrays.asList(FIRST_USER_ID, SECOND_USER_ID), EntrantPaymentUpdateActor.LA, statuses);
+    List<PaymentModification> otherUserModifications = repository
+        .findAllForAccountUsersPaymentsHistory(Collections.singletonList(OTHER_USER_ID),
+            EntrantPaymentUpdateActor.LA, statuses);
+
+    // then
+    assertThat(modifications).hasSize(1);
+    PaymentModification modification = modifications.get(0);
+    assertThat(modification.getPaymentId()).isEqualTo(FIRST_USER_PAYMENT_ID);
+    assertThat(modification.getVrn()).isEqualTo("ND84VSX");
+    assertThat(modification.getTravelDate()).isEqualTo(LocalDate.of(2019, 11, 1));
+    assertThat(modification.getEntrantPaymentStatus()).isEqualTo("REFUNDED");
+    assertThat(modification.getCaseReference()).isEqualTo("case-1");
+    assertThat(otherUserModifications).isEmpty();
+  }
+
+  private static void insertTestData() {
+    jdbcTemplate.update(INSERT_PAYMENT_SQL, FIRST_USER_PAYMENT_ID, FIRST_USER_ID,
+        "ext-payment-id-1", 1600, "2019-11-23 20:38:08", "2019-11-23 20:39:08", 87);
+    jdbcTemplate.update(INSERT_PAYMENT_SQL, SECOND_USER_PAYMENT_ID, SECOND_USER_ID,
+        "ext-payment-id-2", 1100, "2019-11-24 20:38:08", "2019-11-24 20:39:08", 998);
+    UUID otherUserPaymentId = UUID.randomUUID();
+    jdbcTemplate.update(INSERT_PAYMENT_SQL, otherUserPaymentId, OTHER_USER_ID,
+        "ext-payment-id-3", 2800, "2019-11-25 20:38:08", "2019-11-25 20:39:08", 1881);
+
+    insertEntrantPayment(REFUNDED_ENTRANT_PAYMENT_ID, "ND84VSX", "2019-11-01", 800,
+        FIRST_USER_PAYMENT_ID);
+    insertEntrantPayment(UUID.randomUUID(), "OD84VSX", "2019-11-02", 800, FIRST_USER_PAYMENT_ID);
+    insertEntrantPayment(UUID.randomUUID(), "AB12CDE", "2019-11-03", 1100,
+        SECOND_USER_PAYMENT_ID);
+    insertEntrantPayment(UUID.randomUUID(), "RD84VSX", "2019-11-04", 2800, otherUserPaymentId);
+
+    // the audit triggers record the modification of the entrant payment
+    jdbcTemplate.update(REFUND_SQL, REFUNDED_ENTRANT_PAYMENT_ID);
+  }
+
+  private static void insertEntrantPayment(UUID entrantPaymentId, String vrn, String travelDate,
+      int charge, UUID paymentId) {
+    jdbcTemplate.update(INSERT_ENTRANT_PAYMENT_SQL, entrantPaymentId, vrn, CAZ_ID, travelDate,
+        charge);
+    jdbcTemplate.update(INSERT_MATCH_SQL, UUID.randomUUID(), entrantPaymentId, paymentId);
+  }
+}
@@ -3,18 +3,26 @@ package uk.gov.caz.psr.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.psr.model.Payment;
@@ -24,15 +32,24 @@ import uk.gov.caz.psr.util.TestObjectFactory.Payments;
 @ExtendWith(MockitoExtension.class)
 class CleanupDanglingPaymentsServiceTest {
 
+  private static final int PAGE_SIZE = 3;
+  private static final int CONCURRENCY = 2;
+  private static final long TIME_BUDGET_SECONDS = 600;
+
   @Mock
   private PaymentRepository paymentRepository;
 
   @Mock
   private CleanupDanglingPaymentService cleanupDanglingPaymentService;
 
-  @InjectMocks
   private CleanupDanglingPaymentsService service;
 
+  @BeforeEach
+  public void setUp() {
+    service = new CleanupDanglingPaymentsService(paymentRepository,
+        cleanupDanglingPaymentService, PAGE_SIZE, CONCURRENCY, TIME_BUDGET_SECONDS);
+  }
+
   @Test
   public void shouldNotUpdateAnyPaymentsWhenThereAreNonDanglingOnes() {
     // given
@@ -73,6 +90,94 @@ class CleanupDanglingPaymentsServiceTest {
         .processDanglingPayment(any());
   }
 
+  @Test
+  public void shouldFetchNextPageAfterLastPaymentOfFullPage() {
+    // given
+    List<Payment> firstPage = Arrays.asList(Payments.existing(), Payments.existing(),
+        Payments.existing());
+    Payment lastPayment = Payments.existing();
+    given(paymentRepository.findDanglingPayments(null, PAGE_SIZE)).willReturn(firstPage);
+    given(paymentRepository.findDanglingPayments(firstPage.get(2).getId(), PAGE_SIZE))
+        .willReturn(Collections.singletonList(lastPayment));
+
+    // when
+    service.updateStatusesOfDanglingPayments();
+
+    // then
+    verify(cleanupDanglingPaymentService, times(firstPage.size() + 1))
+        .processDanglingPayment(any());
+    verify(cleanupDanglingPaymentService).processDanglingPayment(lastPayment);
+    verify(paymentRepository, times(2)).findDanglingPayments(any(), anyInt());
+  }
+
+  @Test
+  public void shouldProcessPaymentsConcurrently() throws InterruptedException {
+    // given
+    thereAreDanglingPayments();
+    CountDownLatch bothStarted = new CountDownLatch(CONCURRENCY);
+    AtomicInteger concurrentlyProcessed = new AtomicInteger();
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    willAnswer(answer -> {
+      threadNames.add(Thread.currentThread().getName());
+      bothStarted.countDown();
+      if (bothStarted.await(5, TimeUnit.SECONDS)) {
+        concurrentlyProcessed.incrementAndGet();
+      }
+      return answer.getArgument(0);
+    }).given(cleanupDanglingPaymentService).processDanglingPayment(any());
+
+    // when
+    service.updateStatusesOfDanglingPayments();
+
+    // then
+    assertThat(concurrentlyProcessed).hasValue(PAGE_SIZE);
+    assertThat(threadNames).hasSize(CONCURRENCY)
+        .allSatisfy(threadName -> assertThat(threadName).startsWith("dangling-payments-"));
+  }
+
+  @Test
+  public void shouldNotProcessAnyPaymentsWhenTimeBudgetIsExceeded() {
+    // given
+    List<Payment> danglingPayments = Arrays.asList(Payments.existing(), Payments.existing(),
+        Payments.existing());
+    given(paymentRepository.findDanglingPayments(null, PAGE_SIZE)).willReturn(danglingPayments);
+
+    // when
+    service.updateStatusesOfDanglingPayments(Duration.ZERO);
+
+    // then
+    verify(cleanupDanglingPaymentService, never()).processDanglingPayment(any());
+    verify(paymentRepository, times(1)).findDanglingPayments(any(), anyInt());
+  }
+
+  @Test
+  public void shouldStopProcessingWhenTimeBudgetElapses() {
+    // given
+    thereAreDanglingPayments();
+    willAnswer(answer -> {
+      Thread.sleep(200);
+      return answer.getArgument(0);
+    }).given(cleanupDanglingPaymentService).processDanglingPayment(any());
+
+    // when
+    service.updateStatusesOfDanglingPayments(Duration.ofMillis(100));
+
+    // then
+    // the payments started before the time budget elapsed are allowed to finish
+    verify(cleanupDanglingPaymentService, times(CONCURRENCY)).processDanglingPayment(any());
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenConcurrencyIsNotPositive() {
+    // when
+    Throwable throwable = catchThrowable(() -> new CleanupDanglingPaymentsService(
+        paymentRepository, cleanupDanglingPaymentService, PAGE_SIZE, 0, TIME_BUDGET_SECONDS));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("concurrency must be positive");
+  }
+
   private void mockProcessingFailureOnSecondCall() {
     willAnswer(answer -> answer.getArgument(0))
         .willThrow(new RuntimeException(""))
@@ -83,11 +188,15 @@ class CleanupDanglingPaymentsServiceTest {
   private List<Payment> thereAreDanglingPayments() {
     List<Payment> payments = Arrays.asList(Payments.existing(), Payments.existing(),
         Payments.existing());
-    given(paymentRepository.findDanglingPayments()).willReturn(payments);
+    given(paymentRepository.findDanglingPayments(null, PAGE_SIZE)).willReturn(payments);
+    // the next page is not fetched once the time budget elapses
+    lenient().when(paymentRepository.findDanglingPayments(payments.get(2).getId(), PAGE_SIZE))
+        .thenReturn(Collections.emptyList());
     return payments;
   }
 
   private void thereAreNoDanglingPayments() {
-    given(paymentRepository.findDanglingPayments()).willReturn(Collections.emptyList());
+    given(paymentRepository.findDanglingPayments(null, PAGE_SIZE))
+        .willReturn(Collections.emptyList());
   }
-}
\ No newline at end of file
+}
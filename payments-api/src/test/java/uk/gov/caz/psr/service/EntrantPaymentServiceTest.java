@@ -1,9 +1,9 @@
 package uk.gov.caz.psr.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -13,8 +13,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -32,6 +32,7 @@ import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.model.PaymentMethod;
 import uk.gov.caz.psr.repository.EntrantPaymentRepository;
 import uk.gov.caz.psr.repository.PaymentRepository;
+import uk.gov.caz.psr.repository.exception.NotUniqueVehicleEntrantPaymentFoundException;
 import uk.gov.caz.psr.util.TestObjectFactory;
 
 @ExtendWith(MockitoExtension.class)
@@ -79,6 +80,64 @@ class EntrantPaymentServiceTest {
     assertThat(response).isEmpty();
   }
 
+  @Nested
+  public class WhenSeveralVehicleEntrantsAreProvided {
+
+    @Test
+    public void thenEntrantPaymentsShouldBeFetchedInsertedAndUpdatedInBatches() {
+      // given
+      VehicleEntrantDto existing = buildVehicleEntrantDto();
+      VehicleEntrantDto sameDayAgain = buildVehicleEntrantDtoForDate(
+          LocalDateTime.parse(ANY_TIMESTAMP).plusHours(1));
+      VehicleEntrantDto nextDay = buildVehicleEntrantDtoForDate(
+          LocalDateTime.parse(ANY_TIMESTAMP).plusDays(1));
+      cazEntrantPaymentDtos = Arrays.asList(existing, nextDay, sameDayAgain);
+      mockNonEmptyNotCapturedCazEntryPaymentRepositoryResponse();
+      EntrantPayment nextDayEntrantPayment = expectedEntrantPaymentInsert(nextDay,
+          nextDay.getCazEntryTimestamp());
+      when(entrantPaymentRepository.insert(Collections.singletonList(nextDayEntrantPayment)))
+          .thenReturn(Collections.singletonList(nextDayEntrantPayment.toBuilder()
+              .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
+              .build()));
+      mockMatchingPaymentWithPaymentMethod(PaymentMethod.DIRECT_DEBIT);
+
+      // when
+      callBulkProcess();
+
+      // then
+      assertThat(response)
+          .extracting(EntrantPaymentWithLatestPaymentDetailsDto::getEntrantPaymentId)
+          .containsExactly(ENTRANT_PAYMENT_ID, UUID.fromString(ANY_UUID), ENTRANT_PAYMENT_ID);
+      assertThat(response)
+          .extracting(EntrantPaymentWithLatestPaymentDetailsDto::getPaymentMethod)
+          .containsExactly(DIRECT_DEBIT_PAYMENT_METHOD, NULL_PAYMENT_METHOD,
+              DIRECT_DEBIT_PAYMENT_METHOD);
+      assertThat(response)
+          .extracting(EntrantPaymentWithLatestPaymentDetailsDto::getCazEntryTimestamp)
+          .containsExactly(existing.getCazEntryTimestamp(), nextDay.getCazEntryTimestamp(),
+              sameDayAgain.getCazEntryTimestamp());
+      verify(entrantPaymentRepository).findAllByCazIdAndVrnAndTravelDate(Arrays.asList(
+          buildCazEntrantPaymentToInsert(), nextDayEntrantPayment));
+      verify(entrantPaymentRepository).update(
+          Collections.singletonList(buildCazEntrantPayment(true, InternalPaymentStatus.PAID)));
+    }
+
+    @Test
+    public void thenExceptionShouldBeThrownWhenEntrantPaymentIsNotUnique() {
+      // given
+      when(entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(any()))
+          .thenReturn(Arrays.asList(buildCazEntrantPayment(true, InternalPaymentStatus.PAID),
+              buildCazEntrantPayment(true, InternalPaymentStatus.NOT_PAID)));
+
+      // when
+      Throwable throwable = catchThrowable(() -> callBulkProcess());
+
+      // then
+      assertThat(throwable).isInstanceOf(NotUniqueVehicleEntrantPaymentFoundException.class);
+      verify(entrantPaymentRepository, never()).insert(anyList());
+    }
+  }
+
   @Nested
   public class WhenEntrantPayment {
 
@@ -95,7 +154,8 @@ class EntrantPaymentServiceTest {
 
         // then
         assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, NULL_TARIFF_CODE);
-        verify(entrantPaymentRepository).insert(buildCazEntrantPaymentToInsert());
+        verify(entrantPaymentRepository)
+            .insert(Collections.singletonList(buildCazEntrantPaymentToInsert()));
         verifyNoInteractions(paymentRepository);
       }
 
@@ -110,20 +170,15 @@ class EntrantPaymentServiceTest {
           VehicleEntrantDto dto = buildVehicleEntrantDtoForDate(gmtTime);
           cazEntrantPaymentDtos = Arrays.asList(dto);
 
-          when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-              .thenReturn(Optional.empty());
-          when(entrantPaymentRepository.insert(any(EntrantPayment.class))).thenReturn(
-              buildCazEntrantPaymentToInsert().toBuilder()
-                  .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
-                  .build()
-          );
+          mockInsertionOf(expectedEntrantPaymentInsert(dto, ukTime));
 
           // when
           callBulkProcess();
 
           // then
           assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, NULL_TARIFF_CODE);
-          verify(entrantPaymentRepository).insert(expectedEntrantPaymentInsert(dto, ukTime));
+          verify(entrantPaymentRepository).insert(
+              Collections.singletonList(expectedEntrantPaymentInsert(dto, ukTime)));
         }
       }
 
@@ -137,20 +192,15 @@ class EntrantPaymentServiceTest {
           VehicleEntrantDto dto = buildVehicleEntrantDtoForDate(gmtTime);
           cazEntrantPaymentDtos = Arrays.asList(dto);
 
-          when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-              .thenReturn(Optional.empty());
-          when(entrantPaymentRepository.insert(any(EntrantPayment.class))).thenReturn(
-              buildCazEntrantPaymentToInsert().toBuilder()
-                  .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
-                  .build()
-          );
+          mockInsertionOf(expectedEntrantPaymentInsert(dto, gmtTime));
 
           // when
           callBulkProcess();
 
           // then
           assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, NULL_TARIFF_CODE);
-          verify(entrantPaymentRepository).insert(expectedEntrantPaymentInsert(dto, gmtTime));
+          verify(entrantPaymentRepository).insert(
+              Collections.singletonList(expectedEntrantPaymentInsert(dto, gmtTime)));
         }
       }
     }
@@ -175,7 +225,8 @@ class EntrantPaymentServiceTest {
 
             // then
             assertResponseProperties(PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, ANY_TARIFF_CODE);
-            verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+            verify(paymentRepository)
+                .findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID));
           }
         }
 
@@ -202,7 +253,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, CARD_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository)
+                  .findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
 
@@ -226,7 +278,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, CARD_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository)
+                  .findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
 
@@ -244,7 +297,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, CARD_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository)
+                  .findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
 
@@ -262,7 +316,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, DIRECT_DEBIT_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository)
+                  .findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
         }
@@ -299,13 +354,10 @@ class EntrantPaymentServiceTest {
 
           // then
           assertThat(response).isNotEmpty();
-          verify(entrantPaymentRepository).findOneByVrnAndCazEntryDate(
-              UUID.fromString(ANY_UUID),
-              ANY_VRN,
-              LocalDateTime.parse(ANY_TIMESTAMP).toLocalDate()
-          );
-          verify(entrantPaymentRepository)
-              .update(buildCazEntrantPayment(true, InternalPaymentStatus.PAID));
+          verify(entrantPaymentRepository).findAllByCazIdAndVrnAndTravelDate(
+              Collections.singletonList(buildCazEntrantPaymentToInsert()));
+          verify(entrantPaymentRepository).update(
+              Collections.singletonList(buildCazEntrantPayment(true, InternalPaymentStatus.PAID)));
         }
       }
 
@@ -322,49 +374,55 @@ class EntrantPaymentServiceTest {
 
           // then
           assertThat(response).isNotEmpty();
-          verify(entrantPaymentRepository).findOneByVrnAndCazEntryDate(
-              UUID.fromString(ANY_UUID),
-              ANY_VRN,
-              LocalDateTime.parse(ANY_TIMESTAMP).toLocalDate()
-          );
-          verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
-          verify(entrantPaymentRepository, never())
-              .update(buildCazEntrantPayment(true, InternalPaymentStatus.PAID));
+          verify(entrantPaymentRepository).findAllByCazIdAndVrnAndTravelDate(
+              Collections.singletonList(buildCazEntrantPaymentToInsert()));
+          verify(paymentRepository)
+              .findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID));
+          verify(entrantPaymentRepository, never()).update(anyList());
         }
       }
     }
   }
 
   private void mockEmptyCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.empty());
-    when(entrantPaymentRepository.insert(buildCazEntrantPaymentToInsert())).thenReturn(
-        buildCazEntrantPaymentToInsert().toBuilder()
+    mockInsertionOf(buildCazEntrantPaymentToInsert());
+  }
+
+  private void mockInsertionOf(EntrantPayment entrantPayment) {
+    when(entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(any()))
+        .thenReturn(Collections.emptyList());
+    when(entrantPaymentRepository.insert(Collections.singletonList(entrantPayment))).thenReturn(
+        Collections.singletonList(entrantPayment.toBuilder()
             .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
-            .build()
+            .build())
     );
   }
 
   private void mockNonEmptyPaidCapturedCazEntryInBritishTimeZonePaymentRepositoryResponse(
       LocalDate date) {
-    when(entrantPaymentRepository
-        .findOneByVrnAndCazEntryDate(any(UUID.class), anyString(), eq(date)))
-        .thenReturn(Optional.of(buildCazEntrantPayment(true, InternalPaymentStatus.PAID)));
+    when(entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(any()))
+        .thenReturn(Collections.singletonList(
+            buildCazEntrantPayment(true, InternalPaymentStatus.PAID).toBuilder()
+                .travelDate(date)
+                .build()));
   }
 
   private void mockNonEmptyPaidCapturedCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(true, InternalPaymentStatus.PAID)));
+    when(entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(any()))
+        .thenReturn(Collections.singletonList(
+            buildCazEntrantPayment(true, InternalPaymentStatus.PAID)));
   }
 
   private void mockNonEmptyCapturedNotPaidCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(true, InternalPaymentStatus.NOT_PAID)));
+    when(entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(any()))
+        .thenReturn(Collections.singletonList(
+            buildCazEntrantPayment(true, InternalPaymentStatus.NOT_PAID)));
   }
 
   private void mockNonEmptyNotCapturedCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(false, InternalPaymentStatus.PAID)));
+    when(entrantPaymentRepository.findAllByCazIdAndVrnAndTravelDate(any()))
+        .thenReturn(Collections.singletonList(
+            buildCazEntrantPayment(false, InternalPaymentStatus.PAID)));
   }
 
   private VehicleEntrantDto buildVehicleEntrantDto() {
@@ -427,15 +485,16 @@ class EntrantPaymentServiceTest {
   }
 
   private void mockNoMatchingPayment() {
-    when(paymentRepository.findByEntrantPayment(ENTRANT_PAYMENT_ID)).thenReturn(Optional.empty());
+    when(paymentRepository.findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID)))
+        .thenReturn(Collections.emptyMap());
   }
 
   private void mockMatchingPaymentWithPaymentMethod(PaymentMethod paymentMethod) {
     Payment payment = TestObjectFactory.Payments.existing().toBuilder()
         .paymentMethod(paymentMethod)
         .build();
-    when(paymentRepository.findByEntrantPayment(ENTRANT_PAYMENT_ID))
-        .thenReturn(Optional.of(payment));
+    when(paymentRepository.findByEntrantPayments(Collections.singletonList(ENTRANT_PAYMENT_ID)))
+        .thenReturn(Collections.singletonMap(ENTRANT_PAYMENT_ID, payment));
   }
 
   private void callBulkProcess() {
@@ -2,11 +2,15 @@ package uk.gov.caz.psr.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -68,14 +72,48 @@ class GetPaidEntrantPaymentsServiceTest {
     assertThat(result.get(ANY_VRN_2)).isNotEmpty();
   }
 
+  @Test
+  public void shouldFetchPaymentsOfAllVrnsWithSingleQueryAndGroupThemByVrn() {
+    // given
+    EntrantPayment firstPayment = buildEntrantPaymentForVrn(ANY_VRN_1);
+    EntrantPayment secondPayment = firstPayment.toBuilder()
+        .travelDate(LocalDate.of(2020, 1, 16))
+        .build();
+    when(entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(ANY_VRNS_LIST,
+        ANY_START_DATE, ANY_END_DATE, ANY_UUID))
+        .thenReturn(Arrays.asList(firstPayment, secondPayment));
+
+    // when
+    Map<String, List<EntrantPayment>> result = getPaidEntrantPaymentsService
+        .getResults(ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE, ANY_UUID);
+
+    // then
+    assertThat(result).containsOnlyKeys(ANY_VRN_1, ANY_VRN_2);
+    assertThat(result.get(ANY_VRN_1)).containsExactly(firstPayment, secondPayment);
+    assertThat(result.get(ANY_VRN_2)).isEmpty();
+    verify(entrantPaymentRepository, times(1))
+        .findAllPaidByVrnsAndDateRangeAndCazId(any(), any(), any(), any());
+  }
+
+  @Test
+  public void shouldNotCallDatabaseWhenNoVrnsAreProvided() {
+    // when
+    Map<String, List<EntrantPayment>> result = getPaidEntrantPaymentsService
+        .getResults(Collections.emptySet(), ANY_START_DATE, ANY_END_DATE, ANY_UUID);
+
+    // then
+    assertThat(result).isEmpty();
+    verifyNoInteractions(entrantPaymentRepository);
+  }
+
   private void mockEmptyResultFromEntrantPaymentRepository() {
-    when(entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(any(), any(), any(), any()))
-        .thenReturn(new ArrayList<>());
+    when(entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(any(), any(), any(),
+        any())).thenReturn(new ArrayList<>());
   }
 
   private void mockNonEmptyResultFromEntrantPaymentRepository() {
-    when(entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(any(), any(), any(), any()))
-        .thenReturn(buildMockedEntrantPaymentRepositoryResult());
+    when(entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(any(), any(), any(),
+        any())).thenReturn(buildMockedEntrantPaymentRepositoryResult());
   }
 
   private List<EntrantPayment> buildMockedEntrantPaymentRepositoryResult() {
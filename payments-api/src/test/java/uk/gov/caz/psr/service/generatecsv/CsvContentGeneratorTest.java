@@ -1,16 +1,36 @@
 package uk.gov.caz.psr.service.generatecsv;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.lenient;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import retrofit2.Response;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
 import uk.gov.caz.definitions.dto.CleanAirZonesDto;
+import uk.gov.caz.psr.dto.accounts.AccountUserResponse;
+import uk.gov.caz.psr.dto.accounts.AccountUsersResponse;
+import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
+import uk.gov.caz.psr.model.PaymentModification;
+import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.repository.VccsRepository;
 import uk.gov.caz.psr.repository.audit.PaymentDetailRepository;
@@ -22,6 +42,13 @@ class CsvContentGeneratorTest {
 
   private final static UUID CAZ_1_ID = UUID.randomUUID();
   private final static UUID CAZ_2_ID = UUID.randomUUID();
+  private static final UUID ACCOUNT_ID = UUID.randomUUID();
+  private static final UUID OWNER_ID = UUID.randomUUID();
+  private static final UUID USER_ID = UUID.randomUUID();
+  private static final UUID OWNER_PAYMENT_ID = UUID.randomUUID();
+  private static final UUID USER_PAYMENT_ID = UUID.randomUUID();
+  private static final String VRN = "CU57ABC";
+  private static final LocalDate TRAVEL_DATE = LocalDate.of(2020, 1, 15);
 
   private CsvContentGenerator csvGeneratorService;
 
@@ -47,6 +74,106 @@ class CsvContentGeneratorTest {
     mockClearAirZones();
   }
 
+  @Test
+  public void shouldPassHeaderAndRowsEnrichedWithModificationsOfTheirEntrantPayments() {
+    // given
+    mockAccountUsers();
+    mockCurrencyFormatter();
+    CsvEntrantPayment ownerPayment = entrantPayment(OWNER_ID, OWNER_PAYMENT_ID, CAZ_1_ID);
+    CsvEntrantPayment userPayment = entrantPayment(USER_ID, USER_PAYMENT_ID, CAZ_2_ID);
+    mockEntrantPayments(Arrays.asList(USER_ID, OWNER_ID), userPayment, ownerPayment);
+    given(paymentDetailRepository.findAllForAccountUsersPaymentsHistory(
+        eq(Arrays.asList(USER_ID, OWNER_ID)), eq(EntrantPaymentUpdateActor.LA), anyList()))
+        .willReturn(Arrays.asList(
+            modification(OWNER_PAYMENT_ID, "REFUNDED", LocalDateTime.of(2020, 3, 1, 10, 0)),
+            modification(OWNER_PAYMENT_ID, "CHARGEBACK", LocalDateTime.of(2020, 3, 2, 10, 0)),
+            modification(UUID.randomUUID(), "REFUNDED", LocalDateTime.of(2020, 3, 3, 10, 0))));
+    List<String> rows = new ArrayList<>();
+
+    // when
+    csvGeneratorService.generateCsvRows(ACCOUNT_ID, null, row -> rows.add(String.join(",", row)));
+
+    // then
+    assertThat(rows).hasSize(3);
+    assertThat(rows.get(0)).startsWith("Date of payment,Payment made by,Clean Air Zone");
+    assertThat(rows.get(1)).isEqualTo("2020-02-01,Jan Kowalski,Test,CU57ABC,2020-01-15,"
+        + "£8.00,87,ext-payment-id,1,£8.00,,,");
+    assertThat(rows.get(2)).isEqualTo("2020-02-01,Administrator,Birmingham,CU57ABC,2020-01-15,"
+        + "£8.00,87,ext-payment-id,1,£8.00,REFUNDED,2020-03-01,case-reference");
+  }
+
+  @Test
+  public void shouldExportOnlyPaymentsOfSelectedAccountUser() {
+    // given
+    mockAccountUsers();
+    mockEntrantPayments(Collections.singletonList(USER_ID));
+    given(paymentDetailRepository.findAllForAccountUsersPaymentsHistory(
+        eq(Collections.singletonList(USER_ID)), eq(EntrantPaymentUpdateActor.LA), anyList()))
+        .willReturn(Collections.emptyList());
+    List<String[]> rows = new ArrayList<>();
+
+    // when
+    csvGeneratorService.generateCsvRows(ACCOUNT_ID, USER_ID, rows::add);
+
+    // then
+    assertThat(rows).hasSize(1);
+  }
+
+  private void mockAccountUsers() {
+    AccountUsersResponse accountUsers = AccountUsersResponse.builder()
+        .users(Arrays.asList(
+            AccountUserResponse.builder().accountUserId(USER_ID).name("Jan Kowalski").build(),
+            AccountUserResponse.builder().accountUserId(OWNER_ID).owner(true).build()))
+        .build();
+    given(accountsRepository.getAllUsersSync(ACCOUNT_ID))
+        .willReturn(Response.success(accountUsers));
+  }
+
+  private void mockCurrencyFormatter() {
+    given(currencyFormatter.parsePennies(anyInt()))
+        .willAnswer(invocation -> invocation.getArgument(0, Integer.class) / 100.0);
+  }
+
+  private void mockEntrantPayments(List<UUID> accountUserIds,
+      CsvEntrantPayment... entrantPayments) {
+    willAnswer(invocation -> {
+      Consumer<CsvEntrantPayment> consumer = invocation.getArgument(1);
+      Arrays.stream(entrantPayments).forEach(consumer);
+      return null;
+    }).given(csvEntrantPaymentRepository).forEachForAccountUsers(eq(accountUserIds), any());
+  }
+
+  private static CsvEntrantPayment entrantPayment(UUID userId, UUID paymentId, UUID cazId) {
+    return CsvEntrantPayment.builder()
+        .entrantPaymentId(UUID.randomUUID())
+        .entrantPaymentMatchId(UUID.randomUUID())
+        .paymentId(paymentId)
+        .dateOfPayment(LocalDateTime.of(2020, 2, 1, 12, 0))
+        .userId(userId)
+        .cleanAirZoneId(cazId)
+        .vrn(VRN)
+        .travelDate(TRAVEL_DATE)
+        .charge(800)
+        .paymentReference("87")
+        .paymentProviderId("ext-payment-id")
+        .totalPaid(800)
+        .entriesCount(1)
+        .build();
+  }
+
+  private static PaymentModification modification(UUID paymentId, String status,
+      LocalDateTime modificationTimestamp) {
+    return PaymentModification.builder()
+        .paymentId(paymentId)
+        .vrn(VRN)
+        .travelDate(TRAVEL_DATE)
+        .amount(800)
+        .caseReference("case-reference")
+        .entrantPaymentStatus(status)
+        .modificationTimestamp(modificationTimestamp)
+        .build();
+  }
+
   private void mockClearAirZones() {
     CleanAirZoneDto caz1 = CleanAirZoneDto.builder()
         .cleanAirZoneId(CAZ_1_ID)
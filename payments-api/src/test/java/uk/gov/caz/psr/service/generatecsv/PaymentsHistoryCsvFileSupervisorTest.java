@@ -4,9 +4,15 @@ import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,7 +25,9 @@ import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.utils.IoUtils;
 import uk.gov.caz.psr.service.generatecsv.exception.CsvExportException;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +51,35 @@ class PaymentsHistoryCsvFileSupervisorTest {
   @InjectMocks
   private PaymentsHistoryCsvFileSupervisor csvFileSupervisor;
 
+  @Test
+  public void shouldStreamCsvContentToS3AndReturnPresignedUrl() throws Exception {
+    // given
+    mockData();
+    URL presignedUrl = new URL("https://s3.amazonaws.com/s3Bucket/filename");
+    willAnswer(invocation -> {
+      invocation.getArgument(0, Writer.class).write("header\n£8.00\n");
+      return null;
+    }).given(csvWriter).writeCsvContent(any(), any(), any());
+    given(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        .willAnswer(invocation -> {
+          RequestBody requestBody = invocation.getArgument(1);
+          try (InputStream content = requestBody.contentStreamProvider().newStream()) {
+            then(new String(IoUtils.toByteArray(content), StandardCharsets.UTF_8))
+                .isEqualTo("header\n£8.00\n");
+          }
+          return PutObjectResponse.builder().build();
+        });
+    given(csvUrlGenerator.getPresignedUrl(FILENAME)).willReturn(presignedUrl);
+
+    // when
+    URL url = csvFileSupervisor
+        .uploadCsvFileAndGetPresignedUrl(UUID.randomUUID(), UUID.randomUUID());
+
+    // then
+    then(url).isEqualTo(presignedUrl);
+    verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+  }
+
   @Test
   public void shouldThrowS3ExceptionsDuringUploadingCsv() throws IOException {
     // given
@@ -79,14 +116,13 @@ class PaymentsHistoryCsvFileSupervisorTest {
             "Exception while uploading file s3Bucket/filename");
   }
 
-  private void mockData() throws IOException {
+  private void mockData() {
     mockS3Bucket();
     mockGenerateFileName();
-    mockCreateWriterWithCsvContent();
   }
 
   private void mockIOException() throws IOException {
-    given(csvWriter.createWriterWithCsvContent(any(), any())).willThrow(IOException.class);
+    willThrow(IOException.class).given(csvWriter).writeCsvContent(any(), any(), any());
   }
 
   private void mockS3Bucket() {
@@ -106,10 +142,6 @@ class PaymentsHistoryCsvFileSupervisorTest {
     given(csvFileNameGenerator.generate(any())).willReturn(FILENAME);
   }
 
-  private void mockCreateWriterWithCsvContent() throws IOException {
-    given(csvWriter.createWriterWithCsvContent(any(), any())).willReturn(new StringWriter());
-  }
-
   private AwsErrorDetails getStubbedAwsErrorDetails() {
     return AwsErrorDetails
         .builder()
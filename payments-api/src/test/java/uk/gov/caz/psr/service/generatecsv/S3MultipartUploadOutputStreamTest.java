@@ -0,0 +1,181 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.utils.IoUtils;
+
+@ExtendWith(MockitoExtension.class)
+class S3MultipartUploadOutputStreamTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String KEY = "key.csv";
+  private static final String CONTENT_TYPE = "text/csv";
+  private static final String UPLOAD_ID = "upload-id";
+  private static final int PART_SIZE = 4;
+
+  @Mock
+  private S3Client s3Client;
+
+  private final List<String> uploadedContents = new ArrayList<>();
+
+  @Nested
+  class WhenContentFitsInSinglePart {
+
+    @Test
+    public void shouldPutObject() throws IOException {
+      // given
+      mockPutObject();
+      S3MultipartUploadOutputStream outputStream = createStream();
+
+      // when
+      outputStream.write("abc".getBytes(StandardCharsets.UTF_8));
+      outputStream.write('d');
+      outputStream.complete();
+      outputStream.close();
+
+      // then
+      ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+      verify(s3Client).putObject(request.capture(), any(RequestBody.class));
+      assertThat(request.getValue().bucket()).isEqualTo(BUCKET);
+      assertThat(request.getValue().key()).isEqualTo(KEY);
+      assertThat(request.getValue().contentType()).isEqualTo(CONTENT_TYPE);
+      assertThat(uploadedContents).containsExactly("abcd");
+      verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+  }
+
+  @Nested
+  class WhenContentExceedsSinglePart {
+
+    @Test
+    public void shouldUploadPartsAndCompleteMultipartUpload() throws IOException {
+      // given
+      mockMultipartUpload();
+      S3MultipartUploadOutputStream outputStream = createStream();
+
+      // when
+      outputStream.write("abcdefghij".getBytes(StandardCharsets.UTF_8), 0, 10);
+      outputStream.complete();
+
+      // then
+      assertThat(uploadedContents).containsExactly("abcd", "efgh", "ij");
+      ArgumentCaptor<CompleteMultipartUploadRequest> request = ArgumentCaptor
+          .forClass(CompleteMultipartUploadRequest.class);
+      verify(s3Client).completeMultipartUpload(request.capture());
+      assertThat(request.getValue().uploadId()).isEqualTo(UPLOAD_ID);
+      assertThat(request.getValue().multipartUpload().parts())
+          .extracting(CompletedPart::partNumber, CompletedPart::eTag)
+          .containsExactly(tuple(1, "etag-1"), tuple(2, "etag-2"), tuple(3, "etag-3"));
+      verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    public void shouldAbortMultipartUploadWhenClosedWithoutCompleting() throws IOException {
+      // given
+      mockMultipartUpload();
+      S3MultipartUploadOutputStream outputStream = createStream();
+      outputStream.write("abcdef".getBytes(StandardCharsets.UTF_8));
+
+      // when
+      outputStream.close();
+
+      // then
+      ArgumentCaptor<AbortMultipartUploadRequest> request = ArgumentCaptor
+          .forClass(AbortMultipartUploadRequest.class);
+      verify(s3Client).abortMultipartUpload(request.capture());
+      assertThat(request.getValue().uploadId()).isEqualTo(UPLOAD_ID);
+      assertThat(uploadedContents).containsExactly("abcd");
+      verify(s3Client, never())
+          .completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+  }
+
+  @Test
+  public void shouldNotUploadAnythingWhenClosedWithoutCompleting() throws IOException {
+    // given
+    S3MultipartUploadOutputStream outputStream = createStream();
+    outputStream.write("ab".getBytes(StandardCharsets.UTF_8));
+
+    // when
+    outputStream.close();
+
+    // then
+    verifyNoInteractions(s3Client);
+  }
+
+  @Test
+  public void shouldThrowIOExceptionWhenWritingToCompletedStream() throws IOException {
+    // given
+    mockPutObject();
+    S3MultipartUploadOutputStream outputStream = createStream();
+    outputStream.complete();
+
+    // when
+    Throwable throwable = catchThrowable(() -> outputStream.write('a'));
+
+    // then
+    assertThat(throwable).isInstanceOf(IOException.class).hasMessage("Stream closed");
+  }
+
+  private S3MultipartUploadOutputStream createStream() {
+    return new S3MultipartUploadOutputStream(s3Client, BUCKET, KEY, CONTENT_TYPE, PART_SIZE);
+  }
+
+  private void mockPutObject() {
+    given(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        .willAnswer(invocation -> {
+          uploadedContents.add(read(invocation.getArgument(1)));
+          return PutObjectResponse.builder().build();
+        });
+  }
+
+  private void mockMultipartUpload() {
+    given(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+        .willReturn(CreateMultipartUploadResponse.builder().uploadId(UPLOAD_ID).build());
+    given(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+        .willAnswer(invocation -> {
+          // the buffer is reused, hence the content has to be read during the call
+          uploadedContents.add(read(invocation.getArgument(1)));
+          UploadPartRequest request = invocation.getArgument(0);
+          return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        });
+  }
+
+  private static String read(RequestBody requestBody) {
+    try (InputStream content = requestBody.contentStreamProvider().newStream()) {
+      return new String(IoUtils.toByteArray(content), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
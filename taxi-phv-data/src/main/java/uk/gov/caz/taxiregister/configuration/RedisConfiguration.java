@@ -15,6 +15,8 @@ import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import uk.gov.caz.taxiregister.repository.LicenceCacheRepository;
+import uk.gov.caz.taxiregister.repository.RedisLicenceCacheRepository;
 
 @Configuration
 @EnableCaching
@@ -33,6 +35,9 @@ public class RedisConfiguration {
   @Value("${redis.ttl}")
   private Integer redisTtl;
 
+  @Value("${redis.maxTargetedEvictions}")
+  private Integer maxTargetedEvictions;
+
   /**
    * Customised redis template bean constructor.
    *
@@ -61,6 +66,20 @@ public class RedisConfiguration {
             .entryTtl(expiration)).build();
   }
 
+  /**
+   * Repository for evicting cached licences of given vehicles.
+   *
+   * @param redisConnectionFactory a configured redis connection factory.
+   * @param cacheManager a cache manager of the licences cache.
+   * @return A {@link LicenceCacheRepository} backed by redis.
+   */
+  @Bean
+  public LicenceCacheRepository licenceCacheRepository(
+      RedisConnectionFactory redisConnectionFactory, CacheManager cacheManager) {
+    return new RedisLicenceCacheRepository(redisConnectionFactory, cacheManager,
+        maxTargetedEvictions);
+  }
+
   /**
    * Customised lettuce connection factory for a clustered redis instance.
    *
@@ -0,0 +1,23 @@
+package uk.gov.caz.taxiregister.repository;
+
+import java.util.Set;
+
+/**
+ * Evicts licence information of vehicles cached by {@link
+ * uk.gov.caz.taxiregister.service.LookupService}.
+ */
+public interface LicenceCacheRepository {
+
+  /**
+   * Name of the cache which holds licence information keyed by VRM.
+   */
+  String CACHE_NAME = "vehicles";
+
+  /**
+   * Evicts cached licence information of given vehicles. Implementations may clear the whole
+   * cache instead if there are too many vehicles to be evicted one by one.
+   *
+   * @param vrms VRMs of vehicles whose licences have changed.
+   */
+  void evict(Set<String> vrms);
+}
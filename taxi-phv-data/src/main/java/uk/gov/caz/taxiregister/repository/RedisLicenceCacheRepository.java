@@ -0,0 +1,81 @@
+package uk.gov.caz.taxiregister.repository;
+
+import com.google.common.collect.Iterables;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * A class that is responsible for evicting licence information of vehicles from the redis cache.
+ * Keys are deleted with pipelined multi-key {@code DEL}s, if there are more than {@code
+ * maxTargetedEvictions} vehicles the whole cache is cleared instead.
+ */
+@Slf4j
+public class RedisLicenceCacheRepository implements LicenceCacheRepository {
+
+  static final int DELETE_BATCH_SIZE = 500;
+
+  private static final String KEY_PREFIX = CacheKeyPrefix.simple().compute(CACHE_NAME);
+
+  private final RedisConnectionFactory redisConnectionFactory;
+  private final CacheManager cacheManager;
+  private final int maxTargetedEvictions;
+
+  /**
+   * Creates the repository.
+   *
+   * @param redisConnectionFactory a configured redis connection factory.
+   * @param cacheManager Cache manager which manages the {@value #CACHE_NAME} cache.
+   * @param maxTargetedEvictions Maximum number of vehicles evicted one by one.
+   */
+  public RedisLicenceCacheRepository(RedisConnectionFactory redisConnectionFactory,
+      CacheManager cacheManager, int maxTargetedEvictions) {
+    this.redisConnectionFactory = redisConnectionFactory;
+    this.cacheManager = cacheManager;
+    this.maxTargetedEvictions = maxTargetedEvictions;
+  }
+
+  @Override
+  public void evict(Set<String> vrms) {
+    if (vrms.isEmpty()) {
+      return;
+    }
+    if (vrms.size() > maxTargetedEvictions) {
+      log.info("{} VRM(s) to be evicted exceed the limit of {}, clearing the whole cache",
+          vrms.size(), maxTargetedEvictions);
+      Cache cache = cacheManager.getCache(CACHE_NAME);
+      if (cache != null) {
+        cache.clear();
+      }
+      return;
+    }
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      connection.openPipeline();
+      for (List<String> batch : Iterables.partition(vrms, DELETE_BATCH_SIZE)) {
+        connection.keyCommands().del(keysOf(batch));
+      }
+      connection.closePipeline();
+    } finally {
+      connection.close();
+    }
+  }
+
+  static byte[] keyOf(String vrm) {
+    return (KEY_PREFIX + vrm).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[][] keysOf(List<String> vrms) {
+    byte[][] keys = new byte[vrms.size()][];
+    for (int i = 0; i < vrms.size(); i++) {
+      keys[i] = keyOf(vrms.get(i));
+    }
+    return keys;
+  }
+}
@@ -20,7 +20,6 @@ import java.util.Set;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -348,13 +347,4 @@ public class TaxiPhvLicencePostgresRepository {
     preparedStatement.setObject(++i, licence.getUploaderId());
     return i;
   }
-
-  /**
-   * Helper method for evicting a cached vehicles from redis.
-   */
-  @CacheEvict(value = "vehicles", allEntries = true)
-  public void cacheEvictLicensingRepository() {
-    log.debug(
-        "Evicting cached VRNs in response to a data upload being made by a third party");
-  }
 }
\ No newline at end of file
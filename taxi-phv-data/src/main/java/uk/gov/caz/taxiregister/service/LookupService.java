@@ -19,6 +19,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.taxiregister.model.TaxiPhvVehicleLicence;
 import uk.gov.caz.taxiregister.model.VehicleLicenceLookupInfo;
+import uk.gov.caz.taxiregister.repository.LicenceCacheRepository;
 import uk.gov.caz.taxiregister.repository.LicensingAuthorityPostgresRepository;
 import uk.gov.caz.taxiregister.repository.TaxiPhvLicencePostgresRepository;
 
@@ -41,7 +42,7 @@ public class LookupService {
    * @return {@link Optional#empty()} if vrm is absent in the database, {@link
    *     VehicleLicenceLookupInfo} wrapped in {@link Optional} otherwise.
    */
-  @Cacheable(value = "vehicles", key = "#vrm")
+  @Cacheable(value = LicenceCacheRepository.CACHE_NAME, key = "#vrm")
   public Optional<VehicleLicenceLookupInfo> getLicenceInfoBy(String vrm) {
     List<TaxiPhvVehicleLicence> licences = licencesRepository.findByVrm(vrm);
     if (licences.isEmpty()) {
@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.taxiregister.model.LicensingAuthority;
@@ -22,6 +23,7 @@ import uk.gov.caz.taxiregister.model.TaxiPhvVehicleLicence;
 import uk.gov.caz.taxiregister.model.ValidationError;
 import uk.gov.caz.taxiregister.model.VrmSet;
 import uk.gov.caz.taxiregister.repository.AuditingRepository;
+import uk.gov.caz.taxiregister.repository.LicenceCacheRepository;
 import uk.gov.caz.taxiregister.repository.TaxiPhvLicencePostgresRepository;
 
 /**
@@ -40,6 +42,7 @@ public class RegisterService {
   private final RegisterContextFactory registerContextFactory;
   private final VehicleComplianceCheckerService vehicleComplianceCheckerService;
   private final AuditingRepository auditingRepository;
+  private final ObjectProvider<LicenceCacheRepository> licenceCacheRepository;
 
   /**
    * Registers {@code licences} in the database for a given {@code uploaderId}.
@@ -177,7 +180,7 @@ public class RegisterService {
     log.info("Refreshing cache in NTR and VCCS: start");
     runAndSkipInCaseOfErrors("Refresh Cache", () -> {
       Stopwatch timer = Stopwatch.createStarted();
-      evictLicencesFromNtrInternalCache();
+      evictLicencesFromNtrInternalCache(affectedVrms);
       log.info("Evict Licences From Ntr Internal Cache took {}ms", 
                timer.elapsed(TimeUnit.MILLISECONDS));
       timer.reset().start();
@@ -208,7 +211,7 @@ public class RegisterService {
    *
    * @param affectedVrms Set of all VRMs affected by registration (inserted, deleted, updated).
    */
-  private void evictLicencesFromNtrInternalCache() {
+  private void evictLicencesFromNtrInternalCache(VrmSet affectedVrms) {
     /*
      *  Note that for all items below, cache eviction is made.
      *  Whilst an update would seem appropriate for the updated and inserted records,
@@ -217,7 +220,7 @@ public class RegisterService {
      *  and the cache is populated on first call to the controller for a given vrm.
      */
     log.info("Refreshing cache in NTR: start");
-    vehicleRepository.cacheEvictLicensingRepository();
+    licenceCacheRepository.ifAvailable(cache -> cache.evict(affectedVrms.getVrms()));
     log.info("Refreshing cache in NTR: finish");
   }
 
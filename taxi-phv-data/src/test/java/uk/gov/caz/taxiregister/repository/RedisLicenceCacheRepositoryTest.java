@@ -0,0 +1,110 @@
+package uk.gov.caz.taxiregister.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+
+@ExtendWith(MockitoExtension.class)
+class RedisLicenceCacheRepositoryTest {
+
+  private static final int MAX_TARGETED_EVICTIONS = 1000;
+
+  @Mock
+  private RedisConnectionFactory redisConnectionFactory;
+
+  @Mock
+  private RedisConnection redisConnection;
+
+  @Mock
+  private RedisKeyCommands keyCommands;
+
+  @Mock
+  private CacheManager cacheManager;
+
+  @Mock
+  private Cache cache;
+
+  private RedisLicenceCacheRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new RedisLicenceCacheRepository(redisConnectionFactory, cacheManager,
+        MAX_TARGETED_EVICTIONS);
+  }
+
+  @Test
+  void shouldUseKeysOfRedisCacheManager() {
+    assertThat(new String(RedisLicenceCacheRepository.keyOf("CAS310"), StandardCharsets.UTF_8))
+        .isEqualTo("vehicles::CAS310");
+  }
+
+  @Test
+  void shouldNotConnectToRedisWhenThereIsNothingToEvict() {
+    // when
+    repository.evict(Collections.emptySet());
+
+    // then
+    verifyZeroInteractions(redisConnectionFactory, cacheManager);
+  }
+
+  @Test
+  void shouldEvictGivenVehiclesWithPipelinedMultiKeyDeletes() {
+    // given
+    given(redisConnectionFactory.getConnection()).willReturn(redisConnection);
+    given(redisConnection.keyCommands()).willReturn(keyCommands);
+
+    // when
+    repository.evict(vrms(RedisLicenceCacheRepository.DELETE_BATCH_SIZE + 1));
+
+    // then
+    InOrder inOrder = inOrder(redisConnection, keyCommands);
+    inOrder.verify(redisConnection).openPipeline();
+    inOrder.verify(keyCommands, times(2)).del(any());
+    inOrder.verify(redisConnection).closePipeline();
+    inOrder.verify(redisConnection).close();
+    verify(keyCommands).del(RedisLicenceCacheRepository.keyOf("VRM500"));
+    verifyZeroInteractions(cacheManager);
+  }
+
+  @Test
+  void shouldClearWholeCacheWhenTooManyVehiclesAreToBeEvicted() {
+    // given
+    given(cacheManager.getCache(LicenceCacheRepository.CACHE_NAME)).willReturn(cache);
+
+    // when
+    repository.evict(vrms(MAX_TARGETED_EVICTIONS + 1));
+
+    // then
+    verify(cache).clear();
+    verify(redisConnectionFactory, never()).getConnection();
+  }
+
+  private static Set<String> vrms(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> "VRM" + i)
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+}
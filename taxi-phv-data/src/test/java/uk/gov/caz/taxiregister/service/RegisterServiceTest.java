@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -37,12 +38,14 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import uk.gov.caz.taxiregister.model.LicenseDates;
 import uk.gov.caz.taxiregister.model.LicensingAuthority;
 import uk.gov.caz.taxiregister.model.TaxiPhvVehicleLicence;
 import uk.gov.caz.taxiregister.model.ValidationError;
 import uk.gov.caz.taxiregister.model.VrmSet;
 import uk.gov.caz.taxiregister.repository.AuditingRepository;
+import uk.gov.caz.taxiregister.repository.LicenceCacheRepository;
 import uk.gov.caz.taxiregister.repository.TaxiPhvLicencePostgresRepository;
 import uk.gov.caz.taxiregister.service.RegisterService.RegisterContext;
 
@@ -64,6 +67,15 @@ class RegisterServiceTest {
   @Mock
   private VehicleComplianceCheckerService vehicleComplianceCheckerService;
 
+  @Mock
+  private ObjectProvider<LicenceCacheRepository> licenceCacheRepositoryProvider;
+
+  @Mock
+  private LicenceCacheRepository licenceCacheRepository;
+
+  @Captor
+  private ArgumentCaptor<Consumer<LicenceCacheRepository>> licenceCacheRepositoryCaptor;
+
   @InjectMocks
   private RegisterService registerService;
 
@@ -519,14 +531,17 @@ class RegisterServiceTest {
   }
 
   private void shouldRefreshCacheForVrms() {
-    verify(taxiPhvLicencePostgresRepository).cacheEvictLicensingRepository();
-
     verify(vehicleComplianceCheckerService).purgeCacheOfNtrData(vrmSetArgumentCaptor.capture());
     VrmSet actualAffectedVrmSet = vrmSetArgumentCaptor.getValue();
     assertThat(actualAffectedVrmSet).isNotNull();
+
+    verify(licenceCacheRepositoryProvider).ifAvailable(licenceCacheRepositoryCaptor.capture());
+    licenceCacheRepositoryCaptor.getValue().accept(licenceCacheRepository);
+    verify(licenceCacheRepository).evict(actualAffectedVrmSet.getVrms());
   }
 
   private void shouldNotTouchCache() {
     verifyZeroInteractions(vehicleComplianceCheckerService);
+    verifyZeroInteractions(licenceCacheRepositoryProvider);
   }
 }
\ No newline at end of file
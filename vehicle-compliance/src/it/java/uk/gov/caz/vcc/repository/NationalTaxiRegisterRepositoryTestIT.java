@@ -4,13 +4,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockserver.verify.VerificationTimes.atLeast;
 import static org.mockserver.verify.VerificationTimes.once;
 
+import java.util.Collections;
+import java.util.Optional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.mockserver.integration.ClientAndServer;
 import org.mockserver.verify.VerificationTimes;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import uk.gov.caz.vcc.annotation.IntegrationTest;
 import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
 import uk.gov.caz.vcc.util.MockServerTestIT;
@@ -33,7 +33,7 @@ public class NationalTaxiRegisterRepositoryTestIT extends MockServerTestIT {
       "/v1/vehicles/" + SECOND_VRN + "/licence-info";
 
   @Autowired
-  protected CacheManager cacheManager;
+  protected LicenseInfoCache licenseInfoCache;
 
   @Autowired
   private NationalTaxiRegisterRepository ntrRepository;
@@ -180,20 +180,20 @@ public class NationalTaxiRegisterRepositoryTestIT extends MockServerTestIT {
   }
 
   private void thenCacheShouldBeNotEmptyForFirstVrn() {
-    Cache licenseInfo = getLicenseInfoCache();
-    assertThat(licenseInfo.get(FIRST_VRN)).isNotNull();
+    Optional<TaxiPhvLicenseInformationResponse> cached = getCachedLicenseInfo(FIRST_VRN);
+    assertThat(cached).isPresent();
 
-    TaxiPhvLicenseInformationResponse actual = licenseInfo.get(FIRST_VRN, TaxiPhvLicenseInformationResponse.class);
+    TaxiPhvLicenseInformationResponse actual = cached.get();
     assertThat(actual.isActive()).isTrue();
     assertThat(actual.getWheelchairAccessible()).isTrue();
     assertThat(actual.getLicensingAuthoritiesNames()).contains("la-1", "la-2");
   }
 
   private void thenCacheShouldBeNotEmptyForSecondVrn() {
-    Cache licenseInfo = getLicenseInfoCache();
-    assertThat(licenseInfo.get(SECOND_VRN)).isNotNull();
+    Optional<TaxiPhvLicenseInformationResponse> cached = getCachedLicenseInfo(SECOND_VRN);
+    assertThat(cached).isPresent();
 
-    TaxiPhvLicenseInformationResponse actual = licenseInfo.get(SECOND_VRN, TaxiPhvLicenseInformationResponse.class);
+    TaxiPhvLicenseInformationResponse actual = cached.get();
     assertThat(actual.isActive()).isFalse();
     assertThat(actual.getWheelchairAccessible()).isTrue();
     assertThat(actual.getLicensingAuthoritiesNames()).contains("la-2", "la-3");
@@ -204,13 +204,12 @@ public class NationalTaxiRegisterRepositoryTestIT extends MockServerTestIT {
   }
 
   private void thenCacheShouldBeEmpty() {
-    Cache licenseInfo = getLicenseInfoCache();
-    assertThat(licenseInfo.get(FIRST_VRN)).isNull();
-    assertThat(licenseInfo.get(SECOND_VRN)).isNull();
+    assertThat(getCachedLicenseInfo(FIRST_VRN)).isNull();
+    assertThat(getCachedLicenseInfo(SECOND_VRN)).isNull();
   }
 
-  private Cache getLicenseInfoCache() {
-    return cacheManager.getCache("licenseInfo");
+  private Optional<TaxiPhvLicenseInformationResponse> getCachedLicenseInfo(String vrn) {
+    return licenseInfoCache.getAll(Collections.singleton(vrn)).get(vrn);
   }
 
   private void thenEvictCache() {
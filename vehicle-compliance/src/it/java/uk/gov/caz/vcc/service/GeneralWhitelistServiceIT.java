@@ -13,6 +13,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.gov.caz.vcc.annotation.IntegrationTest;
+import uk.gov.caz.vcc.domain.GeneralWhitelistIndex;
 import uk.gov.caz.vcc.domain.GeneralWhitelistVehicle;
 import uk.gov.caz.vcc.repository.GeneralWhitelistRepository;
 
@@ -74,7 +75,8 @@ public class GeneralWhitelistServiceIT {
         .asList(buildGeneralWhitelistVehicle(false, true));
 
     assertTrue(generalWhitelistService
-        .isOnGeneralPurposedWhitelistAndHasCategoryOther("CAS300", gpwVehicles));
+        .isOnGeneralPurposedWhitelistAndHasCategoryOther("CAS300",
+            GeneralWhitelistIndex.of(gpwVehicles)));
   }
 
   @Test
@@ -82,7 +84,8 @@ public class GeneralWhitelistServiceIT {
     List<GeneralWhitelistVehicle> gpwVehicles = Collections.emptyList();
 
     assertFalse(generalWhitelistService
-        .isOnGeneralPurposedWhitelistAndHasCategoryOther("CAS300", gpwVehicles));
+        .isOnGeneralPurposedWhitelistAndHasCategoryOther("CAS300",
+            GeneralWhitelistIndex.of(gpwVehicles)));
   }
 
   private GeneralWhitelistVehicle buildGeneralWhitelistVehicle(boolean isCompliant,
@@ -28,6 +28,8 @@ public class SqsTestUtility {
     ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(
         queueUrlResult.getQueueUrl());
     receiveMessageRequest.withMaxNumberOfMessages(10);
+    // messages are published asynchronously
+    receiveMessageRequest.withWaitTimeSeconds(5);
     ReceiveMessageResult receiveMessageResult = sqsClient.receiveMessage(receiveMessageRequest);
     return receiveMessageResult.getMessages();
   }
@@ -28,7 +28,9 @@ import java.util.Optional;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StreamUtils;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 import uk.gov.caz.vcc.Application;
+import uk.gov.caz.vcc.messaging.ReportingDataPublisher;
 import uk.gov.caz.vcc.util.VrnLogFormatter;
 
 /**
@@ -87,6 +89,20 @@ public class StreamLambdaHandler implements RequestStreamHandler {
       log.info("Processing API request");
       LambdaContainerStats.setLatestRequestTime(LocalDateTime.now());
       handler.proxyStream(toInputStream(inputBytes), outputStream, context);
+      flushReportingData(context);
+    }
+  }
+
+  /**
+   * Publishes reporting data buffered during the request, as the container may be frozen or
+   * disposed of once the invocation is finished.
+   */
+  private void flushReportingData(Context context) {
+    ReportingDataPublisher reportingDataPublisher = WebApplicationContextUtils
+        .getWebApplicationContext(handler.getServletContext())
+        .getBean(ReportingDataPublisher.class);
+    if (!reportingDataPublisher.flush(context.getRemainingTimeInMillis())) {
+      log.warn("Not all reporting data has been published before the end of the invocation");
     }
   }
 
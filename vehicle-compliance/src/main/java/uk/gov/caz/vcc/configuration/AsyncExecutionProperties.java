@@ -0,0 +1,59 @@
+package uk.gov.caz.vcc.configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import uk.gov.caz.async.rest.AsyncExecutionPolicy;
+import uk.gov.caz.async.rest.AsyncExecutionPolicy.AsyncExecutionPolicyBuilder;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
+
+/**
+ * Settings of {@link AsyncOpExecutor} instances used to call remote APIs, keyed by API name (e.g.
+ * 'dvla'). Values which are not set fall back to the defaults of {@link AsyncExecutionPolicy}.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "services.async-execution")
+public class AsyncExecutionProperties {
+
+  /**
+   * Per API settings.
+   */
+  private Map<String, ApiSettings> apis = new HashMap<>();
+
+  /**
+   * Returns {@link AsyncExecutionPolicy} of the given API.
+   */
+  AsyncExecutionPolicy policyFor(String apiName) {
+    ApiSettings settings = apis.getOrDefault(apiName, new ApiSettings());
+    AsyncExecutionPolicyBuilder builder = AsyncExecutionPolicy.builder();
+    Optional.ofNullable(settings.getMaxInFlight()).ifPresent(builder::maxInFlight);
+    Optional.ofNullable(settings.getHedgingEnabled()).ifPresent(builder::hedgingEnabled);
+    Optional.ofNullable(settings.getHedgingPercentile()).ifPresent(builder::hedgingPercentile);
+    Optional.ofNullable(settings.getMinHedgingDelayMillis())
+        .ifPresent(builder::minHedgingDelayMillis);
+    Optional.ofNullable(settings.getCircuitBreakerFailureThreshold())
+        .ifPresent(builder::circuitBreakerFailureThreshold);
+    Optional.ofNullable(settings.getCircuitBreakerOpenDurationMillis())
+        .ifPresent(builder::circuitBreakerOpenDurationMillis);
+    return builder.build();
+  }
+
+  /**
+   * Settings of a single API. A {@code null} value means 'use the default'.
+   */
+  @Setter
+  @Getter
+  public static class ApiSettings {
+
+    private Integer maxInFlight;
+    private Boolean hedgingEnabled;
+    private Double hedgingPercentile;
+    private Long minHedgingDelayMillis;
+    private Integer circuitBreakerFailureThreshold;
+    private Long circuitBreakerOpenDurationMillis;
+  }
+}
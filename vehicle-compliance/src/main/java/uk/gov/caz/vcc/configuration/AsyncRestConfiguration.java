@@ -3,18 +3,23 @@ package uk.gov.caz.vcc.configuration;
 import static java.util.Objects.requireNonNull;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
-import okhttp3.OkHttpClient.Builder;
 import okhttp3.Request;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
+import uk.gov.caz.async.rest.AsyncExecutionPolicy;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.async.rest.AsyncRestService;
 import uk.gov.caz.correlationid.Constants;
 import uk.gov.caz.correlationid.MdcCorrelationIdInjector;
@@ -33,6 +38,7 @@ import uk.gov.caz.vcc.service.VehicleEntrantsSequentialPaymentsDataSupplier;
  * Configuration to setup retrofit2 services.
  */
 @Configuration
+@EnableConfigurationProperties({HttpClientProperties.class, AsyncExecutionProperties.class})
 @Slf4j
 public class AsyncRestConfiguration {
 
@@ -60,12 +66,11 @@ public class AsyncRestConfiguration {
    */
   @Bean
   public Retrofit dvlaRetrofit(JacksonConverterFactory jacksonConverterFactory,
-      @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
+      SharedHttpClientFactory sharedHttpClientFactory) {
     return useRemoteApi
         ? new Retrofit.Builder()
             .baseUrl(requireNonNull(HttpUrl.parse(formatUrl(dvlaApiEndpoint))))
-            .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds))
+            .client(sharedHttpClientFactory.clientFor("dvla"))
             .addConverterFactory(jacksonConverterFactory).build()
         : new Retrofit.Builder().baseUrl("http://fake/").build();
   }
@@ -87,11 +92,10 @@ public class AsyncRestConfiguration {
    */
   @Bean
   public Retrofit ntrRetrofit(JacksonConverterFactory jacksonConverterFactory,
-      @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
+      SharedHttpClientFactory sharedHttpClientFactory) {
     return new Retrofit.Builder()
         .baseUrl(requireNonNull(HttpUrl.parse(formatUrl(ntrApiEndpoint))))
-        .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds))
+        .client(sharedHttpClientFactory.clientFor("ntr"))
         .addConverterFactory(jacksonConverterFactory)
         .build();
   }
@@ -103,15 +107,54 @@ public class AsyncRestConfiguration {
    */
   @Bean
   public Retrofit modRetrofit(JacksonConverterFactory jacksonConverterFactory,
-      @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
+      SharedHttpClientFactory sharedHttpClientFactory) {
     return new Retrofit.Builder()
         .baseUrl(requireNonNull(HttpUrl.parse(formatUrl(modApiEndpoint))))
-        .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds))
+        .client(sharedHttpClientFactory.clientFor("mod"))
         .addConverterFactory(jacksonConverterFactory)
         .build();
   }
 
+  /**
+   * Executor of asynchronous calls to DVLA API shared by all repositories calling it.
+   *
+   * @return {@link AsyncOpExecutor}
+   */
+  @Bean(destroyMethod = "shutdown")
+  public AsyncOpExecutor dvlaAsyncOpExecutor(AsyncExecutionProperties asyncExecutionProperties,
+      MeterRegistry meterRegistry) {
+    return asyncOpExecutor("dvla", asyncExecutionProperties, meterRegistry);
+  }
+
+  /**
+   * Executor of asynchronous calls to NTR API shared by all repositories calling it.
+   *
+   * @return {@link AsyncOpExecutor}
+   */
+  @Bean(destroyMethod = "shutdown")
+  public AsyncOpExecutor ntrAsyncOpExecutor(AsyncExecutionProperties asyncExecutionProperties,
+      MeterRegistry meterRegistry) {
+    return asyncOpExecutor("ntr", asyncExecutionProperties, meterRegistry);
+  }
+
+  /**
+   * Executor of asynchronous calls to MOD API shared by all repositories calling it.
+   *
+   * @return {@link AsyncOpExecutor}
+   */
+  @Bean(destroyMethod = "shutdown")
+  public AsyncOpExecutor modAsyncOpExecutor(AsyncExecutionProperties asyncExecutionProperties,
+      MeterRegistry meterRegistry) {
+    return asyncOpExecutor("mod", asyncExecutionProperties, meterRegistry);
+  }
+
+  private static AsyncOpExecutor asyncOpExecutor(String apiName,
+      AsyncExecutionProperties asyncExecutionProperties, MeterRegistry meterRegistry) {
+    AsyncExecutionPolicy policy = asyncExecutionProperties.policyFor(apiName);
+    log.info("Async execution policy of '{}' API: {}", apiName, policy);
+    return new AsyncOpExecutor(apiName, policy, meterRegistry);
+  }
+
   /**
    * NtrRepository spring bean.
    *
@@ -135,15 +178,14 @@ public class AsyncRestConfiguration {
   public PaymentsService paymentsService(
       @Value("${services.payments.enabled:false}") boolean paymentsEnabled,
       @Value("${services.payments.root-url}") String paymentsApiEndpoint,
-      @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds,
+      SharedHttpClientFactory sharedHttpClientFactory,
       AsyncRestService asyncRestService,
       JacksonConverterFactory jacksonConverterFactory) {
     log.info("Payments service configuration: root url '{}', enabled '{}'", paymentsApiEndpoint,
         paymentsEnabled);
     if (paymentsEnabled) {
       PaymentsRepository paymentsRepository = paymentsRepository(paymentsApiEndpoint,
-          readTimeoutSeconds, connectTimeoutSeconds, jacksonConverterFactory);
+          sharedHttpClientFactory.clientFor("payments"), jacksonConverterFactory);
       return new RemotePaymentsService(paymentsRepository, asyncRestService);
     }
     log.info("Integration with PSR is DISABLED, creating a no-op payments service");
@@ -171,11 +213,10 @@ public class AsyncRestConfiguration {
    * @return {@link PaymentsRepository}
    */
   private PaymentsRepository paymentsRepository(String paymentsApiEndpoint,
-      int readTimeoutSeconds, int connectTimeoutSeconds,
-      JacksonConverterFactory jacksonConverterFactory) {
+      OkHttpClient httpClient, JacksonConverterFactory jacksonConverterFactory) {
     return new Retrofit.Builder()
         .baseUrl(requireNonNull(HttpUrl.parse(formatUrl(paymentsApiEndpoint))))
-        .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds))
+        .client(httpClient)
         .addConverterFactory(jacksonConverterFactory)
         .build()
         .create(PaymentsRepository.class);
@@ -209,33 +250,54 @@ public class AsyncRestConfiguration {
    */
   @Bean
   public Retrofit tariffRetrofit(JacksonConverterFactory jacksonConverterFactory,
-      @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
+      SharedHttpClientFactory sharedHttpClientFactory) {
     return new Retrofit.Builder()
         .baseUrl(requireNonNull(HttpUrl.parse(formatUrl(tariffApiEndpoint))))
-        .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds))
+        .client(sharedHttpClientFactory.clientFor("tariff"))
         .addConverterFactory(jacksonConverterFactory)
         .build();
   }
 
   /**
-   * Helper method to build HttpClient for the request.
+   * Factory of HTTP clients used by all retrofit2 services. Clients share timeouts, the
+   * correlation-id interceptor, the dispatcher executor and the connection pool.
    *
-   * @return OkHttpClient with all needed attributes.
+   * @return {@link SharedHttpClientFactory}
    */
-  private OkHttpClient buildHttpClient(int readTimeoutInSeconds, int connectTimeoutInSeconds) {
-    return new Builder()
-        .readTimeout(readTimeoutInSeconds, TimeUnit.SECONDS)
-        .connectTimeout(connectTimeoutInSeconds, TimeUnit.SECONDS)
-        .addInterceptor(chain -> {
-          Request original = chain.request();
-          Request withCorrelationIdHeader = original.newBuilder()
-              .header(Constants.X_CORRELATION_ID_HEADER, getOrGenerateCorrelationId(
-                  MdcCorrelationIdInjector.getCurrentValue()))
-              .build();
-          return chain.proceed(withCorrelationIdHeader);
-        })
-        .build();
+  @Bean(destroyMethod = "shutdown")
+  public SharedHttpClientFactory sharedHttpClientFactory(HttpClientProperties httpClientProperties,
+      @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
+      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
+    return new SharedHttpClientFactory(httpClientProperties, readTimeoutSeconds,
+        connectTimeoutSeconds, Collections.singletonList(correlationIdInterceptor()));
+  }
+
+  /**
+   * Exposes connection pool and dispatcher queue statistics of HTTP clients under the
+   * 'httpClients' key of the info endpoint.
+   *
+   * @return {@link InfoContributor}
+   */
+  @Bean
+  public InfoContributor httpClientsInfoContributor(
+      SharedHttpClientFactory sharedHttpClientFactory) {
+    return builder -> builder.withDetail("httpClients", sharedHttpClientFactory.statistics());
+  }
+
+  /**
+   * Helper method to build an interceptor which adds correlation id header to every request.
+   *
+   * @return {@link Interceptor}
+   */
+  private Interceptor correlationIdInterceptor() {
+    return chain -> {
+      Request original = chain.request();
+      Request withCorrelationIdHeader = original.newBuilder()
+          .header(Constants.X_CORRELATION_ID_HEADER, getOrGenerateCorrelationId(
+              MdcCorrelationIdInjector.getCurrentValue()))
+          .build();
+      return chain.proceed(withCorrelationIdHeader);
+    };
   }
 
   /**
@@ -0,0 +1,87 @@
+package uk.gov.caz.vcc.configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of HTTP clients used to call remote APIs. Top-level values are the defaults shared by
+ * all APIs, entries in {@code apis} (keyed by API name, e.g. 'dvla') override them per API.
+ */
+@Setter
+@Getter
+@ConfigurationProperties(prefix = "services.http-client")
+public class HttpClientProperties {
+
+  /**
+   * Maximum number of requests executed concurrently by a single API client.
+   */
+  private int maxRequests = 64;
+
+  /**
+   * Maximum number of requests executed concurrently to a single host. OkHttp defaults to 5 which
+   * silently caps any fan-out configured elsewhere.
+   */
+  private int maxRequestsPerHost = 20;
+
+  /**
+   * Maximum number of idle connections kept in the connection pool.
+   */
+  private int maxIdleConnections = 10;
+
+  /**
+   * Time after which an idle connection is evicted from the connection pool.
+   */
+  private long keepAliveSeconds = 300;
+
+  /**
+   * Whether HTTP/2 may be negotiated with remote APIs.
+   */
+  private boolean http2Enabled = true;
+
+  /**
+   * Per API overrides of the above settings.
+   */
+  private Map<String, ApiSettings> apis = new HashMap<>();
+
+  /**
+   * Returns settings of the given API with unset values taken from the defaults.
+   */
+  ApiSettings settingsFor(String apiName) {
+    ApiSettings overrides = apis.getOrDefault(apiName, new ApiSettings());
+    ApiSettings settings = new ApiSettings();
+    settings.setMaxRequests(valueOrDefault(overrides.getMaxRequests(), maxRequests));
+    settings.setMaxRequestsPerHost(
+        valueOrDefault(overrides.getMaxRequestsPerHost(), maxRequestsPerHost));
+    settings.setMaxIdleConnections(overrides.getMaxIdleConnections());
+    settings.setKeepAliveSeconds(overrides.getKeepAliveSeconds());
+    settings.setHttp2Enabled(valueOrDefault(overrides.getHttp2Enabled(), http2Enabled));
+    return settings;
+  }
+
+  private static <T> T valueOrDefault(T value, T defaultValue) {
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Settings of a single API client. A {@code null} value means 'use the default'. When either of
+   * connection pool settings is set, the API gets its own connection pool instead of the shared
+   * one.
+   */
+  @Setter
+  @Getter
+  public static class ApiSettings {
+
+    private Integer maxRequests;
+    private Integer maxRequestsPerHost;
+    private Integer maxIdleConnections;
+    private Long keepAliveSeconds;
+    private Boolean http2Enabled;
+
+    boolean hasOwnConnectionPool() {
+      return maxIdleConnections != null || keepAliveSeconds != null;
+    }
+  }
+}
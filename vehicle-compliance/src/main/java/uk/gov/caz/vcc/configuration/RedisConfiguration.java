@@ -1,6 +1,10 @@
 package uk.gov.caz.vcc.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -13,9 +17,17 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import uk.gov.caz.common.cache.TwoLevelCacheManager;
+import uk.gov.caz.vcc.repository.LicenseInfoCache;
+import uk.gov.caz.vcc.repository.RedisLicenseInfoCache;
 
 /**
  * Configuration class for integrating a clustered Redis instance
@@ -30,6 +42,14 @@ import org.springframework.data.redis.core.RedisTemplate;
     matchIfMissing = false)
 public class RedisConfiguration {
 
+  /**
+   * Caches which are read on almost every request and hold only a handful of rarely changing
+   * entries, hence are additionally held in memory of every instance.
+   */
+  private static final List<String> NEAR_CACHE_NAMES = Arrays.asList("cleanAirZones", "tariffs");
+
+  private static final String NEAR_CACHE_INVALIDATION_CHANNEL = "nearCacheInvalidation";
+
   @Value("${redis.endpoint}")
   private String redisClusterEndpoint;
 
@@ -42,8 +62,34 @@ public class RedisConfiguration {
   @Value("${redis.licenseinfo.ttlInHours}")
   private Integer licenseInfoRedisTtl;
 
+  @Value("${redis.licenseinfo.maxTargetedEvictions}")
+  private Integer licenseInfoMaxTargetedEvictions;
+
   @Value("${redis.authToken.ttlInMinutes}")
   private Integer authTokenTtl;
+
+  @Value("${redis.serializer:smile}")
+  private String serializer;
+
+  @Value("${redis.nearCache.ttlInMinutes}")
+  private Integer nearCacheTtl;
+
+  @Value("${redis.nearCache.maximumSize}")
+  private Integer nearCacheMaximumSize;
+
+  /**
+   * Serializer of values stored by all caches: the compact {@link SmileRedisSerializer} unless
+   * {@code redis.serializer} is set to {@code jdk}.
+   *
+   * @return A serializer of cached values.
+   */
+  @Bean
+  public RedisSerializer<Object> cacheValueSerializer() {
+    if ("jdk".equalsIgnoreCase(serializer)) {
+      return RedisSerializer.java();
+    }
+    return new SmileRedisSerializer();
+  }
   
   /**
    * Customised redis template bean constructor.
@@ -60,34 +106,74 @@ public class RedisConfiguration {
   }
 
   /**
-   * Custom bean for applying a TTL to redis values.
+   * Custom bean for applying a TTL to redis values. Clean air zones and tariffs are additionally
+   * cached in memory in front of redis.
    *
    * @param redisConnectionFactory a configured redis connection factory.
+   * @param cacheValueSerializer a serializer of cached values.
+   * @param meterRegistry a registry of near cache metrics.
    * @return A customised cache manager instance with a ttl applied
    */
   @Primary
   @Bean
-  public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+  public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+      RedisSerializer<Object> cacheValueSerializer, MeterRegistry meterRegistry) {
     Duration expiration = Duration.ofHours(redisTtl);
-    return RedisCacheManager.builder(redisConnectionFactory)
-        .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(expiration)).build();
+    RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+        .cacheDefaults(cacheConfiguration(expiration, cacheValueSerializer)).build();
+    return new TwoLevelCacheManager(redisCacheManager, NEAR_CACHE_NAMES, nearCacheMaximumSize,
+        Duration.ofMinutes(nearCacheTtl), meterRegistry,
+        cacheName -> publishNearCacheInvalidation(redisConnectionFactory, cacheName));
   }
-  
+
   /**
-   * Custom Cache Manager for managing LicenseInfo cache.
+   * Listens to evictions of near caches made by other instances. The subscription holds a redis
+   * connection for the life of the instance, when disabled with {@code
+   * redis.nearCache.invalidationListenerEnabled} near caches see changes made by other instances
+   * only after {@code redis.nearCache.ttlInMinutes}.
    *
    * @param redisConnectionFactory a configured redis connection factory.
-   * @return A customised cache manager instance
+   * @param cacheManager the cache manager holding near caches.
+   * @return A container of the listener.
    */
   @Bean
-  public CacheManager licenseInfoCacheManager(RedisConnectionFactory redisConnectionFactory) {
-    Duration expiration = Duration.ofHours(licenseInfoRedisTtl);
-    return RedisCacheManager.builder(redisConnectionFactory)
-        .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(expiration)).build();
+  @ConditionalOnProperty(value = "redis.nearCache.invalidationListenerEnabled",
+      havingValue = "true", matchIfMissing = true)
+  public RedisMessageListenerContainer nearCacheInvalidationListenerContainer(
+      RedisConnectionFactory redisConnectionFactory, TwoLevelCacheManager cacheManager) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(redisConnectionFactory);
+    container.addMessageListener((message, pattern) -> cacheManager.invalidateNearCache(
+        new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(NEAR_CACHE_INVALIDATION_CHANNEL));
+    return container;
+  }
+
+  private static void publishNearCacheInvalidation(RedisConnectionFactory redisConnectionFactory,
+      String cacheName) {
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      connection.publish(NEAR_CACHE_INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+          cacheName.getBytes(StandardCharsets.UTF_8));
+    } finally {
+      connection.close();
+    }
   }
   
+  /**
+   * LicenseInfo cache with bulk reads, writes and targeted evictions.
+   *
+   * @param redisConnectionFactory a configured redis connection factory.
+   * @param cacheValueSerializer a serializer of cached values.
+   * @return A {@link LicenseInfoCache} backed by redis.
+   */
+  @Bean
+  public LicenseInfoCache licenseInfoCache(RedisConnectionFactory redisConnectionFactory,
+      RedisSerializer<Object> cacheValueSerializer) {
+    return new RedisLicenseInfoCache(redisConnectionFactory, cacheValueSerializer,
+        Duration.ofHours(licenseInfoRedisTtl), licenseInfoMaxTargetedEvictions);
+  }
+
   /**
    * Custom Cache Manager for managing oAuth tokens.
    *
@@ -95,11 +181,18 @@ public class RedisConfiguration {
    * @return A customised cache manager instance
    */
   @Bean
-  public CacheManager authTokenCacheManager(RedisConnectionFactory redisConnectionFactory) {
+  public CacheManager authTokenCacheManager(RedisConnectionFactory redisConnectionFactory,
+      RedisSerializer<Object> cacheValueSerializer) {
     Duration expiration = Duration.ofMinutes(authTokenTtl);
     return RedisCacheManager.builder(redisConnectionFactory)
-        .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(expiration)).build();
+        .cacheDefaults(cacheConfiguration(expiration, cacheValueSerializer)).build();
+  }
+
+  private static RedisCacheConfiguration cacheConfiguration(Duration expiration,
+      RedisSerializer<Object> cacheValueSerializer) {
+    return RedisCacheConfiguration.defaultCacheConfig()
+        .entryTtl(expiration)
+        .serializeValuesWith(SerializationPair.fromSerializer(cacheValueSerializer));
   }
 
   /**
@@ -0,0 +1,132 @@
+package uk.gov.caz.vcc.configuration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import uk.gov.caz.vcc.configuration.HttpClientProperties.ApiSettings;
+
+/**
+ * Creates {@link OkHttpClient}s for remote APIs. All clients are derived from one core client, so
+ * they share timeouts, interceptors, the thread pool executing asynchronous calls and (unless an
+ * API is configured with its own) the connection pool, which lets calls to different APIs reuse
+ * warm connections instead of each client paying for its own TCP/TLS handshakes.
+ */
+@Slf4j
+public class SharedHttpClientFactory {
+
+  private final HttpClientProperties properties;
+  private final OkHttpClient coreClient;
+  private final ExecutorService executorService;
+  private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the factory with the given settings, timeouts and interceptors applied to every
+   * client.
+   */
+  public SharedHttpClientFactory(HttpClientProperties properties, int readTimeoutSeconds,
+      int connectTimeoutSeconds, List<Interceptor> interceptors) {
+    this.properties = properties;
+    this.executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), new ThreadFactoryBuilder()
+        .setNameFormat("okhttp-dispatcher-%d")
+        .setDaemon(true)
+        .build());
+    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+        .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+        .connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+        .connectionPool(new ConnectionPool(properties.getMaxIdleConnections(),
+            properties.getKeepAliveSeconds(), TimeUnit.SECONDS));
+    interceptors.forEach(builder::addInterceptor);
+    this.coreClient = builder.build();
+  }
+
+  /**
+   * Returns the client for the given API, creating it on the first call.
+   */
+  public OkHttpClient clientFor(String apiName) {
+    return clients.computeIfAbsent(apiName, this::createClient);
+  }
+
+  /**
+   * Returns current connection pool and dispatcher queue statistics of every created client keyed
+   * by API name.
+   */
+  public Map<String, HttpClientStatistics> statistics() {
+    Map<String, HttpClientStatistics> statistics = new TreeMap<>();
+    clients.forEach((apiName, client) -> statistics.put(apiName, HttpClientStatistics.of(client)));
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  /**
+   * Shuts down the shared executor and evicts all idle connections.
+   */
+  public void shutdown() {
+    executorService.shutdown();
+    coreClient.connectionPool().evictAll();
+    clients.values().forEach(client -> client.connectionPool().evictAll());
+  }
+
+  private OkHttpClient createClient(String apiName) {
+    ApiSettings settings = properties.settingsFor(apiName);
+    Dispatcher dispatcher = new Dispatcher(executorService);
+    dispatcher.setMaxRequests(settings.getMaxRequests());
+    dispatcher.setMaxRequestsPerHost(settings.getMaxRequestsPerHost());
+
+    OkHttpClient.Builder builder = coreClient.newBuilder()
+        .dispatcher(dispatcher)
+        .protocols(settings.getHttp2Enabled()
+            ? ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+            : ImmutableList.of(Protocol.HTTP_1_1));
+    if (settings.hasOwnConnectionPool()) {
+      builder.connectionPool(new ConnectionPool(
+          valueOrDefault(settings.getMaxIdleConnections(), properties.getMaxIdleConnections()),
+          valueOrDefault(settings.getKeepAliveSeconds(), properties.getKeepAliveSeconds()),
+          TimeUnit.SECONDS));
+    }
+    log.info("Created HTTP client for '{}': max requests {}, max requests per host {}, "
+            + "HTTP/2 {}, dedicated connection pool {}", apiName, settings.getMaxRequests(),
+        settings.getMaxRequestsPerHost(), settings.getHttp2Enabled(),
+        settings.hasOwnConnectionPool());
+    return builder.build();
+  }
+
+  private static <T> T valueOrDefault(T value, T defaultValue) {
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Snapshot of connection pool and dispatcher queue of a single client. Connection counts refer
+   * to the whole pool, which may be shared with other clients.
+   */
+  @Value
+  public static class HttpClientStatistics {
+
+    int connectionCount;
+    int idleConnectionCount;
+    int runningCallsCount;
+    int queuedCallsCount;
+
+    static HttpClientStatistics of(OkHttpClient client) {
+      return new HttpClientStatistics(
+          client.connectionPool().connectionCount(),
+          client.connectionPool().idleConnectionCount(),
+          client.dispatcher().runningCallsCount(),
+          client.dispatcher().queuedCallsCount());
+    }
+  }
+}
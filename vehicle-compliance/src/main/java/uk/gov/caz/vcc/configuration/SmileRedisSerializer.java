@@ -0,0 +1,168 @@
+package uk.gov.caz.vcc.configuration;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link RedisSerializer} which stores cached values in the binary JSON format (Smile) as a two
+ * element array of the class name and the value itself. Compared to the JDK serialization the
+ * payload does not contain class descriptors of the whole object graph, which makes it several
+ * times smaller and faster to read.
+ *
+ * <p>Values are mapped by their fields, so getters and Jackson annotations meant for the REST
+ * API (e.g. date formats) do not change the cached state. Unknown properties are ignored and
+ * missing ones are left unset, hence entries written by a previous version of a class can still
+ * be read. Entries which cannot be read at all are treated as cache misses.</p>
+ *
+ * <p>Values written with the JDK serialization (i.e. before this serializer was introduced) are
+ * still readable until they expire.</p>
+ */
+@Slf4j
+public class SmileRedisSerializer implements RedisSerializer<Object> {
+
+  private static final byte[] EMPTY_ARRAY = new byte[0];
+  private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+  private static final String NULL_VALUE_TYPE = "null";
+  private static final String ALLOWED_PACKAGE = "uk.gov.caz.";
+
+  private final ObjectMapper objectMapper;
+  private final RedisSerializer<Object> legacySerializer = RedisSerializer.java();
+
+  /**
+   * Creates the serializer.
+   */
+  public SmileRedisSerializer() {
+    this.objectMapper = new ObjectMapper(new SmileFactory())
+        .setAnnotationIntrospector(new IgnoringFormatsAnnotationIntrospector())
+        .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+        .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+        .setVisibility(PropertyAccessor.CREATOR, Visibility.ANY)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .registerModule(new JavaTimeModule());
+  }
+
+  @Override
+  public byte[] serialize(Object value) {
+    if (value == null) {
+      return EMPTY_ARRAY;
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+      generator.writeStartArray();
+      if (value instanceof NullValue) {
+        generator.writeString(NULL_VALUE_TYPE);
+      } else {
+        generator.writeString(value.getClass().getName());
+        generator.writeObject(value);
+      }
+      generator.writeEndArray();
+    } catch (IOException e) {
+      throw new SerializationException("Cannot serialize " + value.getClass().getName(), e);
+    }
+    return output.toByteArray();
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    if (!isSmile(bytes)) {
+      return deserializeLegacy(bytes);
+    }
+    try (JsonParser parser = objectMapper.getFactory().createParser(bytes)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY
+          || parser.nextToken() != JsonToken.VALUE_STRING) {
+        log.warn("Ignoring cached value in an unexpected format");
+        return null;
+      }
+      String typeName = parser.getText();
+      if (NULL_VALUE_TYPE.equals(typeName)) {
+        return NullValue.INSTANCE;
+      }
+      Class<?> type = resolve(typeName);
+      if (type == null) {
+        return null;
+      }
+      parser.nextToken();
+      return objectMapper.readValue(parser, type);
+    } catch (IOException e) {
+      log.warn("Ignoring cached value which cannot be deserialized: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Reads a value written with the JDK serialization, returns null if it cannot be read (e.g. the
+   * class has changed incompatibly since).
+   */
+  private Object deserializeLegacy(byte[] bytes) {
+    try {
+      return legacySerializer.deserialize(bytes);
+    } catch (SerializationException e) {
+      log.warn("Ignoring legacy cached value which cannot be deserialized: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Resolves the class of a cached value, only classes of this service and {@link String} are
+   * allowed.
+   */
+  private Class<?> resolve(String typeName) {
+    if (!typeName.startsWith(ALLOWED_PACKAGE) && !String.class.getName().equals(typeName)) {
+      log.warn("Ignoring cached value of a disallowed type '{}'", typeName);
+      return null;
+    }
+    try {
+      return ClassUtils.forName(typeName, getClass().getClassLoader());
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.warn("Ignoring cached value of an unknown type '{}'", typeName);
+      return null;
+    }
+  }
+
+  private static boolean isSmile(byte[] bytes) {
+    if (bytes.length < SMILE_HEADER.length) {
+      return false;
+    }
+    for (int i = 0; i < SMILE_HEADER.length; i++) {
+      if (bytes[i] != SMILE_HEADER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Ignores {@link JsonFormat} annotations, which define how values are presented by the API
+   * (e.g. only year and month of a date) and would otherwise lose cached data.
+   */
+  private static class IgnoringFormatsAnnotationIntrospector extends
+      JacksonAnnotationIntrospector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public JsonFormat.Value findFormat(Annotated annotated) {
+      return JsonFormat.Value.empty();
+    }
+  }
+}
@@ -8,12 +8,14 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 /**
  * Model that represents Reporting data on exempt vehicles.
  */
 @Entity
+@Getter
 @Table(name = "t_entrant_exemption", schema = "CAZ_REPORTING")
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class EntrantExemption {
@@ -0,0 +1,71 @@
+package uk.gov.caz.vcc.domain;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Immutable index of General Purpose Whitelist vehicles keyed by VRN, which allows checking
+ * whether a vehicle is on the whitelist in constant time. It is built once for a set of fetched
+ * vehicles and shared by every check made against them.
+ */
+@EqualsAndHashCode
+public final class GeneralWhitelistIndex {
+
+  private static final GeneralWhitelistIndex EMPTY =
+      new GeneralWhitelistIndex(Collections.emptyList(), false);
+
+  private final Map<String, GeneralWhitelistVehicle> vehiclesByVrn;
+
+  private final boolean ignoringCase;
+
+  private GeneralWhitelistIndex(Collection<GeneralWhitelistVehicle> vehicles,
+      boolean ignoringCase) {
+    this.ignoringCase = ignoringCase;
+    Map<String, GeneralWhitelistVehicle> index = new HashMap<>(
+        (int) (vehicles.size() / 0.75f) + 1);
+    for (GeneralWhitelistVehicle vehicle : vehicles) {
+      index.putIfAbsent(keyOf(vehicle.getVrn()), vehicle);
+    }
+    this.vehiclesByVrn = Collections.unmodifiableMap(index);
+  }
+
+  /**
+   * Creates an index in which VRNs have to match exactly, as they do when vehicles are fetched
+   * for a set of VRNs.
+   */
+  public static GeneralWhitelistIndex of(Collection<GeneralWhitelistVehicle> vehicles) {
+    return vehicles.isEmpty() ? EMPTY : new GeneralWhitelistIndex(vehicles, false);
+  }
+
+  /**
+   * Creates an index in which VRNs are matched regardless of their case, as they are when a
+   * single vehicle is looked up in the database.
+   */
+  public static GeneralWhitelistIndex ignoringCase(
+      Collection<GeneralWhitelistVehicle> vehicles) {
+    return new GeneralWhitelistIndex(vehicles, true);
+  }
+
+  /**
+   * Returns the whitelisted vehicle with the given VRN, if any.
+   */
+  public Optional<GeneralWhitelistVehicle> find(String vrn) {
+    return Optional.ofNullable(vehiclesByVrn.get(keyOf(vrn)));
+  }
+
+  /**
+   * Returns the number of indexed vehicles.
+   */
+  public int size() {
+    return vehiclesByVrn.size();
+  }
+
+  private String keyOf(String vrn) {
+    return ignoringCase ? vrn.toUpperCase(Locale.ROOT) : vrn;
+  }
+}
@@ -39,6 +39,7 @@ public class VehicleEntrantReporting {
   }
 
   @Id
+  @Setter
   @GeneratedValue(strategy = GenerationType.AUTO)
   @Column(name = "vehicle_entrant_reporting_id")
   private UUID vehicleEntrantReportingId;
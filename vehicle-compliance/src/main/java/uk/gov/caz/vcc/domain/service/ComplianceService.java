@@ -171,7 +171,7 @@ public class ComplianceService {
       List<CalculationResult> results = new ArrayList<>();
       boolean gpwCompliant = generalWhitelistService
           .isCompliantOnGeneralPurposeWhitelist(vehicle.getRegistrationNumber(),
-              preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+              preFetchedDataResults.getGeneralWhitelistIndex());
       boolean retroFit = retrofitService.isRetrofitVehicle(
           vehicle.getRegistrationNumber(),
           preFetchedDataResults.getMatchedRetrofittedVehicles());
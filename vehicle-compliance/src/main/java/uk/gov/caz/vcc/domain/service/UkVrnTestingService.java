@@ -2,14 +2,17 @@ package uk.gov.caz.vcc.domain.service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
-import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 
 
 /**
  * Helper class to determine whether a VRN is a potential UK number plate.
  *
+ * <p>A VRN is a potential UK number plate if, once whitespace is removed, it matches
+ * {@link #REGEX}. As this check runs for every vehicle entrant, it is implemented as a single pass
+ * over the VRN which neither copies it nor backtracks: each of the UK formats consists of at most
+ * three runs of letters and digits, so it is enough to record the length of every run and compare
+ * the result with the formats.</p>
  */
 @Slf4j
 public class UkVrnTestingService {
@@ -23,6 +26,9 @@ public class UkVrnTestingService {
   @VisibleForTesting
   static final int MAX_LENGTH = 7;
 
+  /**
+   * The UK number plate formats, which {@link #isPotentialUkVrn(String)} recognises.
+   */
   public static final String REGEX = "^"
       + "([A-Za-z]{3}[0-9]{1,4})"
       + "|([A-Za-z][0-9]{1,3}[A-Za-z]{3})"
@@ -33,7 +39,7 @@ public class UkVrnTestingService {
       + "|([A-Za-z]{1,2}[0-9]{1,4})"
       + "$";
 
-  private static final Pattern vrmPattern = Pattern.compile(REGEX);
+  private static final int MAX_RUNS = 3;
 
   /**
    * Method to check whether a vrn may be a UK number plate.
@@ -47,21 +53,80 @@ public class UkVrnTestingService {
       log.debug("Provided VRN for UK plate testing was empty");
       return false;
     }
-    
-    // Create a delimiter stripped VRN representation (i.e. no whitespace etc.)
-    String delimiterStrippedVrn = StringUtils.deleteWhitespace(vrn);
-    
-    // If greater than 7 digits - immediately exclude
-    if (delimiterStrippedVrn.length() > MAX_LENGTH) {
-      log.debug("Provided VRN too long to be a candidate UK plate");
-      return false;
+
+    // Lengths of the consecutive runs of letters and digits, ignoring whitespace
+    int firstRun = 0;
+    int secondRun = 0;
+    int thirdRun = 0;
+    int runs = 0;
+    int length = 0;
+    char firstCharacter = 0;
+    boolean inLetters = false;
+    for (int i = 0; i < vrn.length(); i++) {
+      char character = vrn.charAt(i);
+      if (Character.isWhitespace(character)) {
+        continue;
+      }
+
+      // If greater than 7 digits - immediately exclude
+      if (++length > MAX_LENGTH) {
+        log.debug("Provided VRN too long to be a candidate UK plate");
+        return false;
+      }
+
+      boolean isLetter = isAsciiLetter(character);
+      if (!isLetter && !isAsciiDigit(character)) {
+        log.debug("Provided VRN was deemed non-UK based on pattern");
+        return false;
+      }
+      if (runs == 0) {
+        firstCharacter = character;
+      }
+      if (runs == 0 || isLetter != inLetters) {
+        if (++runs > MAX_RUNS) {
+          log.debug("Provided VRN was deemed non-UK based on pattern");
+          return false;
+        }
+        inLetters = isLetter;
+      }
+      if (runs == 1) {
+        firstRun++;
+      } else if (runs == 2) {
+        secondRun++;
+      } else {
+        thirdRun++;
+      }
     }
-    
-    // Check whether VRN matches UK plate regex pattern
-    boolean regexMatch = vrmPattern.matcher(delimiterStrippedVrn).matches();
-    
-    log.debug("Provided VRN was deemed non-UK based on pattern");
-    
-    return regexMatch;
+
+    boolean startsWithLetter = isAsciiLetter(firstCharacter);
+    boolean matches;
+    if (runs == 2) {
+      matches = startsWithLetter
+          // [A-Za-z]{1,3}[0-9]{1,4}
+          ? firstRun <= 3 && secondRun <= 4
+          // [1-9][0-9]{0,3}[A-Za-z]{1,3}
+          : firstCharacter != '0' && firstRun <= 4 && secondRun <= 3;
+    } else if (runs == 3 && startsWithLetter) {
+      // [A-Za-z][0-9]{1,3}[A-Za-z]{3}, [A-Za-z]{3}[0-9]{1,3}[A-Za-z] or
+      // [A-Za-z]{2}[0-9]{2}[A-Za-z]{3}
+      matches = firstRun == 1 && secondRun <= 3 && thirdRun == 3
+          || firstRun == 3 && secondRun <= 3 && thirdRun == 1
+          || firstRun == 2 && secondRun == 2 && thirdRun == 3;
+    } else {
+      matches = false;
+    }
+
+    if (!matches) {
+      log.debug("Provided VRN was deemed non-UK based on pattern");
+    }
+    return matches;
+  }
+
+  private static boolean isAsciiLetter(char character) {
+    return character >= 'A' && character <= 'Z' || character >= 'a' && character <= 'z';
+  }
+
+  private static boolean isAsciiDigit(char character) {
+    return character >= '0' && character <= '9';
   }
 }
@@ -0,0 +1,114 @@
+package uk.gov.caz.vcc.domain.service.bulkchecker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adjusts the size of batches of VRNs sent by the bulk checker to DVLA and NTR, and the delay
+ * between them, to the observed health of these upstream services (additive increase,
+ * multiplicative decrease).
+ *
+ * <p>After every batch which completes within the target latency and without any throttling
+ * response (429 or 5xx) the batch size grows by a fixed increment and the delay shrinks by the
+ * initial backoff. Otherwise the batch size is halved and the delay doubled, starting from the
+ * initial backoff. Hence no delay is applied as long as the upstream services are healthy.</p>
+ *
+ * <p>The state is shared by all callers, hence it should be {@link #reset()} when a new bulk check
+ * starts, so that it does not inherit the batch size and delay of a previous one.</p>
+ */
+@Slf4j
+@Component
+public class AdaptiveBatchThrottle {
+
+  private final int initialBatchSize;
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final int batchSizeIncrement;
+  private final long initialBackoffMs;
+  private final long maxBackoffMs;
+  private final long targetBatchLatencyMs;
+
+  private int batchSize;
+  private long delayMs;
+
+  /**
+   * Creates the throttle.
+   *
+   * @param initialBatchSize Size of the first batch.
+   * @param minBatchSize Lower bound of the batch size.
+   * @param maxBatchSize Upper bound of the batch size.
+   * @param batchSizeIncrement Increase of the batch size after a healthy batch.
+   * @param initialBackoffMs Delay after the first unhealthy batch.
+   * @param maxBackoffMs Upper bound of the delay between batches.
+   * @param targetBatchLatencyMs Processing time above which a batch is deemed unhealthy.
+   */
+  public AdaptiveBatchThrottle(
+      @Value("${services.bulk-checker-batch-size:30}") int initialBatchSize,
+      @Value("${services.bulk-checker-min-batch-size:5}") int minBatchSize,
+      @Value("${services.bulk-checker-max-batch-size:200}") int maxBatchSize,
+      @Value("${services.bulk-checker-batch-size-increment:10}") int batchSizeIncrement,
+      @Value("${services.bulk-checker-wait-interval:500}") long initialBackoffMs,
+      @Value("${services.bulk-checker-max-wait-interval:8000}") long maxBackoffMs,
+      @Value("${services.bulk-checker-target-batch-latency:10000}") long targetBatchLatencyMs) {
+    this.initialBatchSize = Math.max(minBatchSize, Math.min(maxBatchSize, initialBatchSize));
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    this.batchSizeIncrement = batchSizeIncrement;
+    this.initialBackoffMs = initialBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    this.targetBatchLatencyMs = targetBatchLatencyMs;
+    this.batchSize = this.initialBatchSize;
+    this.delayMs = 0;
+  }
+
+  /**
+   * Restores the initial batch size and removes the delay.
+   */
+  public synchronized void reset() {
+    batchSize = initialBatchSize;
+    delayMs = 0;
+  }
+
+  /**
+   * Returns the size of the next batch.
+   */
+  public synchronized int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Returns the delay (in milliseconds) to be applied before the next batch.
+   */
+  public synchronized long getDelayMs() {
+    return delayMs;
+  }
+
+  /**
+   * Adjusts the batch size and the delay to the outcome of a processed batch.
+   *
+   * @param latencyMs Processing time of the batch.
+   * @param throttlingResponses Number of upstream responses in the batch which indicate that
+   *     the upstream service is throttling requests or overloaded.
+   */
+  public synchronized void onBatchProcessed(long latencyMs, int throttlingResponses) {
+    if (throttlingResponses > 0 || latencyMs > targetBatchLatencyMs) {
+      batchSize = Math.max(minBatchSize, batchSize / 2);
+      delayMs = Math.min(maxBackoffMs, Math.max(initialBackoffMs, delayMs * 2));
+      log.info("Upstream unhealthy ({} throttling responses, {} ms), batch size decreased to {} "
+          + "and delay increased to {} ms", throttlingResponses, latencyMs, batchSize, delayMs);
+    } else {
+      batchSize = Math.min(maxBatchSize, batchSize + batchSizeIncrement);
+      delayMs = Math.max(0, delayMs - initialBackoffMs);
+    }
+  }
+
+  /**
+   * Returns true if the given status of an upstream response indicates that the upstream
+   * service is throttling requests or overloaded.
+   */
+  public static boolean isThrottling(HttpStatus httpStatus) {
+    return httpStatus == HttpStatus.TOO_MANY_REQUESTS || httpStatus.is5xxServerError();
+  }
+}
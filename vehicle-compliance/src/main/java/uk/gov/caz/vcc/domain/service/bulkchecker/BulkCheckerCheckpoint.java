@@ -0,0 +1,85 @@
+package uk.gov.caz.vcc.domain.service.bulkchecker;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Progress of processing of a bulk checker input file which is persisted when an invocation
+ * stops before the whole file has been processed, so that the next invocation can resume where
+ * the previous one stopped.
+ */
+@Value
+@Builder(toBuilder = true)
+public class BulkCheckerCheckpoint {
+
+  /**
+   * Identifier of the checkpoint, also stored in the metadata of the input file when it is
+   * re-submitted for processing.
+   */
+  String id;
+
+  /**
+   * Last modification time of the input file when its processing started, used to detect that
+   * the file has been replaced in the meantime.
+   */
+  Instant inputLastModified;
+
+  /**
+   * Number of invocations which have processed the file so far.
+   */
+  int invocations;
+
+  /**
+   * Number of VRNs of the input file which have been processed and whose results have been
+   * written to the output.
+   */
+  long processedVrns;
+
+  /**
+   * Whether the header of the output has been written.
+   */
+  boolean headerWritten;
+
+  /**
+   * Identifier of the multipart upload of the output, {@code null} if no part has been uploaded
+   * yet.
+   */
+  String uploadId;
+
+  /**
+   * Parts of the output which have been uploaded.
+   */
+  List<UploadedPart> uploadedParts;
+
+  /**
+   * Rows of the output which have not been uploaded yet as they do not fill a whole part.
+   */
+  String pendingOutput;
+
+  /**
+   * Creates a checkpoint of a file whose processing has not started yet.
+   */
+  public static BulkCheckerCheckpoint initial(Instant inputLastModified) {
+    return BulkCheckerCheckpoint.builder()
+        .id(UUID.randomUUID().toString())
+        .inputLastModified(inputLastModified)
+        .uploadedParts(Collections.emptyList())
+        .pendingOutput("")
+        .build();
+  }
+
+  /**
+   * An uploaded part of a multipart upload.
+   */
+  @Value
+  public static class UploadedPart {
+
+    int partNumber;
+
+    String etag;
+  }
+}
@@ -0,0 +1,174 @@
+package uk.gov.caz.vcc.domain.service.bulkchecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import uk.gov.caz.vcc.domain.service.bulkchecker.BulkCheckerCheckpoint.UploadedPart;
+import uk.gov.caz.vcc.service.ChargeCalculationService.CsvOutput;
+
+/**
+ * Writes the CSV output of a bulk check to S3 as results are produced. Rows are buffered and
+ * uploaded as parts of a multipart upload whenever the buffer reaches the part size, hence the
+ * memory used does not depend on the size of the output. Outputs smaller than a single part are
+ * uploaded with a single {@code PutObject}.
+ */
+@Slf4j
+public class BulkCheckerOutputWriter {
+
+  private final S3Client s3Client;
+  private final String bucket;
+  private final String key;
+  private final int partSize;
+  private final List<UploadedPart> uploadedParts;
+  private final StringBuilder pendingOutput;
+  private String uploadId;
+  private boolean headerWritten;
+
+  /**
+   * Creates a writer which continues writing the output from the given checkpoint.
+   *
+   * @param s3Client a client of S3.
+   * @param bucket the bucket to which the output is written.
+   * @param key the object key of the output.
+   * @param partSize minimum size of an uploaded part (in bytes), S3 requires at least 5MB.
+   * @param checkpoint the state of the output when the previous invocation stopped.
+   */
+  public BulkCheckerOutputWriter(S3Client s3Client, String bucket, String key, int partSize,
+      BulkCheckerCheckpoint checkpoint) {
+    this.s3Client = s3Client;
+    this.bucket = bucket;
+    this.key = key;
+    this.partSize = partSize;
+    this.uploadedParts = new ArrayList<>(checkpoint.getUploadedParts());
+    this.pendingOutput = new StringBuilder(checkpoint.getPendingOutput());
+    this.uploadId = checkpoint.getUploadId();
+    this.headerWritten = checkpoint.isHeaderWritten();
+  }
+
+  /**
+   * Appends results of a chunk of VRNs and uploads the next part of the output if the buffered
+   * rows fill it.
+   *
+   * @param csvOutputs results of the chunk, the first element is the header.
+   * @return {@code true} if a part has been uploaded.
+   */
+  public boolean append(List<CsvOutput> csvOutputs) {
+    if (csvOutputs.size() <= 1) {
+      return false;
+    }
+    if (!headerWritten) {
+      pendingOutput.append(printCsvRow(csvOutputs.get(0), true));
+      headerWritten = true;
+    }
+    for (int i = 1; i < csvOutputs.size(); i++) {
+      pendingOutput.append(printCsvRow(csvOutputs.get(i), false));
+    }
+    // every character takes at least one byte, so the part is never smaller than required
+    if (pendingOutput.length() < partSize) {
+      return false;
+    }
+    uploadPendingOutputAsPart();
+    return true;
+  }
+
+  /**
+   * Uploads the remaining rows and completes the output.
+   */
+  public void complete() {
+    if (uploadId == null) {
+      log.info("Writing result to {}", key);
+      s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(),
+          RequestBody.fromString(pendingOutput.toString()));
+      return;
+    }
+    if (pendingOutput.length() > 0) {
+      uploadPendingOutputAsPart();
+    }
+    log.info("Completing multipart upload of {} part(s) to {}", uploadedParts.size(), key);
+    s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .uploadId(uploadId)
+        .multipartUpload(CompletedMultipartUpload.builder()
+            .parts(uploadedParts.stream()
+                .map(part -> CompletedPart.builder()
+                    .partNumber(part.getPartNumber())
+                    .eTag(part.getEtag())
+                    .build())
+                .collect(Collectors.toList()))
+            .build())
+        .build());
+  }
+
+  /**
+   * Aborts the multipart upload of the output, if any has been started.
+   */
+  public void abort() {
+    if (uploadId != null) {
+      log.info("Aborting multipart upload of {}", key);
+      s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .build());
+    }
+  }
+
+  /**
+   * Returns the given checkpoint updated with the current state of the output.
+   */
+  public BulkCheckerCheckpoint checkpoint(BulkCheckerCheckpoint checkpoint) {
+    return checkpoint.toBuilder()
+        .headerWritten(headerWritten)
+        .uploadId(uploadId)
+        .uploadedParts(new ArrayList<>(uploadedParts))
+        .pendingOutput(pendingOutput.toString())
+        .build();
+  }
+
+  private void uploadPendingOutputAsPart() {
+    if (uploadId == null) {
+      uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .build()).uploadId();
+    }
+    int partNumber = uploadedParts.size() + 1;
+    log.info("Uploading part {} of {}", partNumber, key);
+    String etag = s3Client.uploadPart(UploadPartRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .uploadId(uploadId)
+        .partNumber(partNumber)
+        .build(), RequestBody.fromString(pendingOutput.toString())).eTag();
+    uploadedParts.add(new UploadedPart(partNumber, etag));
+    pendingOutput.setLength(0);
+  }
+
+  /**
+   * Method for creating a CSV file string representation.
+   * @param line a line of data in a CSV output.
+   * @param isHeader indicator whether the supplied line is a header row in a CSV output.
+   * @return a string representation of a CSV file row.
+   */
+  private static String printCsvRow(CsvOutput line, boolean isHeader) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("%-25s,", (isHeader ? "Registration Number" : line.getVrn())));
+    builder.append(String.format("%-25s,", (isHeader ? "Type" : line.getVehicleType())));
+    line.getCharges()
+          .entries()
+          .forEach(entry -> builder.append(String.format("%10s,", entry.getValue())));
+    builder.append("\r\n");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,66 @@
+package uk.gov.caz.vcc.domain.service.bulkchecker;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import uk.gov.caz.vcc.dto.RemoteVehicleDataRequest;
+
+/**
+ * Reads VRNs from a bulk checker input CSV file one chunk at a time, so that the file never has
+ * to be held in memory as a whole.
+ */
+public class VrnCsvReader implements Closeable {
+
+  private final Reader reader;
+  private final Iterator<RemoteVehicleDataRequest> requests;
+
+  /**
+   * Creates a reader of VRNs from the given stream of the input CSV file.
+   */
+  public VrnCsvReader(InputStream input) {
+    this.reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+    this.requests = new CsvToBeanBuilder<RemoteVehicleDataRequest>(reader)
+        .withType(RemoteVehicleDataRequest.class)
+        .build()
+        .iterator();
+  }
+
+  /**
+   * Reads at most {@code maxVrns} subsequent VRNs, whitespaces are removed from every VRN.
+   *
+   * @return VRNs which have been read, empty if the whole file has been read.
+   */
+  public List<String> next(int maxVrns) {
+    List<String> vrns = new ArrayList<>(maxVrns);
+    while (vrns.size() < maxVrns && requests.hasNext()) {
+      vrns.add(requests.next().getRegistrationNumber().replaceAll("\\s+", ""));
+    }
+    return vrns;
+  }
+
+  /**
+   * Skips at most {@code count} subsequent VRNs, e.g. ones processed by a previous invocation.
+   *
+   * @return number of VRNs which have been skipped.
+   */
+  public long skip(long count) {
+    long skipped = 0;
+    while (skipped < count && requests.hasNext()) {
+      requests.next();
+      skipped++;
+    }
+    return skipped;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
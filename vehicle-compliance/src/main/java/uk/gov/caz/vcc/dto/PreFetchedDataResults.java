@@ -3,12 +3,25 @@ package uk.gov.caz.vcc.dto;
 import java.util.List;
 import java.util.Set;
 import lombok.Value;
+import uk.gov.caz.vcc.domain.GeneralWhitelistIndex;
 import uk.gov.caz.vcc.domain.GeneralWhitelistVehicle;
 import uk.gov.caz.vcc.domain.RetrofittedVehicle;
 
 @Value
 public class PreFetchedDataResults {
   List<GeneralWhitelistVehicle> matchedGeneralWhitelistVehicles;
+  GeneralWhitelistIndex generalWhitelistIndex;
   List<RetrofittedVehicle> matchedRetrofittedVehicles;
   Set<String> matchedMilitaryVrns;
-}
\ No newline at end of file
+
+  /**
+   * Creates the results and indexes the matched General Purpose Whitelist vehicles by VRN.
+   */
+  public PreFetchedDataResults(List<GeneralWhitelistVehicle> matchedGeneralWhitelistVehicles,
+      List<RetrofittedVehicle> matchedRetrofittedVehicles, Set<String> matchedMilitaryVrns) {
+    this.matchedGeneralWhitelistVehicles = matchedGeneralWhitelistVehicles;
+    this.generalWhitelistIndex = GeneralWhitelistIndex.of(matchedGeneralWhitelistVehicles);
+    this.matchedRetrofittedVehicles = matchedRetrofittedVehicles;
+    this.matchedMilitaryVrns = matchedMilitaryVrns;
+  }
+}
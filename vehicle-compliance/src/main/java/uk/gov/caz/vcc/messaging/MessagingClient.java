@@ -1,12 +1,22 @@
 package uk.gov.caz.vcc.messaging;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -20,9 +30,15 @@ import uk.gov.caz.vcc.dto.VehicleEntrantReportingRequest;
 @Slf4j
 public class MessagingClient {
 
+  private static final int MAX_BATCH_ENTRIES = 10;
+  private static final int MAX_BATCH_PAYLOAD_SIZE = 256 * 1024;
+  private static final int MAX_BATCH_ATTEMPTS = 3;
+  private static final long BATCH_RETRY_DELAY_MS = 100;
+
   private final String queueName;
   private final AmazonSQS client;
   private final ObjectMapper objectMapper;
+  private volatile String queueUrl;
 
   /**
    * A dependency injection constructor for MessagingClient.
@@ -48,7 +64,7 @@ public class MessagingClient {
     SendMessageRequest sendMessageRequest = new SendMessageRequest();
 
     try {
-      sendMessageRequest.setQueueUrl(client.getQueueUrl(queueName).getQueueUrl());
+      sendMessageRequest.setQueueUrl(getQueueUrl());
       sendMessageRequest.setMessageBody(objectMapper.writeValueAsString(message));
       sendMessageRequest.setMessageGroupId(UUID.randomUUID().toString());
       sendMessageRequest.setMessageDeduplicationId(UUID.randomUUID().toString());
@@ -61,4 +77,121 @@ public class MessagingClient {
     log.info("Message successfully published");
   }
 
+  /**
+   * A method to publish messages to a queue with as few {@code SendMessageBatch} requests as
+   * possible, each of them carries at most 10 messages and 256 KiB of payload. Messages rejected
+   * for a transient reason (e.g. throttling) are retried up to {@code MAX_BATCH_ATTEMPTS} times.
+   *
+   * @param messages the messages to be published
+   * @return the messages which could not be published
+   */
+  public List<List<VehicleEntrantReportingRequest>> publishMessages(
+      List<List<VehicleEntrantReportingRequest>> messages) {
+    List<List<VehicleEntrantReportingRequest>> failedMessages = new ArrayList<>();
+    List<List<VehicleEntrantReportingRequest>> batchMessages = new ArrayList<>(MAX_BATCH_ENTRIES);
+    List<SendMessageBatchRequestEntry> entries = new ArrayList<>(MAX_BATCH_ENTRIES);
+    int batchPayloadSize = 0;
+    for (List<VehicleEntrantReportingRequest> message : messages) {
+      String messageBody;
+      try {
+        messageBody = objectMapper.writeValueAsString(message);
+      } catch (JsonProcessingException e) {
+        log.error("Failed to publish message");
+        continue;
+      }
+      int messageSize = messageBody.getBytes(StandardCharsets.UTF_8).length;
+      if (entries.size() == MAX_BATCH_ENTRIES
+          || (!entries.isEmpty() && batchPayloadSize + messageSize > MAX_BATCH_PAYLOAD_SIZE)) {
+        sendMessageBatch(entries, batchMessages, failedMessages);
+        batchMessages = new ArrayList<>(MAX_BATCH_ENTRIES);
+        entries = new ArrayList<>(MAX_BATCH_ENTRIES);
+        batchPayloadSize = 0;
+      }
+      entries.add(new SendMessageBatchRequestEntry(String.valueOf(entries.size()), messageBody)
+          .withMessageGroupId(UUID.randomUUID().toString())
+          .withMessageDeduplicationId(UUID.randomUUID().toString()));
+      batchMessages.add(message);
+      batchPayloadSize += messageSize;
+    }
+    if (!entries.isEmpty()) {
+      sendMessageBatch(entries, batchMessages, failedMessages);
+    }
+    return failedMessages;
+  }
+
+  /**
+   * Sends the entries, whose identifiers are indices of {@code batchMessages}, retrying the ones
+   * which failed for a transient reason. Messages which could not be sent are added to {@code
+   * failedMessages}.
+   */
+  private void sendMessageBatch(List<SendMessageBatchRequestEntry> entries,
+      List<List<VehicleEntrantReportingRequest>> batchMessages,
+      List<List<VehicleEntrantReportingRequest>> failedMessages) {
+    List<SendMessageBatchRequestEntry> pendingEntries = entries;
+    for (int attempt = 1; !pendingEntries.isEmpty(); attempt++) {
+      if (attempt > 1 && !sleep(BATCH_RETRY_DELAY_MS * (attempt - 1))) {
+        addMessagesOf(pendingEntries, batchMessages, failedMessages);
+        return;
+      }
+      SendMessageBatchResult result;
+      try {
+        SendMessageBatchRequest sendMessageBatchRequest =
+            new SendMessageBatchRequest(getQueueUrl(), pendingEntries);
+        sendMessageBatchRequest.putCustomRequestHeader("contentType", "application/json");
+        result = client.sendMessageBatch(sendMessageBatchRequest);
+      } catch (RuntimeException e) {
+        log.error("Failed to publish {} messages: {}", pendingEntries.size(), e.getMessage());
+        addMessagesOf(pendingEntries, batchMessages, failedMessages);
+        return;
+      }
+      Map<String, SendMessageBatchRequestEntry> entriesById = pendingEntries.stream()
+          .collect(Collectors.toMap(SendMessageBatchRequestEntry::getId, Function.identity()));
+      List<SendMessageBatchRequestEntry> retriedEntries = new ArrayList<>();
+      for (BatchResultErrorEntry failure : result.getFailed()) {
+        log.error("Failed to publish message: {} {}", failure.getCode(), failure.getMessage());
+        SendMessageBatchRequestEntry entry = entriesById.get(failure.getId());
+        if (Boolean.TRUE.equals(failure.getSenderFault()) || attempt == MAX_BATCH_ATTEMPTS) {
+          addMessagesOf(Collections.singletonList(entry), batchMessages, failedMessages);
+        } else {
+          retriedEntries.add(entry);
+        }
+      }
+      log.info("{} of {} messages successfully published", result.getSuccessful().size(),
+          pendingEntries.size());
+      pendingEntries = retriedEntries;
+    }
+  }
+
+  private static void addMessagesOf(List<SendMessageBatchRequestEntry> entries,
+      List<List<VehicleEntrantReportingRequest>> batchMessages,
+      List<List<VehicleEntrantReportingRequest>> failedMessages) {
+    for (SendMessageBatchRequestEntry entry : entries) {
+      failedMessages.add(batchMessages.get(Integer.parseInt(entry.getId())));
+    }
+  }
+
+  /**
+   * Sleeps for the given time, returns false if the thread has been interrupted.
+   */
+  private static boolean sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Returns the URL of the queue, which is resolved on the first call only.
+   */
+  private String getQueueUrl() {
+    String url = queueUrl;
+    if (url == null) {
+      url = client.getQueueUrl(queueName).getQueueUrl();
+      queueUrl = url;
+    }
+    return url;
+  }
 }
@@ -0,0 +1,180 @@
+package uk.gov.caz.vcc.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.caz.vcc.dto.VehicleEntrantReportingRequest;
+
+/**
+ * Publishes reporting data messages off the calling thread. Messages are put into a bounded
+ * buffer which is drained by a single sender thread that publishes them with
+ * {@code SendMessageBatch} requests of up to 10 messages.
+ *
+ * <p>When the buffer is full the caller waits for at most {@code offerTimeoutMs} and then
+ * publishes its message itself, so that messages are never dropped. The buffer is flushed when
+ * the application context is closed.</p>
+ *
+ * <p>Messages which could not be published in a batch are published one by one. Those which
+ * still fail are logged and counted by the {@code reporting.data.messages.failed} metric.</p>
+ */
+@Slf4j
+@Component
+public class ReportingDataPublisher implements DisposableBean {
+
+  private static final int MAX_BATCH_SIZE = 10;
+  private static final long POLL_INTERVAL_MS = 100;
+
+  private final MessagingClient messagingClient;
+  private final BlockingQueue<List<VehicleEntrantReportingRequest>> buffer;
+  private final long offerTimeoutMs;
+  private final long shutdownTimeoutMs;
+  private final Thread sender;
+  private final Counter failedMessagesCounter;
+  private final Object flushLock = new Object();
+  private volatile boolean running = true;
+  private int pendingMessages;
+
+  /**
+   * Creates the publisher and starts its sender thread.
+   *
+   * @param messagingClient Client of the reporting data queue.
+   * @param bufferCapacity Maximum number of messages waiting to be published.
+   * @param offerTimeoutMs Maximum time the caller waits for space in a full buffer.
+   * @param shutdownTimeoutMs Maximum time of flushing the buffer on shutdown.
+   * @param meterRegistry Registry of the metric of messages which could not be published.
+   */
+  public ReportingDataPublisher(MessagingClient messagingClient,
+      @Value("${services.sqs.reporting-data-buffer-capacity:1000}") int bufferCapacity,
+      @Value("${services.sqs.reporting-data-offer-timeout-ms:100}") long offerTimeoutMs,
+      @Value("${services.sqs.reporting-data-shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+      MeterRegistry meterRegistry) {
+    this.messagingClient = messagingClient;
+    this.failedMessagesCounter = meterRegistry.counter("reporting.data.messages.failed");
+    this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    this.offerTimeoutMs = offerTimeoutMs;
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+    this.sender = new Thread(this::sendBufferedMessages, "reporting-data-publisher");
+    this.sender.setDaemon(true);
+    this.sender.start();
+  }
+
+  /**
+   * Puts the message into the buffer, or publishes it on the calling thread if the buffer is
+   * full or the publisher has been shut down.
+   */
+  public void publish(List<VehicleEntrantReportingRequest> message) {
+    if (running) {
+      synchronized (flushLock) {
+        pendingMessages++;
+      }
+      try {
+        if (buffer.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+        log.warn("Reporting data buffer is full, publishing message on the calling thread");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      onPublished(1);
+    }
+    messagingClient.publishMessage(message);
+  }
+
+  /**
+   * Waits until all buffered messages have been published, e.g. before a Lambda container is
+   * frozen at the end of an invocation.
+   *
+   * @param timeoutMs Maximum time to wait.
+   * @return true if all buffered messages have been published.
+   */
+  public boolean flush(long timeoutMs) {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    synchronized (flushLock) {
+      try {
+        long remainingMs = timeoutMs;
+        while (pendingMessages > 0 && remainingMs > 0) {
+          flushLock.wait(remainingMs);
+          remainingMs = deadline - System.currentTimeMillis();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return pendingMessages == 0;
+    }
+  }
+
+  /**
+   * Stops accepting messages into the buffer and publishes the buffered ones.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    sender.join(shutdownTimeoutMs);
+    List<List<VehicleEntrantReportingRequest>> remainingMessages = new ArrayList<>();
+    buffer.drainTo(remainingMessages);
+    if (!remainingMessages.isEmpty()) {
+      log.warn("Publishing {} remaining reporting data messages on shutdown",
+          remainingMessages.size());
+      publishBatch(remainingMessages);
+    }
+  }
+
+  private void sendBufferedMessages() {
+    while (running || !buffer.isEmpty()) {
+      try {
+        List<VehicleEntrantReportingRequest> message =
+            buffer.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (message != null) {
+          List<List<VehicleEntrantReportingRequest>> batch = new ArrayList<>(MAX_BATCH_SIZE);
+          batch.add(message);
+          buffer.drainTo(batch, MAX_BATCH_SIZE - 1);
+          publishBatch(batch);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void publishBatch(List<List<VehicleEntrantReportingRequest>> batch) {
+    try {
+      List<List<VehicleEntrantReportingRequest>> failedMessages =
+          messagingClient.publishMessages(batch);
+      if (!failedMessages.isEmpty()) {
+        log.warn("Publishing {} reporting data messages one by one", failedMessages.size());
+        failedMessages.forEach(this::publishIndividually);
+      }
+    } catch (RuntimeException e) {
+      log.error("Failed to publish {} reporting data messages: {}", batch.size(),
+          e.getMessage());
+      failedMessagesCounter.increment(batch.size());
+    } finally {
+      onPublished(batch.size());
+    }
+  }
+
+  private void publishIndividually(List<VehicleEntrantReportingRequest> message) {
+    try {
+      messagingClient.publishMessage(message);
+    } catch (RuntimeException e) {
+      log.error("Failed to publish reporting data message: {}", e.getMessage());
+      failedMessagesCounter.increment();
+    }
+  }
+
+  private void onPublished(int messagesCount) {
+    synchronized (flushLock) {
+      pendingMessages -= messagesCount;
+      flushLock.notifyAll();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package uk.gov.caz.vcc.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import uk.gov.caz.vcc.domain.service.bulkchecker.BulkCheckerCheckpoint;
+
+/**
+ * Repository of {@link BulkCheckerCheckpoint}s which are stored as JSON objects in S3 next to the
+ * input and output files of the bulk checker.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class BulkCheckerCheckpointRepository {
+
+  private final S3Client s3Client;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Finds the checkpoint stored under the given key.
+   */
+  public Optional<BulkCheckerCheckpoint> find(String bucket, String key) {
+    GetObjectRequest request = GetObjectRequest.builder().bucket(bucket).key(key).build();
+    try {
+      byte[] content = s3Client.getObjectAsBytes(request).asByteArray();
+      return Optional.of(objectMapper.readValue(content, BulkCheckerCheckpoint.class));
+    } catch (NoSuchKeyException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      log.warn("Unable to read bulk checker checkpoint {}/{}, ignoring it", bucket, key);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Stores the checkpoint under the given key, overwriting the previous one.
+   */
+  public void save(String bucket, String key, BulkCheckerCheckpoint checkpoint) {
+    try {
+      PutObjectRequest request = PutObjectRequest.builder().bucket(bucket).key(key).build();
+      s3Client.putObject(request,
+          RequestBody.fromBytes(objectMapper.writeValueAsBytes(checkpoint)));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Deletes the checkpoint stored under the given key.
+   */
+  public void delete(String bucket, String key) {
+    s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+  }
+}
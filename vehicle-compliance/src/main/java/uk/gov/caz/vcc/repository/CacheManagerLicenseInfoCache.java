@@ -0,0 +1,84 @@
+package uk.gov.caz.vcc.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+
+/**
+ * {@link LicenseInfoCache} backed by any Spring {@link CacheManager}. Entries are read, written
+ * and evicted one by one, hence it should be used only with in-memory caches.
+ *
+ * <p>Follows the same generation scheme as {@link RedisLicenseInfoCache}: the generation is kept
+ * in the cache itself and is a part of every key, clearing the cache increments it.</p>
+ */
+public class CacheManagerLicenseInfoCache implements LicenseInfoCache {
+
+  static final String GENERATION_KEY = "generation";
+
+  private final Cache cache;
+  private final int maxTargetedEvictions;
+
+  public CacheManagerLicenseInfoCache(CacheManager cacheManager, int maxTargetedEvictions) {
+    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.maxTargetedEvictions = maxTargetedEvictions;
+  }
+
+  @Override
+  public Map<String, Optional<TaxiPhvLicenseInformationResponse>> getAll(
+      Collection<String> vrns) {
+    long generation = currentGeneration();
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> result = new HashMap<>();
+    for (String vrn : vrns) {
+      ValueWrapper valueWrapper = cache.get(keyOf(generation, vrn));
+      if (valueWrapper != null) {
+        result.put(vrn,
+            Optional.ofNullable((TaxiPhvLicenseInformationResponse) valueWrapper.get()));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void putAll(Map<String, Optional<TaxiPhvLicenseInformationResponse>> licences) {
+    long generation = currentGeneration();
+    for (Entry<String, Optional<TaxiPhvLicenseInformationResponse>> entry
+        : licences.entrySet()) {
+      cache.put(keyOf(generation, entry.getKey()), entry.getValue().orElse(null));
+    }
+  }
+
+  @Override
+  public void evictAll(Collection<String> vrns) {
+    Set<String> distinctVrns = new LinkedHashSet<>(vrns);
+    if (distinctVrns.size() > maxTargetedEvictions) {
+      clear();
+      return;
+    }
+    long generation = currentGeneration();
+    for (String vrn : distinctVrns) {
+      cache.evict(keyOf(generation, vrn));
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    cache.put(GENERATION_KEY, currentGeneration() + 1);
+  }
+
+  private long currentGeneration() {
+    Long generation = cache.get(GENERATION_KEY, Long.class);
+    return generation == null ? 0 : generation;
+  }
+
+  static String keyOf(long generation, String vrn) {
+    return generation + "::" + vrn;
+  }
+}
@@ -21,7 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.ApplicationRuntimeException;
 import uk.gov.caz.async.rest.AsyncOp;
-import uk.gov.caz.async.rest.AsyncRestService;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.correlationid.MdcCorrelationIdInjector;
 import uk.gov.caz.vcc.domain.MilitaryVehicle;
 import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
@@ -41,7 +41,7 @@ public class HttpBasedModRepository implements ModDataProvider {
   static final int EXIST_BY_VRNS_MAX_BATCH_SIZE = 150;
 
   private final RetrofitModRepository retrofitModRepository;
-  private final AsyncRestService asyncRestService;
+  private final AsyncOpExecutor modAsyncOpExecutor;
 
   /**
    * A method that checks if given MOD vehicle exists.
@@ -127,7 +127,7 @@ public class HttpBasedModRepository implements ModDataProvider {
   private <T> void callMod(AsyncOp<T> asyncOp) {
     long timeout = defaultTimeoutInSeconds();
     try {
-      asyncRestService.startAndAwaitAll(singletonList(asyncOp), timeout, TimeUnit.SECONDS);
+      modAsyncOpExecutor.startAndAwaitAll(singletonList(asyncOp), timeout, TimeUnit.SECONDS);
     } catch (Exception exception) {
       throw new ExternalServiceCallException(exception);
     }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import uk.gov.caz.vcc.domain.exceptions.FailedIdentificationLogs;
 
@@ -26,6 +27,7 @@ public interface IdentificationErrorRepository
    * @param inputDate given date
    */
   @Modifying
+  @Transactional
   @Query(
       value = "DELETE FROM caz_vehicle_entrant.t_failed_identification_logs "
             + "WHERE CAST (date_trunc('day', inserttimestamp) AS date) <= :input_date",
@@ -14,7 +14,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.async.rest.AsyncOp;
-import uk.gov.caz.async.rest.AsyncRestService;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.definitions.domain.Vehicle;
 import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
 import uk.gov.caz.vcc.dto.DvlaVehiclesInformation;
@@ -33,7 +33,7 @@ public class LicenseAndVehicleLocalRepository implements LicenseAndVehicleReposi
 
   private final NationalTaxiRegisterAsyncRepository nationalTaxiRegisterAsyncRepository;
   private final LocalVehicleDetailsRepository localVehicleDetailsRepository;
-  private final AsyncRestService asyncRestService;
+  private final AsyncOpExecutor ntrAsyncOpExecutor;
 
   /**
    * Method to call remote NTR and DVLA API for single vrn.
@@ -121,7 +121,7 @@ public class LicenseAndVehicleLocalRepository implements LicenseAndVehicleReposi
   private void callNtr(NtrAndDvlaData responses) {
     long timeout = defaultTimeoutInSeconds();
     try {
-      asyncRestService.startAndAwaitAll(responses.ntrAsyncOps(), timeout, TimeUnit.SECONDS);
+      ntrAsyncOpExecutor.startAndAwaitAll(responses.ntrAsyncOps(), timeout, TimeUnit.SECONDS);
     } catch (Exception exception) {
       throw new ExternalServiceCallException(exception);
     }
@@ -1,27 +1,29 @@
 package uk.gov.caz.vcc.repository;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singletonList;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
-import com.google.common.collect.Iterables;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import lombok.val;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.async.rest.AsyncOp;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.async.rest.AsyncRestService;
 import uk.gov.caz.definitions.domain.Vehicle;
 import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
@@ -44,6 +46,8 @@ public class LicenseAndVehicleRemoteRepository implements LicenseAndVehicleRepos
   private final NationalTaxiRegisterAsyncRepository nationalTaxiRegisterAsyncRepository;
   private final VehicleRemoteRepository vehicleRemoteRepository;
   private final AsyncRestService asyncRestService;
+  private final AsyncOpExecutor ntrAsyncOpExecutor;
+  private final AsyncOpExecutor dvlaAsyncOpExecutor;
   private final VehicleApiAuthenticationUtility remoteAuthenticationTokenGenerator;
   private final int maxDvlaConcurrentCalls;
   private final long timeout;
@@ -55,6 +59,8 @@ public class LicenseAndVehicleRemoteRepository implements LicenseAndVehicleRepos
       NationalTaxiRegisterAsyncRepository nationalTaxiRegisterAsyncRepository,
       VehicleRemoteRepository vehicleRemoteRepository,
       AsyncRestService asyncRestService,
+      AsyncOpExecutor ntrAsyncOpExecutor,
+      AsyncOpExecutor dvlaAsyncOpExecutor,
       VehicleApiAuthenticationUtility remoteAuthenticationTokenGenerator,
       @Value("${services.remote-vehicle-data.max-dvla-concurrent-calls:10}")
           Integer maxDvlaConcurrentCalls,
@@ -63,6 +69,8 @@ public class LicenseAndVehicleRemoteRepository implements LicenseAndVehicleRepos
     this.nationalTaxiRegisterAsyncRepository = nationalTaxiRegisterAsyncRepository;
     this.vehicleRemoteRepository = vehicleRemoteRepository;
     this.asyncRestService = asyncRestService;
+    this.ntrAsyncOpExecutor = ntrAsyncOpExecutor;
+    this.dvlaAsyncOpExecutor = dvlaAsyncOpExecutor;
     this.remoteAuthenticationTokenGenerator = remoteAuthenticationTokenGenerator;
     this.maxDvlaConcurrentCalls = maxDvlaConcurrentCalls;
     this.timeout = timeout;
@@ -109,8 +117,9 @@ public class LicenseAndVehicleRemoteRepository implements LicenseAndVehicleRepos
     NtrAndDvlaData ntrAndDvlaData = ntrAndDvlaDataBuilder.build();
 
     try {
-      asyncRestService.startAndAwaitAll(mergeNtrAndDvlaAsyncOps(ntrAndDvlaData), timeout,
-          TimeUnit.SECONDS);
+      AsyncOpExecutor.startAndAwaitAll(ImmutableMap.of(
+          ntrAsyncOpExecutor, ntrAndDvlaData.ntrAsyncOps(),
+          dvlaAsyncOpExecutor, ntrAndDvlaData.dvlaAsyncOps()), timeout, TimeUnit.SECONDS);
     } catch (Exception exception) {
       throw new ExternalServiceCallException(exception);
     }
@@ -190,120 +199,108 @@ public class LicenseAndVehicleRemoteRepository implements LicenseAndVehicleRepos
   }
 
   /**
-   * Partitions list of VRNs into small batches and executes concurrent calls for each VRN in a
-   * batch to get vehicle details from DVLA.
+   * Executes concurrent calls to DVLA to get vehicle details keeping exactly {@code
+   * maxDvlaConcurrentCalls} of them in flight: a new call is started as soon as any running call
+   * completes, so a single slow response does not stall remaining VRNs. A call that gets 401
+   * UNAUTHORIZED is retried once with a new authentication token.
    */
   private DvlaVehiclesInformation findDvlaVehiclesInBulkInternal(Collection<String> vrns) {
-    String authToken = remoteAuthenticationTokenGenerator.getAuthenticationToken();
-    val bulkDvlaCallBatches = Iterables.partition(vrns, maxDvlaConcurrentCalls);
-    val resultBuilder = ImmutableMap.<String, SingleDvlaVehicleData>builder();
-    for (val bulkDvlaCallVrns : bulkDvlaCallBatches) {
-      for (int attempt = 0; attempt <= MAX_DVLA_UNAUTHORIZED_CALL_RETRIES; attempt++) {
-        val asyncOps = buildConcurrentCallsToDvla(authToken, bulkDvlaCallVrns);
-        val failure = startAndWaitAndReturnFailureIfFailed(asyncOps);
-        if (failure.isPresent()) {
-          return failure.get();
-        }
-        if (anyHasUnauthorizedError(asyncOps)) {
-          authToken = throwIfReachedRetriesLimitOrGenerateNewAuthToken(attempt);
-        } else {
-          appendAsyncOpResultsToFinalResultsBuilder(resultBuilder, asyncOps);
-          break;
-        }
-      }
+    BulkDvlaCalls bulkDvlaCalls = new BulkDvlaCalls(
+        remoteAuthenticationTokenGenerator.getAuthenticationToken());
+    Queue<AsyncOp<Vehicle>> pendingAsyncOps = new ArrayDeque<>(vrns.size());
+    vrns.forEach(vrn -> pendingAsyncOps.add(bulkDvlaCalls.newCall(vrn, 0)));
+    try {
+      asyncRestService.startAndAwaitAll(pendingAsyncOps, maxDvlaConcurrentCalls, timeout,
+          TimeUnit.SECONDS, asyncOp -> bulkDvlaCalls.onCompleted(asyncOp, pendingAsyncOps));
+    } catch (ExternalServiceCallException externalServiceCallException) {
+      throw externalServiceCallException;
+    } catch (Exception exception) {
+      log.error("Error in bulk DVLA call", exception);
+      return DvlaVehiclesInformation.failure();
     }
-    return DvlaVehiclesInformation.success(resultBuilder.build());
+    return DvlaVehiclesInformation.success(bulkDvlaCalls.results());
   }
 
   /**
-   * Traverses each {@link AsyncOp} and maps it to {@link SingleDvlaVehicleData} either as success
-   * or as a failure and appends to result builder.
+   * Keeps track of DVLA calls made in bulk, their results and the authentication token. Accessed
+   * only from the thread which handles completed calls.
    */
-  private void appendAsyncOpResultsToFinalResultsBuilder(
-      Builder<String, SingleDvlaVehicleData> resultBuilder,
-      ImmutableMap<String, AsyncOp<Vehicle>> asyncOps) {
-    asyncOps.forEach((vrn, vehicleAsyncOp) -> {
-      if (vehicleAsyncOp.hasError()) {
-        resultBuilder.put(vrn, SingleDvlaVehicleData
-            .failure(vehicleAsyncOp.getHttpStatus(), vehicleAsyncOp.getError()));
-      } else {
-        resultBuilder.put(vrn, SingleDvlaVehicleData.success(vehicleAsyncOp.getResult()));
-      }
-    });
-  }
+  private class BulkDvlaCalls {
 
-  /**
-   * If {@code} attempt reached limit of retries throws {@link ExternalServiceCallException}.
-   * Otherwise generates new authentication token and allows to retry again.
-   */
-  private String throwIfReachedRetriesLimitOrGenerateNewAuthToken(int attempt) {
-    String authToken;
-    if (attempt == MAX_DVLA_UNAUTHORIZED_CALL_RETRIES) {
-      throw new ExternalServiceCallException(
-          "Authentication error on Async call to DVLA - 401 "
-              + "response received.");
+    private final Map<AsyncOp<Vehicle>, DvlaCall> calls = new IdentityHashMap<>();
+    private final Builder<String, SingleDvlaVehicleData> resultBuilder = ImmutableMap.builder();
+    private String authToken;
+
+    private BulkDvlaCalls(String authToken) {
+      this.authToken = authToken;
     }
-    // Failed during the first attempt, try generating a new token and repeat
-    log.warn("BULK DVLA API call returned UNAUTHORIZED status, retrying with a new token");
-    authToken = remoteAuthenticationTokenGenerator.getAuthenticationToken();
-    return authToken;
-  }
 
-  /**
-   * Returns true if any {@link AsyncOp} has an error and the error is 401 UNAUTHORIZED.
-   */
-  private boolean anyHasUnauthorizedError(ImmutableMap<String, AsyncOp<Vehicle>> asyncOps) {
-    return asyncOps.values().stream().anyMatch(
-        asyncOp -> asyncOp.hasError() && asyncOp.getHttpStatus() == HttpStatus.UNAUTHORIZED);
-  }
+    /**
+     * Creates {@link AsyncOp} calling DVLA for {@code vrn} with the current token.
+     */
+    private AsyncOp<Vehicle> newCall(String vrn, int attempt) {
+      AsyncOp<Vehicle> asyncOp = vehicleRemoteRepository
+          .findByRegistrationNumberAsync(vrn, authToken);
+      calls.put(asyncOp, new DvlaCall(vrn, authToken, attempt));
+      return asyncOp;
+    }
 
-  /**
-   * Starts and awaits all {@link AsyncOp}. If global operation failed returns {@link
-   * DvlaVehiclesInformation} as failure. Otherwise returns Optional.empty().
-   */
-  private Optional<DvlaVehiclesInformation> startAndWaitAndReturnFailureIfFailed(
-      ImmutableMap<String, AsyncOp<Vehicle>> asyncOps) {
-    try {
-      executeAsyncOps(newArrayList(asyncOps.values()), timeout);
-    } catch (ExternalServiceCallException externalServiceCallException) {
-      log.error("Error in bulk DVLA call", externalServiceCallException);
-      return Optional.of(DvlaVehiclesInformation.failure());
+    /**
+     * Appends result of a completed call or, upon 401 UNAUTHORIZED, schedules a retry with a new
+     * authentication token. The token is regenerated only once for all calls which were made with
+     * the expired one.
+     */
+    private void onCompleted(AsyncOp<Vehicle> asyncOp, Queue<AsyncOp<Vehicle>> pendingAsyncOps) {
+      DvlaCall call = calls.remove(asyncOp);
+      if (asyncOp.hasError() && asyncOp.getHttpStatus() == HttpStatus.UNAUTHORIZED) {
+        if (call.getAttempt() == MAX_DVLA_UNAUTHORIZED_CALL_RETRIES) {
+          throw new ExternalServiceCallException(
+              "Authentication error on Async call to DVLA - 401 response received.");
+        }
+        if (call.getAuthToken().equals(authToken)) {
+          // Failed during the first attempt, try generating a new token and repeat
+          log.warn("BULK DVLA API call returned UNAUTHORIZED status, retrying with a new token");
+          authToken = remoteAuthenticationTokenGenerator.getAuthenticationToken();
+        }
+        AsyncOp<Vehicle> retry = newCall(call.getVrn(), call.getAttempt() + 1);
+        asyncRestService.recordRetry(retry);
+        pendingAsyncOps.add(retry);
+      } else if (asyncOp.hasError()) {
+        resultBuilder.put(call.getVrn(), SingleDvlaVehicleData
+            .failure(asyncOp.getHttpStatus(), asyncOp.getError()));
+      } else {
+        resultBuilder.put(call.getVrn(), SingleDvlaVehicleData.success(asyncOp.getResult()));
+      }
+    }
+
+    private ImmutableMap<String, SingleDvlaVehicleData> results() {
+      return resultBuilder.build();
     }
-    return Optional.empty();
   }
 
   /**
-   * Builds map of VRNs to {@link AsyncOp}.
+   * Single call to DVLA made for {@code vrn} with {@code authToken}.
    */
-  private ImmutableMap<String, AsyncOp<Vehicle>> buildConcurrentCallsToDvla(String authToken,
-      List<String> bulkDvlaCallVrns) {
-    Builder<String, AsyncOp<Vehicle>> asyncOpsCallBuilder = ImmutableMap.builder();
-    bulkDvlaCallVrns.stream().forEach(vrn -> asyncOpsCallBuilder
-        .put(vrn, vehicleRemoteRepository.findByRegistrationNumberAsync(vrn, authToken)));
-    val asyncOps = asyncOpsCallBuilder.build();
-    return asyncOps;
+  @RequiredArgsConstructor
+  @Getter
+  private static class DvlaCall {
+
+    private final String vrn;
+    private final String authToken;
+    private final int attempt;
   }
 
   /**
-   * Executes all {@link AsyncOp} and awaits until {@code timeout} expires.
+   * Executes all {@link AsyncOp} calling DVLA and awaits until {@code timeout} expires.
    */
   private <T> void executeAsyncOps(List<AsyncOp<T>> asyncOps, long timeout) {
     try {
-      asyncRestService.startAndAwaitAll(asyncOps, timeout, TimeUnit.SECONDS);
+      dvlaAsyncOpExecutor.startAndAwaitAll(asyncOps, timeout, TimeUnit.SECONDS);
     } catch (Exception exception) {
       throw new ExternalServiceCallException(exception);
     }
   }
 
-  /**
-   * Extracts {@link AsyncOp} calls for NTR and DVLA and merges them into one list.
-   */
-  private List<AsyncOp> mergeNtrAndDvlaAsyncOps(NtrAndDvlaData ntrAndDvlaData) {
-    return Stream
-        .concat(ntrAndDvlaData.ntrAsyncOps().stream(), ntrAndDvlaData.dvlaAsyncOps().stream())
-        .collect(Collectors.toList());
-  }
-
   private <T> T measureExecutionTime(String actionLabel, Supplier<T> action) {
     Stopwatch timer = Stopwatch.createStarted();
     T result = action.get();
@@ -0,0 +1,47 @@
+package uk.gov.caz.vcc.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+
+/**
+ * Bulk access to the {@code licenseInfo} cache of licence information fetched from the National
+ * Taxi Register. An empty {@link Optional} denotes a cached negative result, i.e. a vehicle which
+ * is not licensed.
+ */
+public interface LicenseInfoCache {
+
+  /**
+   * Name of the cache which holds licence information keyed by VRN.
+   */
+  String CACHE_NAME = "licenseInfo";
+
+  /**
+   * Gets cached licence information of given vehicles.
+   *
+   * @param vrns Vehicle registration numbers.
+   * @return Cached entries only, VRNs which are not cached are absent from the map.
+   */
+  Map<String, Optional<TaxiPhvLicenseInformationResponse>> getAll(Collection<String> vrns);
+
+  /**
+   * Stores licence information of given vehicles.
+   *
+   * @param licences Licence information keyed by VRN, empty for vehicles without a licence.
+   */
+  void putAll(Map<String, Optional<TaxiPhvLicenseInformationResponse>> licences);
+
+  /**
+   * Evicts cached licence information of given vehicles. Implementations may clear the whole
+   * cache instead if there are too many vehicles to be evicted one by one.
+   *
+   * @param vrns Vehicle registration numbers.
+   */
+  void evictAll(Collection<String> vrns);
+
+  /**
+   * Evicts all cached licence information.
+   */
+  void clear();
+}
@@ -6,23 +6,26 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.Iterables;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.client.HttpClientErrorException.NotFound;
 import org.springframework.web.client.RestTemplate;
 import uk.gov.caz.async.rest.AsyncOp;
-import uk.gov.caz.async.rest.AsyncRestService;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
 import uk.gov.caz.vcc.dto.LicencesInformation;
 import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
@@ -37,29 +40,43 @@ public class NationalTaxiRegisterRepository {
 
   private final RestTemplate nationalTaxiRegisterRestTemplate;
   private final NationalTaxiRegisterAsyncRepository asyncRepository;
-  private final AsyncRestService asyncRestService;
+  private final AsyncOpExecutor ntrAsyncOpExecutor;
+  private final LicenseInfoCache licenseInfoCache;
 
   /**
-   * Default constructor.
+   * Default constructor. Licence information is not cached in bulk if there is no {@link
+   * LicenseInfoCache} bean (i.e. redis is disabled).
    */
   public NationalTaxiRegisterRepository(RestTemplateBuilder restTemplateBuilder,
       @Value("${services.national-taxi-register.root-url}") String nationalTaxiRegisterRootUri,
       NationalTaxiRegisterAsyncRepository asyncRepository,
-      AsyncRestService asyncRestService) {
+      AsyncOpExecutor ntrAsyncOpExecutor,
+      ObjectProvider<LicenseInfoCache> licenseInfoCache) {
     this.asyncRepository = asyncRepository;
-    this.asyncRestService = asyncRestService;
+    this.ntrAsyncOpExecutor = ntrAsyncOpExecutor;
+    this.licenseInfoCache = licenseInfoCache.getIfAvailable(NoOpLicenseInfoCache::new);
     this.nationalTaxiRegisterRestTemplate =
         restTemplateBuilder.rootUri(nationalTaxiRegisterRootUri).build();
   }
 
   /**
-   * Get license info for a vehicle from the National Taxi Register.
+   * Get license info for a vehicle from the National Taxi Register unless it is cached.
    *
    * @param vrn The vehicle registration number.
    * @return A LicenseInfoResponse (optional).
    */
-  @Cacheable(value = "licenseInfo", key = "#vrn", cacheManager = "licenseInfoCacheManager")
   public Optional<TaxiPhvLicenseInformationResponse> getLicenseInfo(String vrn) {
+    Optional<TaxiPhvLicenseInformationResponse> cached = getCached(
+        Collections.singleton(vrn)).get(vrn);
+    if (cached != null) {
+      return cached;
+    }
+    Optional<TaxiPhvLicenseInformationResponse> licence = fetchLicenseInfo(vrn);
+    putCached(Collections.singletonMap(vrn, licence));
+    return licence;
+  }
+
+  private Optional<TaxiPhvLicenseInformationResponse> fetchLicenseInfo(String vrn) {
     try {
       ResponseEntity<TaxiPhvLicenseInformationResponse> responseEntity =
           nationalTaxiRegisterRestTemplate.getForEntity(
@@ -75,13 +92,25 @@ public class NationalTaxiRegisterRepository {
   }
 
   /**
-   * Gets licenses info for vehicles from the National Taxi Register.
+   * Gets licenses info for vehicles from the National Taxi Register. Vehicles whose licence
+   * information (or lack thereof) is cached are not sent to NTR, results of NTR calls are written
+   * back to the cache.
    *
    * @param vrns List of vehicle registration numbers.
    * @return An instance of {@link LicencesInformation}.
    */
   public LicencesInformation getLicensesInformation(Collection<String> vrns) {
-    List<AsyncOp<GetLicencesInfoResponseDto>> asyncOps = createBatchedCalls(vrns);
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> cached = getCached(vrns);
+    Set<String> misses = new LinkedHashSet<>(vrns);
+    misses.removeAll(cached.keySet());
+
+    Map<String, TaxiPhvLicenseInformationResponse> result = new HashMap<>();
+    cached.forEach((vrn, licence) -> licence.ifPresent(value -> result.put(vrn, value)));
+    if (misses.isEmpty()) {
+      return LicencesInformation.success(ImmutableMap.copyOf(result));
+    }
+
+    List<AsyncOp<GetLicencesInfoResponseDto>> asyncOps = createBatchedCalls(misses);
     callNtr(asyncOps);
 
     Optional<AsyncOp<GetLicencesInfoResponseDto>> optionalFailed = findFailed(asyncOps);
@@ -90,7 +119,41 @@ public class NationalTaxiRegisterRepository {
       return LicencesInformation.failure(failed.getHttpStatus(), failed.getError());
     }
 
-    return LicencesInformation.success(mergeResults(asyncOps));
+    Map<String, TaxiPhvLicenseInformationResponse> fetched = mergeResults(asyncOps);
+    cacheFetched(misses, fetched);
+    result.putAll(fetched);
+    return LicencesInformation.success(ImmutableMap.copyOf(result));
+  }
+
+  private Map<String, Optional<TaxiPhvLicenseInformationResponse>> getCached(
+      Collection<String> vrns) {
+    try {
+      return licenseInfoCache.getAll(vrns);
+    } catch (Exception e) {
+      log.warn("Cannot read cached licence information, all vehicles will be sent to NTR", e);
+      return Collections.emptyMap();
+    }
+  }
+
+  /**
+   * Caches licences returned by NTR as well as negative results for vehicles which were not
+   * present in the response.
+   */
+  private void cacheFetched(Set<String> vrns,
+      Map<String, TaxiPhvLicenseInformationResponse> fetched) {
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> toCache = new HashMap<>();
+    for (String vrn : vrns) {
+      toCache.put(vrn, Optional.ofNullable(fetched.get(vrn)));
+    }
+    putCached(toCache);
+  }
+
+  private void putCached(Map<String, Optional<TaxiPhvLicenseInformationResponse>> licences) {
+    try {
+      licenseInfoCache.putAll(licences);
+    } catch (Exception e) {
+      log.warn("Cannot cache licence information of {} vehicle(s)", licences.size(), e);
+    }
   }
 
   private Map<String, TaxiPhvLicenseInformationResponse> mergeResults(
@@ -121,11 +184,22 @@ public class NationalTaxiRegisterRepository {
   }
 
   /**
-   * Method for evicting a cached licenseInfo for given vrn.
+   * Method for evicting all cached licenseInfo.
    */
-  @CacheEvict(value = "licenseInfo", allEntries = true, cacheManager = "licenseInfoCacheManager")
   public void cacheEvictLicenseInfo() {
-    log.debug("Evicting cached license info for taxi VRNs in response to an upload being made.");
+    log.debug("Evicting cached license info for all taxi VRNs.");
+    licenseInfoCache.clear();
+  }
+
+  /**
+   * Method for evicting a cached licenseInfo for given vrns.
+   *
+   * @param vrns VRNs whose licences have changed.
+   */
+  public void cacheEvictLicenseInfo(Collection<String> vrns) {
+    log.debug("Evicting cached license info for {} taxi VRN(s) in response to an upload being "
+        + "made.", vrns.size());
+    licenseInfoCache.evictAll(vrns);
   }
 
   /**
@@ -134,7 +208,7 @@ public class NationalTaxiRegisterRepository {
   private void callNtr(List<AsyncOp<GetLicencesInfoResponseDto>> asyncOps) {
     long timeout = defaultTimeoutInSeconds();
     try {
-      asyncRestService.startAndAwaitAll(asyncOps, timeout, TimeUnit.SECONDS);
+      ntrAsyncOpExecutor.startAndAwaitAll(asyncOps, timeout, TimeUnit.SECONDS);
     } catch (Exception exception) {
       throw new ExternalServiceCallException(exception);
     }
@@ -0,0 +1,34 @@
+package uk.gov.caz.vcc.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+
+/**
+ * {@link LicenseInfoCache} used when caching is disabled: nothing is ever cached.
+ */
+public class NoOpLicenseInfoCache implements LicenseInfoCache {
+
+  @Override
+  public Map<String, Optional<TaxiPhvLicenseInformationResponse>> getAll(
+      Collection<String> vrns) {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public void putAll(Map<String, Optional<TaxiPhvLicenseInformationResponse>> licences) {
+    // nothing to do
+  }
+
+  @Override
+  public void evictAll(Collection<String> vrns) {
+    // nothing to do
+  }
+
+  @Override
+  public void clear() {
+    // nothing to do
+  }
+}
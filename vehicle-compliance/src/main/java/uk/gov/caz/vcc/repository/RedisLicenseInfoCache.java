@@ -0,0 +1,171 @@
+package uk.gov.caz.vcc.repository;
+
+import com.google.common.collect.Iterables;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+
+/**
+ * {@link LicenseInfoCache} which reads all entries with a single {@code MGET}, writes them in one
+ * pipeline and evicts them with pipelined multi-key {@code DEL}s. Values are serialized with the
+ * same serializer as used by {@link org.springframework.data.redis.cache.RedisCacheManager},
+ * entries which cannot be deserialized are treated as misses.
+ *
+ * <p>Every key contains the current generation of the cache, e.g. {@code licenseInfo::3::CAS310}.
+ * Clearing the cache increments the generation instead of deleting the keys, entries of previous
+ * generations are never read again and expire after their TTL.</p>
+ */
+@Slf4j
+public class RedisLicenseInfoCache implements LicenseInfoCache {
+
+  static final int DELETE_BATCH_SIZE = 500;
+
+  private static final String KEY_PREFIX = CacheKeyPrefix.simple().compute(CACHE_NAME);
+  private static final byte[] GENERATION_KEY = (KEY_PREFIX + "generation")
+      .getBytes(StandardCharsets.UTF_8);
+
+  private final RedisConnectionFactory redisConnectionFactory;
+  private final RedisSerializer<Object> valueSerializer;
+  private final Expiration expiration;
+  private final int maxTargetedEvictions;
+
+  /**
+   * Creates the cache.
+   *
+   * @param redisConnectionFactory a configured redis connection factory.
+   * @param valueSerializer a serializer of cached values.
+   * @param ttl Time to live of cached entries.
+   * @param maxTargetedEvictions Maximum number of vehicles evicted one by one, the whole cache is
+   *     cleared if more vehicles are to be evicted.
+   */
+  public RedisLicenseInfoCache(RedisConnectionFactory redisConnectionFactory,
+      RedisSerializer<Object> valueSerializer, Duration ttl, int maxTargetedEvictions) {
+    this.redisConnectionFactory = redisConnectionFactory;
+    this.valueSerializer = valueSerializer;
+    this.expiration = Expiration.seconds(ttl.getSeconds());
+    this.maxTargetedEvictions = maxTargetedEvictions;
+  }
+
+  @Override
+  public Map<String, Optional<TaxiPhvLicenseInformationResponse>> getAll(
+      Collection<String> vrns) {
+    List<String> distinctVrns = new ArrayList<>(new LinkedHashSet<>(vrns));
+    if (distinctVrns.isEmpty()) {
+      return new HashMap<>();
+    }
+    List<byte[]> values;
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      long generation = currentGeneration(connection);
+      values = connection.stringCommands().mGet(keysOf(generation, distinctVrns));
+    } finally {
+      connection.close();
+    }
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> result = new HashMap<>();
+    for (int i = 0; i < distinctVrns.size(); i++) {
+      byte[] value = values == null ? null : values.get(i);
+      Object deserialized = value == null ? null : valueSerializer.deserialize(value);
+      if (deserialized instanceof TaxiPhvLicenseInformationResponse) {
+        result.put(distinctVrns.get(i),
+            Optional.of((TaxiPhvLicenseInformationResponse) deserialized));
+      } else if (deserialized instanceof NullValue) {
+        result.put(distinctVrns.get(i), Optional.empty());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void putAll(Map<String, Optional<TaxiPhvLicenseInformationResponse>> licences) {
+    if (licences.isEmpty()) {
+      return;
+    }
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      long generation = currentGeneration(connection);
+      connection.openPipeline();
+      for (Entry<String, Optional<TaxiPhvLicenseInformationResponse>> entry
+          : licences.entrySet()) {
+        connection.stringCommands().set(keyOf(generation, entry.getKey()),
+            serialize(entry.getValue()), expiration, SetOption.upsert());
+      }
+      connection.closePipeline();
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Override
+  public void evictAll(Collection<String> vrns) {
+    List<String> distinctVrns = new ArrayList<>(new LinkedHashSet<>(vrns));
+    if (distinctVrns.isEmpty()) {
+      return;
+    }
+    if (distinctVrns.size() > maxTargetedEvictions) {
+      log.info("{} vehicle(s) to be evicted exceed the limit of {}, clearing the whole cache",
+          distinctVrns.size(), maxTargetedEvictions);
+      clear();
+      return;
+    }
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      long generation = currentGeneration(connection);
+      connection.openPipeline();
+      for (List<String> batch : Iterables.partition(distinctVrns, DELETE_BATCH_SIZE)) {
+        connection.keyCommands().del(keysOf(generation, batch));
+      }
+      connection.closePipeline();
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Override
+  public void clear() {
+    RedisConnection connection = redisConnectionFactory.getConnection();
+    try {
+      Long generation = connection.stringCommands().incr(GENERATION_KEY);
+      log.info("Cleared '{}' cache, current generation: {}", CACHE_NAME, generation);
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static long currentGeneration(RedisConnection connection) {
+    byte[] generation = connection.stringCommands().get(GENERATION_KEY);
+    return generation == null ? 0 : Long.parseLong(new String(generation,
+        StandardCharsets.UTF_8));
+  }
+
+  static byte[] keyOf(long generation, String vrn) {
+    return (KEY_PREFIX + generation + "::" + vrn).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[][] keysOf(long generation, List<String> vrns) {
+    byte[][] keys = new byte[vrns.size()][];
+    for (int i = 0; i < vrns.size(); i++) {
+      keys[i] = keyOf(generation, vrns.get(i));
+    }
+    return keys;
+  }
+
+  private byte[] serialize(Optional<TaxiPhvLicenseInformationResponse> licence) {
+    return valueSerializer.serialize(licence.isPresent() ? licence.get() : NullValue.INSTANCE);
+  }
+}
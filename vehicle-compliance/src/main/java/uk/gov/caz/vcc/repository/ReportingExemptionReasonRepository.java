@@ -21,8 +21,13 @@ public class ReportingExemptionReasonRepository {
       + "exemption_reason "
       + "FROM caz_reporting.t_exemption_reason "
       + "WHERE LOWER(exemption_reason)=?";
+
+  public static final String SELECT_ALL = "SELECT "
+      + "exemption_reason_id, "
+      + "exemption_reason "
+      + "FROM caz_reporting.t_exemption_reason";
   
-  private static final UUID UNRECOGNISED_EXEMPTION_REASON_ID = 
+  public static final UUID UNRECOGNISED_EXEMPTION_REASON_ID = 
       UUID.fromString("73fb59b2-07a8-43f2-96f9-64c2d25a9f66");
 
   public static final ExemptionReasonRowMapper ROW_MAPPER = new ExemptionReasonRowMapper();
@@ -68,6 +73,15 @@ public class ReportingExemptionReasonRepository {
     return results.iterator().next();
   }
 
+  /**
+   * Finds all entities of {@link ReportingExemptionReason}.
+   *
+   * @return list of all {@link ReportingExemptionReason}.
+   */
+  public List<ReportingExemptionReason> findAll() {
+    return jdbcTemplate.query(SELECT_ALL, ROW_MAPPER);
+  }
+
   static class ExemptionReasonRowMapper implements RowMapper<ReportingExemptionReason> {
 
     @Override
@@ -19,8 +19,13 @@ public class ReportingFuelTypeRepository {
       + "fuel_type "
       + "FROM caz_reporting.t_fuel_type "
       + "WHERE fuel_type=?";
+
+  public static final String SELECT_ALL = "SELECT "
+      + "fuel_type_id, "
+      + "fuel_type "
+      + "FROM caz_reporting.t_fuel_type";
   
-  private static final UUID UNRECOGNISED_FUEL_TYPE_ID = 
+  public static final UUID UNRECOGNISED_FUEL_TYPE_ID = 
       UUID.fromString("01e47366-b9a4-4e1a-99f4-b74dc501cd14");
 
   public static final FuelTypeRowMapper ROW_MAPPER = new FuelTypeRowMapper();
@@ -66,6 +71,15 @@ public class ReportingFuelTypeRepository {
     return results.iterator().next();
   }
 
+  /**
+   * Finds all entities of {@link ReportingFuelType}.
+   *
+   * @return list of all {@link ReportingFuelType}.
+   */
+  public List<ReportingFuelType> findAll() {
+    return jdbcTemplate.query(SELECT_ALL, ROW_MAPPER);
+  }
+
   static class FuelTypeRowMapper implements RowMapper<ReportingFuelType> {
 
     @Override
@@ -20,8 +20,13 @@ public class ReportingTypeApprovalRepository {
       + "type_approval "
       + "FROM caz_reporting.t_type_approval "
       + "WHERE type_approval=?";
+
+  public static final String SELECT_ALL = "SELECT "
+      + "type_approval_id, "
+      + "type_approval "
+      + "FROM caz_reporting.t_type_approval";
   
-  private static final UUID UNRECOGNISED_TYPE_APPROVAL_ID = 
+  public static final UUID UNRECOGNISED_TYPE_APPROVAL_ID = 
       UUID.fromString("c8f36849-9396-4ae7-810a-e5c862ec80bf");
 
   public static final TypeApprovalRowMapper ROW_MAPPER = new TypeApprovalRowMapper();
@@ -68,6 +73,15 @@ public class ReportingTypeApprovalRepository {
     return results.iterator().next();
   }
 
+  /**
+   * Finds all entities of {@link ReportingTypeApproval}.
+   *
+   * @return list of all {@link ReportingTypeApproval}.
+   */
+  public List<ReportingTypeApproval> findAll() {
+    return jdbcTemplate.query(SELECT_ALL, ROW_MAPPER);
+  }
+
   static class TypeApprovalRowMapper implements RowMapper<ReportingTypeApproval> {
 
     @Override
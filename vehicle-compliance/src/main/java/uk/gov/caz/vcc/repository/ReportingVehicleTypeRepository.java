@@ -1,6 +1,5 @@
 package uk.gov.caz.vcc.repository;
 
-import com.google.common.annotations.VisibleForTesting;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -20,8 +19,12 @@ public class ReportingVehicleTypeRepository {
       + "ccaz_vehicle_type "
       + "FROM caz_reporting.t_ccaz_vehicle_type "
       + "WHERE ccaz_vehicle_type=?";
+
+  public static final String SELECT_ALL = "SELECT "
+      + "ccaz_vehicle_type_id, "
+      + "ccaz_vehicle_type "
+      + "FROM caz_reporting.t_ccaz_vehicle_type";
   
-  @VisibleForTesting
   public static final UUID UNRECOGNISED_VEHICLE_TYPE_ID = 
       UUID.fromString("6d697db0-01c1-4442-993d-e8747e3410c6");
 
@@ -69,6 +72,15 @@ public class ReportingVehicleTypeRepository {
     return results.iterator().next();
   }
 
+  /**
+   * Finds all entities of {@link ReportingVehicleType}.
+   *
+   * @return list of all {@link ReportingVehicleType}.
+   */
+  public List<ReportingVehicleType> findAll() {
+    return jdbcTemplate.query(SELECT_ALL, ROW_MAPPER);
+  }
+
   static class VehicleTypeRowMapper implements RowMapper<ReportingVehicleType> {
 
     @Override
@@ -0,0 +1,113 @@
+package uk.gov.caz.vcc.repository;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.caz.vcc.domain.EntrantExemption;
+import uk.gov.caz.vcc.domain.EntrantTaxiPhv;
+import uk.gov.caz.vcc.domain.VehicleEntrantReporting;
+
+/**
+ * Repository which writes reporting data of vehicle entrants with JDBC batch inserts.
+ */
+@Repository
+public class VehicleEntrantReportingBatchRepository {
+
+  @VisibleForTesting
+  static final String INSERT_VEHICLE_ENTRANT_REPORTING_SQL =
+      "INSERT INTO caz_reporting.t_vehicle_entrant_reporting ("
+          + "vehicle_entrant_reporting_id, "
+          + "vrn_hash, "
+          + "hour, "
+          + "clean_air_zone_id, "
+          + "type_approval_id, "
+          + "fuel_type_id, "
+          + "charge_validity_code, "
+          + "ccaz_vehicle_type_id, "
+          + "make, "
+          + "model, "
+          + "colour, "
+          + "non_standard_uk_plate_format_vehicle) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  @VisibleForTesting
+  static final String INSERT_ENTRANT_EXEMPTION_SQL =
+      "INSERT INTO caz_reporting.t_entrant_exemption ("
+          + "entrant_exemption_id, "
+          + "vehicle_entrant_reporting_id, "
+          + "exemption_reason_id) "
+          + "VALUES (?, ?, ?)";
+
+  @VisibleForTesting
+  static final String INSERT_ENTRANT_TAXI_PHV_SQL =
+      "INSERT INTO caz_reporting.t_entrant_taxi_phv ("
+          + "entrant_taxi_phv_id, "
+          + "vehicle_entrant_reporting_id, "
+          + "description, "
+          + "licensing_authority) "
+          + "VALUES (?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int updateBatchSize;
+
+  /**
+   * Public constructor that is used by Spring to initialize this class.
+   */
+  public VehicleEntrantReportingBatchRepository(JdbcTemplate jdbcTemplate,
+      @Value("${application.jdbc.updateBatchSize:100}") int updateBatchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.updateBatchSize = updateBatchSize;
+  }
+
+  /**
+   * Inserts reports of vehicle entrants along with their exemptions and taxi/PHV details in a
+   * single transaction, in batches of {@code application.jdbc.updateBatchSize} rows. Identifiers
+   * of reports must be already set, identifiers of exemptions and taxi/PHV details are generated.
+   *
+   * @param vehicleReports Reports of vehicle entrants.
+   * @param entrantExemptions Exemptions of the reported vehicle entrants.
+   * @param entrantTaxiPhvs Taxi/PHV details of the reported vehicle entrants.
+   */
+  @Transactional
+  public void insertAll(List<VehicleEntrantReporting> vehicleReports,
+      List<EntrantExemption> entrantExemptions, List<EntrantTaxiPhv> entrantTaxiPhvs) {
+    jdbcTemplate.batchUpdate(INSERT_VEHICLE_ENTRANT_REPORTING_SQL, vehicleReports,
+        updateBatchSize, (preparedStatement, report) -> {
+          int i = 0;
+          preparedStatement.setObject(++i, report.getVehicleEntrantReportingId());
+          preparedStatement.setString(++i, report.getVrnHash());
+          preparedStatement.setTimestamp(++i, Timestamp.valueOf(report.getHour()));
+          preparedStatement.setObject(++i, report.getCleanAirZoneId());
+          preparedStatement.setObject(++i, report.getTypeApprovalId());
+          preparedStatement.setObject(++i, report.getFuelTypeId());
+          preparedStatement.setString(++i, report.getChargeValidityCode());
+          preparedStatement.setObject(++i, report.getCcazVehicleTypeId());
+          preparedStatement.setString(++i, report.getMake());
+          preparedStatement.setString(++i, report.getModel());
+          preparedStatement.setString(++i, report.getColour());
+          preparedStatement.setBoolean(++i, report.isNonStandardUkPlateFormatVehicle());
+        });
+    if (!entrantExemptions.isEmpty()) {
+      jdbcTemplate.batchUpdate(INSERT_ENTRANT_EXEMPTION_SQL, entrantExemptions, updateBatchSize,
+          (preparedStatement, exemption) -> {
+            preparedStatement.setObject(1, UUID.randomUUID());
+            preparedStatement.setObject(2, exemption.getVehicleEntrantReportingId());
+            preparedStatement.setObject(3, exemption.getExemptionReasonId());
+          });
+    }
+    if (!entrantTaxiPhvs.isEmpty()) {
+      jdbcTemplate.batchUpdate(INSERT_ENTRANT_TAXI_PHV_SQL, entrantTaxiPhvs, updateBatchSize,
+          (preparedStatement, taxiPhv) -> {
+            preparedStatement.setObject(1, UUID.randomUUID());
+            preparedStatement.setObject(2, taxiPhv.getVehicleEntrantReportingId());
+            preparedStatement.setString(3, taxiPhv.getDescription());
+            preparedStatement.setString(4, taxiPhv.getLicensingAuthority());
+          });
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package uk.gov.caz.vcc.repository.audit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Maintains the monthly partitions of the vehicle entrant and audit tables (see changeset
+ * 0073). Rows of months without a partition end up in the default partition, so partitions need
+ * to be created ahead of time for queries on them to be pruned.
+ */
+@Slf4j
+@Repository
+@AllArgsConstructor
+public class MonthlyPartitionRepository {
+
+  @VisibleForTesting
+  static final List<String> PARTITIONED_TABLES = ImmutableList.of(
+      "caz_vehicle_entrant.t_clean_air_zone_entrant",
+      "caz_vehicle_entrant_audit.logged_actions",
+      "audit.logged_actions"
+  );
+
+  @VisibleForTesting
+  static final String CREATE_PARTITIONS_SQL =
+      "SELECT public.create_monthly_partitions(CAST(? AS regclass), ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Creates missing partitions of all partitioned tables, from the current month to
+   * {@code monthsAhead} months ahead.
+   *
+   * @param monthsAhead number of months after the current one to create partitions for
+   * @return number of created partitions
+   */
+  public int createFuturePartitions(int monthsAhead) {
+    int created = 0;
+    for (String table : PARTITIONED_TABLES) {
+      Integer createdForTable = jdbcTemplate.queryForObject(CREATE_PARTITIONS_SQL, Integer.class,
+          table, monthsAhead);
+      log.info("Created {} partitions of {}", createdForTable, table);
+      created += createdForTable;
+    }
+    return created;
+  }
+}
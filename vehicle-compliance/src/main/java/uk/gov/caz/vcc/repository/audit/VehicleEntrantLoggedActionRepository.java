@@ -1,31 +1,27 @@
 package uk.gov.caz.vcc.repository.audit;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import lombok.AllArgsConstructor;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.stereotype.Repository;
+import uk.gov.caz.auditcleanup.AuditPurgeEngine;
 
 @Repository
 @AllArgsConstructor
 public class VehicleEntrantLoggedActionRepository {
-  private final JdbcTemplate jdbcTemplate;
-  
+
+  private static final String LOGGED_ACTIONS_TABLE = "caz_vehicle_entrant_audit.logged_actions";
+
+  private final AuditPurgeEngine auditPurgeEngine;
+
   /**
-   * Remove log data that is older then the given date.
+   * Remove log data that is older then the given date. Rows are deleted in chunks, each
+   * committed separately.
    *
-   * @param inputDate given date
-    */
-  public int deleteLogsBeforeDate(LocalDate inputDate) {
-    final String sql = "DELETE FROM caz_vehicle_entrant_audit.logged_actions "
-        + "WHERE CAST (date_trunc('day', action_tstamp) AS date) <= ?";
-    return jdbcTemplate.update(sql, new PreparedStatementSetter() {
-      @Override
-      public void setValues(PreparedStatement ps) throws SQLException {
-        ps.setDate(1, java.sql.Date.valueOf(inputDate));
-      }
-    });
+   * @param inputDate given date (inclusive)
+   * @return number of deleted rows
+   */
+  public long deleteLogsBeforeDate(LocalDate inputDate) {
+    return auditPurgeEngine.purgeBefore(LOGGED_ACTIONS_TABLE, inputDate.plusDays(1))
+        .getDeletedRows();
   }
-}
\ No newline at end of file
+}
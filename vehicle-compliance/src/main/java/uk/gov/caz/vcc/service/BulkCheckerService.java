@@ -1,12 +1,11 @@
 package uk.gov.caz.vcc.service;
 
-import com.opencsv.bean.CsvToBeanBuilder;
-
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -16,15 +15,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
-import uk.gov.caz.vcc.dto.RemoteVehicleDataRequest;
-import uk.gov.caz.vcc.service.ChargeCalculationService.CsvOutput;
+import uk.gov.caz.vcc.domain.service.bulkchecker.AdaptiveBatchThrottle;
+import uk.gov.caz.vcc.domain.service.bulkchecker.BulkCheckerCheckpoint;
+import uk.gov.caz.vcc.domain.service.bulkchecker.BulkCheckerOutputWriter;
+import uk.gov.caz.vcc.domain.service.bulkchecker.VrnCsvReader;
+import uk.gov.caz.vcc.repository.BulkCheckerCheckpointRepository;
 
 /**
  * Service layer implementation for handling CSV-based bulk vehicle chargeability checks.
@@ -35,9 +39,15 @@ import uk.gov.caz.vcc.service.ChargeCalculationService.CsvOutput;
 @Slf4j
 @Setter
 public class BulkCheckerService {
+  private static final String CHECKPOINT_METADATA_KEY = "bulk-checker-checkpoint";
+  private static final String INPUT_FOLDER = "input/";
+  private static final String CHECKPOINT_FOLDER = "bulk-checker-checkpoints/";
+
   private final S3Client s3Client;
   private final ChargeCalculationService chargeCalculationService;
   private final CazTariffService tariffService;
+  private final BulkCheckerCheckpointRepository checkpointRepository;
+  private final AdaptiveBatchThrottle bulkCheckerThrottle;
 
   @Value("${application.bulk-checker.s3-bucket:jaqu.caz}")
   private String s3Bucket;
@@ -45,26 +55,139 @@ public class BulkCheckerService {
   @Value("${application.bulk-checker.filePrefix:}")
   private String filePrefix;
 
+  @Value("${application.bulk-checker.chunk-size:300}")
+  private int chunkSize;
+
+  @Value("${application.bulk-checker.timeout-margin-seconds:30}")
+  private int timeoutMarginInSeconds;
+
+  @Value("${application.bulk-checker.max-invocations:50}")
+  private int maxInvocations;
+
+  @Value("${application.bulk-checker.part-size-bytes:5242880}")
+  private int partSizeInBytes;
+
   /**
    * Process uploaded csv file.
+   *
+   * <p>The file is streamed from S3 and processed in chunks of {@code chunkSize} VRNs whose
+   * results are uploaded as parts of a multipart upload, so neither the input nor the output is
+   * held in memory as a whole. When the next chunk would not be processed within the given
+   * timeout, the progress is stored as a {@link BulkCheckerCheckpoint} and the file is
+   * re-submitted for processing, so that the next invocation resumes where this one
+   * stopped.</p>
+   *
+   * <p>Objects which are not input files, e.g. outputs or checkpoints written by this service,
+   * are ignored.</p>
+   *
    * @param bucket S3 bucket where the csv file is located
    * @param filename The csv filename
    * @param timeoutInSeconds Function processing timeout
    */
   public void process(String bucket, String filename, int timeoutInSeconds) {
+    long deadline = System.nanoTime()
+        + TimeUnit.SECONDS.toNanos(Math.max(0, timeoutInSeconds - timeoutMarginInSeconds));
     try {
-      List<String> vrns = loadVrnsFrom(bucket, filename);
+      if (!isInputFile(filename)) {
+        log.info("Ignoring {}/{} which is not a bulk checker input file", bucket, filename);
+        return;
+      }
+      String checkpointKey = checkpointKeyOf(filename);
+      HeadObjectResponse input = s3Client.headObject(
+          HeadObjectRequest.builder().bucket(bucket).key(filename).build());
+      BulkCheckerCheckpoint checkpoint = loadCheckpoint(bucket, filename, checkpointKey, input);
+      BulkCheckerOutputWriter output = new BulkCheckerOutputWriter(s3Client, bucket,
+          outputKeyOf(filename), partSizeInBytes, checkpoint);
+      if (checkpoint.getInvocations() >= maxInvocations) {
+        log.error("File {}/{} has not been processed within {} invocations, giving up",
+            bucket, filename, maxInvocations);
+        output.abort();
+        checkpointRepository.delete(bucket, checkpointKey);
+        return;
+      }
+      checkpoint = checkpoint.toBuilder().invocations(checkpoint.getInvocations() + 1).build();
+      bulkCheckerThrottle.reset();
       List<CleanAirZoneDto> cleanAirZones = tariffService
           .getCleanAirZoneSelectionListings().getCleanAirZones();
-      List<CsvOutput> responses = chargeCalculationService
-          .getComplianceCheckAsCsv(vrns, cleanAirZones);
-      persist(responses, bucket, filename);
+      try (VrnCsvReader reader = new VrnCsvReader(openFileInputStream(bucket, filename))) {
+        reader.skip(checkpoint.getProcessedVrns());
+        long processedVrns = checkpoint.getProcessedVrns();
+        long lastChunkDuration = 0;
+        List<String> vrns = reader.next(chunkSize);
+        while (!vrns.isEmpty()) {
+          // at least one chunk is processed by every invocation to guarantee progress
+          if (processedVrns > checkpoint.getProcessedVrns()
+              && System.nanoTime() + lastChunkDuration > deadline) {
+            suspend(bucket, filename, checkpointKey,
+                output.checkpoint(checkpoint.toBuilder().processedVrns(processedVrns).build()));
+            return;
+          }
+          long chunkStart = System.nanoTime();
+          boolean partUploaded = output.append(
+              chargeCalculationService.getComplianceCheckAsCsv(vrns, cleanAirZones));
+          processedVrns += vrns.size();
+          if (partUploaded) {
+            // lets a retried invocation resume from the last uploaded part
+            checkpointRepository.save(bucket, checkpointKey,
+                output.checkpoint(checkpoint.toBuilder().processedVrns(processedVrns).build()));
+          }
+          lastChunkDuration = System.nanoTime() - chunkStart;
+          vrns = reader.next(chunkSize);
+        }
+        log.info("Processed {} VRNs of {}/{} in {} invocation(s)", processedVrns, bucket,
+            filename, checkpoint.getInvocations());
+      }
+      output.complete();
+      checkpointRepository.delete(bucket, checkpointKey);
     } catch (Exception e) {
       log.error(e.getMessage());
       log.error("Exception while processing file {}/{}", bucket, filename);
     }
   }
-  
+
+  /**
+   * Loads the checkpoint of a file whose processing has been suspended or interrupted. A stored
+   * checkpoint is used only if the file has been re-submitted by {@link #suspend} or has not been
+   * modified since its processing started, otherwise the output it refers to is discarded.
+   */
+  private BulkCheckerCheckpoint loadCheckpoint(String bucket, String filename,
+      String checkpointKey, HeadObjectResponse input) {
+    Optional<BulkCheckerCheckpoint> storedCheckpoint =
+        checkpointRepository.find(bucket, checkpointKey);
+    if (storedCheckpoint.isPresent()) {
+      BulkCheckerCheckpoint checkpoint = storedCheckpoint.get();
+      if (checkpoint.getId().equals(input.metadata().get(CHECKPOINT_METADATA_KEY))
+          || checkpoint.getInputLastModified().equals(input.lastModified())) {
+        log.info("Resuming processing of {}/{} after {} VRNs", bucket, filename,
+            checkpoint.getProcessedVrns());
+        return checkpoint.toBuilder().inputLastModified(input.lastModified()).build();
+      }
+      log.info("Discarding stale checkpoint of {}/{}", bucket, filename);
+      new BulkCheckerOutputWriter(s3Client, bucket, outputKeyOf(filename), partSizeInBytes,
+          checkpoint).abort();
+    }
+    return BulkCheckerCheckpoint.initial(input.lastModified());
+  }
+
+  /**
+   * Stores the checkpoint and re-submits the file for processing by copying it onto itself,
+   * which emits a new object created event. The identifier of the checkpoint is stored in the
+   * metadata of the file to tell the copy apart from a file uploaded by a user.
+   */
+  private void suspend(String bucket, String filename, String checkpointKey,
+      BulkCheckerCheckpoint checkpoint) {
+    log.info("Suspending processing of {}/{} after {} VRNs", bucket, filename,
+        checkpoint.getProcessedVrns());
+    checkpointRepository.save(bucket, checkpointKey, checkpoint);
+    s3Client.copyObject(CopyObjectRequest.builder()
+        .copySource(SdkHttpUtils.urlEncodeIgnoreSlashes(bucket + "/" + filename))
+        .bucket(bucket)
+        .key(filename)
+        .metadata(Collections.singletonMap(CHECKPOINT_METADATA_KEY, checkpoint.getId()))
+        .metadataDirective(MetadataDirective.REPLACE)
+        .build());
+  }
+
   /**
    * Get Bulk Checker output file.
    * @param fileName Csv filename under processing
@@ -108,72 +231,38 @@ public class BulkCheckerService {
   }
 
   /**
-   * Persists a CSV output of a bulk check result to S3.
-   * @param csvOutputs a series of CSV row representations to write to the output location.
-   * @param bucket the bucket to which an output will be written.
-   * @param filePath the object key to be used for the output file.
+   * Checks whether the given object key denotes an input file, i.e. a file in an {@code input}
+   * folder other than a checkpoint.
+   * @param filePath the object key to check.
+   * @return true if the object key denotes an input file.
    */
-  private void persist(List<CsvOutput> csvOutputs, String bucket, String filePath) {
+  private static boolean isInputFile(String filePath) {
+    return !filePath.startsWith(CHECKPOINT_FOLDER) && filePath.contains(INPUT_FOLDER);
+  }
 
-    String fileFolder = filePath.substring(0, filePath.indexOf("input"));
+  /**
+   * Builds the object key of the output of the given input file.
+   * @param filePath the object key of the input file.
+   * @return the object key to be used for the output file.
+   */
+  private static String outputKeyOf(String filePath) {
+    String fileFolder = filePath.substring(0, filePath.indexOf(INPUT_FOLDER));
     String fileName = filePath.substring(filePath.lastIndexOf('/') + 1);
     String fileExt = fileName.substring(fileName.indexOf('.'));
-    String newFileName = fileFolder.concat("output/").concat(
+    return fileFolder.concat("output/").concat(
         fileName.substring(0, fileName.indexOf('.')).concat("-output").concat(fileExt));
-    log.info("Writing result to {}", newFileName);
-
-    StringBuilder builder = new StringBuilder();
-    
-    if (csvOutputs.size() > 1) {
-      CsvOutput header = csvOutputs.get(0);
-      builder.append(printCsvRow(header, true));
-      for (int i = 1; i < csvOutputs.size(); i++) {
-        builder.append(printCsvRow(csvOutputs.get(i), false));
-      }
-    }
-
-    PutObjectRequest request =
-        PutObjectRequest.builder()
-                        .bucket(bucket)
-                        .key(newFileName)
-                        .build();
-    s3Client.putObject(request, RequestBody.fromString(builder.toString()));
   }
 
   /**
-   * Method for creating a CSV file string representation.
-   * @param line a line of data in a CSV output.
-   * @param isHeader indicator whether the supplied line is a header row in a CSV output.
-   * @return a string representation of a CSV file row.
+   * Builds the object key of the checkpoint of the given input file. Checkpoints are kept in a
+   * separate top-level folder, so that they do not trigger processing of input files.
+   * @param filePath the object key of the input file.
+   * @return the object key to be used for the checkpoint.
    */
-  private String printCsvRow(CsvOutput line, boolean isHeader) {
-    StringBuilder builder = new StringBuilder();
-    builder.append(String.format("%-25s,", (isHeader ? "Registration Number" : line.getVrn())));
-    builder.append(String.format("%-25s,", (isHeader ? "Type" : line.getVehicleType())));
-    line.getCharges()
-          .entries()
-          .forEach(entry -> builder.append(String.format("%10s,", entry.getValue())));
-    builder.append("\r\n");
-    return builder.toString();
+  private static String checkpointKeyOf(String filePath) {
+    return CHECKPOINT_FOLDER.concat(filePath).concat(".json");
   }
 
-  /**
-   * Method to load VRNs from an input CSV file.
-   * @param bucket the bucket in which source CSV files is located.
-   * @param filename the object key for the input CSV file.
-   * @return a list of VRNs extracted from the input CSV file.
-   */
-  private List<String> loadVrnsFrom(String bucket, String filename) {
-    InputStream input = openFileInputStream(bucket,filename);
-    List<RemoteVehicleDataRequest> requests =
-        new CsvToBeanBuilder<RemoteVehicleDataRequest>(
-            new InputStreamReader(input))
-                  .withType(RemoteVehicleDataRequest.class).build().parse();
-    return requests.stream()
-                  .map(request -> request.getRegistrationNumber().replaceAll("\\s+",""))
-                  .collect(Collectors.toList());
-  }
-  
   /**
    * Method to open a file input stream from a source S3 object.
    * @param bucket the bucket in which source CSV files is located.
@@ -187,7 +276,7 @@ public class BulkCheckerService {
                         .bucket(bucket)
                         .key(filename)
                         .build();
-    return s3Client.getObjectAsBytes(getObjectRequest).asInputStream();
+    return s3Client.getObject(getObjectRequest);
   }
 
   /**
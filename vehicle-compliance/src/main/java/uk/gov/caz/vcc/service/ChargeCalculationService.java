@@ -21,6 +21,8 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -29,7 +31,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.MultiValuedMap;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.common.util.Strings;
 import uk.gov.caz.definitions.domain.Vehicle;
@@ -48,6 +50,7 @@ import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
 import uk.gov.caz.vcc.domain.service.ChargeabilityService;
 import uk.gov.caz.vcc.domain.service.ComplianceService;
 import uk.gov.caz.vcc.domain.service.VehicleIdentificationService;
+import uk.gov.caz.vcc.domain.service.bulkchecker.AdaptiveBatchThrottle;
 import uk.gov.caz.vcc.domain.service.bulkchecker.BulkCheckerUtility;
 import uk.gov.caz.vcc.dto.NtrAndDvlaVehicleData;
 import uk.gov.caz.vcc.dto.PreFetchedDataResults;
@@ -83,12 +86,7 @@ public class ChargeCalculationService {
   private final NationalTaxiRegisterService nationalTaxiRegisterService;
   private final CazTariffService tariffService;
   private final LicenseAndVehicleProvider licenseAndVehicleProvider;
-
-  @Value("${services.bulk-checker-batch-size:30}")
-  private int bulkCheckerBatchSize;
-
-  @Value("${services.bulk-checker-wait-interval:500}")
-  private int waitIntervalMs;
+  private final AdaptiveBatchThrottle bulkCheckerThrottle;
 
   @VisibleForTesting
   static final String exemptionNote = "Exempt from charges.";
@@ -306,15 +304,27 @@ public class ChargeCalculationService {
     List<ComplianceResultsDto> complianceOutcomes =
         new ArrayList<ComplianceResultsDto>();
 
-    List<List<String>> batchedVrns =
-        Lists.partition(vrns, bulkCheckerBatchSize);
-
-    for (List<String> vrnBatch : batchedVrns) {
+    int processedVrns = 0;
+    while (processedVrns < vrns.size()) {
+      List<String> vrnBatch = vrns.subList(processedVrns,
+          Math.min(vrns.size(), processedVrns + bulkCheckerThrottle.getBatchSize()));
+      processedVrns += vrnBatch.size();
       log.info(String.format("Processing batch of %s vrns", vrnBatch.size()));
-      complianceOutcomes.addAll(bulkComplianceCheck(vrnBatch, null));
-      log.info(String.format("Waiting for %s ms before processing next batch",
-          waitIntervalMs));
-      Thread.sleep(waitIntervalMs);
+      AtomicInteger throttlingResponses = new AtomicInteger();
+      long batchStart = System.currentTimeMillis();
+      complianceOutcomes.addAll(bulkComplianceCheck(vrnBatch, null, httpStatus -> {
+        if (AdaptiveBatchThrottle.isThrottling(httpStatus)) {
+          throttlingResponses.incrementAndGet();
+        }
+      }));
+      bulkCheckerThrottle.onBatchProcessed(System.currentTimeMillis() - batchStart,
+          throttlingResponses.get());
+      long delayMs = bulkCheckerThrottle.getDelayMs();
+      if (delayMs > 0 && processedVrns < vrns.size()) {
+        log.info(String.format("Waiting for %s ms before processing next batch",
+            delayMs));
+        Thread.sleep(delayMs);
+      }
     }
 
     log.info("All batched vrns processed");
@@ -337,6 +347,16 @@ public class ChargeCalculationService {
    */
   public List<ComplianceResultsDto> bulkComplianceCheck(List<String> vrns,
       List<UUID> zones) throws InterruptedException {
+    return bulkComplianceCheck(vrns, zones, httpStatus -> { });
+  }
+
+  /**
+   * Calculate charges applicable to vehicles if they enter CAZ, reporting
+   * statuses of failed DVLA and NTR responses to the given listener.
+   */
+  private List<ComplianceResultsDto> bulkComplianceCheck(List<String> vrns,
+      List<UUID> zones, Consumer<HttpStatus> upstreamFailureListener)
+      throws InterruptedException {
 
     // Convert list of VRNs to set for method compatibility
     Set<String> vrnSet = Sets.newHashSet(vrns);
@@ -373,12 +393,16 @@ public class ChargeCalculationService {
 
       if (dvlaVehicle.hasFailed()) {
         unableToProcessedVrns.add(vrn);
+        reportFailure(dvlaVehicle.getHttpStatus(), upstreamFailureListener);
       } else {
         vehicleIdentificationService.setVehicleType(processedVehicle);
         vehicles.put(vrn, processedVehicle);
       }
 
       SingleLicenceData ntrVehicleData = licenseAndVehicle.getNtrVehicleData();
+      if (ntrVehicleData.hasFailed()) {
+        reportFailure(ntrVehicleData.getHttpStatus(), upstreamFailureListener);
+      }
 
       Optional<TaxiPhvLicenseInformationResponse> optionalLicence =
           ntrVehicleData.getLicence();
@@ -476,6 +500,16 @@ public class ChargeCalculationService {
 
   }
 
+  /**
+   * Passes the status of a failed DVLA or NTR response to the listener.
+   */
+  private static void reportFailure(@Nullable HttpStatus httpStatus,
+      Consumer<HttpStatus> upstreamFailureListener) {
+    if (httpStatus != null) {
+      upstreamFailureListener.accept(httpStatus);
+    }
+  }
+
   /**
    * Build bulk compliance check response for vehicles whose compliance are
    * undetermined.
@@ -649,7 +683,7 @@ public class ChargeCalculationService {
 
             boolean gpwCompliant = generalWhitelistService
                 .isCompliantOnGeneralPurposeWhitelist(v.getRegistrationNumber(),
-                    preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+                    preFetchedDataResults.getGeneralWhitelistIndex());
             boolean retroFit =
                 retrofitService.isRetrofitVehicle(v.getRegistrationNumber(),
                     preFetchedDataResults.getMatchedRetrofittedVehicles());
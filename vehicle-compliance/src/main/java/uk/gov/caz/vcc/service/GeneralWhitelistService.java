@@ -1,22 +1,51 @@
 package uk.gov.caz.vcc.service;
 
+import com.google.common.collect.Lists;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import lombok.AllArgsConstructor;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import uk.gov.caz.vcc.domain.GeneralWhitelistIndex;
 import uk.gov.caz.vcc.domain.GeneralWhitelistVehicle;
 import uk.gov.caz.vcc.repository.GeneralWhitelistRepository;
 
+/**
+ * Answers whether vehicles are on the General Purpose Whitelist.
+ *
+ * <p>Checks made for a batch of vehicles use a {@link GeneralWhitelistIndex} of the vehicles
+ * fetched for the batch. Checks of a single vehicle query the database, unless
+ * {@code application.general-whitelist.snapshot-ttl-seconds} is positive, in which case they are
+ * answered from an in-memory snapshot of the whole whitelist which is reloaded once it is older
+ * than the given number of seconds.</p>
+ */
 @Slf4j
-@AllArgsConstructor
 @Service
 public class GeneralWhitelistService {
 
   public static final String COMPLIANT = "compliant";
   public static final String EXEMPTED = "exempted";
   private final GeneralWhitelistRepository generalWhitelistRepository;
+  private final long snapshotTtlNanos;
+
+  private volatile GeneralWhitelistIndex snapshot;
+
+  private volatile long snapshotLoadedAtNanos;
+
+  /**
+   * Creates the service.
+   *
+   * @param generalWhitelistRepository repository of the General Purpose Whitelist
+   * @param snapshotTtlSeconds time after which the in-memory snapshot of the whitelist is
+   *     reloaded, or {@code 0} if single vehicles should be looked up in the database
+   */
+  public GeneralWhitelistService(GeneralWhitelistRepository generalWhitelistRepository,
+      @Value("${application.general-whitelist.snapshot-ttl-seconds:0}") long snapshotTtlSeconds) {
+    this.generalWhitelistRepository = generalWhitelistRepository;
+    this.snapshotTtlNanos = TimeUnit.SECONDS.toNanos(snapshotTtlSeconds);
+  }
 
   /**
    * Tries to find vehicle with VRN in General Whitelist database.
@@ -26,7 +55,7 @@ public class GeneralWhitelistService {
    *     specified VRN is not in General Whitelist database.
    */
   public Optional<GeneralWhitelistVehicle> tryToFindFor(String vrn) {
-    return generalWhitelistRepository.findByVrnIgnoreCase(vrn);
+    return findVehicle(vrn);
   }
 
   public List<GeneralWhitelistVehicle> findByVrns(Set<String> vrns) {
@@ -39,7 +68,7 @@ public class GeneralWhitelistService {
    * @return {@code true} if exempt on general whitelist, else {@code false}
    */
   public boolean exemptOnGeneralWhitelist(String vrn) {
-    Optional<GeneralWhitelistVehicle> vehicle = generalWhitelistRepository.findByVrnIgnoreCase(vrn);
+    Optional<GeneralWhitelistVehicle> vehicle = findVehicle(vrn);
     return vehicle.isPresent() && vehicle.get().isExempt();
   }
 
@@ -50,7 +79,7 @@ public class GeneralWhitelistService {
    * @return Exemption category if present
    */
   public Optional<String> getExemptionCategory(String vrn) {
-    Optional<GeneralWhitelistVehicle> vehicle = generalWhitelistRepository.findByVrnIgnoreCase(vrn);
+    Optional<GeneralWhitelistVehicle> vehicle = findVehicle(vrn);
     if (vehicle.isPresent() && vehicle.get().isExempt()) {
       return Optional.of(vehicle.get().getCategory());
     } else {
@@ -64,7 +93,7 @@ public class GeneralWhitelistService {
    * @return {@code true} if compliant on general whitelist, else {@code false}
    */
   public boolean compliantOnGeneralWhitelist(String vrn) {
-    Optional<GeneralWhitelistVehicle> vehicle = generalWhitelistRepository.findByVrnIgnoreCase(vrn);
+    Optional<GeneralWhitelistVehicle> vehicle = findVehicle(vrn);
     return vehicle.isPresent() && vehicle.get().isCompliant();
   }
 
@@ -73,10 +102,10 @@ public class GeneralWhitelistService {
    * Vehicle" based on pre-fetched results.
    */
   public boolean isOnGeneralPurposeWhitelistAndHasCategoryNonUk(String vrn,
-      List<GeneralWhitelistVehicle> matchedGpwVehicles) {
-    return matchedGpwVehicles.stream()
-        .anyMatch(gpwVehicle -> gpwVehicle.getVrn().equals(vrn)
-            && hasGeneralPurposeCategoryNonUk(gpwVehicle));
+      GeneralWhitelistIndex matchedGpwVehicles) {
+    return matchedGpwVehicles.find(vrn)
+        .filter(GeneralWhitelistService::hasGeneralPurposeCategoryNonUk)
+        .isPresent();
   }
 
   /**
@@ -84,10 +113,10 @@ public class GeneralWhitelistService {
    * based on pre-fetched results.
    */
   public boolean isOnGeneralPurposedWhitelistAndHasCategoryOther(String vrn,
-      List<GeneralWhitelistVehicle> matchedGpwVehicles) {
-    return matchedGpwVehicles.stream()
-        .anyMatch(gpwVehicle -> gpwVehicle.getVrn().equals(vrn)
-            && hasGeneralPurposeCategoryOther(gpwVehicle));
+      GeneralWhitelistIndex matchedGpwVehicles) {
+    return matchedGpwVehicles.find(vrn)
+        .filter(GeneralWhitelistService::hasGeneralPurposeCategoryOther)
+        .isPresent();
   }
 
   /**
@@ -95,11 +124,10 @@ public class GeneralWhitelistService {
    * "Problematic VRN".
    */
   public boolean isOnGeneralPurposeWhitelistAndHasCategoryProblematicVrn(
-      String vrn, List<GeneralWhitelistVehicle> matchedGpwVehicles) {
-    // Stream result from in-memory list
-    return matchedGpwVehicles.stream()
-        .anyMatch(gpwVehicle -> gpwVehicle.getVrn().equals(vrn)
-            && hasGeneralPurposeCategoryProblematicVrn(gpwVehicle));
+      String vrn, GeneralWhitelistIndex matchedGpwVehicles) {
+    return matchedGpwVehicles.find(vrn)
+        .filter(GeneralWhitelistService::hasGeneralPurposeCategoryProblematicVrn)
+        .isPresent();
   }
 
   /**
@@ -130,19 +158,50 @@ public class GeneralWhitelistService {
    * Checks if a vehicle is exempt by virtue of its category on the General Purpose Whitelist.
    */
   public boolean isExemptOnGeneralPurposeWhitelist(String vrn,
-      List<GeneralWhitelistVehicle> matchedGpwVehicles) {
-    return matchedGpwVehicles.stream()
-        .anyMatch(gpwVehicle -> gpwVehicle.getVrn().equals(vrn)
-            && gpwVehicle.isExempt());
+      GeneralWhitelistIndex matchedGpwVehicles) {
+    return matchedGpwVehicles.find(vrn)
+        .filter(GeneralWhitelistVehicle::isExempt)
+        .isPresent();
   }
 
   /**
    * Checks if a vehicle is compliant by virtue of its category on the General Purpose Whitelist.
    */
   public boolean isCompliantOnGeneralPurposeWhitelist(String vrn,
-      List<GeneralWhitelistVehicle> matchedGpwVehicles) {
-    return matchedGpwVehicles.stream()
-        .anyMatch(gpwVehicle -> gpwVehicle.getVrn().equals(vrn)
-            && gpwVehicle.isCompliant());
+      GeneralWhitelistIndex matchedGpwVehicles) {
+    return matchedGpwVehicles.find(vrn)
+        .filter(GeneralWhitelistVehicle::isCompliant)
+        .isPresent();
+  }
+
+  /**
+   * Looks a single vehicle up in the snapshot of the whitelist, if enabled, or in the database.
+   */
+  private Optional<GeneralWhitelistVehicle> findVehicle(String vrn) {
+    if (snapshotTtlNanos <= 0) {
+      return generalWhitelistRepository.findByVrnIgnoreCase(vrn);
+    }
+    return getSnapshot().find(vrn);
+  }
+
+  /**
+   * Returns the in-memory snapshot of the whitelist, reloading it once it is older than the
+   * configured TTL.
+   */
+  private GeneralWhitelistIndex getSnapshot() {
+    GeneralWhitelistIndex current = snapshot;
+    if (current == null || System.nanoTime() - snapshotLoadedAtNanos > snapshotTtlNanos) {
+      synchronized (this) {
+        current = snapshot;
+        if (current == null || System.nanoTime() - snapshotLoadedAtNanos > snapshotTtlNanos) {
+          current = GeneralWhitelistIndex.ignoringCase(
+              Lists.newArrayList(generalWhitelistRepository.findAll()));
+          snapshotLoadedAtNanos = System.nanoTime();
+          snapshot = current;
+          log.info("Loaded {} General Purpose Whitelist vehicles", current.size());
+        }
+      }
+    }
+    return current;
   }
-}
\ No newline at end of file
+}
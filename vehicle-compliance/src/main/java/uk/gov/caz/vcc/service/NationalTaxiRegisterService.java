@@ -32,13 +32,13 @@ public class NationalTaxiRegisterService {
   }
 
   /**
-   * Method for evicting cached licenseInfo.
+   * Method for evicting cached licenseInfo of given vehicles.
    */
   public void cacheEvictLicenses(List<String> vrms) {
     if (vrms.isEmpty()) {
       return;
     }
-    
-    nationalTaxiRegisterRepository.cacheEvictLicenseInfo();
+
+    nationalTaxiRegisterRepository.cacheEvictLicenseInfo(vrms);
   }
 }
\ No newline at end of file
@@ -2,58 +2,80 @@ package uk.gov.caz.vcc.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.annotations.VisibleForTesting;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import uk.gov.caz.definitions.domain.VehicleType;
 import uk.gov.caz.vcc.domain.EntrantExemption;
 import uk.gov.caz.vcc.domain.EntrantTaxiPhv;
-import uk.gov.caz.vcc.domain.ReportingExemptionReason;
-import uk.gov.caz.vcc.domain.ReportingFuelType;
-import uk.gov.caz.vcc.domain.ReportingTypeApproval;
-import uk.gov.caz.vcc.domain.ReportingVehicleType;
 import uk.gov.caz.vcc.domain.VehicleEntrantReporting;
 import uk.gov.caz.vcc.dto.VehicleEntrantReportingRequest;
-import uk.gov.caz.vcc.repository.EntrantExemptionRepository;
-import uk.gov.caz.vcc.repository.EntrantTaxiPhvRepository;
 import uk.gov.caz.vcc.repository.ReportingExemptionReasonRepository;
 import uk.gov.caz.vcc.repository.ReportingFuelTypeRepository;
 import uk.gov.caz.vcc.repository.ReportingTypeApprovalRepository;
 import uk.gov.caz.vcc.repository.ReportingVehicleTypeRepository;
-import uk.gov.caz.vcc.repository.VehicleEntrantReportingRepository;
+import uk.gov.caz.vcc.repository.VehicleEntrantReportingBatchRepository;
 
 /**
  * Service that take SQS messages from {@ReportingDataHandler} and saves
  * reporting data to the database.
+ *
+ * <p>Identifiers of type approvals, fuel types, vehicle types and exemption reasons are resolved
+ * against an in-memory copy of the dimension tables which is reloaded every
+ * {@code application.reporting.dimensions-ttl-seconds}, and all rows of a message are inserted
+ * with JDBC batches in a single transaction.</p>
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ReportingDataService {
-  
-  private final VehicleEntrantReportingRepository vehicleEntrantsReportingRepository;
-  
-  private final EntrantExemptionRepository entrantExemptionRepository;
-  
-  private final EntrantTaxiPhvRepository entrantTaxiPhvRepository;
+
+  private static final ObjectReader REQUESTS_READER = new ObjectMapper()
+      .readerFor(new TypeReference<List<VehicleEntrantReportingRequest>>() {});
 
   @VisibleForTesting
   public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
-  
+
+  private final VehicleEntrantReportingBatchRepository vehicleEntrantReportingBatchRepository;
+
   private final ReportingTypeApprovalRepository reportingTypeApprovalRepository;
-  
+
   private final ReportingFuelTypeRepository reportingFuelTypeRepository;
-  
+
   private final ReportingVehicleTypeRepository reportingVehicleTypeRepository;
-  
+
   private final ReportingExemptionReasonRepository reportingExemptionReasonRepository;
 
+  private final long dimensionsTtlNanos;
+
+  private volatile ReportingDimensions dimensions;
+
+  private volatile long dimensionsLoadedAtNanos;
+
+  /**
+   * Creates the service.
+   */
+  public ReportingDataService(
+      VehicleEntrantReportingBatchRepository vehicleEntrantReportingBatchRepository,
+      ReportingTypeApprovalRepository reportingTypeApprovalRepository,
+      ReportingFuelTypeRepository reportingFuelTypeRepository,
+      ReportingVehicleTypeRepository reportingVehicleTypeRepository,
+      ReportingExemptionReasonRepository reportingExemptionReasonRepository,
+      @Value("${application.reporting.dimensions-ttl-seconds:600}") long dimensionsTtlSeconds) {
+    this.vehicleEntrantReportingBatchRepository = vehicleEntrantReportingBatchRepository;
+    this.reportingTypeApprovalRepository = reportingTypeApprovalRepository;
+    this.reportingFuelTypeRepository = reportingFuelTypeRepository;
+    this.reportingVehicleTypeRepository = reportingVehicleTypeRepository;
+    this.reportingExemptionReasonRepository = reportingExemptionReasonRepository;
+    this.dimensionsTtlNanos = TimeUnit.SECONDS.toNanos(dimensionsTtlSeconds);
+  }
+
   /**
    * Main method that handles processing the messages from SQS to save
    * the reporting data.
@@ -62,124 +84,82 @@ public class ReportingDataService {
    * @param messageId from SQS from {@ReportingDataHandler}.
    */
   public void process(String messageBody, String messageId) {
-    ObjectMapper mapper = new ObjectMapper();
     try {
-      List<VehicleEntrantReportingRequest> requests = mapper.readValue(messageBody, 
-          new TypeReference<List<VehicleEntrantReportingRequest>>(){});
-      requests.forEach(r -> save(r)); 
+      List<VehicleEntrantReportingRequest> requests = REQUESTS_READER.readValue(messageBody);
+      save(requests);
     } catch (Exception ex) {
       log.error(String.format("Error while processing message with Id: %s", messageId), ex);
     }
-  }  
-  
-  
-  
-  
-  private void save(VehicleEntrantReportingRequest request) {
-    log.info("Processing request with correlation ID {}", request.getCorrelationId());
+  }
+
+  private void save(List<VehicleEntrantReportingRequest> requests) {
+    ReportingDimensions currentDimensions = getDimensions();
+    List<VehicleEntrantReporting> vehicleReports = new ArrayList<>(requests.size());
+    List<EntrantExemption> entrantExemptions = new ArrayList<>();
+    List<EntrantTaxiPhv> entrantTaxiPhvs = new ArrayList<>();
+
+    for (VehicleEntrantReportingRequest request : requests) {
+      log.info("Processing request with correlation ID {}", request.getCorrelationId());
+      VehicleEntrantReporting vehicleReport = toVehicleReport(request, currentDimensions);
+      vehicleReports.add(vehicleReport);
+      UUID vehicleEntrantReportingId = vehicleReport.getVehicleEntrantReportingId();
+
+      if (request.getChargeValidityCode().equals("CVC02")) {
+        entrantExemptions.add(new EntrantExemption(vehicleEntrantReportingId,
+            currentDimensions.getExemptionReasonId(request.getExemptionReason())));
+      }
+
+      if (request.getTaxiPhvDescription() != null) {
+        for (String licensingAuthority : request.getLicensingAuthorities()) {
+          entrantTaxiPhvs.add(new EntrantTaxiPhv(vehicleEntrantReportingId,
+              request.getTaxiPhvDescription(), licensingAuthority));
+        }
+      }
+    }
+
+    vehicleEntrantReportingBatchRepository.insertAll(vehicleReports, entrantExemptions,
+        entrantTaxiPhvs);
+  }
+
+  private VehicleEntrantReporting toVehicleReport(VehicleEntrantReportingRequest request,
+      ReportingDimensions currentDimensions) {
     LocalDateTime hour = LocalDateTime.parse(request.getHour(), DATE_TIME_FORMATTER);
     VehicleEntrantReporting vehicleReport = new VehicleEntrantReporting(
         request.getCleanAirZoneId(), request.getVrnHash(), hour,
         request.getChargeValidityCode(), request.getMake(), request.getModel(),
         request.getColour(), request.isNonStandardUkPlateFormat());
-    
-    vehicleReport.setTypeApprovalId(getTypeApprovalId(request.getTypeApproval()));
-    vehicleReport.setFuelTypeId(getFuelTypeId(request.getFuelType()));
-    vehicleReport.setCcazVehicleTypeId(getCcazVehicleTypeId(request.getVehicleType()));
-    
-    vehicleEntrantsReportingRepository.save(vehicleReport);
-    
-    if (request.getChargeValidityCode().equals("CVC02")) {
-      saveEntrantExemption(request, vehicleReport);
-    }
-    
-    if (request.getTaxiPhvDescription() != null) {
-      saveEntrantTaxiPhv(request, vehicleReport);
-    }   
-  }
-  
-  /**
-   * Method to process and save exemption reason data.
-   * 
-   * @param request {@VehicleEntrantReportingRequest} 
-   * @param vehicleReport {@VehicleEntrantReporting}
-   */
-  private void saveEntrantExemption(VehicleEntrantReportingRequest request,
-      VehicleEntrantReporting vehicleReport) {
-    UUID vehicleEntrantReportingId = vehicleReport.getVehicleEntrantReportingId();
-    UUID exemptionReasonId = getExemptionReasonId(request.getExemptionReason());
-    EntrantExemption entrantExemptionReport = new EntrantExemption(vehicleEntrantReportingId, 
-        exemptionReasonId);
-    entrantExemptionRepository.save(entrantExemptionReport);
-  }
-  
-  /**
-   * Method to process and save taxi entrant data.
-   *
-   * @param request {@VehicleEntrantReportingRequest} 
-   * @param vehicleReport {@VehicleEntrantReporting}
-   */
-  private void saveEntrantTaxiPhv(VehicleEntrantReportingRequest request,
-      VehicleEntrantReporting vehicleReport) {
-    UUID vehicleEntrantReportingId = vehicleReport.getVehicleEntrantReportingId();
-    List<String> licensingAuthorities = request.getLicensingAuthorities();
-    String description = request.getTaxiPhvDescription();
-    List<EntrantTaxiPhv> taxiEntrants = licensingAuthorities.stream().map(la -> 
-        new EntrantTaxiPhv(vehicleEntrantReportingId,
-        description, la)).collect(Collectors.toList());
-    entrantTaxiPhvRepository.saveAll(taxiEntrants);
-  }
-  
-  /**
-   * Method to map typeApproval to typeApprovalId.
-   *
-   * @param typeApproval as a String.
-   */
-  @VisibleForTesting 
-  public UUID getTypeApprovalId(String typeApproval) {
-    ReportingTypeApproval reportingTypeApproval = 
-        reportingTypeApprovalRepository.findTypeApprovalId(typeApproval);
-    
-    return reportingTypeApproval.getTypeApprovalId();
-  }
-  
-  /**
-   * Method to map fuelType to fuelTypeId.
-   *
-   * @param fuelType as a String.
-   */
-  @VisibleForTesting
-  public UUID getFuelTypeId(String fuelType) {
-    ReportingFuelType reportingFuelType = 
-        reportingFuelTypeRepository.findFuelTypeId(fuelType);
-    
-    return reportingFuelType.getFuelTypeId();
-  }
-  
-  /**
-   * Method to map {@VehicleType} to ccazVehicleTypeId.
-   *
-   * @param vehicleType as {@VehicleType}
-   */
-  @VisibleForTesting
-  public UUID getCcazVehicleTypeId(VehicleType vehicleType) {
-    ReportingVehicleType reportingVehicleType = 
-        reportingVehicleTypeRepository.findVehicleTypeId(vehicleType);
-    
-    return reportingVehicleType.getVehicleTypeId();
+
+    vehicleReport.setVehicleEntrantReportingId(UUID.randomUUID());
+    vehicleReport.setTypeApprovalId(
+        currentDimensions.getTypeApprovalId(request.getTypeApproval()));
+    vehicleReport.setFuelTypeId(currentDimensions.getFuelTypeId(request.getFuelType()));
+    vehicleReport.setCcazVehicleTypeId(
+        currentDimensions.getCcazVehicleTypeId(request.getVehicleType()));
+    return vehicleReport;
   }
-  
+
   /**
-   * Method to map exemptionReason to exemptionReasonId.
-   *
-   * @param exemptionReason as a String.
+   * Returns the in-memory copy of the dimension tables, reloading it once it is older than the
+   * configured TTL.
    */
-  @VisibleForTesting
-  public UUID getExemptionReasonId(String exemptionReason) {
-    ReportingExemptionReason reportingExemptionReason = 
-        reportingExemptionReasonRepository.findExemptionReasonId(exemptionReason);
-    
-    return reportingExemptionReason.getExemptionReasonId();
+  private ReportingDimensions getDimensions() {
+    ReportingDimensions current = dimensions;
+    if (current == null || System.nanoTime() - dimensionsLoadedAtNanos > dimensionsTtlNanos) {
+      synchronized (this) {
+        current = dimensions;
+        if (current == null
+            || System.nanoTime() - dimensionsLoadedAtNanos > dimensionsTtlNanos) {
+          current = new ReportingDimensions(
+              reportingTypeApprovalRepository.findAll(),
+              reportingFuelTypeRepository.findAll(),
+              reportingVehicleTypeRepository.findAll(),
+              reportingExemptionReasonRepository.findAll());
+          dimensionsLoadedAtNanos = System.nanoTime();
+          dimensions = current;
+          log.info("Loaded reporting dimensions");
+        }
+      }
+    }
+    return current;
   }
-
 }
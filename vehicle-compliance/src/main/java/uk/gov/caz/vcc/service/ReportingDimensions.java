@@ -0,0 +1,86 @@
+package uk.gov.caz.vcc.service;
+
+import static uk.gov.caz.vcc.repository.ReportingExemptionReasonRepository.UNRECOGNISED_EXEMPTION_REASON_ID;
+import static uk.gov.caz.vcc.repository.ReportingFuelTypeRepository.UNRECOGNISED_FUEL_TYPE_ID;
+import static uk.gov.caz.vcc.repository.ReportingTypeApprovalRepository.UNRECOGNISED_TYPE_APPROVAL_ID;
+import static uk.gov.caz.vcc.repository.ReportingVehicleTypeRepository.UNRECOGNISED_VEHICLE_TYPE_ID;
+
+import com.google.common.base.Strings;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import uk.gov.caz.definitions.domain.VehicleType;
+import uk.gov.caz.vcc.domain.ReportingExemptionReason;
+import uk.gov.caz.vcc.domain.ReportingFuelType;
+import uk.gov.caz.vcc.domain.ReportingTypeApproval;
+import uk.gov.caz.vcc.domain.ReportingVehicleType;
+
+/**
+ * In-memory snapshot of the reporting dimension tables (type approvals, fuel types, vehicle types
+ * and exemption reasons) which maps their values to identifiers the same way as the lookups in
+ * the corresponding repositories, i.e. values which are not found map to the 'unrecognised'
+ * identifier.
+ */
+class ReportingDimensions {
+
+  private final Map<String, UUID> typeApprovalIds;
+  private final Map<String, UUID> fuelTypeIds;
+  private final Map<String, UUID> vehicleTypeIds;
+  private final Map<String, UUID> exemptionReasonIds;
+
+  ReportingDimensions(List<ReportingTypeApproval> typeApprovals,
+      List<ReportingFuelType> fuelTypes, List<ReportingVehicleType> vehicleTypes,
+      List<ReportingExemptionReason> exemptionReasons) {
+    this.typeApprovalIds = index(typeApprovals, ReportingTypeApproval::getTypeApproval,
+        ReportingTypeApproval::getTypeApprovalId);
+    this.fuelTypeIds = index(fuelTypes, ReportingFuelType::getFuelType,
+        ReportingFuelType::getFuelTypeId);
+    this.vehicleTypeIds = index(vehicleTypes, ReportingVehicleType::getVehicleType,
+        ReportingVehicleType::getVehicleTypeId);
+    this.exemptionReasonIds = index(exemptionReasons,
+        reason -> Strings.nullToEmpty(reason.getExemptionReason()).toLowerCase(),
+        ReportingExemptionReason::getExemptionReasonId);
+  }
+
+  UUID getTypeApprovalId(String typeApproval) {
+    if (Strings.isNullOrEmpty(typeApproval)) {
+      return UNRECOGNISED_TYPE_APPROVAL_ID;
+    }
+    return typeApprovalIds.getOrDefault(typeApproval, UNRECOGNISED_TYPE_APPROVAL_ID);
+  }
+
+  UUID getFuelTypeId(String fuelType) {
+    if (Strings.isNullOrEmpty(fuelType)) {
+      return UNRECOGNISED_FUEL_TYPE_ID;
+    }
+    return fuelTypeIds.getOrDefault(fuelType.toLowerCase(), UNRECOGNISED_FUEL_TYPE_ID);
+  }
+
+  UUID getCcazVehicleTypeId(VehicleType vehicleType) {
+    if (vehicleType == null) {
+      return UNRECOGNISED_VEHICLE_TYPE_ID;
+    }
+    return vehicleTypeIds.getOrDefault(vehicleType.toString(), UNRECOGNISED_VEHICLE_TYPE_ID);
+  }
+
+  UUID getExemptionReasonId(String exemptionReason) {
+    if (Strings.isNullOrEmpty(exemptionReason)) {
+      return UNRECOGNISED_EXEMPTION_REASON_ID;
+    }
+    return exemptionReasonIds.getOrDefault(exemptionReason.toLowerCase(),
+        UNRECOGNISED_EXEMPTION_REASON_ID);
+  }
+
+  private static <T> Map<String, UUID> index(List<T> rows, Function<T, String> value,
+      Function<T, UUID> id) {
+    Map<String, UUID> ids = new HashMap<>(rows.size() * 2);
+    for (T row : rows) {
+      if (value.apply(row) != null) {
+        ids.putIfAbsent(value.apply(row), id.apply(row));
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,84 @@
+package uk.gov.caz.vcc.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import uk.gov.caz.vcc.dto.VehicleEntrantSaveDto;
+
+/**
+ * Per-request index of incoming vehicle entrants which allows correlating computed results back to
+ * the entrants they were computed for in constant time. It is built once for a batch and shared by
+ * every step that needs to look an entrant up by its VRN.
+ */
+class VehicleEntrantsIndex {
+
+  private final List<VehicleEntrantSaveDto> vehicleEntrants;
+
+  // normalised VRN -> position of the first entrant with this VRN
+  private final Map<String, Integer> firstPositionByVrn;
+
+  private VehicleEntrantsIndex(List<VehicleEntrantSaveDto> vehicleEntrants) {
+    this.vehicleEntrants = vehicleEntrants;
+    this.firstPositionByVrn = new HashMap<>(capacityFor(vehicleEntrants.size()));
+    for (int i = 0; i < vehicleEntrants.size(); i++) {
+      firstPositionByVrn.putIfAbsent(normalise(vehicleEntrants.get(i).getVrn()), i);
+    }
+  }
+
+  /**
+   * Creates the index for the passed list of vehicle entrants.
+   */
+  static VehicleEntrantsIndex of(List<VehicleEntrantSaveDto> vehicleEntrants) {
+    return new VehicleEntrantsIndex(vehicleEntrants);
+  }
+
+  /**
+   * Returns the first entrant (in the order of the incoming request) with the given VRN.
+   */
+  Optional<VehicleEntrantSaveDto> findFirstByVrn(String vrn) {
+    Integer position = firstPositionByVrn.get(normalise(vrn));
+    return position == null ? Optional.empty() : Optional.of(vehicleEntrants.get(position));
+  }
+
+  /**
+   * Returns the position in the incoming request of the first entrant with the given VRN.
+   *
+   * @throws NoSuchElementException if there is no entrant with the given VRN
+   */
+  int positionOf(String vrn) {
+    Integer position = firstPositionByVrn.get(normalise(vrn));
+    if (position == null) {
+      throw new NoSuchElementException("No vehicle entrant found for the given VRN");
+    }
+    return position;
+  }
+
+  /**
+   * Returns entrants, in the order of the incoming request, whose VRN is not present in {@code
+   * vrns}.
+   */
+  List<VehicleEntrantSaveDto> excluding(Collection<String> vrns) {
+    Set<String> excludedVrns = new HashSet<>(capacityFor(vrns.size()));
+    for (String vrn : vrns) {
+      excludedVrns.add(normalise(vrn));
+    }
+    return vehicleEntrants.stream()
+        .filter(vehicleEntrant -> !excludedVrns.contains(normalise(vehicleEntrant.getVrn())))
+        .collect(Collectors.toList());
+  }
+
+  private static String normalise(String vrn) {
+    return vrn.toUpperCase(Locale.ROOT);
+  }
+
+  private static int capacityFor(int expectedSize) {
+    return (int) (expectedSize / 0.75f) + 1;
+  }
+}
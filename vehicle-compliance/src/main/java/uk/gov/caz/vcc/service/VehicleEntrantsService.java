@@ -28,6 +28,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import uk.gov.caz.common.util.Sha256Hasher;
 import uk.gov.caz.correlationid.MdcCorrelationIdInjector;
 import uk.gov.caz.definitions.domain.Vehicle;
 import uk.gov.caz.definitions.domain.VehicleType;
@@ -58,7 +59,6 @@ import uk.gov.caz.vcc.dto.VehicleEntrantsSaveRequestDto;
 import uk.gov.caz.vcc.dto.VehicleResultDto;
 import uk.gov.caz.vcc.repository.CleanAirZoneEntrantRepository;
 import uk.gov.caz.vcc.repository.TariffDetailsRepository;
-import uk.gov.caz.vcc.util.Sha2Hasher;
 
 /**
  * Service that combines VehicleEntrantsSaveRequestDto with calculation results and persists data to
@@ -107,11 +107,14 @@ public class VehicleEntrantsService {
    */
   @Transactional
   public List<VehicleResultDto> save(VehicleEntrantsSaveRequestDto vehicleEntrantsSaveRequestDto) {
+    VehicleEntrantsIndex vehicleEntrantsIndex = VehicleEntrantsIndex
+        .of(vehicleEntrantsSaveRequestDto.getVehicleEntrants());
     List<VehicleResultDto> vehicleResultsResponse = createVehicleResultsResponse(
         vehicleEntrantsSaveRequestDto.getVehicleEntrants(),
-        vehicleEntrantsSaveRequestDto.getCazId());
+        vehicleEntrantsSaveRequestDto.getCazId(), vehicleEntrantsIndex);
 
-    saveVehicleEntrantsToDb(vehicleEntrantsSaveRequestDto, vehicleResultsResponse);
+    saveVehicleEntrantsToDb(vehicleEntrantsSaveRequestDto, vehicleEntrantsIndex,
+        vehicleResultsResponse);
 
     return vehicleResultsResponse;
   }
@@ -120,10 +123,10 @@ public class VehicleEntrantsService {
    * Saves vehicle entrants to the DB.
    */
   private void saveVehicleEntrantsToDb(VehicleEntrantsSaveRequestDto vehicleEntrantsSaveRequestDto,
-      List<VehicleResultDto> vehicleResultsResponse) {
+      VehicleEntrantsIndex vehicleEntrantsIndex, List<VehicleResultDto> vehicleResultsResponse) {
     List<CleanAirZoneEntrant> cleanAirZoneEntrants = vehicleResultsResponse
         .stream()
-        .map(e -> toModel(vehicleEntrantsSaveRequestDto, e))
+        .map(e -> toModel(vehicleEntrantsSaveRequestDto, vehicleEntrantsIndex, e))
         .collect(Collectors.toList());
 
     cleanAirZoneEntrantRepository.saveAll(cleanAirZoneEntrants);
@@ -134,11 +137,10 @@ public class VehicleEntrantsService {
    */
   @VisibleForTesting
   CleanAirZoneEntrant toModel(VehicleEntrantsSaveRequestDto vehicleEntrantsSaveRequestDto,
-      VehicleResultDto vehicleResultDto) {
+      VehicleEntrantsIndex vehicleEntrantsIndex, VehicleResultDto vehicleResultDto) {
 
-    VehicleEntrantSaveDto vehicleEntrantSaveDto = vehicleEntrantsSaveRequestDto
-        .getVehicleEntrants().stream()
-        .filter(e -> e.getVrn().equals(vehicleResultDto.getVrn())).findFirst()
+    VehicleEntrantSaveDto vehicleEntrantSaveDto = vehicleEntrantsIndex
+        .findFirstByVrn(vehicleResultDto.getVrn())
         .orElseThrow(() -> new RuntimeException(
             "Cannot fetch vehicle from request when constucting DTO object for vehicle entrant"));
 
@@ -177,6 +179,17 @@ public class VehicleEntrantsService {
   @VisibleForTesting
   public List<VehicleResultDto> createVehicleResultsResponse(
       List<VehicleEntrantSaveDto> vehicleEntrants, UUID cleanAirZoneId) {
+    return createVehicleResultsResponse(vehicleEntrants, cleanAirZoneId,
+        VehicleEntrantsIndex.of(vehicleEntrants));
+  }
+
+  /**
+   * Prepares response for ANPR using {@code vehicleEntrantsIndex} to correlate results with the
+   * incoming vehicle entrants.
+   */
+  private List<VehicleResultDto> createVehicleResultsResponse(
+      List<VehicleEntrantSaveDto> vehicleEntrants, UUID cleanAirZoneId,
+      VehicleEntrantsIndex vehicleEntrantsIndex) {
     // Business rules.
     // MOD  = Ministry of Defense aka Military vehicle (White or Green) - list of vehicles which
     //        should not be charged
@@ -207,7 +220,7 @@ public class VehicleEntrantsService {
         vehicleEntrants, cleanAirZoneId, preFetchedDataWrapper);
 
     List<VehicleEntrantSaveDto> toBeProcessedUsingDvla = getRemainingThatNeedToCallDvla(
-        vehicleEntrants, vehicleResultsThatDoNotNeedDvla);
+        vehicleEntrantsIndex, vehicleResultsThatDoNotNeedDvla);
 
     // At this point we have a list of VehicleEntrantDto objects (VRNs) for which we know
     // that we will need to call NTR and DVLA. We can then optimize by doing bulk
@@ -237,7 +250,7 @@ public class VehicleEntrantsService {
         .concat(processedByPayments.stream(), notProcessedByPayments.stream())
         .map(InitialVehicleResult::getResult)
         .collect(Collectors.toList());
-    sortResultsToMatchIncomingEventsOrder(vehicleEntrants, results);
+    sortResultsToMatchIncomingEventsOrder(vehicleEntrantsIndex, results);
     return results;
   }
 
@@ -270,13 +283,12 @@ public class VehicleEntrantsService {
    * still need to be processed.
    */
   private List<VehicleEntrantSaveDto> getRemainingThatNeedToCallDvla(
-      List<VehicleEntrantSaveDto> vehicleEntrants,
+      VehicleEntrantsIndex vehicleEntrantsIndex,
       List<InitialVehicleResult> vehicleResultsThatDoNotNeedDvla) {
-    List<VehicleEntrantSaveDto> toBeProcessedUsingDvla = vehicleEntrants.stream()
-        .filter(vehicleEntrantDto -> vehicleResultsThatDoNotNeedDvla.stream()
-            .noneMatch(vehicleResult -> vehicleResult.getResult().getVrn()
-                .equalsIgnoreCase(vehicleEntrantDto.getVrn()))).collect(Collectors.toList());
-    return toBeProcessedUsingDvla;
+    List<String> alreadyProcessedVrns = vehicleResultsThatDoNotNeedDvla.stream()
+        .map(vehicleResult -> vehicleResult.getResult().getVrn())
+        .collect(Collectors.toList());
+    return vehicleEntrantsIndex.excluding(alreadyProcessedVrns);
   }
 
   /**
@@ -308,11 +320,9 @@ public class VehicleEntrantsService {
   /**
    * Sorts result list in the same order as input vehicle entrant events, by VRN.
    */
-  private void sortResultsToMatchIncomingEventsOrder(List<VehicleEntrantSaveDto> vehicleEntrants,
+  private void sortResultsToMatchIncomingEventsOrder(VehicleEntrantsIndex vehicleEntrantsIndex,
       List<VehicleResultDto> results) {
-    results.sort(Comparator.comparing(item -> vehicleEntrants.indexOf(
-        vehicleEntrants.stream().filter(ve -> ve.getVrn().equalsIgnoreCase(item.getVrn()))
-            .findFirst().get())));
+    results.sort(Comparator.comparingInt(item -> vehicleEntrantsIndex.positionOf(item.getVrn())));
   }
 
   private void publishVehicleEntrantPersistedEvents(List<InitialVehicleResult> processedByPayments,
@@ -345,11 +355,11 @@ public class VehicleEntrantsService {
 
     boolean isOnGpwAndHasNonUkCategory =
         generalWhitelistService.isOnGeneralPurposeWhitelistAndHasCategoryNonUk(
-            vrn, preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+            vrn, preFetchedDataResults.getGeneralWhitelistIndex());
 
     boolean isOnGpwAndHasOtherCategory = generalWhitelistService
         .isOnGeneralPurposedWhitelistAndHasCategoryOther(vrn,
-            preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+            preFetchedDataResults.getGeneralWhitelistIndex());
 
     boolean vrnIsNotRecognisedUkFormat = vrnIsNotRecognisedUkFormat(vrn);
 
@@ -374,7 +384,7 @@ public class VehicleEntrantsService {
     // we should early yield "Exempt" here.
     if (generalWhitelistService
         .isOnGeneralPurposeWhitelistAndHasCategoryProblematicVrn(vrn,
-            preFetchedDataResults.getMatchedGeneralWhitelistVehicles())) {
+            preFetchedDataResults.getGeneralWhitelistIndex())) {
       // Do not call DVLA and do not inform Payments. Vehicle is "Exempt"
       log.info("Vehicle on GPWL and is Problematic. Preparing response to ANPR");
       return buildResultWithoutDvlaDataAndWithoutPaymentDetails(vrn,
@@ -460,7 +470,7 @@ public class VehicleEntrantsService {
       boolean isMilitaryVrn = militaryVehicleService.isMilitaryVrn(vrn, preFetchedDataResults);
       boolean isOnGpwAndHasOtherCategory = generalWhitelistService
           .isOnGeneralPurposedWhitelistAndHasCategoryOther(vrn,
-              preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+              preFetchedDataResults.getGeneralWhitelistIndex());
 
       NtrAndDvlaVehicleData licenseAndVehicle = licenseAndVehicleProvider
           .findLicenseAndVehicle(vrn);
@@ -569,7 +579,7 @@ public class VehicleEntrantsService {
     VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
         .correlationId(MdcCorrelationIdInjector.getCurrentValue())
         .cleanAirZoneId(cleanAirZoneId)
-        .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+        .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
         .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
         .chargeValidityCode(getChargeValidity(result).getChargeValidityCode())
         .exemptionReason("Other")
@@ -599,7 +609,7 @@ public class VehicleEntrantsService {
     VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
         .correlationId(MdcCorrelationIdInjector.getCurrentValue())
         .cleanAirZoneId(cleanAirZoneId)
-        .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+        .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
         .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
         .chargeValidityCode(getChargeValidity(result).getChargeValidityCode())
         .exemptionReason("Other")
@@ -633,7 +643,7 @@ public class VehicleEntrantsService {
     VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
         .correlationId(MdcCorrelationIdInjector.getCurrentValue())
         .cleanAirZoneId(cleanAirZoneId)
-        .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+        .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
         .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
         .fuelType(vehicle.getFuelType())
         .model(vehicle.getModel())
@@ -693,7 +703,7 @@ public class VehicleEntrantsService {
     VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
         .correlationId(MdcCorrelationIdInjector.getCurrentValue())
         .cleanAirZoneId(cleanAirZoneId)
-        .vrnHash(Sha2Hasher.sha256Hash(vrn))
+        .vrnHash(Sha256Hasher.sha256Hash(vrn))
         .hour(parseEntrantTimestamp(entrantTimestamp))
         .fuelType(vehicle.getFuelType())
         .model(vehicle.getModel())
@@ -745,7 +755,7 @@ public class VehicleEntrantsService {
       VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
           .correlationId(MdcCorrelationIdInjector.getCurrentValue())
           .cleanAirZoneId(cleanAirZoneId)
-          .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+          .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
           .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
           .fuelType(vehicle.getFuelType())
           .model(vehicle.getModel())
@@ -782,7 +792,7 @@ public class VehicleEntrantsService {
       return VehicleEntrantReportingRequest.builder()
           .correlationId(MdcCorrelationIdInjector.getCurrentValue())
           .cleanAirZoneId(cleanAirZoneId)
-          .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+          .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
           .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
           .fuelType(vehicle.getFuelType())
           .model(vehicle.getModel())
@@ -834,7 +844,7 @@ public class VehicleEntrantsService {
     VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
         .correlationId(MdcCorrelationIdInjector.getCurrentValue())
         .cleanAirZoneId(cleanAirZoneId)
-        .vrnHash(Sha2Hasher.sha256Hash(vrn))
+        .vrnHash(Sha256Hasher.sha256Hash(vrn))
         .hour(parseEntrantTimestamp(timestamp))
         .chargeValidityCode(getChargeValidity(result).getChargeValidityCode())
         .exemptionReason(exemptionReason)
@@ -865,7 +875,7 @@ public class VehicleEntrantsService {
       return VehicleEntrantReportingRequest.builder()
           .correlationId(MdcCorrelationIdInjector.getCurrentValue())
           .cleanAirZoneId(cleanAirZoneId)
-          .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+          .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
           .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
           .chargeValidityCode(getChargeValidity(finalResult).getChargeValidityCode())
           .nonStandardUkPlateFormat(nonUkVehicle).build();
@@ -909,7 +919,7 @@ public class VehicleEntrantsService {
       return VehicleEntrantReportingRequest.builder()
           .correlationId(MdcCorrelationIdInjector.getCurrentValue())
           .cleanAirZoneId(cleanAirZoneId)
-          .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+          .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
           .hour(parseEntrantTimestamp(entrantTimestamp))
           .fuelType(vehicle.getFuelType())
           .chargeValidityCode(getChargeValidity(finalResult).getChargeValidityCode())
@@ -955,7 +965,7 @@ public class VehicleEntrantsService {
     VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
         .correlationId(MdcCorrelationIdInjector.getCurrentValue())
         .cleanAirZoneId(cleanAirZoneId)
-        .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+        .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
         .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
         .chargeValidityCode(getChargeValidity(result).getChargeValidityCode())
         .exemptionReason("Non-UK Vehicle")
@@ -1010,7 +1020,7 @@ public class VehicleEntrantsService {
       VehicleEntrantReportingRequest event = VehicleEntrantReportingRequest.builder()
           .correlationId(MdcCorrelationIdInjector.getCurrentValue())
           .cleanAirZoneId(cleanAirZoneId)
-          .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+          .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
           .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
           .fuelType(vehicle.getFuelType())
           .model(vehicle.getModel())
@@ -1051,7 +1061,7 @@ public class VehicleEntrantsService {
       return VehicleEntrantReportingRequest.builder()
           .correlationId(MdcCorrelationIdInjector.getCurrentValue())
           .cleanAirZoneId(cleanAirZoneId)
-          .vrnHash(Sha2Hasher.sha256Hash(vehicleEntrant.getVrn()))
+          .vrnHash(Sha256Hasher.sha256Hash(vehicleEntrant.getVrn()))
           .hour(parseEntrantTimestamp(vehicleEntrant.getTimestamp()))
           .fuelType(vehicle.getFuelType())
           .model(vehicle.getModel())
@@ -1158,7 +1168,7 @@ public class VehicleEntrantsService {
     boolean isCompliantOnGeneralWhitelist =
         generalWhitelistService.isCompliantOnGeneralPurposeWhitelist(
             vehicle.getRegistrationNumber(),
-            preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+            preFetchedDataResults.getGeneralWhitelistIndex());
 
     boolean isRetrofitVehicle =
         retrofitService.isRetrofitVehicle(vehicle.getRegistrationNumber(),
@@ -1178,7 +1188,7 @@ public class VehicleEntrantsService {
 
     boolean isExemptOnGeneralWhitelist = generalWhitelistService
         .isExemptOnGeneralPurposeWhitelist(vehicle.getRegistrationNumber(),
-            preFetchedDataResults.getMatchedGeneralWhitelistVehicles());
+            preFetchedDataResults.getGeneralWhitelistIndex());
 
     return exemptionService.updateCalculationResult(vehicle,
         new CalculationResult(), isMilitary, isExemptOnGeneralWhitelist);
@@ -1,7 +1,6 @@
 package uk.gov.caz.vcc.service.audit;
 
 import java.time.LocalDate;
-import javax.transaction.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -9,6 +8,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import uk.gov.caz.vcc.repository.IdentificationErrorRepository;
+import uk.gov.caz.vcc.repository.audit.MonthlyPartitionRepository;
 import uk.gov.caz.vcc.repository.audit.VehicleEntrantLoggedActionRepository;
 
 /**
@@ -21,34 +21,43 @@ public class VehicleEntrantDataCleanupService {
   
   private final IdentificationErrorRepository identificationErrorRepository;
   private final VehicleEntrantLoggedActionRepository auditLoggedActionRepository;
+  private final MonthlyPartitionRepository monthlyPartitionRepository;
   private final int identificationErrorCleanupDays;
   private final int loggedActionCleanupMonths;
+  private final int partitionsMonthsAhead;
 
   /**
    * Class constructor.
    * @param identificationErrorRepository instance of {@IdentificationErrorRepository}
    * @param auditLoggedActionRepository instance of {@VehicleEntrantLoggedActionRepository}
+   * @param monthlyPartitionRepository instance of {@MonthlyPartitionRepository}
    * @param identificationErrorCleanupDays identification error record age in days
    * @param loggedActionCleanupMonths logged action record age in months
+   * @param partitionsMonthsAhead number of months ahead to create table partitions for
    */
   public VehicleEntrantDataCleanupService(
       IdentificationErrorRepository identificationErrorRepository,
       VehicleEntrantLoggedActionRepository auditLoggedActionRepository,
+      MonthlyPartitionRepository monthlyPartitionRepository,
       @Value("${services.audit.vehicle-entrants-cleanup:30}") int identificationErrorCleanupDays,
       @Value("${services.audit.vehicle-entrants-logged-action-cleanup:18}")
-      int loggedActionCleanupMonths) {
+      int loggedActionCleanupMonths,
+      @Value("${services.audit.partitions-months-ahead:3}") int partitionsMonthsAhead) {
     this.identificationErrorRepository = identificationErrorRepository;
     this.identificationErrorCleanupDays = identificationErrorCleanupDays;
     this.auditLoggedActionRepository = auditLoggedActionRepository;
     this.loggedActionCleanupMonths = loggedActionCleanupMonths;
+    this.monthlyPartitionRepository = monthlyPartitionRepository;
+    this.partitionsMonthsAhead = partitionsMonthsAhead;
   }
 
   /**
-   * Cleans up old log data before a given date.
+   * Creates upcoming table partitions and cleans up old log data before a given date. Not
+   * transactional, so that logged actions are purged in separately committed chunks.
    */
-  @Transactional
   public void cleanupData() {
     try {
+      createFuturePartitions();
       cleanupIdentificationErrorAuditData();
       cleanupLoggedActionAuditData();
       log.info("VehicleEntrantLogDataCleanupService cleanup finished sucessfully");
@@ -58,6 +67,15 @@ public class VehicleEntrantDataCleanupService {
     }
   }
   
+  /**
+   * Creates partitions of the entrant and audit tables for the upcoming months.
+   */
+  private void createFuturePartitions() {
+    log.info("VehicleEntrantLogDataCleanupService started creating table partitions"
+        + " for the next {} months", partitionsMonthsAhead);
+    monthlyPartitionRepository.createFuturePartitions(partitionsMonthsAhead);
+  }
+
   /**
    * Cleans up identification log records.
    */
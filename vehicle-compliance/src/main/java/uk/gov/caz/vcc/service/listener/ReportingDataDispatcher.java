@@ -5,7 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
 import uk.gov.caz.vcc.domain.events.VehicleEntrantListPersistedEvent;
-import uk.gov.caz.vcc.messaging.MessagingClient;
+import uk.gov.caz.vcc.messaging.ReportingDataPublisher;
 
 /**
  * A listener class for the @{Link {@link VehicleEntrantPersistedEvent} event.
@@ -15,10 +15,10 @@ import uk.gov.caz.vcc.messaging.MessagingClient;
 public class ReportingDataDispatcher
     implements ApplicationListener<VehicleEntrantListPersistedEvent> {
 
-  private final MessagingClient messagingClient;
+  private final ReportingDataPublisher reportingDataPublisher;
 
   @Override
   public void onApplicationEvent(VehicleEntrantListPersistedEvent event) {
-    messagingClient.publishMessage(event.getVehicleEntrants());
+    reportingDataPublisher.publish(event.getVehicleEntrants());
   }
 }
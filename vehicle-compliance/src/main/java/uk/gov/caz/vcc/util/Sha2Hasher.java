@@ -1,17 +1,14 @@
 package uk.gov.caz.vcc.util;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import uk.gov.caz.common.util.Sha256Hasher;
 
 /**
  * Utility class to hash strings using the SHA-256 algorithm.
  *
+ * @see Sha256Hasher
  */
 @Component
-@Slf4j
 public class Sha2Hasher {
   
   /**
@@ -20,28 +17,6 @@ public class Sha2Hasher {
    * @return the hash of that string
    */
   public static String sha256Hash(String input) {
-    MessageDigest digest;
-    try {
-      digest = MessageDigest.getInstance("SHA-256");
-      byte[] encodedHash = digest.digest(
-          input.getBytes(StandardCharsets.UTF_8));
-      return bytesToHex(encodedHash);
-    } catch (NoSuchAlgorithmException e) {
-      // No implementation for SHA-256, return input unhashed
-      log.error(e.getMessage());
-      return input;
-    }
-  }
-  
-  private static String bytesToHex(byte[] hash) {
-    StringBuffer hexString = new StringBuffer();
-    for (int i = 0; i < hash.length; i++) {
-      String hex = Integer.toHexString(0xff & hash[i]);
-      if (hex.length() == 1) {
-        hexString.append('0');
-      }
-      hexString.append(hex);
-    }
-    return hexString.toString();
+    return Sha256Hasher.sha256Hash(input);
   }
 }
@@ -0,0 +1,254 @@
+-- Creates monthly partitions of a table partitioned by range of a timestamp column, from the
+-- current month to months_ahead months ahead. Months which are already covered by another
+-- partition (e.g. the legacy partition) or which already have rows in the default partition
+-- are skipped. Returns the number of created partitions.
+CREATE OR REPLACE FUNCTION public.create_monthly_partitions(parent_table regclass,
+    months_ahead integer) RETURNS integer AS $body$
+DECLARE
+    parent_schema text;
+    parent_name text;
+    month_start date;
+    partition_name text;
+    created integer := 0;
+BEGIN
+    SELECT n.nspname, c.relname INTO parent_schema, parent_name
+    FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+    WHERE c.oid = parent_table;
+
+    FOR i IN 0..months_ahead LOOP
+        month_start := (date_trunc('month', CURRENT_DATE) + make_interval(months => i))::date;
+        partition_name := parent_name || '_' || to_char(month_start, 'YYYY_MM');
+        CONTINUE WHEN to_regclass(format('%I.%I', parent_schema, partition_name)) IS NOT NULL;
+        BEGIN
+            EXECUTE format('CREATE TABLE %I.%I PARTITION OF %s FOR VALUES FROM (%L) TO (%L)',
+                parent_schema, partition_name, parent_table, month_start,
+                (month_start + interval '1 month')::date);
+            created := created + 1;
+        EXCEPTION
+            WHEN invalid_object_definition THEN
+                RAISE NOTICE 'Month % of % is covered by another partition', month_start,
+                    parent_table;
+            WHEN check_violation THEN
+                RAISE WARNING 'Default partition of % contains rows of month %', parent_table,
+                    month_start;
+        END;
+    END LOOP;
+    RETURN created;
+END;
+$body$
+LANGUAGE plpgsql;
+
+-- Replaces a table with a table partitioned by month of key_column. The original table is kept
+-- (without copying any rows) as the partition holding all rows before the next month, so the
+-- conversion only scans it to validate the partition constraint. Column defaults, check and
+-- foreign key constraints, indexes, privileges, triggers and dependent views are moved to the
+-- partitioned table. The primary key, unique constraints and unique indexes are extended with
+-- key_column, unique indexes which cannot be extended (on expressions, partial or with included
+-- columns) make the conversion fail. The table is locked in ACCESS EXCLUSIVE mode until the end
+-- of the transaction, which lasts at least as long as a full scan of the table.
+CREATE OR REPLACE FUNCTION public.partition_table_by_month(source_table regclass,
+    key_column text, months_ahead integer) RETURNS void AS $body$
+DECLARE
+    tbl_schema text;
+    tbl_name text;
+    qualified_name text;
+    legacy_name text;
+    legacy_bound date := (date_trunc('month', CURRENT_DATE) + interval '1 month')::date;
+    pk_name text;
+    pk_columns text;
+    index_defs text[];
+    unique_defs text[] := '{}';
+    fk_defs text[];
+    trigger_defs text[];
+    view_defs text[];
+    rec record;
+    def text;
+BEGIN
+    SELECT n.nspname, c.relname INTO tbl_schema, tbl_name
+    FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+    WHERE c.oid = source_table;
+    qualified_name := format('%I.%I', tbl_schema, tbl_name);
+    legacy_name := tbl_name || '_legacy';
+
+    IF EXISTS (SELECT 1 FROM pg_depend d JOIN pg_rewrite r ON r.oid = d.objid
+               JOIN pg_class v ON v.oid = r.ev_class
+               WHERE d.refobjid = source_table AND v.relkind = 'm') THEN
+        RAISE EXCEPTION '% is used by a materialized view', qualified_name;
+    END IF;
+
+    -- capture definitions while they still refer to the original name
+    SELECT con.conname, string_agg(quote_ident(a.attname), ', ' ORDER BY k.ord)
+    INTO pk_name, pk_columns
+    FROM pg_constraint con
+    CROSS JOIN LATERAL unnest(con.conkey) WITH ORDINALITY AS k(attnum, ord)
+    JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = k.attnum
+    WHERE con.conrelid = source_table AND con.contype = 'p'
+    GROUP BY con.conname;
+
+    SELECT array_agg(pg_get_indexdef(i.indexrelid)) INTO index_defs
+    FROM pg_index i
+    WHERE i.indrelid = source_table AND NOT i.indisprimary AND NOT i.indisunique;
+
+    -- unique indexes of a partitioned table must include the partition key
+    FOR rec IN SELECT c.relname AS index_name, con.conname,
+                   i.indexprs IS NOT NULL OR i.indpred IS NOT NULL
+                       OR i.indnatts <> i.indnkeyatts AS unsupported,
+                   (SELECT string_agg(quote_ident(a.attname), ', ' ORDER BY k.ord)
+                    FROM unnest(i.indkey::int2[]) WITH ORDINALITY AS k(attnum, ord)
+                    JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = k.attnum)
+                       AS index_columns,
+                   EXISTS (SELECT 1 FROM unnest(i.indkey::int2[]) AS k(attnum)
+                           JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = k.attnum
+                           WHERE a.attname = key_column) AS includes_key
+               FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               LEFT JOIN pg_constraint con ON con.conindid = i.indexrelid AND con.contype = 'u'
+               WHERE i.indrelid = source_table AND i.indisunique AND NOT i.indisprimary LOOP
+        IF rec.unsupported THEN
+            RAISE EXCEPTION 'Unique index % of % cannot be extended with %', rec.index_name,
+                qualified_name, key_column;
+        END IF;
+        def := rec.index_columns
+            || CASE WHEN rec.includes_key THEN '' ELSE ', ' || quote_ident(key_column) END;
+        unique_defs := unique_defs || CASE WHEN rec.conname IS NOT NULL
+            THEN format('ALTER TABLE %s ADD CONSTRAINT %I UNIQUE (%s)', qualified_name,
+                rec.conname, def)
+            ELSE format('CREATE UNIQUE INDEX %I ON %s (%s)', rec.index_name, qualified_name, def)
+            END;
+    END LOOP;
+
+    SELECT array_agg(format('ALTER TABLE %s ADD CONSTRAINT %I %s', qualified_name, con.conname,
+        pg_get_constraintdef(con.oid))) INTO fk_defs
+    FROM pg_constraint con
+    WHERE con.conrelid = source_table AND con.contype = 'f';
+
+    SELECT array_agg(pg_get_triggerdef(t.oid)) INTO trigger_defs
+    FROM pg_trigger t
+    WHERE t.tgrelid = source_table AND NOT t.tgisinternal;
+
+    SELECT array_agg(format('CREATE OR REPLACE VIEW %s AS %s', v.oid::regclass,
+        pg_get_viewdef(v.oid))) INTO view_defs
+    FROM (SELECT DISTINCT r.ev_class AS oid FROM pg_depend d
+          JOIN pg_rewrite r ON r.oid = d.objid
+          WHERE d.refobjid = source_table AND r.ev_class <> source_table) v;
+
+    -- move the original table and its indexes out of the way (its primary key is replaced by
+    -- the one of the partitioned table)
+    IF pk_name IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', qualified_name, pk_name);
+    END IF;
+    FOR rec IN SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE i.indrelid = source_table LOOP
+        EXECUTE format('ALTER INDEX %I.%I RENAME TO %I', tbl_schema, rec.relname,
+            left(rec.relname, 56) || '_legacy');
+    END LOOP;
+    FOR rec IN SELECT t.tgname FROM pg_trigger t
+               WHERE t.tgrelid = source_table AND NOT t.tgisinternal LOOP
+        EXECUTE format('DROP TRIGGER %I ON %s', rec.tgname, qualified_name);
+    END LOOP;
+    EXECUTE format('ALTER TABLE %s RENAME TO %I', qualified_name, legacy_name);
+
+    EXECUTE format('CREATE TABLE %s (LIKE %I.%I INCLUDING DEFAULTS INCLUDING CONSTRAINTS '
+        'INCLUDING STORAGE) PARTITION BY RANGE (%I)', qualified_name, tbl_schema, legacy_name,
+        key_column);
+    IF pk_columns IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE %s ADD PRIMARY KEY (%s, %I)', qualified_name, pk_columns,
+            key_column);
+        EXECUTE format('CREATE UNIQUE INDEX %I ON %I.%I (%s, %I)',
+            left(tbl_name, 48) || '_legacy_partkey', tbl_schema, legacy_name, pk_columns,
+            key_column);
+    END IF;
+    FOREACH def IN ARRAY unique_defs LOOP
+        EXECUTE def;
+    END LOOP;
+    FOREACH def IN ARRAY coalesce(index_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    FOREACH def IN ARRAY coalesce(fk_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    FOR rec IN SELECT a.grantee, a.privilege_type FROM pg_class c
+               CROSS JOIN LATERAL aclexplode(c.relacl) a
+               WHERE c.oid = source_table LOOP
+        EXECUTE format('GRANT %s ON %s TO %s', rec.privilege_type, qualified_name,
+            CASE WHEN rec.grantee = 0 THEN 'PUBLIC'
+                 ELSE quote_ident(pg_get_userbyid(rec.grantee)) END);
+    END LOOP;
+
+    -- validating the constraint up front lets ATTACH PARTITION skip the scan
+    EXECUTE format('ALTER TABLE %I.%I ADD CONSTRAINT %I CHECK (%I < %L) NOT VALID',
+        tbl_schema, legacy_name, left(tbl_name, 50) || '_legacy_bound', key_column,
+        legacy_bound);
+    EXECUTE format('ALTER TABLE %I.%I VALIDATE CONSTRAINT %I', tbl_schema, legacy_name,
+        left(tbl_name, 50) || '_legacy_bound');
+    EXECUTE format('ALTER TABLE %s ATTACH PARTITION %I.%I FOR VALUES FROM (MINVALUE) TO (%L)',
+        qualified_name, tbl_schema, legacy_name, legacy_bound);
+    EXECUTE format('CREATE TABLE %I.%I PARTITION OF %s DEFAULT', tbl_schema,
+        left(tbl_name, 55) || '_default', qualified_name);
+    PERFORM public.create_monthly_partitions(qualified_name::regclass, months_ahead);
+
+    FOREACH def IN ARRAY coalesce(trigger_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    FOREACH def IN ARRAY coalesce(view_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+END;
+$body$
+LANGUAGE plpgsql;
+
+-- Audit rows of (partitions of) the entrant table keep being logged under the table name
+CREATE OR REPLACE FUNCTION CAZ_VEHICLE_ENTRANT_AUDIT.if_modified_func() RETURNS TRIGGER AS $body$
+DECLARE
+    v_old_data TEXT;
+    v_new_data TEXT;
+    v_table_name TEXT;
+BEGIN
+    /*  If this actually for real auditing (where you need to log EVERY action),
+        then you would need to use something like dblink or plperl that could log outside the transaction,
+        regardless of whether the transaction committed or rolled back.
+    */
+ 
+    /* This dance with casting the NEW and OLD values to a ROW is not necessary in pg 9.0+ */
+
+    /* Rows of partitioned tables are logged under the name of the partitioned table */
+    SELECT p.relname INTO v_table_name
+    FROM pg_inherits i JOIN pg_class p ON p.oid = i.inhparent
+    WHERE i.inhrelid = TG_RELID;
+    v_table_name := COALESCE(v_table_name, TG_TABLE_NAME::TEXT);
+ 
+    IF (TG_OP = 'UPDATE') THEN
+        v_old_data := ROW(OLD.*);
+        v_new_data := ROW(NEW.*);
+        INSERT INTO CAZ_VEHICLE_ENTRANT_AUDIT.logged_actions (schema_name,table_name,user_name,action,original_data,new_data,query) 
+        VALUES (TG_TABLE_SCHEMA::TEXT,v_table_name,session_user::TEXT,substring(TG_OP,1,1),v_old_data,v_new_data, current_query());
+        RETURN NEW;
+    ELSIF (TG_OP = 'DELETE') THEN
+        v_old_data := ROW(OLD.*);
+        INSERT INTO CAZ_VEHICLE_ENTRANT_AUDIT.logged_actions (schema_name,table_name,user_name,action,original_data,query)
+        VALUES (TG_TABLE_SCHEMA::TEXT,v_table_name,session_user::TEXT,substring(TG_OP,1,1),v_old_data, current_query());
+        RETURN OLD;
+    ELSIF (TG_OP = 'INSERT') THEN
+        v_new_data := ROW(NEW.*);
+        INSERT INTO CAZ_VEHICLE_ENTRANT_AUDIT.logged_actions (schema_name,table_name,user_name,action,new_data,query)
+        VALUES (TG_TABLE_SCHEMA::TEXT,v_table_name,session_user::TEXT,substring(TG_OP,1,1),v_new_data, current_query());
+        RETURN NEW;
+    ELSE
+        RAISE WARNING '[CAZ_VEHICLE_ENTRANT_AUDIT.IF_MODIFIED_FUNC] - Other action occurred: %, at %',TG_OP,now();
+        RETURN NULL;
+    END IF;
+ 
+EXCEPTION
+    WHEN data_exception THEN
+        RAISE WARNING '[CAZ_VEHICLE_ENTRANT_AUDIT.IF_MODIFIED_FUNC] - UDF ERROR [DATA EXCEPTION] - SQLSTATE: %, SQLERRM: %',SQLSTATE,SQLERRM;
+        RETURN NULL;
+    WHEN unique_violation THEN
+        RAISE WARNING '[CAZ_VEHICLE_ENTRANT_AUDIT.IF_MODIFIED_FUNC] - UDF ERROR [UNIQUE] - SQLSTATE: %, SQLERRM: %',SQLSTATE,SQLERRM;
+        RETURN NULL;
+    WHEN OTHERS THEN
+        RAISE WARNING '[CAZ_VEHICLE_ENTRANT_AUDIT.IF_MODIFIED_FUNC] - UDF ERROR [OTHER] - SQLSTATE: %, SQLERRM: %',SQLSTATE,SQLERRM;
+        RETURN NULL;
+END;
+$body$
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = pg_catalog, CAZ_VEHICLE_ENTRANT_AUDIT;
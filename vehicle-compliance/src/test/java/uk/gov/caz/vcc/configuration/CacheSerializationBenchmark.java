@@ -0,0 +1,85 @@
+package uk.gov.caz.vcc.configuration;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Compares the JDK serialization (the former serializer of all redis caches) against
+ * {@link SmileRedisSerializer} when encoding and decoding values of the cached types. Payload
+ * sizes are printed during the setup of every trial.
+ *
+ * <p>Run with {@code make benchmark BENCHMARK=CacheSerializationBenchmark} or by executing the
+ * {@code main} method.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializationBenchmark {
+
+  @Param({"licence", "vehicle", "tariffDetails"})
+  private String valueType;
+
+  @Param({"jdk", "smile"})
+  private String serializerType;
+
+  private RedisSerializer<Object> serializer;
+
+  private Object value;
+
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() {
+    serializer = "jdk".equals(serializerType)
+        ? RedisSerializer.java()
+        : new SmileRedisSerializer();
+    value = valueOf(valueType);
+    serialized = serializer.serialize(value);
+    System.out.printf("%n%s/%s payload: %d bytes%n", valueType, serializerType,
+        serialized.length);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return serializer.serialize(value);
+  }
+
+  @Benchmark
+  public Object decode() {
+    return serializer.deserialize(serialized);
+  }
+
+  private static Object valueOf(String valueType) {
+    switch (valueType) {
+      case "licence":
+        return SmileRedisSerializerTest.licence();
+      case "vehicle":
+        return SmileRedisSerializerTest.vehicle();
+      default:
+        return SmileRedisSerializerTest.tariffDetails();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(CacheSerializationBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
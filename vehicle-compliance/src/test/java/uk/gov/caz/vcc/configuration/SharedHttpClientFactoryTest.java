@@ -0,0 +1,93 @@
+package uk.gov.caz.vcc.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.caz.vcc.configuration.HttpClientProperties.ApiSettings;
+import uk.gov.caz.vcc.configuration.SharedHttpClientFactory.HttpClientStatistics;
+
+class SharedHttpClientFactoryTest {
+
+  private HttpClientProperties properties;
+  private SharedHttpClientFactory factory;
+
+  @BeforeEach
+  public void setUp() {
+    properties = new HttpClientProperties();
+    ApiSettings dvla = new ApiSettings();
+    dvla.setMaxRequestsPerHost(7);
+    dvla.setHttp2Enabled(false);
+    ApiSettings payments = new ApiSettings();
+    payments.setMaxIdleConnections(3);
+    properties.getApis().put("dvla", dvla);
+    properties.getApis().put("payments", payments);
+    factory = new SharedHttpClientFactory(properties, 11, 12,
+        Collections.singletonList(chain -> chain.proceed(chain.request())));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    factory.shutdown();
+  }
+
+  @Test
+  public void shouldApplyDefaultsToApiWithoutOverrides() {
+    OkHttpClient client = factory.clientFor("ntr");
+
+    assertThat(client.dispatcher().getMaxRequests()).isEqualTo(properties.getMaxRequests());
+    assertThat(client.dispatcher().getMaxRequestsPerHost())
+        .isEqualTo(properties.getMaxRequestsPerHost());
+    assertThat(client.protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    assertThat(client.readTimeoutMillis()).isEqualTo(11_000);
+    assertThat(client.connectTimeoutMillis()).isEqualTo(12_000);
+    assertThat(client.interceptors()).hasSize(1);
+  }
+
+  @Test
+  public void shouldApplyApiOverrides() {
+    OkHttpClient client = factory.clientFor("dvla");
+
+    assertThat(client.dispatcher().getMaxRequests()).isEqualTo(properties.getMaxRequests());
+    assertThat(client.dispatcher().getMaxRequestsPerHost()).isEqualTo(7);
+    assertThat(client.protocols()).containsExactly(Protocol.HTTP_1_1);
+  }
+
+  @Test
+  public void shouldShareConnectionPoolAndExecutorButNotDispatcher() {
+    OkHttpClient dvla = factory.clientFor("dvla");
+    OkHttpClient ntr = factory.clientFor("ntr");
+
+    assertThat(dvla.connectionPool()).isSameAs(ntr.connectionPool());
+    assertThat(dvla.dispatcher()).isNotSameAs(ntr.dispatcher());
+    assertThat(dvla.dispatcher().executorService())
+        .isSameAs(ntr.dispatcher().executorService());
+  }
+
+  @Test
+  public void shouldCreateDedicatedConnectionPoolWhenConfigured() {
+    OkHttpClient payments = factory.clientFor("payments");
+    OkHttpClient ntr = factory.clientFor("ntr");
+
+    assertThat(payments.connectionPool()).isNotSameAs(ntr.connectionPool());
+  }
+
+  @Test
+  public void shouldReturnTheSameClientForTheSameApi() {
+    assertThat(factory.clientFor("mod")).isSameAs(factory.clientFor("mod"));
+  }
+
+  @Test
+  public void shouldReturnStatisticsOfCreatedClients() {
+    factory.clientFor("tariff");
+    factory.clientFor("mod");
+
+    assertThat(factory.statistics()).containsOnlyKeys("mod", "tariff");
+    assertThat(factory.statistics().get("mod"))
+        .isEqualTo(new HttpClientStatistics(0, 0, 0, 0));
+  }
+}
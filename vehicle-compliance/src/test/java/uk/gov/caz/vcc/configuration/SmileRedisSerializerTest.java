@@ -0,0 +1,199 @@
+package uk.gov.caz.vcc.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import uk.gov.caz.definitions.domain.Vehicle;
+import uk.gov.caz.definitions.domain.VehicleType;
+import uk.gov.caz.definitions.dto.CleanAirZoneDto;
+import uk.gov.caz.definitions.dto.CleanAirZonesDto;
+import uk.gov.caz.definitions.dto.InformationUrlsDto;
+import uk.gov.caz.vcc.domain.CazClass;
+import uk.gov.caz.vcc.domain.TariffDetails;
+import uk.gov.caz.vcc.domain.VehicleTypeCharge;
+import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+
+class SmileRedisSerializerTest {
+
+  private final SmileRedisSerializer serializer = new SmileRedisSerializer();
+
+  @Nested
+  class RoundTrip {
+
+    @Test
+    void shouldRoundTripAuthToken() {
+      assertThat(roundTrip("eyJhbGciOiJIUzI1NiJ9.token")).isEqualTo("eyJhbGciOiJIUzI1NiJ9.token");
+    }
+
+    @Test
+    void shouldRoundTripNullValue() {
+      assertThat(roundTrip(NullValue.INSTANCE)).isSameAs(NullValue.INSTANCE);
+    }
+
+    @Test
+    void shouldRoundTripLicenceInformation() {
+      TaxiPhvLicenseInformationResponse licence = licence();
+
+      assertThat(roundTrip(licence)).isEqualTo(licence);
+    }
+
+    @Test
+    void shouldRoundTripVehicleWithFullDateAndUntransformedFields() {
+      Vehicle vehicle = vehicle();
+
+      Object result = roundTrip(vehicle);
+
+      assertThat(result).isInstanceOf(Vehicle.class)
+          .isEqualToComparingFieldByFieldRecursively(vehicle);
+      assertThat(((Vehicle) result).getDateOfFirstRegistration())
+          .isEqualTo(vehicle.getDateOfFirstRegistration());
+    }
+
+    @Test
+    void shouldRoundTripTariffDetails() {
+      TariffDetails tariffDetails = tariffDetails();
+
+      Object result = roundTrip(tariffDetails);
+
+      assertThat(result).isInstanceOf(TariffDetails.class)
+          .isEqualToComparingFieldByFieldRecursively(tariffDetails);
+    }
+
+    @Test
+    void shouldRoundTripCleanAirZones() {
+      CleanAirZonesDto cleanAirZones = CleanAirZonesDto.builder()
+          .cleanAirZones(Collections.singletonList(CleanAirZoneDto.builder()
+              .cleanAirZoneId(UUID.randomUUID())
+              .name("Birmingham")
+              .boundaryUrl(URI.create("https://www.brumbreathes.co.uk"))
+              .displayOrder(1)
+              .directDebitEnabled(true)
+              .build()))
+          .build();
+
+      assertThat(roundTrip(cleanAirZones)).isEqualTo(cleanAirZones);
+    }
+
+    private Object roundTrip(Object value) {
+      return serializer.deserialize(serializer.serialize(value));
+    }
+  }
+
+  @Test
+  void shouldProduceSmallerPayloadsThanJdkSerialization() {
+    for (Object value : Arrays.asList(licence(), vehicle(), tariffDetails())) {
+      assertThat(serializer.serialize(value).length)
+          .isLessThan(RedisSerializer.java().serialize(value).length / 2);
+    }
+  }
+
+  @Test
+  void shouldReadValuesWrittenWithJdkSerialization() {
+    TaxiPhvLicenseInformationResponse licence = licence();
+
+    assertThat(serializer.deserialize(RedisSerializer.java().serialize(licence)))
+        .isEqualTo(licence);
+  }
+
+  @Test
+  void shouldIgnoreUnknownProperties() throws Exception {
+    byte[] bytes = new ObjectMapper(new SmileFactory()).writeValueAsBytes(Arrays.asList(
+        TaxiPhvLicenseInformationResponse.class.getName(),
+        Collections.singletonMap("removedProperty", "value")));
+
+    Object result = serializer.deserialize(bytes);
+
+    assertThat(result).isEqualTo(TaxiPhvLicenseInformationResponse.builder().build());
+  }
+
+  @Test
+  void shouldTreatValuesOfDisallowedOrUnknownTypesAsMisses() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper(new SmileFactory());
+
+    assertThat(serializer.deserialize(objectMapper.writeValueAsBytes(
+        Arrays.asList(ProcessBuilder.class.getName(), Collections.emptyMap())))).isNull();
+    assertThat(serializer.deserialize(objectMapper.writeValueAsBytes(
+        Arrays.asList("uk.gov.caz.vcc.domain.Removed", Collections.emptyMap())))).isNull();
+  }
+
+  @Test
+  void shouldTreatCorruptedValuesAsMisses() {
+    assertThat(serializer.deserialize(new byte[]{':', ')', '\n', 0})).isNull();
+  }
+
+  @Test
+  void shouldTreatCorruptedLegacyValuesAsMisses() {
+    byte[] bytes = RedisSerializer.java().serialize(licence());
+
+    assertThat(serializer.deserialize(Arrays.copyOf(bytes, bytes.length / 2))).isNull();
+    assertThat(serializer.deserialize(new byte[]{0, 1, 2, 3})).isNull();
+  }
+
+  @Test
+  void shouldHandleNulls() {
+    assertThat(serializer.serialize(null)).isEmpty();
+    assertThat(serializer.deserialize(null)).isNull();
+    assertThat(serializer.deserialize(new byte[0])).isNull();
+  }
+
+  static TaxiPhvLicenseInformationResponse licence() {
+    return TaxiPhvLicenseInformationResponse.builder()
+        .active(true)
+        .description("taxi")
+        .wheelchairAccessible(Boolean.TRUE)
+        .licensingAuthoritiesNames(Arrays.asList("Birmingham", "Leeds"))
+        .licensedStatusExpires(LocalDate.of(2030, 1, 31))
+        .build();
+  }
+
+  static Vehicle vehicle() {
+    Vehicle vehicle = new Vehicle();
+    vehicle.setRegistrationNumber("CAS310");
+    vehicle.setColour("red");
+    vehicle.setDateOfFirstRegistration(new Date(1262347200123L));
+    vehicle.setEuroStatus(" EURO 6 ");
+    vehicle.setTypeApproval("M1");
+    vehicle.setMassInService(1500);
+    vehicle.setBodyType("SALOON");
+    vehicle.setMake("Ford");
+    vehicle.setModel("Focus");
+    vehicle.setRevenueWeight(2000);
+    vehicle.setSeatingCapacity(5);
+    vehicle.setStandingCapacity(0);
+    vehicle.setTaxClass("PETROL CAR");
+    vehicle.setFuelType("petrol");
+    vehicle.setIsTaxiOrPhv(true);
+    vehicle.setIsWav(false);
+    vehicle.setVehicleType(VehicleType.PRIVATE_CAR);
+    vehicle.setLicensingAuthoritiesNames(Collections.singletonList("Birmingham"));
+    return vehicle;
+  }
+
+  static TariffDetails tariffDetails() {
+    TariffDetails tariffDetails = new TariffDetails();
+    tariffDetails.setCazId(UUID.randomUUID());
+    tariffDetails.setName("Birmingham");
+    tariffDetails.setTariff(CazClass.D);
+    tariffDetails.setChargeIdentifier("BCC01");
+    tariffDetails.setChargesMotorcycles(true);
+    tariffDetails.setRates(Arrays.asList(new VehicleTypeCharge(VehicleType.PRIVATE_CAR, 8),
+        new VehicleTypeCharge(VehicleType.BUS, 50)));
+    tariffDetails.setInformationUrls(InformationUrlsDto.builder()
+        .mainInfo("https://www.brumbreathes.co.uk")
+        .boundary("https://www.brumbreathes.co.uk/boundary")
+        .build());
+    tariffDetails.setDisabledTaxClassChargeable(true);
+    return tariffDetails;
+  }
+}
@@ -0,0 +1,74 @@
+package uk.gov.caz.vcc.domain.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares classifying VRNs by stripping whitespace and matching {@link UkVrnTestingService#REGEX}
+ * (the former implementation of {@link UkVrnTestingService}) against the single-pass classifier.
+ *
+ * <p>Run with {@code make benchmark BENCHMARK=UkVrnClassificationBenchmark} or by executing the
+ * {@code main} method.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UkVrnClassificationBenchmark {
+
+  private static final Pattern UK_VRN_PATTERN = Pattern.compile(UkVrnTestingService.REGEX);
+
+  // a mix of current, prefix, suffix, dateless and foreign registrations seen by ANPR cameras
+  private static final String[] VRNS = {"CU57ABC", "CU57 ABC", "A123BCD", "ABC123D", "ABC1234",
+      "1234AB", "AB12", "J1", "0257ABC", "B7654321", "DK12345", "WI-12345", "ABCDEFG"};
+
+  @Setup
+  public void setUp() {
+    // debug logging is disabled in deployed environments, but enabled by default outside Spring
+    ((Logger) LoggerFactory.getLogger(UkVrnTestingService.class)).setLevel(Level.INFO);
+  }
+
+  @Benchmark
+  public void regex(Blackhole blackhole) {
+    for (String vrn : VRNS) {
+      String stripped = StringUtils.deleteWhitespace(vrn);
+      blackhole.consume(stripped.length() <= UkVrnTestingService.MAX_LENGTH
+          && UK_VRN_PATTERN.matcher(stripped).matches());
+    }
+  }
+
+  @Benchmark
+  public void singlePass(Blackhole blackhole) {
+    for (String vrn : VRNS) {
+      blackhole.consume(UkVrnTestingService.isPotentialUkVrn(vrn));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(UkVrnClassificationBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
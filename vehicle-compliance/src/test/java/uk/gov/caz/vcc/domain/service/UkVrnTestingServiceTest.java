@@ -1,11 +1,23 @@
 package uk.gov.caz.vcc.domain.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.regex.Pattern;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
 
 class UkVrnTestingServiceTest {
 
+  private static final Pattern UK_VRN_PATTERN = Pattern.compile(UkVrnTestingService.REGEX);
+
+  // one character of every class the classifier distinguishes
+  private static final char[] CHARACTER_CLASSES = {'A', '0', '5', ' ', '-'};
+
+  private static final char[] ALPHABET = ("ABCXYZabcxyz0123456789  \t\u2003\u00a0-.'É１")
+      .toCharArray();
+
   @Test
   void nullVrnDeemedNonUk() {
     boolean ukVrnTestOutcome = UkVrnTestingService.isPotentialUkVrn(null);
@@ -66,4 +78,68 @@ class UkVrnTestingServiceTest {
     boolean ukVrnTestOutcome = UkVrnTestingService.isPotentialUkVrn(validVrn);
     assertTrue(ukVrnTestOutcome);
   }
+
+  @Test
+  void shouldClassifyEveryStringOfCharacterClassesLikeRegex() {
+    char[] candidate = new char[MAX_CANDIDATE_LENGTH];
+    for (int length = 0; length <= MAX_CANDIDATE_LENGTH; length++) {
+      assertEquivalentForAllCombinations(candidate, length, 0);
+    }
+  }
+
+  @Test
+  void shouldClassifyRandomStringsLikeRegex() {
+    Random random = new Random(20201017L);
+    for (int i = 0; i < 200_000; i++) {
+      char[] candidate = new char[random.nextInt(11)];
+      for (int j = 0; j < candidate.length; j++) {
+        candidate[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+      }
+      assertEquivalentToRegex(new String(candidate));
+    }
+  }
+
+  @Test
+  void shouldAcceptRandomPlatesOfEveryUkFormat() {
+    Random random = new Random(20201017L);
+    String[] formats = {"LLLD", "LLLDDDD", "LDLLL", "LDDDLLL", "LLLDL", "LLLDDDL", "LLDDLLL",
+        "LD", "LLLDDD", "NDL", "NDDDLLL", "NL", "LLDDDD"};
+    for (String format : formats) {
+      for (int i = 0; i < 1000; i++) {
+        StringBuilder plate = new StringBuilder();
+        for (char symbol : format.toCharArray()) {
+          if (symbol == 'L') {
+            plate.append((char) ((random.nextBoolean() ? 'A' : 'a') + random.nextInt(26)));
+          } else if (symbol == 'D') {
+            plate.append((char) ('0' + random.nextInt(10)));
+          } else {
+            plate.append((char) ('1' + random.nextInt(9)));
+          }
+        }
+        plate.insert(random.nextInt(plate.length() + 1), ' ');
+        assertTrue(UkVrnTestingService.isPotentialUkVrn(plate.toString()), plate::toString);
+      }
+    }
+  }
+
+  private static final int MAX_CANDIDATE_LENGTH = UkVrnTestingService.MAX_LENGTH + 1;
+
+  private static void assertEquivalentForAllCombinations(char[] candidate, int length,
+      int position) {
+    if (position == length) {
+      assertEquivalentToRegex(new String(candidate, 0, length));
+      return;
+    }
+    for (char character : CHARACTER_CLASSES) {
+      candidate[position] = character;
+      assertEquivalentForAllCombinations(candidate, length, position + 1);
+    }
+  }
+
+  private static void assertEquivalentToRegex(String vrn) {
+    String stripped = StringUtils.deleteWhitespace(vrn);
+    boolean expected = stripped.length() <= UkVrnTestingService.MAX_LENGTH
+        && UK_VRN_PATTERN.matcher(stripped).matches();
+    assertEquals(expected, UkVrnTestingService.isPotentialUkVrn(vrn), () -> "'" + vrn + "'");
+  }
 }
@@ -0,0 +1,221 @@
+package uk.gov.caz.vcc.domain.service.bulkchecker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+class AdaptiveBatchThrottleTest {
+
+  private static final int VRNS_COUNT = 10_000;
+
+  private final AdaptiveBatchThrottle throttle =
+      new AdaptiveBatchThrottle(30, 5, 200, 10, 500, 8000, 10_000);
+
+  @Test
+  void shouldGrowBatchSizeWithoutDelayWhenUpstreamIsHealthy() {
+    // when
+    throttle.onBatchProcessed(1000, 0);
+    throttle.onBatchProcessed(1000, 0);
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(50);
+    assertThat(throttle.getDelayMs()).isZero();
+  }
+
+  @Test
+  void shouldNotGrowBatchSizeAboveMaximum() {
+    // when
+    for (int i = 0; i < 100; i++) {
+      throttle.onBatchProcessed(1000, 0);
+    }
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(200);
+  }
+
+  @Test
+  void shouldHalveBatchSizeAndBackOffOnThrottlingResponses() {
+    // when
+    throttle.onBatchProcessed(1000, 3);
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(15);
+    assertThat(throttle.getDelayMs()).isEqualTo(500);
+
+    // when
+    throttle.onBatchProcessed(1000, 1);
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(7);
+    assertThat(throttle.getDelayMs()).isEqualTo(1000);
+  }
+
+  @Test
+  void shouldBackOffWhenBatchIsSlowerThanTarget() {
+    // when
+    throttle.onBatchProcessed(10_001, 0);
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(15);
+    assertThat(throttle.getDelayMs()).isEqualTo(500);
+  }
+
+  @Test
+  void shouldKeepBatchSizeAndDelayWithinBounds() {
+    // when
+    for (int i = 0; i < 100; i++) {
+      throttle.onBatchProcessed(1000, 1);
+    }
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(5);
+    assertThat(throttle.getDelayMs()).isEqualTo(8000);
+  }
+
+  @Test
+  void shouldGraduallyRemoveDelayOnceUpstreamRecovers() {
+    // given
+    throttle.onBatchProcessed(1000, 1);
+    throttle.onBatchProcessed(1000, 1);
+
+    // when
+    throttle.onBatchProcessed(1000, 0);
+
+    // then
+    assertThat(throttle.getDelayMs()).isEqualTo(500);
+
+    // when
+    throttle.onBatchProcessed(1000, 0);
+
+    // then
+    assertThat(throttle.getDelayMs()).isZero();
+  }
+
+  @Test
+  void shouldRestoreInitialBatchSizeAndRemoveDelayOnReset() {
+    // given
+    throttle.onBatchProcessed(1000, 1);
+    throttle.onBatchProcessed(1000, 1);
+
+    // when
+    throttle.reset();
+
+    // then
+    assertThat(throttle.getBatchSize()).isEqualTo(30);
+    assertThat(throttle.getDelayMs()).isZero();
+  }
+
+  @Test
+  void shouldTreatTooManyRequestsAndServerErrorsAsThrottling() {
+    assertThat(AdaptiveBatchThrottle.isThrottling(HttpStatus.TOO_MANY_REQUESTS)).isTrue();
+    assertThat(AdaptiveBatchThrottle.isThrottling(HttpStatus.SERVICE_UNAVAILABLE)).isTrue();
+    assertThat(AdaptiveBatchThrottle.isThrottling(HttpStatus.NOT_FOUND)).isFalse();
+    assertThat(AdaptiveBatchThrottle.isThrottling(HttpStatus.BAD_REQUEST)).isFalse();
+  }
+
+  @Test
+  void shouldProcessFileFasterThanFixedBatchesAgainstRateLimitedUpstream() {
+    // given
+    RateLimitedUpstreamStub adaptiveUpstream = new RateLimitedUpstreamStub(100);
+    RateLimitedUpstreamStub fixedUpstream = new RateLimitedUpstreamStub(100);
+
+    // when
+    long adaptiveTimeMs = processWithAdaptiveThrottle(adaptiveUpstream);
+    long fixedTimeMs = processWithFixedBatches(fixedUpstream, 30, 500);
+
+    // then
+    assertThat(adaptiveTimeMs).isLessThan(fixedTimeMs / 2);
+    assertThat(adaptiveUpstream.rejectedVrns).isLessThan(VRNS_COUNT / 10);
+  }
+
+  @Test
+  void shouldAdaptToUpstreamWhichStartsThrottling() {
+    // given
+    RateLimitedUpstreamStub upstream = new RateLimitedUpstreamStub(1000);
+    processWithAdaptiveThrottle(upstream);
+    int healthyBatchSize = throttle.getBatchSize();
+    upstream.vrnsPerSecond = 20;
+
+    // when
+    processWithAdaptiveThrottle(upstream);
+
+    // then
+    assertThat(healthyBatchSize).isEqualTo(200);
+    assertThat(throttle.getBatchSize()).isLessThan(healthyBatchSize / 2);
+  }
+
+  /**
+   * Processes all VRNs with batches sized by the throttle, retrying rejected VRNs.
+   *
+   * @return simulated processing time.
+   */
+  private long processWithAdaptiveThrottle(RateLimitedUpstreamStub upstream) {
+    int remainingVrns = VRNS_COUNT;
+    while (remainingVrns > 0) {
+      int batchSize = Math.min(remainingVrns, throttle.getBatchSize());
+      long latencyMs = upstream.latencyMs(batchSize);
+      int rejectedVrns = upstream.call(batchSize);
+      upstream.elapse(latencyMs);
+      throttle.onBatchProcessed(latencyMs, rejectedVrns);
+      remainingVrns -= batchSize - rejectedVrns;
+      upstream.elapse(throttle.getDelayMs());
+    }
+    return upstream.nowMs;
+  }
+
+  /**
+   * Processes all VRNs with fixed batches separated by a fixed sleep, retrying rejected VRNs.
+   *
+   * @return simulated processing time.
+   */
+  private long processWithFixedBatches(RateLimitedUpstreamStub upstream, int batchSize,
+      long sleepMs) {
+    int remainingVrns = VRNS_COUNT;
+    while (remainingVrns > 0) {
+      int size = Math.min(remainingVrns, batchSize);
+      long latencyMs = upstream.latencyMs(size);
+      int rejectedVrns = upstream.call(size);
+      upstream.elapse(latencyMs + sleepMs);
+      remainingVrns -= size - rejectedVrns;
+    }
+    return upstream.nowMs;
+  }
+
+  /**
+   * Local stub of an upstream service (DVLA or NTR) which admits requests at a limited rate
+   * (token bucket with a burst of one second worth of requests) and rejects the excess with 429.
+   * Time is simulated.
+   */
+  private static class RateLimitedUpstreamStub {
+
+    private int vrnsPerSecond;
+    private double tokens;
+    private long nowMs;
+    private int rejectedVrns;
+
+    RateLimitedUpstreamStub(int vrnsPerSecond) {
+      this.vrnsPerSecond = vrnsPerSecond;
+      this.tokens = vrnsPerSecond;
+    }
+
+    /**
+     * Returns the number of VRNs of the batch which have been rejected.
+     */
+    int call(int batchSize) {
+      int admitted = (int) Math.min(batchSize, Math.floor(tokens));
+      tokens -= admitted;
+      rejectedVrns += batchSize - admitted;
+      return batchSize - admitted;
+    }
+
+    long latencyMs(int batchSize) {
+      return 100 + 5L * batchSize;
+    }
+
+    void elapse(long durationMs) {
+      nowMs += durationMs;
+      tokens = Math.min(vrnsPerSecond, tokens + durationMs * vrnsPerSecond / 1000.0);
+    }
+  }
+}
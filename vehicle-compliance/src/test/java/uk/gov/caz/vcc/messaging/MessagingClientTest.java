@@ -1,19 +1,28 @@
 package uk.gov.caz.vcc.messaging;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -55,4 +64,103 @@ public class MessagingClientTest {
     Mockito.verify(client, times(1)).sendMessage(ArgumentMatchers.any(SendMessageRequest.class));
   }
 
+  @Test
+  void canPublishMessagesInBatches() {
+    GetQueueUrlResult result = new GetQueueUrlResult();
+    result.setQueueUrl("newUrl");
+    Mockito.when(client.getQueueUrl("testQueue")).thenReturn(result);
+    Mockito.when(client.sendMessageBatch(ArgumentMatchers.any(SendMessageBatchRequest.class)))
+        .thenReturn(new SendMessageBatchResult());
+    List<List<VehicleEntrantReportingRequest>> messages = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      messages.add(vehicleEntrantRequests);
+    }
+
+    List<List<VehicleEntrantReportingRequest>> failedMessages =
+        messagingClient.publishMessages(messages);
+    messagingClient.publishMessage(vehicleEntrantRequests);
+
+    assertThat(failedMessages).isEmpty();
+
+    ArgumentCaptor<SendMessageBatchRequest> batchRequests =
+        ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+    Mockito.verify(client, times(3)).sendMessageBatch(batchRequests.capture());
+    assertThat(batchRequests.getAllValues()).extracting(request -> request.getEntries().size())
+        .containsExactly(10, 10, 5);
+    assertThat(batchRequests.getAllValues()).extracting(SendMessageBatchRequest::getQueueUrl)
+        .containsOnly("newUrl");
+    Mockito.verify(client, times(1)).getQueueUrl("testQueue");
+  }
+
+  @Test
+  void shouldRetryMessagesFailedForTransientReason() {
+    mockQueueUrl();
+    Mockito.when(client.sendMessageBatch(ArgumentMatchers.any(SendMessageBatchRequest.class)))
+        .thenReturn(new SendMessageBatchResult()
+            .withSuccessful(new SendMessageBatchResultEntry().withId("0"))
+            .withFailed(failure("1", false)))
+        .thenReturn(new SendMessageBatchResult()
+            .withSuccessful(new SendMessageBatchResultEntry().withId("1")));
+
+    List<List<VehicleEntrantReportingRequest>> failedMessages = messagingClient.publishMessages(
+        messages(2));
+
+    ArgumentCaptor<SendMessageBatchRequest> batchRequests =
+        ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+    Mockito.verify(client, times(2)).sendMessageBatch(batchRequests.capture());
+    assertThat(batchRequests.getAllValues().get(1).getEntries())
+        .extracting(SendMessageBatchRequestEntry::getId).containsExactly("1");
+    assertThat(failedMessages).isEmpty();
+  }
+
+  @Test
+  void shouldReturnMessagesWhichCouldNotBePublished() {
+    mockQueueUrl();
+    List<List<VehicleEntrantReportingRequest>> messages = messages(3);
+    Mockito.when(client.sendMessageBatch(ArgumentMatchers.any(SendMessageBatchRequest.class)))
+        .thenReturn(new SendMessageBatchResult()
+            .withSuccessful(new SendMessageBatchResultEntry().withId("0"))
+            .withFailed(failure("1", true), failure("2", false)))
+        .thenReturn(new SendMessageBatchResult().withFailed(failure("2", false)));
+
+    List<List<VehicleEntrantReportingRequest>> failedMessages =
+        messagingClient.publishMessages(messages);
+
+    Mockito.verify(client, times(3))
+        .sendMessageBatch(ArgumentMatchers.any(SendMessageBatchRequest.class));
+    assertThat(failedMessages).containsExactly(messages.get(1), messages.get(2));
+  }
+
+  @Test
+  void shouldReturnAllMessagesOfFailedBatchRequest() {
+    mockQueueUrl();
+    List<List<VehicleEntrantReportingRequest>> messages = messages(2);
+    Mockito.when(client.sendMessageBatch(ArgumentMatchers.any(SendMessageBatchRequest.class)))
+        .thenThrow(new AmazonSQSException("Throttled"));
+
+    List<List<VehicleEntrantReportingRequest>> failedMessages =
+        messagingClient.publishMessages(messages);
+
+    assertThat(failedMessages).containsExactlyElementsOf(messages);
+  }
+
+  private void mockQueueUrl() {
+    Mockito.when(client.getQueueUrl("testQueue")).thenReturn(
+        new GetQueueUrlResult().withQueueUrl("newUrl"));
+  }
+
+  private static List<List<VehicleEntrantReportingRequest>> messages(int count) {
+    List<List<VehicleEntrantReportingRequest>> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      messages.add(Collections.singletonList(VehicleEntrantReportingRequest.builder()
+          .vrnHash("vrn" + i)
+          .build()));
+    }
+    return messages;
+  }
+
+  private static BatchResultErrorEntry failure(String id, boolean senderFault) {
+    return new BatchResultErrorEntry().withId(id).withCode("ThrottlingException")
+        .withSenderFault(senderFault);
+  }
 }
@@ -0,0 +1,163 @@
+package uk.gov.caz.vcc.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.sqs.model.AmazonSQSException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.vcc.dto.VehicleEntrantReportingRequest;
+
+@ExtendWith(MockitoExtension.class)
+class ReportingDataPublisherTest {
+
+  @Mock
+  private MessagingClient messagingClient;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<Integer> publishedBatchSizes = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch senderBlocked = new CountDownLatch(1);
+  private final CountDownLatch releaseSender = new CountDownLatch(1);
+  private ReportingDataPublisher publisher;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    releaseSender.countDown();
+    publisher.destroy();
+  }
+
+  @Test
+  void shouldPublishBufferedMessagesInBatchesOfTen() throws InterruptedException {
+    // given
+    publisher = new ReportingDataPublisher(messagingClient, 100, 100, 1000, meterRegistry);
+    blockSenderOnFirstBatch();
+    publisher.publish(message("first"));
+    assertThat(senderBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // when
+    for (int i = 0; i < 20; i++) {
+      publisher.publish(message("vrn" + i));
+    }
+    releaseSender.countDown();
+    boolean flushed = publisher.flush(5000);
+
+    // then
+    assertThat(flushed).isTrue();
+    assertThat(publishedBatchSizes).containsExactly(1, 10, 10);
+    verify(messagingClient, never()).publishMessage(anyList());
+  }
+
+  @Test
+  void shouldPublishOnCallingThreadWhenBufferIsFull() throws InterruptedException {
+    // given
+    publisher = new ReportingDataPublisher(messagingClient, 1, 10, 1000, meterRegistry);
+    blockSenderOnFirstBatch();
+    publisher.publish(message("first"));
+    assertThat(senderBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+    publisher.publish(message("buffered"));
+
+    // when
+    publisher.publish(message("overflow"));
+
+    // then
+    verify(messagingClient).publishMessage(message("overflow"));
+    assertThat(publisher.flush(0)).isFalse();
+    releaseSender.countDown();
+    assertThat(publisher.flush(5000)).isTrue();
+    assertThat(publishedBatchSizes).containsExactly(1, 1);
+  }
+
+  @Test
+  void shouldPublishBufferedMessagesOnShutdown() throws InterruptedException {
+    // given
+    publisher = new ReportingDataPublisher(messagingClient, 100, 100, 50, meterRegistry);
+    blockSenderOnFirstBatch();
+    publisher.publish(message("first"));
+    assertThat(senderBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+    publisher.publish(message("second"));
+    publisher.publish(message("third"));
+
+    // when
+    publisher.destroy();
+
+    // then
+    assertThat(publishedBatchSizes).containsExactly(2);
+    verify(messagingClient, never()).publishMessage(anyList());
+  }
+
+  @Test
+  void shouldPublishOnCallingThreadAfterShutdown() throws InterruptedException {
+    // given
+    publisher = new ReportingDataPublisher(messagingClient, 100, 100, 1000, meterRegistry);
+    publisher.destroy();
+
+    // when
+    publisher.publish(message("late"));
+
+    // then
+    verify(messagingClient).publishMessage(message("late"));
+    verify(messagingClient, never()).publishMessages(any());
+  }
+
+  @Test
+  void shouldPublishMessagesFailedInBatchOneByOne() throws InterruptedException {
+    // given
+    publisher = new ReportingDataPublisher(messagingClient, 100, 100, 1000, meterRegistry);
+    List<List<VehicleEntrantReportingRequest>> failedInBatch =
+        Arrays.asList(message("failed"), message("failedAgain"));
+    when(messagingClient.publishMessages(any())).thenAnswer(invocation -> {
+      List<List<VehicleEntrantReportingRequest>> batch = invocation.getArgument(0);
+      return batch.stream().filter(failedInBatch::contains).collect(Collectors.toList());
+    });
+    lenient().doThrow(new AmazonSQSException("Throttled")).when(messagingClient)
+        .publishMessage(message("failedAgain"));
+
+    // when
+    publisher.publish(message("published"));
+    publisher.publish(message("failed"));
+    publisher.publish(message("failedAgain"));
+    publisher.destroy();
+
+    // then
+    verify(messagingClient).publishMessage(message("failed"));
+    verify(messagingClient).publishMessage(message("failedAgain"));
+    assertThat(meterRegistry.counter("reporting.data.messages.failed").count()).isEqualTo(1);
+  }
+
+  private void blockSenderOnFirstBatch() {
+    doAnswer(invocation -> {
+      List<?> batch = invocation.getArgument(0);
+      if (publishedBatchSizes.isEmpty() && Thread.currentThread().getName()
+          .equals("reporting-data-publisher")) {
+        senderBlocked.countDown();
+        releaseSender.await();
+      }
+      publishedBatchSizes.add(batch.size());
+      return Collections.emptyList();
+    }).when(messagingClient).publishMessages(any());
+  }
+
+  private static List<VehicleEntrantReportingRequest> message(String vrnHash) {
+    return Collections.singletonList(VehicleEntrantReportingRequest.builder()
+        .vrnHash(vrnHash)
+        .build());
+  }
+}
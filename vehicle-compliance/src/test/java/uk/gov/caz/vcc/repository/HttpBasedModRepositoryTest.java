@@ -19,7 +19,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import uk.gov.caz.async.rest.AsyncOp;
-import uk.gov.caz.async.rest.AsyncRestService;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.vcc.dto.ModVehicleDto;
 import uk.gov.caz.vcc.dto.mod.GetModVehiclesRequestDto;
 import uk.gov.caz.vcc.dto.mod.GetModVehiclesResponseDto;
@@ -30,7 +30,7 @@ class HttpBasedModRepositoryTest {
   @Mock
   private RetrofitModRepository retrofitModRepository;
   @Mock
-  private AsyncRestService asyncRestService;
+  private AsyncOpExecutor modAsyncOpExecutor;
 
   @InjectMocks
   private HttpBasedModRepository repository;
@@ -17,7 +17,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.async.rest.AsyncOp;
-import uk.gov.caz.async.rest.AsyncRestService;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.definitions.domain.Vehicle;
 import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
 import uk.gov.caz.vcc.repository.LicenseAndVehicleRepository.NtrAndDvlaData;
@@ -31,7 +31,7 @@ class LicenseAndLocalVehicleRemoteAsyncRepositoryTest {
   @Mock
   private LocalVehicleDetailsRepository localVehicleDetailsRepository;
   @Mock
-  private AsyncRestService asyncRestService;
+  private AsyncOpExecutor ntrAsyncOpExecutor;
   @Mock
   private AsyncOp<TaxiPhvLicenseInformationResponse> asyncOp;
 
@@ -53,7 +53,7 @@ class LicenseAndLocalVehicleRemoteAsyncRepositoryTest {
     // then
     assertThat(licenseAndVehicle.getNtrLicences()).hasSize(1);
     assertThat(licenseAndVehicle.getDvlaVehicles()).hasSize(1);
-    verify(asyncRestService).startAndAwaitAll(anyList(), eq(20L), eq(TimeUnit.SECONDS));
+    verify(ntrAsyncOpExecutor).startAndAwaitAll(anyList(), eq(20L), eq(TimeUnit.SECONDS));
   }
 
   @Test
@@ -68,7 +68,7 @@ class LicenseAndLocalVehicleRemoteAsyncRepositoryTest {
 
     // then
     assertThat(licenseAndVehicle.getDvlaVehicles()).hasSize(1);
-    verifyNoInteractions(asyncRestService);
+    verifyNoInteractions(ntrAsyncOpExecutor);
   }
 
   private Optional<Vehicle> createVehicle() {
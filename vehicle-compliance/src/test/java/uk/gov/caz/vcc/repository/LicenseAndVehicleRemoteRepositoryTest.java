@@ -2,25 +2,33 @@ package uk.gov.caz.vcc.repository;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
+import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import lombok.val;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
+import uk.gov.caz.async.rest.AsyncExecutionPolicy;
 import uk.gov.caz.async.rest.AsyncOp;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.async.rest.AsyncRestService;
 import uk.gov.caz.definitions.domain.Vehicle;
+import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
 import uk.gov.caz.vcc.dto.DvlaVehiclesInformation;
 import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
 import uk.gov.caz.vcc.repository.LicenseAndVehicleRepository.NtrAndDvlaData;
@@ -45,13 +53,13 @@ class LicenseAndVehicleRemoteRepositoryTest {
   private AsyncRestService asyncRestService;
 
   @Mock
-  private AsyncOp<TaxiPhvLicenseInformationResponse> ntrAsyncOp;
+  private VehicleApiAuthenticationUtility remoteAuthenticationTokenGenerator;
 
-  @Mock
-  private AsyncOp<Vehicle> dvlaAsyncOp;
+  private final AsyncOpExecutor ntrAsyncOpExecutor = new AsyncOpExecutor("ntr",
+      AsyncExecutionPolicy.builder().build());
 
-  @Mock
-  private VehicleApiAuthenticationUtility remoteAuthenticationTokenGenerator;
+  private final AsyncOpExecutor dvlaAsyncOpExecutor = new AsyncOpExecutor("dvla",
+      AsyncExecutionPolicy.builder().build());
 
   private LicenseAndVehicleRemoteRepository licenseAndVehicleRemoteRepository;
 
@@ -61,16 +69,24 @@ class LicenseAndVehicleRemoteRepositoryTest {
 
     this.licenseAndVehicleRemoteRepository = new LicenseAndVehicleRemoteRepository(
         nationalTaxiRegisterAsyncRepository, dvlaRemoteRepository, asyncRestService,
-        remoteAuthenticationTokenGenerator, MAX_DVLA_CONCURRENT_CALLS, TIMEOUT);
+        ntrAsyncOpExecutor, dvlaAsyncOpExecutor, remoteAuthenticationTokenGenerator,
+        MAX_DVLA_CONCURRENT_CALLS, TIMEOUT);
+  }
+
+  @AfterEach
+  public void shutdownExecutors() {
+    ntrAsyncOpExecutor.shutdown();
+    dvlaAsyncOpExecutor.shutdown();
   }
 
   @Test
   void shouldCallRemoteNtrApiAndRemoteVehicleApi() {
     // given
     when(nationalTaxiRegisterAsyncRepository.findByRegistrationNumberAsync(anyString()))
-        .thenReturn(ntrAsyncOp);
+        .thenReturn(AsyncOp.asCompletedAndSuccessful(ANY, HttpStatus.OK,
+            TaxiPhvLicenseInformationResponse.builder().build()));
     when(dvlaRemoteRepository.findByRegistrationNumberAsync(anyString(), anyString()))
-        .thenReturn(dvlaAsyncOp);
+        .thenReturn(AsyncOp.asCompletedAndSuccessful(ANY, HttpStatus.OK, new Vehicle()));
 
     // when
     NtrAndDvlaData licenseAndVehicle =
@@ -79,14 +95,36 @@ class LicenseAndVehicleRemoteRepositoryTest {
     // then
     assertThat(licenseAndVehicle.getNtrLicences()).hasSize(1);
     assertThat(licenseAndVehicle.getDvlaVehicles()).hasSize(1);
-    verify(asyncRestService).startAndAwaitAll(anyList(), eq(20L), eq(TimeUnit.SECONDS));
+    verifyNoInteractions(asyncRestService);
+  }
+
+  @Test
+  void shouldRetryDvlaCallsWithNewTokenWhenUnauthorised() {
+    // given
+    when(nationalTaxiRegisterAsyncRepository.findByRegistrationNumberAsync(anyString()))
+        .thenAnswer(answer -> AsyncOp.asCompletedAndSuccessful(ANY, HttpStatus.OK,
+            TaxiPhvLicenseInformationResponse.builder().build()));
+    when(dvlaRemoteRepository.findByRegistrationNumberAsync(ANY, ANY))
+        .thenReturn(AsyncOp.asCompletedAndFailed(ANY, HttpStatus.UNAUTHORIZED, "401"));
+    when(remoteAuthenticationTokenGenerator.getAuthenticationToken()).thenReturn("new-token");
+    when(dvlaRemoteRepository.findByRegistrationNumberAsync(ANY, "new-token"))
+        .thenReturn(AsyncOp.asCompletedAndSuccessful(ANY, HttpStatus.OK, new Vehicle()));
+
+    // when
+    NtrAndDvlaData licenseAndVehicle =
+        licenseAndVehicleRemoteRepository.findLicenseAndVehicle(ANY, ANY);
+
+    // then
+    assertThat(licenseAndVehicle.getDvlaVehicles().get(ANY).getHttpStatus())
+        .isEqualTo(HttpStatus.OK);
   }
 
   @Test
   void shouldCallRemoteVehicleApi() {
     // given
     when(dvlaRemoteRepository.findByRegistrationNumberAsync(anyString(), anyString()))
-        .thenReturn(dvlaAsyncOp);
+        .thenAnswer(answer -> AsyncOp.asCompletedAndSuccessful(ANY, HttpStatus.OK,
+            new Vehicle()));
 
     // when
     NtrAndDvlaData licenseAndVehicle = licenseAndVehicleRemoteRepository
@@ -94,12 +132,22 @@ class LicenseAndVehicleRemoteRepositoryTest {
 
     // then
     assertThat(licenseAndVehicle.getDvlaVehicles()).hasSize(1);
-    verify(asyncRestService).startAndAwaitAll(anyList(), eq(20L), eq(TimeUnit.SECONDS));
+    verifyNoInteractions(asyncRestService);
   }
 
   @Nested
   class FindingDvlaVehiclesInBulk {
 
+    private static final String NEW_TOKEN = "new-token";
+
+    @BeforeEach
+    public void setupWithRealAsyncRestService() {
+      licenseAndVehicleRemoteRepository = new LicenseAndVehicleRemoteRepository(
+          nationalTaxiRegisterAsyncRepository, dvlaRemoteRepository, new AsyncRestService(),
+          ntrAsyncOpExecutor, dvlaAsyncOpExecutor, remoteAuthenticationTokenGenerator, 1,
+          TIMEOUT);
+    }
+
     @Test
     public void whenAllAsyncOpsSucceeded() {
       // given
@@ -125,6 +173,10 @@ class LicenseAndVehicleRemoteRepositoryTest {
     @Test
     public void whenAsyncOperationFailed() {
       // given
+      licenseAndVehicleRemoteRepository = new LicenseAndVehicleRemoteRepository(
+          nationalTaxiRegisterAsyncRepository, dvlaRemoteRepository, asyncRestService,
+          ntrAsyncOpExecutor, dvlaAsyncOpExecutor, remoteAuthenticationTokenGenerator,
+          MAX_DVLA_CONCURRENT_CALLS, TIMEOUT);
       when(remoteAuthenticationTokenGenerator.getAuthenticationToken()).thenReturn(ANY);
       AsyncOp<Vehicle> vrn1AsyncOp = AsyncOp.asCompletedAndSuccessful(VRN1,
           HttpStatus.OK, new Vehicle());
@@ -134,8 +186,8 @@ class LicenseAndVehicleRemoteRepositoryTest {
           HttpStatus.OK, new Vehicle());
       when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN2, ANY))
           .thenReturn(vrn2AsyncOp);
-      doThrow(new RuntimeException()).when(asyncRestService)
-          .startAndAwaitAll(newArrayList(vrn1AsyncOp, vrn2AsyncOp), 20, TimeUnit.SECONDS);
+      doThrow(new RuntimeException()).when(asyncRestService).startAndAwaitAll(any(Queue.class),
+          eq(MAX_DVLA_CONCURRENT_CALLS.intValue()), eq(20L), eq(TimeUnit.SECONDS), any());
       val vrns = newArrayList(VRN1, VRN2);
 
       // when
@@ -145,5 +197,68 @@ class LicenseAndVehicleRemoteRepositoryTest {
       // then
       assertThat(foundDvlaVehicles.hasFailed()).isTrue();
     }
+
+    @Test
+    public void whenDvlaReturnedNonAuthorisationErrorForOneOfVrns() {
+      // given
+      when(remoteAuthenticationTokenGenerator.getAuthenticationToken()).thenReturn(ANY);
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN1, ANY))
+          .thenReturn(AsyncOp.asCompletedAndSuccessful(VRN1, HttpStatus.OK, new Vehicle()));
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN2, ANY))
+          .thenReturn(AsyncOp.asCompletedAndFailed(VRN2, HttpStatus.NOT_FOUND, "Not found"));
+
+      // when
+      DvlaVehiclesInformation foundDvlaVehicles = licenseAndVehicleRemoteRepository
+          .findDvlaVehiclesInBulk(newArrayList(VRN1, VRN2));
+
+      // then
+      assertThat(foundDvlaVehicles.hasFailed()).isFalse();
+      assertThat(foundDvlaVehicles.getDvlaVehicleInfoFor(VRN1).hasFailed()).isFalse();
+      assertThat(foundDvlaVehicles.getDvlaVehicleInfoFor(VRN2).hasFailed()).isTrue();
+    }
+
+    @Test
+    public void whenUnauthorisedCallIsRetriedWithNewToken() {
+      // given
+      when(remoteAuthenticationTokenGenerator.getAuthenticationToken())
+          .thenReturn(ANY)
+          .thenReturn(NEW_TOKEN);
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN1, ANY))
+          .thenReturn(AsyncOp.asCompletedAndFailed(VRN1, HttpStatus.UNAUTHORIZED, "401"));
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN1, NEW_TOKEN))
+          .thenReturn(AsyncOp.asCompletedAndSuccessful(VRN1, HttpStatus.OK, new Vehicle()));
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN2, ANY))
+          .thenReturn(AsyncOp.asCompletedAndFailed(VRN2, HttpStatus.UNAUTHORIZED, "401"));
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(VRN2, NEW_TOKEN))
+          .thenReturn(AsyncOp.asCompletedAndSuccessful(VRN2, HttpStatus.OK, new Vehicle()));
+
+      // when
+      DvlaVehiclesInformation foundDvlaVehicles = licenseAndVehicleRemoteRepository
+          .findDvlaVehiclesInBulk(newArrayList(VRN1, VRN2));
+
+      // then
+      assertThat(foundDvlaVehicles.hasFailed()).isFalse();
+      assertThat(foundDvlaVehicles.getDvlaVehicleInfoFor(VRN1).hasFailed()).isFalse();
+      assertThat(foundDvlaVehicles.getDvlaVehicleInfoFor(VRN2).hasFailed()).isFalse();
+      verify(remoteAuthenticationTokenGenerator, times(2)).getAuthenticationToken();
+    }
+
+    @Test
+    public void whenRetriedCallIsUnauthorisedAgain() {
+      // given
+      when(remoteAuthenticationTokenGenerator.getAuthenticationToken())
+          .thenReturn(ANY)
+          .thenReturn(NEW_TOKEN);
+      when(dvlaRemoteRepository.findByRegistrationNumberAsync(eq(VRN1), anyString()))
+          .thenAnswer(answer -> AsyncOp
+              .asCompletedAndFailed(VRN1, HttpStatus.UNAUTHORIZED, "401"));
+
+      // when
+      Throwable throwable = catchThrowable(() -> licenseAndVehicleRemoteRepository
+          .findDvlaVehiclesInBulk(newArrayList(VRN1)));
+
+      // then
+      assertThat(throwable).isInstanceOf(ExternalServiceCallException.class);
+    }
   }
 }
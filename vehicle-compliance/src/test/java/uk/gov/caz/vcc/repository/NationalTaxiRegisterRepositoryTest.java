@@ -4,20 +4,38 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
-import uk.gov.caz.async.rest.AsyncRestService;
+import uk.gov.caz.async.rest.AsyncOp;
+import uk.gov.caz.async.rest.AsyncOpExecutor;
 import uk.gov.caz.vcc.domain.exceptions.ExternalServiceCallException;
+import uk.gov.caz.vcc.dto.LicencesInformation;
 import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+import uk.gov.caz.vcc.dto.ntr.GetLicencesInfoRequestDto;
+import uk.gov.caz.vcc.dto.ntr.GetLicencesInfoResponseDto;
 
 @ExtendWith(MockitoExtension.class)
 class NationalTaxiRegisterRepositoryTest {
@@ -36,17 +54,26 @@ class NationalTaxiRegisterRepositoryTest {
   private NationalTaxiRegisterAsyncRepository asyncRepository;
 
   @Mock
-  private AsyncRestService asyncRestService;
+  private AsyncOpExecutor ntrAsyncOpExecutor;
 
   @Mock
   private ResponseEntity responseEntity;
 
+  @Mock
+  private ObjectProvider<LicenseInfoCache> licenseInfoCacheProvider;
+
+  private LicenseInfoCache licenseInfoCache;
+
   @BeforeEach
   void setUp() {
+    licenseInfoCache = new CacheManagerLicenseInfoCache(
+        new ConcurrentMapCacheManager(LicenseInfoCache.CACHE_NAME), 2);
     when(restTemplateBuilder.rootUri(anyString())).thenReturn(restTemplateBuilder);
     when(restTemplateBuilder.build()).thenReturn(nationalTaxiRegisterRestTemplate);
+    when(licenseInfoCacheProvider.getIfAvailable(any())).thenReturn(licenseInfoCache);
     nationalTaxiRegisterRepository = new NationalTaxiRegisterRepository(restTemplateBuilder,
-        nationalTaxiRegisterRootUri, asyncRepository, asyncRestService);
+        nationalTaxiRegisterRootUri, asyncRepository, ntrAsyncOpExecutor,
+        licenseInfoCacheProvider);
   }
 
   @Test
@@ -92,4 +119,191 @@ class NationalTaxiRegisterRepositoryTest {
     assertThrows(ExternalServiceCallException.class,
         () -> nationalTaxiRegisterRepository.getLicenseInfo(vrn));
   }
-}
\ No newline at end of file
+
+  @Nested
+  class GetLicensesInformation {
+
+    private final TaxiPhvLicenseInformationResponse cachedLicence =
+        TaxiPhvLicenseInformationResponse.builder().description("cached").build();
+
+    private final TaxiPhvLicenseInformationResponse fetchedLicence =
+        TaxiPhvLicenseInformationResponse.builder().description("fetched").build();
+
+    @Test
+    void shouldCallNtrOnlyForVehiclesWhichAreNotCached() {
+      // given
+      cache("CACHED1", cachedLicence);
+      cache("CACHED2", null);
+      mockNtrResponse(Arrays.asList("FETCHED", "UNLICENSED"),
+          ImmutableMap.of("FETCHED", fetchedLicence));
+
+      // when
+      LicencesInformation result = nationalTaxiRegisterRepository.getLicensesInformation(
+          Arrays.asList("CACHED1", "CACHED2", "FETCHED", "UNLICENSED"));
+
+      // then
+      assertThat(result.hasFailed()).isFalse();
+      assertThat(result.getLicenceInfoFor("CACHED1")).isEqualTo(cachedLicence);
+      assertThat(result.getLicenceInfoFor("CACHED2")).isNull();
+      assertThat(result.getLicenceInfoFor("FETCHED")).isEqualTo(fetchedLicence);
+      assertThat(result.getLicenceInfoFor("UNLICENSED")).isNull();
+    }
+
+    @Test
+    void shouldCacheFetchedLicencesAndNegativeResults() {
+      // given
+      mockNtrResponse(Arrays.asList("FETCHED", "UNLICENSED"),
+          ImmutableMap.of("FETCHED", fetchedLicence));
+
+      // when
+      nationalTaxiRegisterRepository.getLicensesInformation(Arrays.asList("FETCHED", "UNLICENSED"));
+
+      // then
+      assertThat(cached("FETCHED")).contains(fetchedLicence);
+      assertThat(cached("UNLICENSED")).isEmpty();
+    }
+
+    @Test
+    void shouldNotCallNtrWhenAllVehiclesAreCached() {
+      // given
+      cache("CACHED1", cachedLicence);
+      cache("CACHED2", null);
+
+      // when
+      LicencesInformation result = nationalTaxiRegisterRepository.getLicensesInformation(
+          Arrays.asList("CACHED1", "CACHED2"));
+
+      // then
+      assertThat(result.getLicenceInfoFor("CACHED1")).isEqualTo(cachedLicence);
+      assertThat(result.getLicenceInfoFor("CACHED2")).isNull();
+      verify(asyncRepository, never()).findByRegistrationNumbersAsync(any());
+    }
+
+    @Test
+    void shouldNotCacheAnythingWhenNtrCallFails() {
+      // given
+      given(asyncRepository.findByRegistrationNumbersAsync(
+          new GetLicencesInfoRequestDto(Collections.singletonList("VRN"))))
+          .willReturn(AsyncOp.asCompletedAndFailed("ntr", HttpStatus.SERVICE_UNAVAILABLE,
+              "Unavailable"));
+
+      // when
+      LicencesInformation result = nationalTaxiRegisterRepository
+          .getLicensesInformation(Collections.singletonList("VRN"));
+
+      // then
+      assertThat(result.hasFailed()).isTrue();
+      assertThat(cached("VRN")).isNull();
+    }
+
+    @Test
+    void shouldCallNtrForAllVehiclesWhenCacheCannotBeRead() {
+      // given
+      LicenseInfoCache failingCache = new NoOpLicenseInfoCache() {
+        @Override
+        public Map<String, Optional<TaxiPhvLicenseInformationResponse>> getAll(
+            Collection<String> vrns) {
+          throw new IllegalStateException("Redis is down");
+        }
+      };
+      given(licenseInfoCacheProvider.getIfAvailable(any())).willReturn(failingCache);
+      nationalTaxiRegisterRepository = new NationalTaxiRegisterRepository(restTemplateBuilder,
+          nationalTaxiRegisterRootUri, asyncRepository, ntrAsyncOpExecutor,
+          licenseInfoCacheProvider);
+      mockNtrResponse(Collections.singletonList("VRN"), ImmutableMap.of("VRN", fetchedLicence));
+
+      // when
+      LicencesInformation result = nationalTaxiRegisterRepository
+          .getLicensesInformation(Collections.singletonList("VRN"));
+
+      // then
+      assertThat(result.getLicenceInfoFor("VRN")).isEqualTo(fetchedLicence);
+    }
+
+    private void mockNtrResponse(List<String> requestedVrns,
+        ImmutableMap<String, TaxiPhvLicenseInformationResponse> licences) {
+      given(asyncRepository.findByRegistrationNumbersAsync(
+          new GetLicencesInfoRequestDto(requestedVrns)))
+          .willReturn(AsyncOp.asCompletedAndSuccessful("ntr", HttpStatus.OK,
+              new GetLicencesInfoResponseDto(licences)));
+    }
+
+  }
+
+  @Nested
+  class CachedSingleLookup {
+
+    @Test
+    void shouldCallNtrOnlyOnceForTheSameVehicle() {
+      // given
+      when(nationalTaxiRegisterRestTemplate.getForEntity(anyString(), any(), anyString()))
+          .thenReturn(responseEntity);
+
+      // when
+      Optional<TaxiPhvLicenseInformationResponse> first = nationalTaxiRegisterRepository
+          .getLicenseInfo("VRN");
+      Optional<TaxiPhvLicenseInformationResponse> second = nationalTaxiRegisterRepository
+          .getLicenseInfo("VRN");
+
+      // then
+      assertThat(first).isEmpty();
+      assertThat(second).isEmpty();
+      verify(nationalTaxiRegisterRestTemplate, times(1))
+          .getForEntity(anyString(), any(), anyString());
+    }
+  }
+
+  @Nested
+  class CacheEviction {
+
+    private final TaxiPhvLicenseInformationResponse licence =
+        TaxiPhvLicenseInformationResponse.builder().build();
+
+    @Test
+    void shouldEvictOnlyGivenVehicles() {
+      // given
+      cache("AFFECTED", licence);
+      cache("UNAFFECTED", licence);
+
+      // when
+      nationalTaxiRegisterRepository.cacheEvictLicenseInfo(Collections.singletonList("AFFECTED"));
+
+      // then
+      assertThat(cached("AFFECTED")).isNull();
+      assertThat(cached("UNAFFECTED")).contains(licence);
+    }
+
+    @Test
+    void shouldClearWholeCacheWhenTooManyVehiclesAreToBeEvicted() {
+      // given
+      cache("UNAFFECTED", licence);
+
+      // when
+      nationalTaxiRegisterRepository.cacheEvictLicenseInfo(
+          Arrays.asList("AFFECTED1", "AFFECTED2", "AFFECTED3"));
+
+      // then
+      assertThat(cached("UNAFFECTED")).isNull();
+    }
+
+    @Test
+    void shouldClearWholeCache() {
+      // given
+      cache("VRN", licence);
+
+      // when
+      nationalTaxiRegisterRepository.cacheEvictLicenseInfo();
+
+      // then
+      assertThat(cached("VRN")).isNull();
+    }
+  }
+
+  private void cache(String vrn, TaxiPhvLicenseInformationResponse licence) {
+    licenseInfoCache.putAll(Collections.singletonMap(vrn, Optional.ofNullable(licence)));
+  }
+
+  private Optional<TaxiPhvLicenseInformationResponse> cached(String vrn) {
+    return licenseInfoCache.getAll(Collections.singleton(vrn)).get(vrn);
+  }
+}
@@ -0,0 +1,205 @@
+package uk.gov.caz.vcc.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.google.common.collect.ImmutableMap;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import uk.gov.caz.vcc.configuration.SmileRedisSerializer;
+import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
+
+@ExtendWith(MockitoExtension.class)
+class RedisLicenseInfoCacheTest {
+
+  private static final TaxiPhvLicenseInformationResponse LICENCE =
+      TaxiPhvLicenseInformationResponse.builder().active(true).description("taxi").build();
+
+  private static final byte[] GENERATION_KEY = "licenseInfo::generation"
+      .getBytes(StandardCharsets.UTF_8);
+
+  private static final int MAX_TARGETED_EVICTIONS = 1000;
+
+  private static final RedisSerializer<Object> VALUE_SERIALIZER = new SmileRedisSerializer();
+
+  @Mock
+  private RedisConnectionFactory redisConnectionFactory;
+
+  @Mock
+  private RedisConnection redisConnection;
+
+  @Mock
+  private RedisStringCommands stringCommands;
+
+  @Mock
+  private RedisKeyCommands keyCommands;
+
+  private RedisLicenseInfoCache licenseInfoCache;
+
+  @BeforeEach
+  void setUp() {
+    licenseInfoCache = new RedisLicenseInfoCache(redisConnectionFactory, VALUE_SERIALIZER,
+        Duration.ofHours(2), MAX_TARGETED_EVICTIONS);
+  }
+
+  @Test
+  void shouldPrefixKeysWithCacheNameAndGeneration() {
+    assertThat(new String(RedisLicenseInfoCache.keyOf(3, "CAS310"), StandardCharsets.UTF_8))
+        .isEqualTo("licenseInfo::3::CAS310");
+  }
+
+  @Test
+  void shouldReadAllEntriesOfCurrentGenerationWithSingleMultiGet() {
+    // given
+    mockConnection();
+    given(stringCommands.get(GENERATION_KEY)).willReturn("2".getBytes(StandardCharsets.UTF_8));
+    given(stringCommands.mGet(RedisLicenseInfoCache.keyOf(2, "LICENSED"),
+        RedisLicenseInfoCache.keyOf(2, "UNLICENSED"), RedisLicenseInfoCache.keyOf(2, "MISSING")))
+        .willReturn(Arrays.asList(
+            VALUE_SERIALIZER.serialize(LICENCE),
+            VALUE_SERIALIZER.serialize(NullValue.INSTANCE),
+            null));
+
+    // when
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> result = licenseInfoCache
+        .getAll(Arrays.asList("LICENSED", "UNLICENSED", "MISSING", "LICENSED"));
+
+    // then
+    assertThat(result).containsOnlyKeys("LICENSED", "UNLICENSED");
+    assertThat(result.get("LICENSED")).contains(LICENCE);
+    assertThat(result.get("UNLICENSED")).isEmpty();
+    verify(redisConnection).close();
+  }
+
+  @Test
+  void shouldReadLegacyEntriesAndTreatUnreadableOnesAsMisses() {
+    // given
+    mockConnection();
+    given(stringCommands.mGet(RedisLicenseInfoCache.keyOf(0, "LEGACY"),
+        RedisLicenseInfoCache.keyOf(0, "UNREADABLE")))
+        .willReturn(Arrays.asList(
+            RedisSerializer.java().serialize(LICENCE),
+            new byte[]{':', ')', '\n', 0}));
+
+    // when
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> result = licenseInfoCache
+        .getAll(Arrays.asList("LEGACY", "UNREADABLE"));
+
+    // then
+    assertThat(result).containsOnlyKeys("LEGACY");
+    assertThat(result.get("LEGACY")).contains(LICENCE);
+  }
+
+  @Test
+  void shouldNotConnectToRedisWhenThereIsNothingToReadWriteOrEvict() {
+    // when
+    Map<String, Optional<TaxiPhvLicenseInformationResponse>> result = licenseInfoCache
+        .getAll(Collections.emptyList());
+    licenseInfoCache.putAll(Collections.emptyMap());
+    licenseInfoCache.evictAll(Collections.emptyList());
+
+    // then
+    assertThat(result).isEmpty();
+    verifyNoInteractions(redisConnectionFactory);
+  }
+
+  @Test
+  void shouldWriteAllEntriesWithTtlInOnePipeline() {
+    // given
+    mockConnection();
+
+    // when
+    licenseInfoCache.putAll(ImmutableMap.of("LICENSED", Optional.of(LICENCE),
+        "UNLICENSED", Optional.empty()));
+
+    // then
+    InOrder inOrder = inOrder(redisConnection, stringCommands);
+    inOrder.verify(redisConnection).openPipeline();
+    inOrder.verify(stringCommands).set(aryEq(RedisLicenseInfoCache.keyOf(0, "LICENSED")),
+        aryEq(VALUE_SERIALIZER.serialize(LICENCE)), expiresInTwoHours(),
+        eq(SetOption.upsert()));
+    inOrder.verify(stringCommands).set(aryEq(RedisLicenseInfoCache.keyOf(0, "UNLICENSED")),
+        aryEq(VALUE_SERIALIZER.serialize(NullValue.INSTANCE)), expiresInTwoHours(),
+        eq(SetOption.upsert()));
+    inOrder.verify(redisConnection).closePipeline();
+    inOrder.verify(redisConnection).close();
+  }
+
+  @Test
+  void shouldEvictGivenVehiclesWithPipelinedMultiKeyDeletes() {
+    // given
+    mockConnection();
+    given(redisConnection.keyCommands()).willReturn(keyCommands);
+    List<String> vrns = IntStream.range(0, RedisLicenseInfoCache.DELETE_BATCH_SIZE + 1)
+        .mapToObj(i -> "VRN" + i)
+        .collect(Collectors.toList());
+
+    // when
+    licenseInfoCache.evictAll(vrns);
+
+    // then
+    InOrder inOrder = inOrder(redisConnection, keyCommands);
+    inOrder.verify(redisConnection).openPipeline();
+    inOrder.verify(keyCommands, times(2)).del(any());
+    inOrder.verify(redisConnection).closePipeline();
+    inOrder.verify(redisConnection).close();
+    verify(keyCommands).del(RedisLicenseInfoCache.keyOf(0, "VRN500"));
+    verify(stringCommands, never()).incr(GENERATION_KEY);
+  }
+
+  @Test
+  void shouldIncrementGenerationWhenTooManyVehiclesAreToBeEvicted() {
+    // given
+    mockConnection();
+    List<String> vrns = IntStream.range(0, MAX_TARGETED_EVICTIONS + 1)
+        .mapToObj(i -> "VRN" + i)
+        .collect(Collectors.toList());
+
+    // when
+    licenseInfoCache.evictAll(vrns);
+
+    // then
+    verify(stringCommands).incr(GENERATION_KEY);
+    verify(redisConnection, never()).keyCommands();
+    verify(redisConnection).close();
+  }
+
+  private static Expiration expiresInTwoHours() {
+    return argThat(expiration -> expiration.getExpirationTimeInSeconds() == 7200);
+  }
+
+  private void mockConnection() {
+    given(redisConnectionFactory.getConnection()).willReturn(redisConnection);
+    given(redisConnection.stringCommands()).willReturn(stringCommands);
+  }
+}
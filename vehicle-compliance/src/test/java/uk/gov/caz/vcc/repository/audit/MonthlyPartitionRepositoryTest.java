@@ -0,0 +1,191 @@
+package uk.gov.caz.vcc.repository.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.caz.auditcleanup.AuditPurgeEngine;
+import uk.gov.caz.auditcleanup.AuditPurgeResult;
+
+/**
+ * Runs the database migrations against an embedded PostgreSQL and verifies the monthly
+ * partitioning of the entrant and audit tables.
+ */
+class MonthlyPartitionRepositoryTest {
+
+  // referenced by the migrations granting privileges to roles
+  private static final String DATABASE = "vehicle_compliance";
+
+  private static final String ENTRANT_TABLE = "caz_vehicle_entrant.t_clean_air_zone_entrant";
+
+  private static final String ENTRANT_AUDIT_TABLE = "caz_vehicle_entrant_audit.logged_actions";
+
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+  // created by the payments service in the shared database
+  private static final String PAYMENTS_SCHEMA_SQL = "CREATE SCHEMA caz_payment;"
+      + "CREATE TABLE caz_payment.t_clean_air_zone_entrant_payment ("
+      + "vrn varchar(15) NOT NULL, clean_air_zone_id uuid NOT NULL, travel_date date, "
+      + "payment_status varchar(64))";
+
+  private static final String INSERT_ENTRANT_SQL = "INSERT INTO " + ENTRANT_TABLE
+      + " (entrant_id, clean_air_zone_id, correlation_id, vrn, entrant_timestmp, "
+      + "charge_validity_code) VALUES (?, ?, 'correlation-id', 'CAS310', "
+      + "CAST(? AS timestamp), 'CVC04')";
+
+  private static EmbeddedPostgres postgres;
+
+  private static JdbcTemplate jdbcTemplate;
+
+  private MonthlyPartitionRepository monthlyPartitionRepository;
+
+  @BeforeAll
+  static void migrateDatabase() throws Exception {
+    postgres = EmbeddedPostgres.start();
+    new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE DATABASE " + DATABASE);
+    DataSource dataSource = postgres.getDatabase("postgres", DATABASE);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(PAYMENTS_SCHEMA_SQL);
+    try (Connection connection = dataSource.getConnection()) {
+      Liquibase liquibase = new Liquibase("db/changelog/db.changelog-master.yaml",
+          new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+      // pgaudit is not available in the embedded database
+      liquibase.setChangeLogParameter("BUILD_ID", "unit-tests");
+      liquibase.update(new Contexts());
+    }
+  }
+
+  @AfterAll
+  static void stopDatabase() throws IOException {
+    postgres.close();
+  }
+
+  @BeforeEach
+  void setUp() {
+    monthlyPartitionRepository = new MonthlyPartitionRepository(jdbcTemplate);
+  }
+
+  @Test
+  void shouldReplaceTablesWithMonthlyPartitionedTables() {
+    for (String table : MonthlyPartitionRepository.PARTITIONED_TABLES) {
+      String name = table.substring(table.indexOf('.') + 1);
+
+      assertThat(jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class "
+          + "WHERE oid = CAST(? AS regclass)", String.class, table)).isEqualTo("p");
+      assertThat(jdbcTemplate.queryForObject("SELECT has_table_privilege('vccs_readonly_role', "
+          + "?, 'SELECT')", Boolean.class, table)).isTrue();
+      assertThat(partitionsOf(table)).contains(name + "_legacy", name + "_default",
+          name + "_" + monthFromNow(1), name + "_" + monthFromNow(3));
+    }
+  }
+
+  @Test
+  void shouldNotCreatePartitionsWhichAlreadyExist() {
+    int created = monthlyPartitionRepository.createFuturePartitions(3);
+
+    assertThat(created).isZero();
+  }
+
+  @Test
+  void shouldCreatePartitionsOfFurtherMonths() {
+    int created = monthlyPartitionRepository.createFuturePartitions(5);
+
+    assertThat(created).isEqualTo(2 * MonthlyPartitionRepository.PARTITIONED_TABLES.size());
+    assertThat(partitionsOf(ENTRANT_TABLE)).contains(
+        "t_clean_air_zone_entrant_" + monthFromNow(4),
+        "t_clean_air_zone_entrant_" + monthFromNow(5));
+    assertThat(monthlyPartitionRepository.createFuturePartitions(5)).isZero();
+  }
+
+  @Test
+  void shouldRouteEntrantsToPartitionOfTheirMonthAndAuditThemUnderTableName() {
+    UUID currentMonthEntrant = insertEntrant(LocalDate.now());
+    UUID nextMonthEntrant = insertEntrant(LocalDate.now().withDayOfMonth(1).plusMonths(1));
+
+    assertThat(partitionOf(currentMonthEntrant)).isEqualTo(ENTRANT_TABLE + "_legacy");
+    assertThat(partitionOf(nextMonthEntrant))
+        .isEqualTo(ENTRANT_TABLE + "_" + monthFromNow(1));
+    List<String> auditedEntrants = jdbcTemplate.queryForList("SELECT new_data FROM "
+        + ENTRANT_AUDIT_TABLE + " WHERE table_name = 't_clean_air_zone_entrant'", String.class);
+    assertThat(auditedEntrants).anyMatch(row -> row.contains(currentMonthEntrant.toString()))
+        .anyMatch(row -> row.contains(nextMonthEntrant.toString()));
+  }
+
+  @Test
+  void shouldKeepReportingViewsWorking() {
+    Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM "
+        + "caz_reporting.zonal_unrecognised_vehicle_not_paid", Integer.class);
+
+    assertThat(rows).isNotNull();
+  }
+
+  @Test
+  void shouldPruneQueriesToPartitionsOfQueriedMonths() {
+    String nextMonth = LocalDate.now().withDayOfMonth(1).plusMonths(1).toString();
+
+    List<String> plan = jdbcTemplate.queryForList("EXPLAIN SELECT * FROM " + ENTRANT_TABLE
+        + " WHERE entrant_timestmp >= CAST('" + nextMonth + "' AS timestamp) "
+        + "AND entrant_timestmp < CAST('" + nextMonth + "' AS timestamp) + interval '1 day'",
+        String.class);
+
+    assertThat(String.join("\n", plan))
+        .contains("t_clean_air_zone_entrant_" + monthFromNow(1))
+        .doesNotContain("t_clean_air_zone_entrant_legacy")
+        .doesNotContain("t_clean_air_zone_entrant_default");
+  }
+
+  @Test
+  void shouldLetPurgeDropPartitionsBeforeCutoff() {
+    jdbcTemplate.execute("CREATE TABLE public.purged_actions (action text NOT NULL, "
+        + "action_tstamp timestamptz NOT NULL DEFAULT now());"
+        + "INSERT INTO public.purged_actions VALUES ('I', now() - interval '1 day');"
+        + "SELECT public.partition_table_by_month('public.purged_actions', 'action_tstamp', 1)");
+    AuditPurgeEngine engine = new AuditPurgeEngine(jdbcTemplate, 1000, Duration.ofHours(1));
+
+    AuditPurgeResult result = engine.purgeBefore("public.purged_actions",
+        LocalDate.now().withDayOfMonth(1).plusMonths(1));
+
+    assertThat(result.getDroppedPartitions()).isEqualTo(1);
+    assertThat(result.getDeletedRows()).isZero();
+    assertThat(partitionsOf("public.purged_actions")).containsExactlyInAnyOrder(
+        "purged_actions_default", "purged_actions_" + monthFromNow(1));
+  }
+
+  private static UUID insertEntrant(LocalDate date) {
+    UUID entrantId = UUID.randomUUID();
+    jdbcTemplate.update(INSERT_ENTRANT_SQL, entrantId, UUID.randomUUID(),
+        date.atTime(12, 0).toString());
+    return entrantId;
+  }
+
+  private static String partitionOf(UUID entrantId) {
+    return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM " + ENTRANT_TABLE
+        + " WHERE entrant_id = ?", String.class, entrantId);
+  }
+
+  private static List<String> partitionsOf(String table) {
+    return jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i "
+        + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = CAST(? AS regclass)",
+        String.class, table);
+  }
+
+  private static String monthFromNow(int months) {
+    return LocalDate.now().plusMonths(months).format(PARTITION_SUFFIX);
+  }
+}
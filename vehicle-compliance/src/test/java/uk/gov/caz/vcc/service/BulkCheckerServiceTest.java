@@ -1,22 +1,26 @@
 package uk.gov.caz.vcc.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
-import java.io.ByteArrayInputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -25,18 +29,16 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
 import uk.gov.caz.definitions.dto.CleanAirZonesDto;
+import uk.gov.caz.vcc.domain.service.bulkchecker.AdaptiveBatchThrottle;
+import uk.gov.caz.vcc.repository.BulkCheckerCheckpointRepository;
 import uk.gov.caz.vcc.service.BulkCheckerService.BulkCheckerCsvFile;
 import uk.gov.caz.vcc.service.ChargeCalculationService.CsvOutput;
+import uk.gov.caz.vcc.util.InMemoryS3Client;
 
 @ExtendWith(MockitoExtension.class)
 public class BulkCheckerServiceTest {
@@ -53,25 +55,161 @@ public class BulkCheckerServiceTest {
   @Mock
   CazTariffService tariffService;
 
-  @Test
-  public void shouldProcessS3File() throws InterruptedException {
-    String BUCKET = "S3Bucket";
-    String FILENAME = "input/input.csv";
-    String CSV_CONTENT = "CAS310\r\nCAS312";
-    // given
-    mockS3Service(CSV_CONTENT);
-    List<CleanAirZoneDto> cleanAirZones = mockTariffService();
-    mockCsvOutputs(cleanAirZones, CSV_CONTENT);
-    bulkCheckerService.process(BUCKET, FILENAME, 60);
-    // then
-    ArgumentCaptor<List<String>> vrnListArg = ArgumentCaptor.forClass(List.class);
-    ArgumentCaptor<List<CleanAirZoneDto>> cazListArg = ArgumentCaptor.forClass(List.class);
-    verify(mockedChargeCalculationService, times(1)).getComplianceCheckAsCsv(
-        vrnListArg.capture(), cazListArg.capture());
-    assertEquals(2, vrnListArg.getValue().size());
-    ArgumentCaptor<PutObjectRequest> putRequestArg = ArgumentCaptor.forClass(PutObjectRequest.class);
-    verify(mockedS3Client, times(1)).putObject(putRequestArg.capture(), any(RequestBody.class));
-    assertEquals("output/input-output.csv", putRequestArg.getValue().key());
+  @Mock
+  AdaptiveBatchThrottle bulkCheckerThrottle;
+
+  @Nested
+  class Processing {
+
+    private static final String BUCKET = "S3Bucket";
+    private static final String FILENAME = "input/input.csv";
+    private static final String OUTPUT = "output/input-output.csv";
+    private static final String CHECKPOINT = "bulk-checker-checkpoints/input/input.csv.json";
+
+    private InMemoryS3Client s3Client;
+    private BulkCheckerService processingService;
+
+    @BeforeEach
+    void setUp() {
+      s3Client = new InMemoryS3Client();
+      processingService = new BulkCheckerService(s3Client, mockedChargeCalculationService,
+          tariffService, new BulkCheckerCheckpointRepository(s3Client,
+          new ObjectMapper().registerModule(new JavaTimeModule())), bulkCheckerThrottle);
+      processingService.setChunkSize(2);
+      processingService.setTimeoutMarginInSeconds(0);
+      processingService.setMaxInvocations(50);
+      processingService.setPartSizeInBytes(5 * 1024 * 1024);
+    }
+
+    @Test
+    public void shouldProcessS3File() throws InterruptedException {
+      // given
+      processingService.setChunkSize(300);
+      s3Client.putString(BUCKET, FILENAME, "CAS310\r\nCAS312");
+      List<CleanAirZoneDto> cleanAirZones = mockTariffService();
+      mockCsvOutputs(cleanAirZones);
+
+      // when
+      processingService.process(BUCKET, FILENAME, 60);
+
+      // then
+      ArgumentCaptor<List<String>> vrnListArg = ArgumentCaptor.forClass(List.class);
+      verify(mockedChargeCalculationService, times(1)).getComplianceCheckAsCsv(
+          vrnListArg.capture(), any());
+      assertEquals(2, vrnListArg.getValue().size());
+      assertEquals(expectedOutput("CAS310", "CAS312"), s3Client.getString(BUCKET, OUTPUT));
+      assertFalse(s3Client.exists(BUCKET, CHECKPOINT));
+      verify(bulkCheckerThrottle).reset();
+    }
+
+    @Test
+    public void shouldProcessFileInChunksAndUploadOutputInParts() throws InterruptedException {
+      // given
+      processingService.setPartSizeInBytes(200);
+      s3Client.putString(BUCKET, FILENAME, "CAS 301\nCAS302\nCAS303\nCAS304\nCAS305");
+      mockCsvOutputs(mockTariffService());
+
+      // when
+      processingService.process(BUCKET, FILENAME, 60);
+
+      // then
+      verify(mockedChargeCalculationService, times(3)).getComplianceCheckAsCsv(any(), any());
+      assertEquals(expectedOutput("CAS301", "CAS302", "CAS303", "CAS304", "CAS305"),
+          s3Client.getString(BUCKET, OUTPUT));
+      assertEquals(0, s3Client.pendingMultipartUploadsCount());
+      assertFalse(s3Client.exists(BUCKET, CHECKPOINT));
+    }
+
+    @Test
+    public void shouldSuspendProcessingAndResumeFromCheckpoint() throws InterruptedException {
+      // given
+      processingService.setPartSizeInBytes(200);
+      s3Client.putString(BUCKET, FILENAME, "CAS301\nCAS302\nCAS303\nCAS304\nCAS305");
+      mockCsvOutputs(mockTariffService());
+
+      // when
+      processingService.process(BUCKET, FILENAME, 0);
+
+      // then
+      assertFalse(s3Client.exists(BUCKET, OUTPUT));
+      assertTrue(s3Client.exists(BUCKET, CHECKPOINT));
+      assertTrue(s3Client.headObject(HeadObjectRequest.builder().bucket(BUCKET).key(FILENAME)
+          .build()).metadata().containsKey("bulk-checker-checkpoint"));
+
+      // when
+      processingService.process(BUCKET, FILENAME, 0);
+      processingService.process(BUCKET, FILENAME, 0);
+
+      // then
+      verify(mockedChargeCalculationService, times(3)).getComplianceCheckAsCsv(any(), any());
+      assertEquals(expectedOutput("CAS301", "CAS302", "CAS303", "CAS304", "CAS305"),
+          s3Client.getString(BUCKET, OUTPUT));
+      assertEquals(0, s3Client.pendingMultipartUploadsCount());
+      assertFalse(s3Client.exists(BUCKET, CHECKPOINT));
+    }
+
+    @Test
+    public void shouldDiscardCheckpointOfReplacedFile() throws InterruptedException {
+      // given
+      processingService.setPartSizeInBytes(100);
+      s3Client.putString(BUCKET, FILENAME, "CAS301\nCAS302\nCAS303\nCAS304\nCAS305");
+      mockCsvOutputs(mockTariffService());
+      processingService.process(BUCKET, FILENAME, 0);
+      assertEquals(1, s3Client.pendingMultipartUploadsCount());
+
+      // when
+      s3Client.putString(BUCKET, FILENAME, "CAS401\nCAS402");
+      processingService.process(BUCKET, FILENAME, 60);
+
+      // then
+      assertEquals(expectedOutput("CAS401", "CAS402"), s3Client.getString(BUCKET, OUTPUT));
+      assertEquals(0, s3Client.pendingMultipartUploadsCount());
+      assertFalse(s3Client.exists(BUCKET, CHECKPOINT));
+    }
+
+    @Test
+    public void shouldGiveUpAfterMaximumNumberOfInvocations() throws InterruptedException {
+      // given
+      processingService.setMaxInvocations(1);
+      processingService.setPartSizeInBytes(100);
+      s3Client.putString(BUCKET, FILENAME, "CAS301\nCAS302\nCAS303");
+      mockCsvOutputs(mockTariffService());
+      processingService.process(BUCKET, FILENAME, 0);
+
+      // when
+      processingService.process(BUCKET, FILENAME, 0);
+
+      // then
+      verify(mockedChargeCalculationService, times(1)).getComplianceCheckAsCsv(any(), any());
+      assertFalse(s3Client.exists(BUCKET, OUTPUT));
+      assertFalse(s3Client.exists(BUCKET, CHECKPOINT));
+      assertEquals(0, s3Client.pendingMultipartUploadsCount());
+    }
+
+    @Test
+    public void shouldIgnoreFilesOtherThanInputFiles() {
+      // given
+      s3Client.putString(BUCKET, CHECKPOINT, "{}");
+      s3Client.putString(BUCKET, OUTPUT, "CAS301");
+
+      // when
+      processingService.process(BUCKET, CHECKPOINT, 60);
+      processingService.process(BUCKET, OUTPUT, 60);
+
+      // then
+      verifyNoInteractions(tariffService, mockedChargeCalculationService, bulkCheckerThrottle);
+      assertEquals("{}", s3Client.getString(BUCKET, CHECKPOINT));
+      assertEquals("CAS301", s3Client.getString(BUCKET, OUTPUT));
+    }
+
+    private String expectedOutput(String... vrns) {
+      StringBuilder output = new StringBuilder(String.format("%-25s,%-25s,%10s,%10s,\r\n",
+          "Registration Number", "Type", "Birmingham", "Bath"));
+      for (String vrn : vrns) {
+        output.append(String.format("%-25s,%-25s,%10s,%10s,\r\n", vrn, "CAR", "0", "0"));
+      }
+      return output.toString();
+    }
   }
 
   private List<CleanAirZoneDto> mockTariffService() {
@@ -86,17 +224,18 @@ public class BulkCheckerServiceTest {
     return cleanAirZones;
   }
 
-  private void mockCsvOutputs(List<CleanAirZoneDto> cleanAirZones, String content) 
+  private void mockCsvOutputs(List<CleanAirZoneDto> cleanAirZones) 
       throws InterruptedException {
-    List<CsvOutput> csvOutputs = new ArrayList<>();
-    String[] vrns = content.split("\r\n");
-
-    csvOutputs.add(mockOutput("", "", "Birmingham", "Bath"));
-    for (int i = 0; i < vrns.length; i++) {
-      csvOutputs.add(mockOutput(vrns[i], "CAR", "0", "0"));
-    }
-    when(mockedChargeCalculationService.getComplianceCheckAsCsv(
-        Stream.of(vrns).collect(Collectors.toList()), cleanAirZones)).thenReturn(csvOutputs);
+    when(mockedChargeCalculationService.getComplianceCheckAsCsv(any(), eq(cleanAirZones)))
+        .thenAnswer(invocation -> {
+          List<String> vrns = invocation.getArgument(0);
+          List<CsvOutput> csvOutputs = new ArrayList<>();
+          csvOutputs.add(mockOutput("", "", "Birmingham", "Bath"));
+          for (String vrn : vrns) {
+            csvOutputs.add(mockOutput(vrn, "CAR", "0", "0"));
+          }
+          return csvOutputs;
+        });
   }
   
   private CleanAirZoneDto mockCleanAirZoneDto(String cleanAirZoneName) {
@@ -116,13 +255,6 @@ public class BulkCheckerServiceTest {
     return output;
   }
 
-  private void mockS3Service(String csvContent) {
-    InputStream inputStream = new ByteArrayInputStream(csvContent.getBytes());
-    ResponseBytes<GetObjectResponse> mockResponseBytes = Mockito.mock(ResponseBytes.class);
-    when(mockResponseBytes.asInputStream()).thenReturn(inputStream);
-    when(mockedS3Client.getObjectAsBytes(any(GetObjectRequest.class))).thenReturn(mockResponseBytes);
-  }
-
   @Test
   public void shouldReturnOutputFile() {
     when(mockedS3Client.headObject(any(HeadObjectRequest.class))).thenReturn(null);
@@ -15,8 +15,13 @@ import static org.mockito.Mockito.when;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javassist.NotFoundException;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.assertj.core.util.Lists;
@@ -28,8 +33,10 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.http.HttpStatus;
 import uk.gov.caz.definitions.domain.Vehicle;
 import uk.gov.caz.definitions.domain.VehicleType;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
@@ -43,9 +50,14 @@ import uk.gov.caz.vcc.domain.exceptions.ExternalResourceNotFoundException;
 import uk.gov.caz.vcc.domain.service.ChargeabilityService;
 import uk.gov.caz.vcc.domain.service.ComplianceService;
 import uk.gov.caz.vcc.domain.service.VehicleIdentificationService;
+import uk.gov.caz.vcc.domain.service.bulkchecker.AdaptiveBatchThrottle;
+import uk.gov.caz.vcc.dto.NtrAndDvlaVehicleData;
+import uk.gov.caz.vcc.dto.SingleDvlaVehicleData;
+import uk.gov.caz.vcc.dto.SingleLicenceData;
 import uk.gov.caz.vcc.dto.TaxiPhvLicenseInformationResponse;
 import uk.gov.caz.vcc.repository.TariffDetailsRepository;
 import uk.gov.caz.vcc.repository.VehicleDetailsRepository;
+import uk.gov.caz.vcc.service.ChargeCalculationService.CsvOutput;
 
 @ExtendWith(MockitoExtension.class)
 public class ChargeCalculationServiceTest {
@@ -89,6 +101,10 @@ public class ChargeCalculationServiceTest {
   @Mock
   private LicenseAndVehicleProvider licenseAndVehicleProvider;
 
+  @Spy
+  private AdaptiveBatchThrottle bulkCheckerThrottle =
+      new AdaptiveBatchThrottle(4, 1, 8, 2, 1, 4, 10_000);
+
   @InjectMocks
   private ChargeCalculationService chargeCalculationService;
 
@@ -627,6 +643,54 @@ public class ChargeCalculationServiceTest {
     assertThat(actualOperatorName).isEqualTo(operatorName);
   }
 
+  @Nested
+  class ComplianceCheckAsCsv {
+
+    @Test
+    void shouldBackOffWhenUpstreamThrottlesAndRecoverOnceItIsHealthy()
+        throws InterruptedException {
+      // given
+      List<String> vrns = IntStream.range(0, 20).mapToObj(i -> "CAS" + (100 + i))
+          .collect(Collectors.toList());
+      List<Integer> batchSizes = mockUpstreamThrottlingFirstBatches(2);
+      when(cazTariffService.getCleanAirZoneSelectionListings()).thenReturn(
+          CleanAirZonesDto.builder().cleanAirZones(Collections.emptyList()).build());
+      when(exemptionService.isVehicleExempted(Mockito.any())).thenReturn(true);
+
+      // when
+      List<CsvOutput> csvOutputs = chargeCalculationService
+          .getComplianceCheckAsCsv(vrns, Collections.emptyList());
+
+      // then
+      assertThat(batchSizes).containsExactly(4, 2, 1, 3, 5, 5);
+      assertThat(bulkCheckerThrottle.getDelayMs()).isZero();
+      assertThat(bulkCheckerThrottle.getBatchSize()).isEqualTo(8);
+      assertThat(csvOutputs).hasSize(vrns.size() + 1);
+    }
+
+    /**
+     * Mocks DVLA responding with 429 to all VRNs of the given number of first batches and with
+     * vehicle details afterwards.
+     *
+     * @return sizes of subsequent batches.
+     */
+    private List<Integer> mockUpstreamThrottlingFirstBatches(int throttledBatchesCount) {
+      List<Integer> batchSizes = new ArrayList<>();
+      doAnswer(invocation -> {
+        batchSizes.add(invocation.<Collection<String>>getArgument(0).size());
+        return null;
+      }).when(licenseAndVehicleProvider).prefetch(Mockito.anyCollection());
+      when(licenseAndVehicleProvider.findLicenseAndVehicle(Mockito.anyString()))
+          .thenAnswer(invocation -> {
+            SingleDvlaVehicleData dvlaVehicleData = batchSizes.size() <= throttledBatchesCount
+                ? SingleDvlaVehicleData.failure(HttpStatus.TOO_MANY_REQUESTS, "Too many requests")
+                : SingleDvlaVehicleData.success(new Vehicle());
+            return new NtrAndDvlaVehicleData(dvlaVehicleData, SingleLicenceData.success(null));
+          });
+      return batchSizes;
+    }
+  }
+
   @Nested
   class PhgvDiscountAvailability {
 
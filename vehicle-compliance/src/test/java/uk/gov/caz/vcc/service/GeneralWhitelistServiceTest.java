@@ -0,0 +1,116 @@
+package uk.gov.caz.vcc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.vcc.domain.GeneralWhitelistIndex;
+import uk.gov.caz.vcc.domain.GeneralWhitelistVehicle;
+import uk.gov.caz.vcc.repository.GeneralWhitelistRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GeneralWhitelistServiceTest {
+
+  private static final GeneralWhitelistVehicle EXEMPT = vehicle("CAS300", "Exemption", true, false);
+  private static final GeneralWhitelistVehicle COMPLIANT = vehicle("CAS301", "Other", false, true);
+  private static final GeneralWhitelistVehicle NON_UK = vehicle("CAS302", "Non-UK Vehicle", false,
+      false);
+  private static final GeneralWhitelistVehicle PROBLEMATIC = vehicle("cas303", "Problematic VRN",
+      true, false);
+
+  private static final GeneralWhitelistIndex PREFETCHED = GeneralWhitelistIndex
+      .of(Arrays.asList(EXEMPT, COMPLIANT, NON_UK, PROBLEMATIC));
+
+  @Mock
+  private GeneralWhitelistRepository generalWhitelistRepository;
+
+  @Test
+  public void shouldCheckCategoriesOfPrefetchedVehicles() {
+    GeneralWhitelistService service = new GeneralWhitelistService(generalWhitelistRepository, 0);
+
+    assertThat(service.isExemptOnGeneralPurposeWhitelist("CAS300", PREFETCHED)).isTrue();
+    assertThat(service.isExemptOnGeneralPurposeWhitelist("CAS301", PREFETCHED)).isFalse();
+    assertThat(service.isCompliantOnGeneralPurposeWhitelist("CAS301", PREFETCHED)).isTrue();
+    assertThat(service.isOnGeneralPurposedWhitelistAndHasCategoryOther("CAS301", PREFETCHED))
+        .isTrue();
+    assertThat(service.isOnGeneralPurposeWhitelistAndHasCategoryNonUk("CAS302", PREFETCHED))
+        .isTrue();
+    assertThat(service.isOnGeneralPurposeWhitelistAndHasCategoryNonUk("CAS301", PREFETCHED))
+        .isFalse();
+    assertThat(service.isOnGeneralPurposeWhitelistAndHasCategoryProblematicVrn("cas303",
+        PREFETCHED)).isTrue();
+    assertThat(service.isCompliantOnGeneralPurposeWhitelist("UNKNOWN", PREFETCHED)).isFalse();
+    verify(generalWhitelistRepository, never()).findAll();
+  }
+
+  @Test
+  public void shouldMatchPrefetchedVrnsExactly() {
+    GeneralWhitelistService service = new GeneralWhitelistService(generalWhitelistRepository, 0);
+
+    assertThat(service.isExemptOnGeneralPurposeWhitelist("cas300", PREFETCHED)).isFalse();
+    assertThat(service.isOnGeneralPurposeWhitelistAndHasCategoryProblematicVrn("CAS303",
+        PREFETCHED)).isFalse();
+  }
+
+  @Test
+  public void shouldLookSingleVehicleUpInDatabaseWhenSnapshotIsDisabled() {
+    given(generalWhitelistRepository.findByVrnIgnoreCase(anyString()))
+        .willReturn(Optional.of(EXEMPT));
+    GeneralWhitelistService service = new GeneralWhitelistService(generalWhitelistRepository, 0);
+
+    assertThat(service.exemptOnGeneralWhitelist("cas300")).isTrue();
+    assertThat(service.getExemptionCategory("cas300")).contains("Exemption");
+    verify(generalWhitelistRepository, never()).findAll();
+  }
+
+  @Test
+  public void shouldLookSingleVehiclesUpInSnapshotIgnoringCase() {
+    given(generalWhitelistRepository.findAll())
+        .willReturn(Arrays.asList(EXEMPT, COMPLIANT, PROBLEMATIC));
+    GeneralWhitelistService service = new GeneralWhitelistService(generalWhitelistRepository,
+        600);
+
+    assertThat(service.exemptOnGeneralWhitelist("cas300")).isTrue();
+    assertThat(service.compliantOnGeneralWhitelist("CAS301")).isTrue();
+    assertThat(service.compliantOnGeneralWhitelist("CAS300")).isFalse();
+    assertThat(service.getExemptionCategory("CAS303")).contains("Problematic VRN");
+    assertThat(service.tryToFindFor("UNKNOWN")).isEmpty();
+    verify(generalWhitelistRepository).findAll();
+    verify(generalWhitelistRepository, never()).findByVrnIgnoreCase(anyString());
+  }
+
+  @Test
+  public void shouldReloadSnapshotOnceItExpires() throws InterruptedException {
+    given(generalWhitelistRepository.findAll())
+        .willReturn(Collections.emptyList(), Collections.singletonList(EXEMPT));
+    GeneralWhitelistService service = new GeneralWhitelistService(generalWhitelistRepository, 1);
+    assertThat(service.exemptOnGeneralWhitelist("CAS300")).isFalse();
+    assertThat(service.exemptOnGeneralWhitelist("CAS300")).isFalse();
+    verify(generalWhitelistRepository).findAll();
+
+    Thread.sleep(1100);
+
+    assertThat(service.exemptOnGeneralWhitelist("CAS300")).isTrue();
+    verify(generalWhitelistRepository, times(2)).findAll();
+  }
+
+  private static GeneralWhitelistVehicle vehicle(String vrn, String category, boolean exempt,
+      boolean compliant) {
+    return GeneralWhitelistVehicle.builder()
+        .vrn(vrn)
+        .category(category)
+        .exempt(exempt)
+        .compliant(compliant)
+        .build();
+  }
+}
@@ -0,0 +1,247 @@
+package uk.gov.caz.vcc.service;
+
+import static uk.gov.caz.vcc.repository.ReportingExemptionReasonRepository.UNRECOGNISED_EXEMPTION_REASON_ID;
+import static uk.gov.caz.vcc.repository.ReportingFuelTypeRepository.UNRECOGNISED_FUEL_TYPE_ID;
+import static uk.gov.caz.vcc.repository.ReportingTypeApprovalRepository.UNRECOGNISED_TYPE_APPROVAL_ID;
+import static uk.gov.caz.vcc.repository.ReportingVehicleTypeRepository.UNRECOGNISED_VEHICLE_TYPE_ID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.caz.definitions.domain.VehicleType;
+import uk.gov.caz.vcc.dto.VehicleEntrantReportingRequest;
+import uk.gov.caz.vcc.repository.ReportingExemptionReasonRepository;
+import uk.gov.caz.vcc.repository.ReportingFuelTypeRepository;
+import uk.gov.caz.vcc.repository.ReportingTypeApprovalRepository;
+import uk.gov.caz.vcc.repository.ReportingVehicleTypeRepository;
+import uk.gov.caz.vcc.repository.VehicleEntrantReportingBatchRepository;
+
+/**
+ * Compares ingesting a reporting data message row by row (the former implementation of
+ * {@link ReportingDataService}: four dimension lookups and one to three inserts per request, each
+ * in its own transaction) against the current implementation, on an embedded Postgres with a
+ * reduced copy of the reporting schema (without foreign keys to other schemas).
+ *
+ * <p>Run with {@code make benchmark} or by executing the {@code main} method.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportingDataIngestionBenchmark {
+
+  private static final String[] SCHEMA = {
+      "CREATE SCHEMA caz_reporting",
+      "CREATE TABLE caz_reporting.t_type_approval (type_approval_id uuid PRIMARY KEY, "
+          + "type_approval varchar(15) NOT NULL)",
+      "CREATE TABLE caz_reporting.t_fuel_type (fuel_type_id uuid PRIMARY KEY, "
+          + "fuel_type varchar(15) NOT NULL)",
+      "CREATE TABLE caz_reporting.t_ccaz_vehicle_type (ccaz_vehicle_type_id uuid PRIMARY KEY, "
+          + "ccaz_vehicle_type varchar(30) NOT NULL)",
+      "CREATE TABLE caz_reporting.t_exemption_reason (exemption_reason_id uuid PRIMARY KEY, "
+          + "exemption_reason varchar(50) NOT NULL)",
+      "CREATE TABLE caz_reporting.t_vehicle_entrant_reporting ("
+          + "vehicle_entrant_reporting_id uuid PRIMARY KEY, vrn_hash varchar(64) NOT NULL, "
+          + "hour timestamp NOT NULL, clean_air_zone_id uuid NOT NULL, "
+          + "type_approval_id uuid REFERENCES caz_reporting.t_type_approval, "
+          + "fuel_type_id uuid REFERENCES caz_reporting.t_fuel_type, "
+          + "charge_validity_code varchar(5), "
+          + "ccaz_vehicle_type_id uuid REFERENCES caz_reporting.t_ccaz_vehicle_type, "
+          + "make varchar(50), model varchar(50), colour varchar(50), "
+          + "non_standard_uk_plate_format_vehicle boolean)",
+      "CREATE TABLE caz_reporting.t_entrant_exemption (entrant_exemption_id uuid PRIMARY KEY, "
+          + "vehicle_entrant_reporting_id uuid NOT NULL "
+          + "REFERENCES caz_reporting.t_vehicle_entrant_reporting, "
+          + "exemption_reason_id uuid NOT NULL REFERENCES caz_reporting.t_exemption_reason)",
+      "CREATE TABLE caz_reporting.t_entrant_taxi_phv (entrant_taxi_phv_id uuid PRIMARY KEY, "
+          + "vehicle_entrant_reporting_id uuid NOT NULL "
+          + "REFERENCES caz_reporting.t_vehicle_entrant_reporting, "
+          + "description varchar(100) NOT NULL, licensing_authority varchar(50) NOT NULL)"
+  };
+
+  private static final String[] TYPE_APPROVALS = {"M1", "M2", "M3", "N1", "N2", "N3", "L1"};
+  private static final String[] FUEL_TYPES = {"petrol", "diesel", "electricity"};
+  private static final String[] EXEMPTION_REASONS = {"Historic Vehicle", "Disabled"};
+
+  @Param({"10", "100"})
+  private int messageSize;
+
+  private EmbeddedPostgres postgres;
+  private HikariDataSource dataSource;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private ReportingDataService reportingDataService;
+  private List<VehicleEntrantReportingRequest> requests;
+  private String message;
+
+  /**
+   * Starts the embedded Postgres, creates the schema and builds a message in which every tenth
+   * request is exempt and every fifth one is a taxi licensed by two authorities.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    postgres = EmbeddedPostgres.start();
+    HikariConfig config = new HikariConfig();
+    config.setDataSource(postgres.getPostgresDatabase());
+    dataSource = new HikariDataSource(config);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    for (String statement : SCHEMA) {
+      jdbcTemplate.execute(statement);
+    }
+    insertDimensions();
+
+    reportingDataService = new ReportingDataService(
+        new VehicleEntrantReportingBatchRepository(jdbcTemplate, 100),
+        new ReportingTypeApprovalRepository(jdbcTemplate),
+        new ReportingFuelTypeRepository(jdbcTemplate),
+        new ReportingVehicleTypeRepository(jdbcTemplate),
+        new ReportingExemptionReasonRepository(jdbcTemplate),
+        600);
+    requests = new ArrayList<>(messageSize);
+    for (int i = 0; i < messageSize; i++) {
+      requests.add(VehicleEntrantReportingRequest.builder()
+          .vrnHash(String.format("%064d", i))
+          .hour("2020-01-01T16:00:00Z")
+          .cleanAirZoneId(UUID.randomUUID())
+          .typeApproval(TYPE_APPROVALS[i % TYPE_APPROVALS.length])
+          .fuelType(FUEL_TYPES[i % FUEL_TYPES.length])
+          .vehicleType(VehicleType.values()[i % VehicleType.values().length])
+          .chargeValidityCode(i % 10 == 0 ? "CVC02" : "CVC01")
+          .exemptionReason(i % 10 == 0 ? EXEMPTION_REASONS[i / 10 % 2] : null)
+          .taxiPhvDescription(i % 5 == 0 ? "taxi" : null)
+          .licensingAuthorities(i % 5 == 0 ? Arrays.asList("la1", "la2") : null)
+          .make("Fiat")
+          .model("500")
+          .colour("Red")
+          .build());
+    }
+    try {
+      message = new ObjectMapper().writeValueAsString(requests);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void truncate() {
+    jdbcTemplate.execute("TRUNCATE caz_reporting.t_entrant_exemption, "
+        + "caz_reporting.t_entrant_taxi_phv, caz_reporting.t_vehicle_entrant_reporting");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    dataSource.close();
+    postgres.close();
+  }
+
+  @Benchmark
+  public void rowByRow() {
+    ReportingTypeApprovalRepository typeApprovals =
+        new ReportingTypeApprovalRepository(jdbcTemplate);
+    ReportingFuelTypeRepository fuelTypes = new ReportingFuelTypeRepository(jdbcTemplate);
+    ReportingVehicleTypeRepository vehicleTypes =
+        new ReportingVehicleTypeRepository(jdbcTemplate);
+    ReportingExemptionReasonRepository exemptionReasons =
+        new ReportingExemptionReasonRepository(jdbcTemplate);
+    for (VehicleEntrantReportingRequest request : requests) {
+      UUID id = UUID.randomUUID();
+      UUID typeApprovalId =
+          typeApprovals.findTypeApprovalId(request.getTypeApproval()).getTypeApprovalId();
+      UUID fuelTypeId = fuelTypes.findFuelTypeId(request.getFuelType()).getFuelTypeId();
+      UUID vehicleTypeId =
+          vehicleTypes.findVehicleTypeId(request.getVehicleType()).getVehicleTypeId();
+      jdbcTemplate.update("INSERT INTO caz_reporting.t_vehicle_entrant_reporting VALUES "
+              + "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", id, request.getVrnHash(),
+          Timestamp.valueOf(LocalDateTime.parse(request.getHour(),
+              ReportingDataService.DATE_TIME_FORMATTER)),
+          request.getCleanAirZoneId(), typeApprovalId, fuelTypeId,
+          request.getChargeValidityCode(), vehicleTypeId, request.getMake(), request.getModel(),
+          request.getColour(), request.isNonStandardUkPlateFormat());
+      if (request.getChargeValidityCode().equals("CVC02")) {
+        jdbcTemplate.update("INSERT INTO caz_reporting.t_entrant_exemption VALUES (?, ?, ?)",
+            UUID.randomUUID(), id, exemptionReasons
+                .findExemptionReasonId(request.getExemptionReason()).getExemptionReasonId());
+      }
+      if (request.getTaxiPhvDescription() != null) {
+        for (String licensingAuthority : request.getLicensingAuthorities()) {
+          jdbcTemplate.update("INSERT INTO caz_reporting.t_entrant_taxi_phv VALUES (?, ?, ?, ?)",
+              UUID.randomUUID(), id, request.getTaxiPhvDescription(), licensingAuthority);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void setBased() {
+    // the transaction is otherwise started by the @Transactional proxy of the repository
+    transactionTemplate.execute(status -> {
+      reportingDataService.process(message, "1");
+      return null;
+    });
+  }
+
+  private void insertDimensions() {
+    jdbcTemplate.update("INSERT INTO caz_reporting.t_type_approval VALUES (?, 'Unrecognised')",
+        UNRECOGNISED_TYPE_APPROVAL_ID);
+    jdbcTemplate.update("INSERT INTO caz_reporting.t_fuel_type VALUES (?, 'Unrecognised')",
+        UNRECOGNISED_FUEL_TYPE_ID);
+    jdbcTemplate.update("INSERT INTO caz_reporting.t_ccaz_vehicle_type "
+        + "VALUES (?, 'Unrecognised')", UNRECOGNISED_VEHICLE_TYPE_ID);
+    jdbcTemplate.update("INSERT INTO caz_reporting.t_exemption_reason "
+        + "VALUES (?, 'Unrecognised')", UNRECOGNISED_EXEMPTION_REASON_ID);
+    for (String typeApproval : TYPE_APPROVALS) {
+      jdbcTemplate.update("INSERT INTO caz_reporting.t_type_approval VALUES (?, ?)",
+          UUID.randomUUID(), typeApproval);
+    }
+    for (String fuelType : FUEL_TYPES) {
+      jdbcTemplate.update("INSERT INTO caz_reporting.t_fuel_type VALUES (?, ?)",
+          UUID.randomUUID(), fuelType);
+    }
+    for (VehicleType vehicleType : VehicleType.values()) {
+      jdbcTemplate.update("INSERT INTO caz_reporting.t_ccaz_vehicle_type VALUES (?, ?)",
+          UUID.randomUUID(), vehicleType.toString());
+    }
+    for (String exemptionReason : EXEMPTION_REASONS) {
+      jdbcTemplate.update("INSERT INTO caz_reporting.t_exemption_reason VALUES (?, ?)",
+          UUID.randomUUID(), exemptionReason);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(ReportingDataIngestionBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -1,103 +1,236 @@
 package uk.gov.caz.vcc.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static uk.gov.caz.vcc.repository.ReportingExemptionReasonRepository.UNRECOGNISED_EXEMPTION_REASON_ID;
+import static uk.gov.caz.vcc.repository.ReportingFuelTypeRepository.UNRECOGNISED_FUEL_TYPE_ID;
+import static uk.gov.caz.vcc.repository.ReportingTypeApprovalRepository.UNRECOGNISED_TYPE_APPROVAL_ID;
+import static uk.gov.caz.vcc.repository.ReportingVehicleTypeRepository.UNRECOGNISED_VEHICLE_TYPE_ID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.definitions.domain.VehicleType;
+import uk.gov.caz.vcc.domain.EntrantExemption;
+import uk.gov.caz.vcc.domain.EntrantTaxiPhv;
 import uk.gov.caz.vcc.domain.ReportingExemptionReason;
 import uk.gov.caz.vcc.domain.ReportingFuelType;
 import uk.gov.caz.vcc.domain.ReportingTypeApproval;
 import uk.gov.caz.vcc.domain.ReportingVehicleType;
-import uk.gov.caz.vcc.repository.EntrantExemptionRepository;
-import uk.gov.caz.vcc.repository.EntrantTaxiPhvRepository;
+import uk.gov.caz.vcc.domain.VehicleEntrantReporting;
+import uk.gov.caz.vcc.dto.VehicleEntrantReportingRequest;
 import uk.gov.caz.vcc.repository.ReportingExemptionReasonRepository;
 import uk.gov.caz.vcc.repository.ReportingFuelTypeRepository;
 import uk.gov.caz.vcc.repository.ReportingTypeApprovalRepository;
 import uk.gov.caz.vcc.repository.ReportingVehicleTypeRepository;
-import uk.gov.caz.vcc.repository.VehicleEntrantReportingRepository;
-
+import uk.gov.caz.vcc.repository.VehicleEntrantReportingBatchRepository;
 
 @ExtendWith(MockitoExtension.class)
 class ReportingDataServiceTest {
 
+  private static final UUID TYPE_APPROVAL_ID =
+      UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384");
+  private static final UUID FUEL_TYPE_ID =
+      UUID.fromString("1b3a6ce8-7ea5-4bfa-9c8b-3f1b4f2a1f10");
+  private static final UUID VEHICLE_TYPE_ID =
+      UUID.fromString("0c9e4ab4-3e7e-4c54-8b4c-5b0f1ed40d0e");
+  private static final UUID EXEMPTION_REASON_ID =
+      UUID.fromString("5f1d1b0a-2d5e-4b0f-a8b9-8f8a7fbd0b4c");
+  private static final UUID CLEAN_AIR_ZONE_ID =
+      UUID.fromString("131af03c-f7f4-4aef-81ee-aae4f56dbeb5");
+
   @Mock
-  private VehicleEntrantReportingRepository vehicleEntrantReportingRepository;
-  
-  @Mock
-  private EntrantTaxiPhvRepository entrantTaxiPhvRepository;
-  
-  @Mock
-  private EntrantExemptionRepository entrantExemptionRepository;
-  
+  private VehicleEntrantReportingBatchRepository vehicleEntrantReportingBatchRepository;
+
   @Mock
   private ReportingTypeApprovalRepository reportingTypeApprovalRepository;
-  
+
   @Mock
   private ReportingFuelTypeRepository reportingFuelTypeRepository;
-  
+
   @Mock
   private ReportingVehicleTypeRepository reportingVehicleTypeRepository;
-  
+
   @Mock
   private ReportingExemptionReasonRepository reportingExemptionReasonRepository;
 
-  @InjectMocks
+  @Captor
+  private ArgumentCaptor<List<VehicleEntrantReporting>> vehicleReportsCaptor;
+
+  @Captor
+  private ArgumentCaptor<List<EntrantExemption>> entrantExemptionsCaptor;
+
+  @Captor
+  private ArgumentCaptor<List<EntrantTaxiPhv>> entrantTaxiPhvsCaptor;
+
   private ReportingDataService reportingDataService;
-  
+
+  @BeforeEach
+  public void setUp() {
+    reportingDataService = new ReportingDataService(vehicleEntrantReportingBatchRepository,
+        reportingTypeApprovalRepository, reportingFuelTypeRepository,
+        reportingVehicleTypeRepository, reportingExemptionReasonRepository, 600);
+  }
+
   @Test
-  public void shouldReturnTypeApprovalId() {  
-    mockTypeApprovalPresenceInDatabase("S7");
-    UUID typeApprovalId = reportingDataService.getTypeApprovalId("S7");
-    assertThat(typeApprovalId).isEqualTo(UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384"));
+  public void shouldMapDimensionsToIds() throws JsonProcessingException {
+    mockDimensionsInDatabase();
+    VehicleEntrantReportingRequest request = requestBuilder()
+        .typeApproval("M1")
+        .fuelType("DIESEL")
+        .vehicleType(VehicleType.PRIVATE_CAR)
+        .build();
+
+    reportingDataService.process(toJson(request), "1");
+
+    VehicleEntrantReporting vehicleReport = captureInsertedRows().get(0);
+    assertThat(vehicleReport.getVehicleEntrantReportingId()).isNotNull();
+    assertThat(vehicleReport.getVrnHash()).isEqualTo("1234");
+    assertThat(vehicleReport.getHour()).isEqualTo(LocalDateTime.of(2020, 1, 1, 16, 0));
+    assertThat(vehicleReport.getCleanAirZoneId()).isEqualTo(CLEAN_AIR_ZONE_ID);
+    assertThat(vehicleReport.getTypeApprovalId()).isEqualTo(TYPE_APPROVAL_ID);
+    assertThat(vehicleReport.getFuelTypeId()).isEqualTo(FUEL_TYPE_ID);
+    assertThat(vehicleReport.getCcazVehicleTypeId()).isEqualTo(VEHICLE_TYPE_ID);
+    assertThat(entrantExemptionsCaptor.getValue()).isEmpty();
+    assertThat(entrantTaxiPhvsCaptor.getValue()).isEmpty();
   }
-  
+
   @Test
-  public void shouldReturnFuelTypeId() { 
-    mockFuelTypePresenceInDatabase("steam");
-    UUID fuelTypeId = reportingDataService.getFuelTypeId("steam");
-    assertThat(fuelTypeId).isEqualTo(UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384"));
-  } 
-  
+  public void shouldMapUnknownDimensionsToUnrecognisedIds() throws JsonProcessingException {
+    mockDimensionsInDatabase();
+    VehicleEntrantReportingRequest request = requestBuilder()
+        .typeApproval("m1")
+        .fuelType("steam")
+        .vehicleType(null)
+        .build();
+
+    reportingDataService.process(toJson(request), "1");
+
+    VehicleEntrantReporting vehicleReport = captureInsertedRows().get(0);
+    assertThat(vehicleReport.getTypeApprovalId()).isEqualTo(UNRECOGNISED_TYPE_APPROVAL_ID);
+    assertThat(vehicleReport.getFuelTypeId()).isEqualTo(UNRECOGNISED_FUEL_TYPE_ID);
+    assertThat(vehicleReport.getCcazVehicleTypeId()).isEqualTo(UNRECOGNISED_VEHICLE_TYPE_ID);
+  }
+
+  @Test
+  public void shouldInsertExemptionsAndTaxiPhvsOfAllRequestsInSingleBatch()
+      throws JsonProcessingException {
+    mockDimensionsInDatabase();
+    VehicleEntrantReportingRequest exempt = requestBuilder()
+        .chargeValidityCode("CVC02")
+        .exemptionReason("historic vehicle")
+        .build();
+    VehicleEntrantReportingRequest exemptWithUnknownReason = requestBuilder()
+        .chargeValidityCode("CVC02")
+        .exemptionReason("Unknown")
+        .build();
+    VehicleEntrantReportingRequest taxi = requestBuilder()
+        .taxiPhvDescription("taxi")
+        .licensingAuthorities(Arrays.asList("la1", "la2"))
+        .build();
+
+    reportingDataService.process(toJson(exempt, exemptWithUnknownReason, taxi), "1");
+
+    List<VehicleEntrantReporting> vehicleReports = captureInsertedRows();
+    assertThat(vehicleReports).hasSize(3);
+    List<EntrantExemption> entrantExemptions = entrantExemptionsCaptor.getValue();
+    assertThat(entrantExemptions).extracting(EntrantExemption::getVehicleEntrantReportingId)
+        .containsExactly(vehicleReports.get(0).getVehicleEntrantReportingId(),
+            vehicleReports.get(1).getVehicleEntrantReportingId());
+    assertThat(entrantExemptions).extracting(EntrantExemption::getExemptionReasonId)
+        .containsExactly(EXEMPTION_REASON_ID, UNRECOGNISED_EXEMPTION_REASON_ID);
+    List<EntrantTaxiPhv> entrantTaxiPhvs = entrantTaxiPhvsCaptor.getValue();
+    assertThat(entrantTaxiPhvs).extracting(EntrantTaxiPhv::getVehicleEntrantReportingId)
+        .containsOnly(vehicleReports.get(2).getVehicleEntrantReportingId());
+    assertThat(entrantTaxiPhvs).extracting(EntrantTaxiPhv::getLicensingAuthority)
+        .containsExactly("la1", "la2");
+  }
+
+  @Test
+  public void shouldLoadDimensionsOnceWithinTtl() throws JsonProcessingException {
+    mockDimensionsInDatabase();
+
+    reportingDataService.process(toJson(requestBuilder().build()), "1");
+    reportingDataService.process(toJson(requestBuilder().build()), "2");
+
+    verify(reportingTypeApprovalRepository).findAll();
+    verify(reportingFuelTypeRepository).findAll();
+    verify(reportingVehicleTypeRepository).findAll();
+    verify(reportingExemptionReasonRepository).findAll();
+    verify(vehicleEntrantReportingBatchRepository, times(2))
+        .insertAll(anyList(), anyList(), anyList());
+  }
+
   @Test
-  public void shouldReturnCorrectExemptionReasonId() {
-    mockExemptionReasonPresenceInDatabase("Historic Vehicle");
-    UUID exemptionReasonId = reportingDataService.getExemptionReasonId("Historic Vehicle");
-    assertThat(exemptionReasonId).isEqualTo(UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384"));
-  } 
-  
+  public void shouldReloadDimensionsAfterTtl() throws JsonProcessingException {
+    reportingDataService = new ReportingDataService(vehicleEntrantReportingBatchRepository,
+        reportingTypeApprovalRepository, reportingFuelTypeRepository,
+        reportingVehicleTypeRepository, reportingExemptionReasonRepository, 0);
+    mockDimensionsInDatabase();
+
+    reportingDataService.process(toJson(requestBuilder().build()), "1");
+    reportingDataService.process(toJson(requestBuilder().build()), "2");
+
+    verify(reportingTypeApprovalRepository, times(2)).findAll();
+  }
+
   @Test
-  public void shouldReturnCorrectVehicleTypeId() {   
-    mockVehicleTypePresenceInDatabase(VehicleType.BUS);
-    UUID vehicleTypeId = reportingDataService.getCcazVehicleTypeId(VehicleType.BUS);
-    assertThat(vehicleTypeId).isEqualTo(UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384"));
+  public void shouldNotInsertAnythingWhenMessageIsMalformed() {
+    reportingDataService.process("[{\"vrnHash\":", "1");
+
+    verify(vehicleEntrantReportingBatchRepository, never()).insertAll(any(), any(), any());
   }
-  
-  private void mockTypeApprovalPresenceInDatabase(String typeApproval) {
-    when(reportingTypeApprovalRepository.findTypeApprovalId(typeApproval)).thenReturn(
-        ReportingTypeApproval.builder().typeApprovalId(
-            UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384")).build());
+
+  private List<VehicleEntrantReporting> captureInsertedRows() {
+    verify(vehicleEntrantReportingBatchRepository).insertAll(vehicleReportsCaptor.capture(),
+        entrantExemptionsCaptor.capture(), entrantTaxiPhvsCaptor.capture());
+    return vehicleReportsCaptor.getValue();
   }
-  
-  private void mockExemptionReasonPresenceInDatabase(String exemptionReason) {
-    when(reportingExemptionReasonRepository.findExemptionReasonId(exemptionReason)).thenReturn(
-        ReportingExemptionReason.builder().exemptionReasonId(
-            UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384")).build());
+
+  private void mockDimensionsInDatabase() {
+    when(reportingTypeApprovalRepository.findAll()).thenReturn(Collections.singletonList(
+        ReportingTypeApproval.builder().typeApprovalId(TYPE_APPROVAL_ID).typeApproval("M1")
+            .build()));
+    when(reportingFuelTypeRepository.findAll()).thenReturn(Collections.singletonList(
+        ReportingFuelType.builder().fuelTypeId(FUEL_TYPE_ID).fuelType("diesel").build()));
+    when(reportingVehicleTypeRepository.findAll()).thenReturn(Collections.singletonList(
+        ReportingVehicleType.builder().vehicleTypeId(VEHICLE_TYPE_ID)
+            .vehicleType(VehicleType.PRIVATE_CAR.toString()).build()));
+    when(reportingExemptionReasonRepository.findAll()).thenReturn(Collections.singletonList(
+        ReportingExemptionReason.builder().exemptionReasonId(EXEMPTION_REASON_ID)
+            .exemptionReason("Historic Vehicle").build()));
   }
-  
-  private void mockFuelTypePresenceInDatabase(String fuelType) {
-    when(reportingFuelTypeRepository.findFuelTypeId(fuelType)).thenReturn(
-        ReportingFuelType.builder().fuelTypeId(
-            UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384")).build());
+
+  private static VehicleEntrantReportingRequest.VehicleEntrantReportingRequestBuilder
+      requestBuilder() {
+    return VehicleEntrantReportingRequest.builder()
+        .vrnHash("1234")
+        .hour("2020-01-01T16:00:00Z")
+        .cleanAirZoneId(CLEAN_AIR_ZONE_ID)
+        .chargeValidityCode("CVC01")
+        .make("Fiat")
+        .model("500")
+        .colour("Fuschia");
   }
-  
-  private void mockVehicleTypePresenceInDatabase(VehicleType vehicleType) {
-    when(reportingVehicleTypeRepository.findVehicleTypeId(vehicleType)).thenReturn(
-        ReportingVehicleType.builder().vehicleTypeId(
-            UUID.fromString("76ac1706-6078-4dd8-9aa3-679bdfbb2384")).build());
+
+  private static String toJson(VehicleEntrantReportingRequest... requests)
+      throws JsonProcessingException {
+    return new ObjectMapper().writeValueAsString(Arrays.asList(requests));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package uk.gov.caz.vcc.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.gov.caz.vcc.dto.VehicleEntrantSaveDto;
+
+/**
+ * Compares correlating results back to incoming vehicle entrants with linear scans (the former
+ * implementation of {@link VehicleEntrantsService}) against {@link VehicleEntrantsIndex}.
+ *
+ * <p>Run with {@code make benchmark} or by executing the {@code main} method.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleEntrantsCorrelationBenchmark {
+
+  @Param({"10", "500", "5000"})
+  private int batchSize;
+
+  private List<VehicleEntrantSaveDto> vehicleEntrants;
+
+  // VRNs of the entrants which were resolved without calling DVLA (every third one)
+  private List<String> processedWithoutDvla;
+
+  // VRNs of the results in the order in which they are produced by the service
+  private List<String> resultVrns;
+
+  @Setup
+  public void setUp() {
+    LocalDateTime now = LocalDateTime.now();
+    vehicleEntrants = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      vehicleEntrants.add(new VehicleEntrantSaveDto(String.format("VRN%05d", i), now));
+    }
+    processedWithoutDvla = new ArrayList<>();
+    for (int i = 0; i < batchSize; i += 3) {
+      processedWithoutDvla.add(vehicleEntrants.get(i).getVrn());
+    }
+    resultVrns = vehicleEntrants.stream()
+        .map(VehicleEntrantSaveDto::getVrn)
+        .collect(Collectors.toList());
+    Collections.shuffle(resultVrns, new Random(batchSize));
+  }
+
+  @Benchmark
+  public void linearScan(Blackhole blackhole) {
+    List<VehicleEntrantSaveDto> remaining = vehicleEntrants.stream()
+        .filter(vehicleEntrant -> processedWithoutDvla.stream()
+            .noneMatch(vrn -> vrn.equalsIgnoreCase(vehicleEntrant.getVrn())))
+        .collect(Collectors.toList());
+    blackhole.consume(remaining);
+
+    List<String> results = new ArrayList<>(resultVrns);
+    results.sort(Comparator.comparing(vrn -> vehicleEntrants.indexOf(
+        vehicleEntrants.stream().filter(ve -> ve.getVrn().equalsIgnoreCase(vrn))
+            .findFirst().get())));
+
+    for (String vrn : results) {
+      blackhole.consume(vehicleEntrants.stream()
+          .filter(e -> e.getVrn().equals(vrn)).findFirst().get());
+    }
+  }
+
+  @Benchmark
+  public void indexed(Blackhole blackhole) {
+    VehicleEntrantsIndex index = VehicleEntrantsIndex.of(vehicleEntrants);
+    blackhole.consume(index.excluding(processedWithoutDvla));
+
+    List<String> results = new ArrayList<>(resultVrns);
+    results.sort(Comparator.comparingInt(index::positionOf));
+
+    for (String vrn : results) {
+      blackhole.consume(index.findFirstByVrn(vrn).get());
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(VehicleEntrantsCorrelationBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
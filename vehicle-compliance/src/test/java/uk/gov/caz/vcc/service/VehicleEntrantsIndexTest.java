@@ -0,0 +1,66 @@
+package uk.gov.caz.vcc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import uk.gov.caz.vcc.dto.VehicleEntrantSaveDto;
+
+class VehicleEntrantsIndexTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.now();
+
+  private static final VehicleEntrantSaveDto FIRST = entrant("CU57ABC", NOW);
+  private static final VehicleEntrantSaveDto SECOND = entrant("SW61BYD", NOW);
+  private static final VehicleEntrantSaveDto SECOND_LATER = entrant("SW61BYD", NOW.plusMinutes(5));
+  private static final VehicleEntrantSaveDto THIRD = entrant("ND84SX", NOW);
+
+  private final VehicleEntrantsIndex index = VehicleEntrantsIndex
+      .of(Arrays.asList(FIRST, SECOND, SECOND_LATER, THIRD));
+
+  @Test
+  public void shouldFindFirstEntrantIgnoringCase() {
+    assertThat(index.findFirstByVrn("sw61byd")).contains(SECOND);
+    assertThat(index.findFirstByVrn("ND84SX")).contains(THIRD);
+  }
+
+  @Test
+  public void shouldReturnEmptyForUnknownVrn() {
+    assertThat(index.findFirstByVrn("UNKNOWN")).isEmpty();
+  }
+
+  @Test
+  public void shouldReturnPositionOfFirstEntrant() {
+    assertThat(index.positionOf("CU57ABC")).isZero();
+    assertThat(index.positionOf("SW61BYD")).isEqualTo(1);
+    assertThat(index.positionOf("nd84sx")).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldThrowWhenPositionOfUnknownVrnIsRequested() {
+    assertThatThrownBy(() -> index.positionOf("UNKNOWN"))
+        .isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void shouldExcludeAllEntrantsWithGivenVrnsKeepingOrder() {
+    List<VehicleEntrantSaveDto> result = index.excluding(Collections.singletonList("sw61byd"));
+
+    assertThat(result).containsExactly(FIRST, THIRD);
+  }
+
+  @Test
+  public void shouldReturnAllEntrantsWhenNothingIsExcluded() {
+    assertThat(index.excluding(Collections.emptyList()))
+        .containsExactly(FIRST, SECOND, SECOND_LATER, THIRD);
+  }
+
+  private static VehicleEntrantSaveDto entrant(String vrn, LocalDateTime timestamp) {
+    return VehicleEntrantSaveDto.builder().vrn(vrn).timestamp(timestamp).build();
+  }
+}
@@ -49,6 +49,7 @@ import uk.gov.caz.definitions.domain.VehicleType;
 import uk.gov.caz.vcc.domain.CalculationResult;
 import uk.gov.caz.vcc.domain.ChargeValidity;
 import uk.gov.caz.vcc.domain.CleanAirZoneEntrant;
+import uk.gov.caz.vcc.domain.GeneralWhitelistIndex;
 import uk.gov.caz.vcc.domain.GeneralWhitelistVehicle;
 import uk.gov.caz.vcc.domain.RetrofittedVehicle;
 import uk.gov.caz.vcc.domain.TariffDetails;
@@ -662,7 +663,7 @@ class VehicleEntrantsServiceTest {
 
       given(generalWhitelistService
           .isOnGeneralPurposeWhitelistAndHasCategoryNonUk(vrn,
-              mockedResult)).willReturn(nonUk);
+              GeneralWhitelistIndex.of(mockedResult))).willReturn(nonUk);
     }
 
     private void mockGpwlWithProblematicVrn(String category, boolean compliant, boolean exempt, boolean nonUk,
@@ -671,12 +672,13 @@ class VehicleEntrantsServiceTest {
           exempt, vrn);
 
       given(generalWhitelistService
-          .isOnGeneralPurposeWhitelistAndHasCategoryProblematicVrn(SOME_VRN, mockedResult))
+          .isOnGeneralPurposeWhitelistAndHasCategoryProblematicVrn(SOME_VRN,
+              GeneralWhitelistIndex.of(mockedResult)))
           .willReturn(true);
 
       given(generalWhitelistService
           .isOnGeneralPurposeWhitelistAndHasCategoryNonUk(vrn,
-              mockedResult)).willReturn(nonUk);
+              GeneralWhitelistIndex.of(mockedResult))).willReturn(nonUk);
 
     }
 
@@ -764,7 +766,9 @@ class VehicleEntrantsServiceTest {
 
       // when
       CleanAirZoneEntrant mappedEntrant = vehicleEntrantsService
-          .toModel(vehicleEntrantsSaveRequestDto, vehicleResultDto);
+          .toModel(vehicleEntrantsSaveRequestDto,
+              VehicleEntrantsIndex.of(vehicleEntrantsSaveRequestDto.getVehicleEntrants()),
+              vehicleResultDto);
 
       // then
       assertThat(mappedEntrant.getChargeValidityCode().getChargeValidityCode())
@@ -0,0 +1,214 @@
+package uk.gov.caz.vcc.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import lombok.Value;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
+
+/**
+ * Local, in-memory stand-in of S3 which supports the object and multipart upload operations
+ * used by the bulk checker. Every write advances the last modification time of the object by a
+ * second.
+ */
+public class InMemoryS3Client implements S3Client {
+
+  private final Map<String, StoredObject> objects = new HashMap<>();
+  private final Map<String, Map<Integer, byte[]>> multipartUploads = new HashMap<>();
+  private Instant clock = Instant.parse("2020-01-01T00:00:00Z");
+
+  public void putString(String bucket, String key, String content) {
+    store(bucket, key, content.getBytes(StandardCharsets.UTF_8), Collections.emptyMap());
+  }
+
+  public String getString(String bucket, String key) {
+    StoredObject object = objects.get(bucket + "/" + key);
+    return object == null ? null : new String(object.getContent(), StandardCharsets.UTF_8);
+  }
+
+  public boolean exists(String bucket, String key) {
+    return objects.containsKey(bucket + "/" + key);
+  }
+
+  public int pendingMultipartUploadsCount() {
+    return multipartUploads.size();
+  }
+
+  @Override
+  public HeadObjectResponse headObject(HeadObjectRequest request) {
+    StoredObject object = find(request.bucket(), request.key());
+    return HeadObjectResponse.builder()
+        .contentLength((long) object.getContent().length)
+        .lastModified(object.getLastModified())
+        .metadata(object.getMetadata())
+        .build();
+  }
+
+  @Override
+  public <T> T getObject(GetObjectRequest request,
+      ResponseTransformer<GetObjectResponse, T> responseTransformer) {
+    StoredObject object = find(request.bucket(), request.key());
+    try {
+      return responseTransformer.transform(
+          GetObjectResponse.builder()
+              .contentLength((long) object.getContent().length)
+              .lastModified(object.getLastModified())
+              .metadata(object.getMetadata())
+              .build(),
+          AbortableInputStream.create(new ByteArrayInputStream(object.getContent())));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+    return getObject(request, ResponseTransformer.toInputStream());
+  }
+
+  @Override
+  public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+    store(request.bucket(), request.key(), read(requestBody), request.metadata());
+    return PutObjectResponse.builder().build();
+  }
+
+  @Override
+  public CopyObjectResponse copyObject(CopyObjectRequest request) {
+    StoredObject source = objects.get(SdkHttpUtils.urlDecode(request.copySource()));
+    if (source == null) {
+      throw NoSuchKeyException.builder().build();
+    }
+    store(request.bucket(), request.key(), source.getContent(), request.metadata());
+    return CopyObjectResponse.builder().build();
+  }
+
+  @Override
+  public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+    objects.remove(request.bucket() + "/" + request.key());
+    return DeleteObjectResponse.builder().build();
+  }
+
+  @Override
+  public CreateMultipartUploadResponse createMultipartUpload(
+      CreateMultipartUploadRequest request) {
+    String uploadId = UUID.randomUUID().toString();
+    multipartUploads.put(uploadId, new TreeMap<>());
+    return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+  }
+
+  @Override
+  public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+    findUpload(request.uploadId()).put(request.partNumber(), read(requestBody));
+    return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+  }
+
+  @Override
+  public CompleteMultipartUploadResponse completeMultipartUpload(
+      CompleteMultipartUploadRequest request) {
+    Map<Integer, byte[]> parts = findUpload(request.uploadId());
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    for (CompletedPart part : request.multipartUpload().parts()) {
+      byte[] partContent = parts.get(part.partNumber());
+      content.write(partContent, 0, partContent.length);
+    }
+    multipartUploads.remove(request.uploadId());
+    store(request.bucket(), request.key(), content.toByteArray(), Collections.emptyMap());
+    return CompleteMultipartUploadResponse.builder().build();
+  }
+
+  @Override
+  public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+    findUpload(request.uploadId());
+    multipartUploads.remove(request.uploadId());
+    return AbortMultipartUploadResponse.builder().build();
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private void store(String bucket, String key, byte[] content, Map<String, String> metadata) {
+    clock = clock.plusSeconds(1);
+    objects.put(bucket + "/" + key, new StoredObject(content, new HashMap<>(metadata), clock));
+  }
+
+  private StoredObject find(String bucket, String key) {
+    StoredObject object = objects.get(bucket + "/" + key);
+    if (object == null) {
+      throw NoSuchKeyException.builder().build();
+    }
+    return object;
+  }
+
+  private Map<Integer, byte[]> findUpload(String uploadId) {
+    Map<Integer, byte[]> parts = multipartUploads.get(uploadId);
+    if (parts == null) {
+      throw NoSuchUploadException.builder().build();
+    }
+    return parts;
+  }
+
+  private static byte[] read(RequestBody requestBody) {
+    try (InputStream input = requestBody.contentStreamProvider().newStream()) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+      return output.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Value
+  private static class StoredObject {
+
+    byte[] content;
+
+    Map<String, String> metadata;
+
+    Instant lastModified;
+  }
+}
@@ -0,0 +1,85 @@
+package uk.gov.caz.vcc.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.gov.caz.common.util.Sha256Hasher;
+
+/**
+ * Compares hashing VRNs with a new {@link MessageDigest} per call and a synchronized
+ * {@link StringBuffer} (the former implementation of {@link Sha2Hasher}) against
+ * {@link Sha256Hasher}, which reuses a digest per thread and converts to hex with a lookup table.
+ *
+ * <p>Run with {@code make benchmark BENCHMARK=VrnHashingBenchmark} (add {@code -prof gc} to
+ * report the allocation rate) or by executing the {@code main} method.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class VrnHashingBenchmark {
+
+  private static final int VRN_COUNT = 1024;
+
+  private final String[] vrns = new String[VRN_COUNT];
+
+  private int next;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < VRN_COUNT; i++) {
+      vrns[i] = String.format("CU%02dA%03d", i % 100, i);
+    }
+  }
+
+  @Benchmark
+  public String digestPerCall() throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    byte[] hash = digest.digest(nextVrn().getBytes(StandardCharsets.UTF_8));
+    StringBuffer hexString = new StringBuffer();
+    for (int i = 0; i < hash.length; i++) {
+      String hex = Integer.toHexString(0xff & hash[i]);
+      if (hex.length() == 1) {
+        hexString.append('0');
+      }
+      hexString.append(hex);
+    }
+    return hexString.toString();
+  }
+
+  @Benchmark
+  public String threadLocalDigest() {
+    return Sha256Hasher.sha256Hash(nextVrn());
+  }
+
+  private String nextVrn() {
+    next = (next + 1) & (VRN_COUNT - 1);
+    return vrns[next];
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(VrnHashingBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}